@@ -0,0 +1,202 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+import java.util.Arrays;
+
+/**
+ * A batch of rows laid out column by column, as consumed by
+ * {@link VectorizedAnalyzer}s and {@link VectorizedTransformer}s.
+ *
+ * For every column of the batch the values of all rows are available as a
+ * single array, along with a bitmap of which values are null. The original
+ * rows and their distinct counts are retained as well, for components that
+ * need them (eg. to annotate rows).
+ *
+ * A batch is filled by the framework and is only valid during the invocation
+ * that it is passed to - components should not keep references to it or to its
+ * value arrays.
+ */
+public final class ColumnBatch {
+
+    /**
+     * The default (and maximum) number of rows in a batch.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final InputColumn<?>[] _columns;
+    private final Object[][] _values;
+    private final long[][] _nullBits;
+    private final int[] _nullCounts;
+    private final InputRow[] _rows;
+    private final int[] _distinctCounts;
+    private int _size;
+
+    public ColumnBatch(final InputColumn<?>[] columns) {
+        this(columns, DEFAULT_CAPACITY);
+    }
+
+    public ColumnBatch(final InputColumn<?>[] columns, final int capacity) {
+        if (columns == null) {
+            throw new IllegalArgumentException("Columns cannot be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive number, was: " + capacity);
+        }
+        _columns = columns;
+        _values = new Object[columns.length][capacity];
+        _nullBits = new long[columns.length][(capacity + 63) >>> 6];
+        _nullCounts = new int[columns.length];
+        _rows = new InputRow[capacity];
+        _distinctCounts = new int[capacity];
+        _size = 0;
+    }
+
+    /**
+     * Adds a row to the batch, reading the values of all the batch's columns
+     * from it.
+     *
+     * @param row
+     * @param distinctCount
+     * @throws IllegalStateException
+     *             if the batch is full
+     */
+    public void add(final InputRow row, final int distinctCount) throws IllegalStateException {
+        if (isFull()) {
+            throw new IllegalStateException("Batch is full, capacity: " + getCapacity());
+        }
+        final int rowIndex = _size;
+        for (int i = 0; i < _columns.length; i++) {
+            final Object value = row.getValue(_columns[i]);
+            _values[i][rowIndex] = value;
+            if (value == null) {
+                _nullBits[i][rowIndex >>> 6] |= 1L << rowIndex;
+                _nullCounts[i]++;
+            }
+        }
+        _rows[rowIndex] = row;
+        _distinctCounts[rowIndex] = distinctCount;
+        _size++;
+    }
+
+    /**
+     * Removes all rows from the batch, so that it can be filled again.
+     */
+    public void clear() {
+        for (int i = 0; i < _columns.length; i++) {
+            Arrays.fill(_values[i], 0, _size, null);
+            Arrays.fill(_nullBits[i], 0L);
+            _nullCounts[i] = 0;
+        }
+        Arrays.fill(_rows, 0, _size, null);
+        _size = 0;
+    }
+
+    public boolean isFull() {
+        return _size == _rows.length;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public int getCapacity() {
+        return _rows.length;
+    }
+
+    /**
+     * Gets the number of rows in the batch.
+     *
+     * @return
+     */
+    public int size() {
+        return _size;
+    }
+
+    public int getColumnCount() {
+        return _columns.length;
+    }
+
+    public InputColumn<?> getColumn(final int columnIndex) {
+        return _columns[columnIndex];
+    }
+
+    /**
+     * Gets the index of a column in the batch.
+     *
+     * @param column
+     * @return the index of the column, or -1 if the column is not in the batch
+     */
+    public int getColumnIndex(final InputColumn<?> column) {
+        for (int i = 0; i < _columns.length; i++) {
+            if (_columns[i] == column) {
+                return i;
+            }
+        }
+        for (int i = 0; i < _columns.length; i++) {
+            if (_columns[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the values of a column. Note that the returned array is the backing
+     * array of the batch, which may be longer than {@link #size()}.
+     *
+     * @param columnIndex
+     * @return
+     */
+    public Object[] getValues(final int columnIndex) {
+        return _values[columnIndex];
+    }
+
+    public Object getValue(final int columnIndex, final int rowIndex) {
+        return _values[columnIndex][rowIndex];
+    }
+
+    public boolean isNull(final int columnIndex, final int rowIndex) {
+        return (_nullBits[columnIndex][rowIndex >>> 6] & (1L << rowIndex)) != 0;
+    }
+
+    /**
+     * Gets the null bitmap of a column. Bit (i % 64) of word (i / 64) is set if
+     * the value of row i is null.
+     *
+     * @param columnIndex
+     * @return
+     */
+    public long[] getNullBits(final int columnIndex) {
+        return _nullBits[columnIndex];
+    }
+
+    public int getNullCount(final int columnIndex) {
+        return _nullCounts[columnIndex];
+    }
+
+    public InputRow getRow(final int rowIndex) {
+        return _rows[rowIndex];
+    }
+
+    public int getDistinctCount(final int rowIndex) {
+        return _distinctCounts[rowIndex];
+    }
+}
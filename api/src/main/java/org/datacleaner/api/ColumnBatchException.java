@@ -0,0 +1,55 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+/**
+ * Exception thrown by a {@link VectorizedAnalyzer} when consuming a
+ * {@link ColumnBatch} fails, identifying the row of the batch that caused the
+ * error. This allows the framework to report the error for that row only,
+ * like it would have been reported when consuming the rows one by one.
+ */
+public class ColumnBatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _rowIndex;
+
+    /**
+     * Constructs a {@link ColumnBatchException}
+     *
+     * @param rowIndex
+     *            the index (in the batch) of the row that caused the error
+     * @param cause
+     *            the error that occurred while consuming the row
+     */
+    public ColumnBatchException(final int rowIndex, final RuntimeException cause) {
+        super("Error consuming row " + rowIndex + " of batch: " + cause.getMessage(), cause);
+        _rowIndex = rowIndex;
+    }
+
+    public int getRowIndex() {
+        return _rowIndex;
+    }
+
+    @Override
+    public synchronized RuntimeException getCause() {
+        return (RuntimeException) super.getCause();
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+import java.util.List;
+
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.Query;
+
+/**
+ * An analyzer which can, under certain circumstances, be optimized by using a
+ * "push down" technique, where the analyzer's result is computed by aggregate
+ * queries in the datastore instead of by consuming every row of the job.
+ *
+ * Query optimized analyzers should implement BOTH the regular run(...) method
+ * and the optimization-methods in this interface. There is no guarantee that
+ * the analyzer will be optimized, but in cases where all of the analyzer's
+ * input columns are physical columns of the source table and the analyzer
+ * only depends on filter outcomes which are optimized into the query, it may
+ * be allowed to compute its result from aggregate queries. In that case the
+ * run(...) method will not be invoked at all, but the aggregated rows will be
+ * passed to {@link #runAggregate(int, Row)} before {@link #getResult()} is
+ * invoked.
+ *
+ * @param <R>
+ *            the result type of this analyzer.
+ */
+public interface QueryOptimizedAnalyzer<R extends AnalyzerResult> extends Analyzer<R> {
+
+    /**
+     * Inquires the analyzer if it is optimizable by the use of aggregate
+     * queries, given its current configuration.
+     *
+     * @return a boolean indicating whether or not the analyzer is query
+     *         optimizable.
+     */
+    boolean isOptimizable();
+
+    /**
+     * Creates the aggregate queries that will provide the analyzer with the
+     * information needed to produce its result.
+     *
+     * This method will only be invoked if a preceding call to
+     * {@link #isOptimizable()} returned true.
+     *
+     * @param baseQuery
+     *            the query that would otherwise feed the analyzer with rows.
+     *            Aggregate queries should be based on (a clone of) this query,
+     *            in order to retain its from and where clauses.
+     * @return a list of aggregate queries
+     */
+    List<Query> createAggregateQueries(Query baseQuery);
+
+    /**
+     * Runs/consumes a row of one of the aggregate queries.
+     *
+     * @param queryIndex
+     *            the index of the query (in the list returned by
+     *            {@link #createAggregateQueries(Query)}) that the row pertains
+     *            to.
+     * @param row
+     *            the aggregated row
+     */
+    void runAggregate(int queryIndex, Row row);
+}
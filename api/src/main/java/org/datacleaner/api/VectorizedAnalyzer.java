@@ -0,0 +1,48 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+/**
+ * An {@link Analyzer} which can consume rows in batches, laid out column by
+ * column in a {@link ColumnBatch}. This allows tight loops over the values of a
+ * column, and lets the analyzer synchronize and look up its per-column state
+ * once per batch instead of once per row.
+ *
+ * Vectorized analyzers should implement BOTH the regular
+ * {@link #run(InputRow, int)} method and {@link #run(ColumnBatch)}. The
+ * framework decides which of them to invoke for a given set of rows, and the
+ * two must produce the same result.
+ *
+ * @param <R>
+ *            the result type of this analyzer.
+ */
+public interface VectorizedAnalyzer<R extends AnalyzerResult> extends Analyzer<R> {
+
+    /**
+     * Executes the analyzer for a batch of rows. The batch contains (at least)
+     * the analyzer's configured input columns.
+     *
+     * @param batch
+     *            the batch of rows to analyze
+     * @throws ColumnBatchException
+     *             if consuming one of the rows fails, identifying the row
+     */
+    void run(ColumnBatch batch) throws ColumnBatchException;
+}
@@ -0,0 +1,46 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+/**
+ * A {@link Transformer} which can transform rows in batches, laid out column by
+ * column in a {@link ColumnBatch}.
+ *
+ * Vectorized transformers should implement BOTH the regular
+ * {@link #transform(InputRow)} method and {@link #transform(ColumnBatch)}. The
+ * framework decides which of them to invoke for a given set of rows, and the
+ * two must produce the same output. Vectorized transformers cannot use an
+ * {@link OutputRowCollector}.
+ */
+public interface VectorizedTransformer extends Transformer {
+
+    /**
+     * Transforms a batch of rows. The batch contains (at least) the
+     * transformer's configured input columns.
+     *
+     * @param batch
+     *            the batch of rows to transform
+     * @return an array with an element for every row of the batch, each
+     *         containing the values of the output columns (see
+     *         {@link #getOutputColumns()}), or null if no output should be
+     *         produced for the row
+     */
+    Object[][] transform(ColumnBatch batch);
+}
@@ -46,6 +46,20 @@ public interface TaskRunner {
      */
     void run(TaskRunnable taskRunnable);
 
+    /**
+     * Submits a {@link TaskRunnable} to the {@link TaskRunner} if that can be
+     * done without blocking the calling thread. If not (eg. because the task
+     * runner's queue is full), the task is not submitted and it is up to the
+     * caller to execute it.
+     *
+     * @param taskRunnable
+     * @return true if the task was submitted, false if not
+     */
+    default boolean tryRun(final TaskRunnable taskRunnable) {
+        run(taskRunnable);
+        return true;
+    }
+
     /**
      * Shuts down the {@link TaskRunner}, cleaning up allocated threads and
      * making it unusable for future use.
@@ -60,4 +74,17 @@ public interface TaskRunner {
      * complete.
      */
     void assistExecution();
+
+    /**
+     * Gets the preferred number of rows to dispatch per row processing task.
+     * A value of 1 (the default) means that every row is submitted as a
+     * separate task. Higher values let row processing publishers hand over
+     * micro-batches of rows, reducing the per-row overhead of task creation,
+     * queueing and progress reporting.
+     *
+     * @return the preferred number of rows per row processing task
+     */
+    default int getRowBatchSize() {
+        return 1;
+    }
 }
@@ -28,13 +28,15 @@ import java.util.TreeSet;
 
 import javax.inject.Named;
 
-import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.ColumnBatch;
+import org.datacleaner.api.ColumnBatchException;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.VectorizedAnalyzer;
 import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.Crosstab;
 import org.datacleaner.result.CrosstabDimension;
@@ -46,7 +48,7 @@ import org.datacleaner.util.ValueCombination;
 
 @Named("Boolean analyzer")
 @Description("Inspect your boolean values. How is the distribution of true/false? Are there null values?")
-public class BooleanAnalyzer implements Analyzer<BooleanAnalyzerResult> {
+public class BooleanAnalyzer implements VectorizedAnalyzer<BooleanAnalyzerResult> {
 
     public static final String MEASURE_LEAST_FREQUENT = "Least frequent";
     public static final String MEASURE_MOST_FREQUENT = "Most frequent";
@@ -108,16 +110,53 @@ public class BooleanAnalyzer implements Analyzer<BooleanAnalyzerResult> {
 
         // collect all combinations of booleans
         if (_columns.length > 1) {
-            final ValueCombination<Boolean> valueCombination = new ValueCombination<>(values);
-            RowAnnotation annotation = _valueCombinations.get(valueCombination);
-            if (annotation == null) {
-                annotation = _annotationFactory.createAnnotation();
-                _valueCombinations.put(valueCombination, annotation);
+            annotateValueCombination(values, row, distinctCount);
+        }
+    }
+
+    @Override
+    public void run(final ColumnBatch batch) {
+        final int size = batch.size();
+        final Object[][] columnValues = new Object[_columns.length][];
+        for (int i = 0; i < _columns.length; i++) {
+            final InputColumn<Boolean> col = _columns[i];
+            final BooleanAnalyzerColumnDelegate delegate = _columnDelegates.get(col);
+            final Object[] values = batch.getValues(batch.getColumnIndex(col));
+            for (int j = 0; j < size; j++) {
+                try {
+                    delegate.run((Boolean) values[j], batch.getRow(j), batch.getDistinctCount(j));
+                } catch (final RuntimeException e) {
+                    throw new ColumnBatchException(j, e);
+                }
+            }
+            columnValues[i] = values;
+        }
+
+        if (_columns.length > 1) {
+            for (int j = 0; j < size; j++) {
+                final Boolean[] values = new Boolean[_columns.length];
+                try {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = (Boolean) columnValues[i][j];
+                    }
+                    annotateValueCombination(values, batch.getRow(j), batch.getDistinctCount(j));
+                } catch (final RuntimeException e) {
+                    throw new ColumnBatchException(j, e);
+                }
             }
-            _annotationFactory.annotate(row, distinctCount, annotation);
         }
     }
 
+    private void annotateValueCombination(final Boolean[] values, final InputRow row, final int distinctCount) {
+        final ValueCombination<Boolean> valueCombination = new ValueCombination<>(values);
+        RowAnnotation annotation = _valueCombinations.get(valueCombination);
+        if (annotation == null) {
+            annotation = _annotationFactory.createAnnotation();
+            _valueCombinations.put(valueCombination, annotation);
+        }
+        _annotationFactory.annotate(row, distinctCount, annotation);
+    }
+
     @Override
     public BooleanAnalyzerResult getResult() {
         CrosstabDimension measureDimension = new CrosstabDimension(DIMENSION_MEASURE);
@@ -31,7 +31,8 @@ import javax.inject.Named;
 
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.util.HasName;
-import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.ColumnBatch;
+import org.datacleaner.api.ColumnBatchException;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.HasOutputDataStreams;
@@ -41,6 +42,7 @@ import org.datacleaner.api.InputRow;
 import org.datacleaner.api.MappedProperty;
 import org.datacleaner.api.OutputDataStream;
 import org.datacleaner.api.OutputRowCollector;
+import org.datacleaner.api.VectorizedAnalyzer;
 import org.datacleaner.job.output.OutputDataStreamBuilder;
 import org.datacleaner.job.output.OutputDataStreams;
 import org.datacleaner.storage.InMemoryRowAnnotationFactory2;
@@ -51,7 +53,7 @@ import com.google.common.base.Strings;
 
 @Named("Completeness analyzer")
 @Description("Asserts the completeness of your data by ensuring that all required fields are filled.")
-public class CompletenessAnalyzer implements Analyzer<CompletenessAnalyzerResult>, HasOutputDataStreams {
+public class CompletenessAnalyzer implements VectorizedAnalyzer<CompletenessAnalyzerResult>, HasOutputDataStreams {
     public enum Condition implements HasName {
 
         NOT_BLANK_OR_NULL("Not <blank> or <null>", Condition::isNotNullOrEmpty),
@@ -160,32 +162,75 @@ public class CompletenessAnalyzer implements Analyzer<CompletenessAnalyzerResult
     @Override
     public void run(final InputRow row, final int distinctCount) {
         _rowCount.addAndGet(distinctCount);
-        boolean allInvalid = true;
+        boolean anyValid = false;
+        boolean anyInvalid = false;
         for (int i = 0; i < _valueColumns.length; i++) {
             final Object value = row.getValue(_valueColumns[i]);
-            final boolean valid = _conditions[i].isValid(value);
-            if (_evaluationMode == EvaluationMode.ANY_FIELD && !valid) {
-                _annotationFactory.annotate(row, distinctCount, _invalidRecords);
-                if (_incompleteRowCollector != null) {
-                    _incompleteRowCollector.putValues(row.getValues(_outputDataStreamColumns).toArray());
+            if (_conditions[i].isValid(value)) {
+                anyValid = true;
+            } else {
+                anyInvalid = true;
+                if (_evaluationMode == EvaluationMode.ANY_FIELD) {
+                    break;
                 }
-                return;
             }
+        }
+        handleRow(row, distinctCount, isComplete(anyValid, anyInvalid));
+    }
+
+    @Override
+    public void run(final ColumnBatch batch) {
+        final int size = batch.size();
+        final boolean[] anyValid = new boolean[size];
+        final boolean[] anyInvalid = new boolean[size];
+        for (int i = 0; i < _valueColumns.length; i++) {
+            final Condition condition = _conditions[i];
+            final Object[] values = batch.getValues(batch.getColumnIndex(_valueColumns[i]));
+            for (int j = 0; j < size; j++) {
+                final boolean valid;
+                try {
+                    valid = condition.isValid(values[j]);
+                } catch (final RuntimeException e) {
+                    throw new ColumnBatchException(j, e);
+                }
+                if (valid) {
+                    anyValid[j] = true;
+                } else {
+                    anyInvalid[j] = true;
+                }
+            }
+        }
 
-            if (valid) {
-                allInvalid = false;
+        int rowCount = 0;
+        for (int j = 0; j < size; j++) {
+            final int distinctCount = batch.getDistinctCount(j);
+            rowCount += distinctCount;
+            try {
+                handleRow(batch.getRow(j), distinctCount, isComplete(anyValid[j], anyInvalid[j]));
+            } catch (final RuntimeException e) {
+                throw new ColumnBatchException(j, e);
             }
         }
-        if (_evaluationMode == EvaluationMode.ALL_FIELDS && allInvalid) {
+        _rowCount.addAndGet(rowCount);
+    }
+
+    private boolean isComplete(final boolean anyValid, final boolean anyInvalid) {
+        if (_evaluationMode == EvaluationMode.ANY_FIELD) {
+            return !anyInvalid;
+        }
+        return anyValid;
+    }
+
+    private void handleRow(final InputRow row, final int distinctCount, final boolean complete) {
+        if (complete) {
+            if (_completeRowCollector != null) {
+                _completeRowCollector.putValues(row.getValues(_outputDataStreamColumns).toArray());
+            }
+        } else {
             _annotationFactory.annotate(row, distinctCount, _invalidRecords);
             if (_incompleteRowCollector != null) {
                 _incompleteRowCollector.putValues(row.getValues(_outputDataStreamColumns).toArray());
             }
-            return;
-        }
-
-        if (_completeRowCollector != null) {
-            _completeRowCollector.putValues(row.getValues(_outputDataStreamColumns).toArray());
         }
     }
 
@@ -19,17 +19,21 @@
  */
 package org.datacleaner.beans;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math.stat.descriptive.StatisticalSummary;
 import org.apache.commons.math.stat.descriptive.SummaryStatistics;
-import org.apache.commons.math.stat.descriptive.moment.SecondMoment;
-import org.datacleaner.api.Analyzer;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
@@ -37,10 +41,13 @@ import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.api.VectorizedAnalyzer;
 import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.Crosstab;
 import org.datacleaner.result.CrosstabDimension;
 import org.datacleaner.result.CrosstabNavigator;
+import org.datacleaner.storage.DummyRowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
@@ -57,11 +64,18 @@ import org.datacleaner.storage.RowAnnotations;
  * <li>Standard deviation</li>
  * <li>Variance</li>
  * </ul>
+ *
+ * Unless drill-down information is recorded, the analysis may be pushed down
+ * into aggregate queries, in which case the geometric mean is not available.
+ *
+ * With descriptive statistics enabled, the median and percentiles are
+ * estimated using a mergeable sketch, see {@link NumberAnalyzerStatistics}.
  */
 @Named("Number analyzer")
 @Description("Provides insight into number-column values.")
 @Concurrent(true)
-public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
+public class NumberAnalyzer
+        implements QueryOptimizedAnalyzer<NumberAnalyzerResult>, VectorizedAnalyzer<NumberAnalyzerResult> {
 
     public static final String DIMENSION_COLUMN = "Column";
     public static final String DIMENSION_MEASURE = "Measure";
@@ -82,18 +96,30 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
     public static final String MEASURE_PERCENTILE75 = "75th percentile";
     public static final String MEASURE_KURTOSIS = "Kurtosis";
     public static final String MEASURE_SKEWNESS = "Skewness";
+
+    public static final String PROPERTY_RECORD_DRILL_DOWN_INFORMATION = "Record drill-down information";
+
+    // the number of aggregated values per column, see createAggregateQueries()
+    private static final int AGGREGATES_PER_COLUMN = 5;
+
     @Inject
     @Configured
     InputColumn<? extends Number>[] _columns;
     @Inject
     @Configured
-    @Description("Gather so-called descriptive statistics, including median, skewness, kurtosis and percentiles, "
-            + "which have a larger memory-footprint.")
+    @Description("Gather so-called descriptive statistics, including median, skewness, kurtosis and percentiles. "
+            + "The median and percentiles are estimates.")
     boolean descriptiveStatistics = false;
     @Inject
+    @Configured(value = PROPERTY_RECORD_DRILL_DOWN_INFORMATION, required = false)
+    @Description("Record the rows with the highest, lowest and null values, to allow drilling to them. When not "
+            + "recorded, the analysis can be pushed down into the datastore as aggregate queries.")
+    boolean recordDrillDownInformation = true;
+    @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
     private Map<InputColumn<? extends Number>, NumberAnalyzerColumnDelegate> _columnDelegates = new HashMap<>();
+    private volatile Row _aggregateRow;
 
     public NumberAnalyzer() {
     }
@@ -108,8 +134,12 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
 
     @Initialize
     public void init() {
+        // without drill-down information the annotations are only used for
+        // counting, so no rows are sampled
+        final RowAnnotationFactory annotationFactory =
+                recordDrillDownInformation ? _annotationFactory : new DummyRowAnnotationFactory();
         for (final InputColumn<? extends Number> column : _columns) {
-            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics, _annotationFactory));
+            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics, annotationFactory));
         }
     }
 
@@ -123,6 +153,44 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
         }
     }
 
+    @Override
+    public void run(final ColumnBatch batch) {
+        for (final InputColumn<? extends Number> column : _columns) {
+            final NumberAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
+            delegate.run(batch, batch.getColumnIndex(column));
+        }
+    }
+
+    @Override
+    public boolean isOptimizable() {
+        // percentiles etc. cannot be expressed as portable aggregates, and
+        // drill-down information requires the actual rows
+        return !descriptiveStatistics && !recordDrillDownInformation;
+    }
+
+    @Override
+    public List<Query> createAggregateQueries(final Query baseQuery) {
+        final Query query = baseQuery.clone();
+        query.getSelectClause().removeItems();
+        query.selectCount();
+        for (int i = 0; i < _columns.length; i++) {
+            final Column column = _columns[i].getPhysicalColumn();
+            final String quotedName = column.getQuotedName();
+            query.select(new SelectItem(FunctionType.COUNT, column));
+            query.select(new SelectItem(FunctionType.MIN, column));
+            query.select(new SelectItem(FunctionType.MAX, column));
+            query.select(new SelectItem(FunctionType.SUM, column));
+            // multiplying by 1.0 avoids integer overflow in the database
+            query.select(new SelectItem("SUM(1.0 * " + quotedName + " * " + quotedName + ")", "SUMSQ_" + i));
+        }
+        return Collections.singletonList(query);
+    }
+
+    @Override
+    public void runAggregate(final int queryIndex, final Row row) {
+        _aggregateRow = row;
+    }
+
     @Override
     public NumberAnalyzerResult getResult() {
         final CrosstabDimension measureDimension = new CrosstabDimension(DIMENSION_MEASURE);
@@ -152,11 +220,20 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
         }
 
         final Crosstab<Number> crosstab = new Crosstab<>(Number.class, columnDimension, measureDimension);
-        for (final InputColumn<? extends Number> column : _columns) {
+        final Map<String, NumberAnalyzerStatistics> statistics = new HashMap<>();
+        final Row aggregateRow = _aggregateRow;
+        for (int i = 0; i < _columns.length; i++) {
+            final InputColumn<? extends Number> column = _columns[i];
             final CrosstabNavigator<Number> nav = crosstab.navigate().where(columnDimension, column.getName());
+            if (aggregateRow != null) {
+                putAggregates(nav, measureDimension, aggregateRow, i);
+                continue;
+            }
+
             final NumberAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
 
-            final StatisticalSummary s = delegate.getStatistics();
+            final NumberAnalyzerStatistics s = delegate.getStatistics();
+            statistics.put(column.getName(), s);
             final int nullCount = delegate.getNullCount();
 
             nav.where(measureDimension, MEASURE_NULL_COUNT).put(nullCount);
@@ -168,66 +245,64 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
             final int numRows = delegate.getNumRows();
             nav.where(measureDimension, MEASURE_ROW_COUNT).put(numRows);
 
-            final long nonNullCount = s.getN();
-
-            if (nonNullCount > 0) {
-                final double highestValue = s.getMax();
-                final double lowestValue = s.getMin();
-                final double sum = s.getSum();
-                final double mean = s.getMean();
-                final double standardDeviation = s.getStandardDeviation();
-                final double variance = s.getVariance();
-
-                final double geometricMean;
-                final double secondMoment;
-                final double sumOfSquares;
-                if (descriptiveStatistics) {
-                    final DescriptiveStatistics descriptiveStats = (DescriptiveStatistics) s;
-                    geometricMean = descriptiveStats.getGeometricMean();
-                    sumOfSquares = descriptiveStats.getSumsq();
-                    secondMoment = new SecondMoment().evaluate(descriptiveStats.getValues());
-                } else {
-                    final SummaryStatistics summaryStats = (SummaryStatistics) s;
-                    geometricMean = summaryStats.getGeometricMean();
-                    secondMoment = summaryStats.getSecondMoment();
-                    sumOfSquares = summaryStats.getSumsq();
+            if (s.getN() > 0) {
+                for (final String measure : measureDimension) {
+                    final Double value = s.getMeasure(measure);
+                    if (value != null) {
+                        nav.where(measureDimension, measure).put(value);
+                    }
                 }
-
-                nav.where(measureDimension, MEASURE_HIGHEST_VALUE).put(highestValue);
+                nav.where(measureDimension, MEASURE_HIGHEST_VALUE);
                 addAttachment(nav, delegate.getMaxAnnotation(), column);
-
-                nav.where(measureDimension, MEASURE_LOWEST_VALUE).put(lowestValue);
+                nav.where(measureDimension, MEASURE_LOWEST_VALUE);
                 addAttachment(nav, delegate.getMinAnnotation(), column);
-
-                nav.where(measureDimension, MEASURE_SUM).put(sum);
-                nav.where(measureDimension, MEASURE_MEAN).put(mean);
-                nav.where(measureDimension, MEASURE_GEOMETRIC_MEAN).put(geometricMean);
-                nav.where(measureDimension, MEASURE_STANDARD_DEVIATION).put(standardDeviation);
-                nav.where(measureDimension, MEASURE_VARIANCE).put(variance);
-                nav.where(measureDimension, MEASURE_SUM_OF_SQUARES).put(sumOfSquares);
-                nav.where(measureDimension, MEASURE_SECOND_MOMENT).put(secondMoment);
-
-                if (descriptiveStatistics) {
-                    final DescriptiveStatistics descriptiveStatistics = (DescriptiveStatistics) s;
-                    final double kurtosis = descriptiveStatistics.getKurtosis();
-                    final double skewness = descriptiveStatistics.getSkewness();
-                    final double median = descriptiveStatistics.getPercentile(50.0);
-                    final double percentile25 = descriptiveStatistics.getPercentile(25.0);
-                    final double percentile75 = descriptiveStatistics.getPercentile(75.0);
-
-                    nav.where(measureDimension, MEASURE_MEDIAN).put(median);
-                    nav.where(measureDimension, MEASURE_PERCENTILE25).put(percentile25);
-                    nav.where(measureDimension, MEASURE_PERCENTILE75).put(percentile75);
-                    nav.where(measureDimension, MEASURE_SKEWNESS).put(skewness);
-                    nav.where(measureDimension, MEASURE_KURTOSIS).put(kurtosis);
-                }
             }
         }
-        return new NumberAnalyzerResult(_columns, crosstab);
+
+        if (aggregateRow != null) {
+            return new NumberAnalyzerResult(_columns, crosstab);
+        }
+        return new NumberAnalyzerResult(_columns, crosstab, statistics);
+    }
+
+    /**
+     * Puts the measures of a column based on the values of the aggregate
+     * query, mirroring the measures of {@link SummaryStatistics}.
+     */
+    private void putAggregates(final CrosstabNavigator<Number> nav, final CrosstabDimension measureDimension,
+            final Row aggregateRow, final int columnIndex) {
+        final int offset = 1 + columnIndex * AGGREGATES_PER_COLUMN;
+        final int numRows = ((Number) aggregateRow.getValue(0)).intValue();
+        final long nonNullCount = ((Number) aggregateRow.getValue(offset)).longValue();
+
+        nav.where(measureDimension, MEASURE_ROW_COUNT).put(numRows);
+        nav.where(measureDimension, MEASURE_NULL_COUNT).put((int) (numRows - nonNullCount));
+
+        if (nonNullCount > 0) {
+            final double lowestValue = ((Number) aggregateRow.getValue(offset + 1)).doubleValue();
+            final double highestValue = ((Number) aggregateRow.getValue(offset + 2)).doubleValue();
+            final double sum = ((Number) aggregateRow.getValue(offset + 3)).doubleValue();
+            final double sumOfSquares = ((Number) aggregateRow.getValue(offset + 4)).doubleValue();
+            final double mean = sum / nonNullCount;
+            final double secondMoment = Math.max(0d, sumOfSquares - sum * mean);
+            final double variance = nonNullCount > 1 ? secondMoment / (nonNullCount - 1) : 0d;
+
+            nav.where(measureDimension, MEASURE_HIGHEST_VALUE).put(highestValue);
+            nav.where(measureDimension, MEASURE_LOWEST_VALUE).put(lowestValue);
+            nav.where(measureDimension, MEASURE_SUM).put(sum);
+            nav.where(measureDimension, MEASURE_MEAN).put(mean);
+            nav.where(measureDimension, MEASURE_STANDARD_DEVIATION).put(Math.sqrt(variance));
+            nav.where(measureDimension, MEASURE_VARIANCE).put(variance);
+            nav.where(measureDimension, MEASURE_SUM_OF_SQUARES).put(sumOfSquares);
+            nav.where(measureDimension, MEASURE_SECOND_MOMENT).put(secondMoment);
+        }
     }
 
     private void addAttachment(final CrosstabNavigator<Number> nav, final RowAnnotation annotation,
             final InputColumn<?> column) {
+        if (!recordDrillDownInformation) {
+            return;
+        }
         nav.attach(AnnotatedRowsResult.createIfSampleRowsAvailable(annotation, _annotationFactory, column));
     }
 }
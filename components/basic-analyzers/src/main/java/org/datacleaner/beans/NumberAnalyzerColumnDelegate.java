@@ -19,9 +19,11 @@
  */
 package org.datacleaner.beans;
 
-import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math.stat.descriptive.StatisticalSummary;
-import org.apache.commons.math.stat.descriptive.SummaryStatistics;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.datacleaner.api.ColumnBatch;
+import org.datacleaner.api.ColumnBatchException;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
@@ -29,86 +31,278 @@ import org.datacleaner.storage.RowAnnotationFactory;
 /**
  * Helper class for the number analyzer, which handles the processing of a
  * single column's values.
+ *
+ * Values are processed by a fixed number of striped {@link Accumulator}s, each
+ * with its own statistics and highest/lowest value annotations. A thread
+ * claims a free stripe (starting at a stripe derived from its identity), so
+ * concurrent threads rarely contend, and memory is bounded by the number of
+ * stripes no matter how many threads the task runner uses. The accumulators are
+ * merged when the statistics are requested, at which point the annotations of
+ * the stripes that saw the overall highest and lowest values are transferred
+ * to the delegate's annotations, and the other stripes' annotations are reset.
  */
 final class NumberAnalyzerColumnDelegate {
 
+    private static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
     private final RowAnnotationFactory _annotationFactory;
-    private final StatisticalSummary _statistics;
+    private final boolean _descriptiveStatistics;
+    private final AtomicReferenceArray<Accumulator> _accumulators;
     private final RowAnnotation _nullAnnotation;
     private final RowAnnotation _maxAnnotation;
     private final RowAnnotation _minAnnotation;
-    private volatile int _numRows;
+    private double _mergedMax = Double.NaN;
+    private double _mergedMin = Double.NaN;
 
     public NumberAnalyzerColumnDelegate(final boolean descriptiveStatistics,
             final RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
+        _descriptiveStatistics = descriptiveStatistics;
+        _accumulators = new AtomicReferenceArray<>(STRIPES);
         _nullAnnotation = _annotationFactory.createAnnotation();
         _maxAnnotation = _annotationFactory.createAnnotation();
         _minAnnotation = _annotationFactory.createAnnotation();
-        if (descriptiveStatistics) {
-            _statistics = new DescriptiveStatistics();
-        } else {
-            _statistics = new SummaryStatistics();
-        }
     }
 
-    public synchronized void run(final InputRow row, final Number value, final int distinctCount) {
-        _numRows += distinctCount;
-        if (value != null) {
-            final double doubleValue = value.doubleValue();
-            double max = _statistics.getMax();
-            double min = _statistics.getMin();
+    /**
+     * Determines the number of stripes: the smallest power of two that is at
+     * least twice the number of processors.
+     */
+    static int stripeCount(final int processors) {
+        return Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1;
+    }
+
+    public void run(final InputRow row, final Number value, final int distinctCount) {
+        final Accumulator accumulator = acquireAccumulator();
+        try {
+            accumulator.run(row, value, distinctCount);
+        } finally {
+            accumulator._lock.unlock();
+        }
+    }
 
-            if (max < doubleValue) {
-                _annotationFactory.resetAnnotation(_maxAnnotation);
+    /**
+     * Processes the values of a column in a batch.
+     *
+     * @param batch
+     * @param columnIndex
+     */
+    public void run(final ColumnBatch batch, final int columnIndex) {
+        final Accumulator accumulator = acquireAccumulator();
+        try {
+            final Object[] values = batch.getValues(columnIndex);
+            final int size = batch.size();
+            for (int i = 0; i < size; i++) {
+                try {
+                    accumulator.run(batch.getRow(i), (Number) values[i], batch.getDistinctCount(i));
+                } catch (final RuntimeException e) {
+                    throw new ColumnBatchException(i, e);
+                }
             }
-            if (min > doubleValue) {
-                _annotationFactory.resetAnnotation(_minAnnotation);
+        } finally {
+            accumulator._lock.unlock();
+        }
+    }
+
+    /**
+     * Claims a stripe for the current thread. Stripes are probed starting from
+     * the thread's home stripe, and only if all stripes are busy does the
+     * thread wait for its home stripe.
+     *
+     * @return the claimed accumulator, which must be unlocked by the caller
+     */
+    private Accumulator acquireAccumulator() {
+        final int home = (int) (Thread.currentThread().getId() * 0x9E3779B9L >>> 16) & (STRIPES - 1);
+        for (int i = 0; i < STRIPES; i++) {
+            final Accumulator accumulator = getAccumulator((home + i) & (STRIPES - 1));
+            if (accumulator._lock.tryLock()) {
+                return accumulator;
             }
+        }
+        final Accumulator accumulator = getAccumulator(home);
+        accumulator._lock.lock();
+        return accumulator;
+    }
 
-            for (int i = 0; i < distinctCount; i++) {
-                if (_statistics instanceof DescriptiveStatistics) {
-                    ((DescriptiveStatistics) _statistics).addValue(doubleValue);
-                } else {
-                    ((SummaryStatistics) _statistics).addValue(doubleValue);
+    private Accumulator getAccumulator(final int index) {
+        final Accumulator accumulator = _accumulators.get(index);
+        if (accumulator != null) {
+            return accumulator;
+        }
+        final Accumulator newAccumulator = new Accumulator();
+        if (_accumulators.compareAndSet(index, null, newAccumulator)) {
+            return newAccumulator;
+        }
+        return _accumulators.get(index);
+    }
+
+    /**
+     * Merges the statistics of all stripes.
+     *
+     * @return
+     */
+    public synchronized NumberAnalyzerStatistics getStatistics() {
+        final NumberAnalyzerStatistics statistics = new NumberAnalyzerStatistics(_descriptiveStatistics);
+        for (int i = 0; i < STRIPES; i++) {
+            final Accumulator accumulator = _accumulators.get(i);
+            if (accumulator != null) {
+                accumulator._lock.lock();
+                try {
+                    statistics.merge(accumulator._statistics);
+                } finally {
+                    accumulator._lock.unlock();
                 }
             }
+        }
+        if (statistics.getN() == 0) {
+            return statistics;
+        }
 
-            max = _statistics.getMax();
-            min = _statistics.getMin();
+        final double max = statistics.getMax();
+        if (max != _mergedMax) {
+            _annotationFactory.resetAnnotation(_maxAnnotation);
+            _mergedMax = max;
+        }
+        final double min = statistics.getMin();
+        if (min != _mergedMin) {
+            _annotationFactory.resetAnnotation(_minAnnotation);
+            _mergedMin = min;
+        }
 
-            if (max == doubleValue) {
-                _annotationFactory.annotate(row, distinctCount, _maxAnnotation);
-            }
-            if (min == doubleValue) {
-                _annotationFactory.annotate(row, distinctCount, _minAnnotation);
+        // first reset the annotations that did not win, so that their sample
+        // rows no longer occupy the annotation factory's sample sets, then
+        // transfer the winning annotations
+        for (final boolean transfer : new boolean[] { false, true }) {
+            for (int i = 0; i < STRIPES; i++) {
+                final Accumulator accumulator = _accumulators.get(i);
+                if (accumulator != null) {
+                    accumulator._lock.lock();
+                    try {
+                        final NumberAnalyzerStatistics stripeStatistics = accumulator._statistics;
+                        final boolean hasValues = stripeStatistics.getN() > 0;
+                        mergeAnnotation(accumulator._stripeMaxAnnotation, _maxAnnotation,
+                                hasValues && stripeStatistics.getMax() == max, transfer);
+                        mergeAnnotation(accumulator._stripeMinAnnotation, _minAnnotation,
+                                hasValues && stripeStatistics.getMin() == min, transfer);
+                    } finally {
+                        accumulator._lock.unlock();
+                    }
+                }
             }
-        } else {
-            _annotationFactory.annotate(row, distinctCount, _nullAnnotation);
         }
+        return statistics;
     }
 
-    public RowAnnotation getNullAnnotation() {
-        return _nullAnnotation;
+    private void mergeAnnotation(final RowAnnotation stripeAnnotation, final RowAnnotation annotation,
+            final boolean winner, final boolean transfer) {
+        if (transfer && winner) {
+            _annotationFactory.transferAnnotations(stripeAnnotation, annotation);
+        } else if (!transfer && !winner) {
+            _annotationFactory.resetAnnotation(stripeAnnotation);
+        }
     }
 
-    public StatisticalSummary getStatistics() {
-        return _statistics;
+    public RowAnnotation getNullAnnotation() {
+        return _nullAnnotation;
     }
 
     public int getNullCount() {
         return _nullAnnotation.getRowCount();
     }
 
+    /**
+     * Gets the annotation of the rows with the highest value. Populated by
+     * {@link #getStatistics()}.
+     *
+     * @return
+     */
     public RowAnnotation getMaxAnnotation() {
         return _maxAnnotation;
     }
 
+    /**
+     * Gets the annotation of the rows with the lowest value. Populated by
+     * {@link #getStatistics()}.
+     *
+     * @return
+     */
     public RowAnnotation getMinAnnotation() {
         return _minAnnotation;
     }
 
     public int getNumRows() {
-        return _numRows;
+        int numRows = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            final Accumulator accumulator = _accumulators.get(i);
+            if (accumulator != null) {
+                accumulator._lock.lock();
+                try {
+                    numRows += accumulator._numRows;
+                } finally {
+                    accumulator._lock.unlock();
+                }
+            }
+        }
+        return numRows;
+    }
+
+    /**
+     * Gets the number of accumulators created so far, which is bounded by the
+     * number of stripes.
+     *
+     * @return
+     */
+    int getAccumulatorCount() {
+        int count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            if (_accumulators.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The state of a single stripe. Only accessed while holding its lock.
+     */
+    private final class Accumulator {
+
+        private final ReentrantLock _lock;
+        private final NumberAnalyzerStatistics _statistics;
+        private final RowAnnotation _stripeMaxAnnotation;
+        private final RowAnnotation _stripeMinAnnotation;
+        private int _numRows;
+
+        public Accumulator() {
+            _lock = new ReentrantLock();
+            _statistics = new NumberAnalyzerStatistics(_descriptiveStatistics);
+            _stripeMaxAnnotation = _annotationFactory.createAnnotation();
+            _stripeMinAnnotation = _annotationFactory.createAnnotation();
+        }
+
+        public void run(final InputRow row, final Number value, final int distinctCount) {
+            _numRows += distinctCount;
+            if (value == null) {
+                _annotationFactory.annotate(row, distinctCount, _nullAnnotation);
+                return;
+            }
+
+            final double doubleValue = value.doubleValue();
+            if (_statistics.getMax() < doubleValue) {
+                _annotationFactory.resetAnnotation(_stripeMaxAnnotation);
+            }
+            if (_statistics.getMin() > doubleValue) {
+                _annotationFactory.resetAnnotation(_stripeMinAnnotation);
+            }
+
+            _statistics.addValue(doubleValue, distinctCount);
+
+            if (_statistics.getMax() == doubleValue) {
+                _annotationFactory.annotate(row, distinctCount, _stripeMaxAnnotation);
+            }
+            if (_statistics.getMin() == doubleValue) {
+                _annotationFactory.annotate(row, distinctCount, _stripeMinAnnotation);
+            }
+        }
     }
 }
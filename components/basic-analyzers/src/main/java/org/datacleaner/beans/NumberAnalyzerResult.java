@@ -19,6 +19,8 @@
  */
 package org.datacleaner.beans;
 
+import java.util.Map;
+
 import org.datacleaner.api.Distributed;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.Metric;
@@ -31,16 +33,37 @@ public class NumberAnalyzerResult extends CrosstabResult {
     private static final long serialVersionUID = 1L;
 
     private final InputColumn<? extends Number>[] _columns;
+    private final Map<String, NumberAnalyzerStatistics> _statistics;
 
     public NumberAnalyzerResult(final InputColumn<? extends Number>[] columns, final Crosstab<?> crosstab) {
+        this(columns, crosstab, null);
+    }
+
+    public NumberAnalyzerResult(final InputColumn<? extends Number>[] columns, final Crosstab<?> crosstab,
+            final Map<String, NumberAnalyzerStatistics> statistics) {
         super(crosstab);
         _columns = columns;
+        _statistics = statistics;
     }
 
     public InputColumn<? extends Number>[] getColumns() {
         return _columns;
     }
 
+    /**
+     * Gets the mergeable statistics of a column, used when reducing results.
+     *
+     * @param columnName
+     * @return the statistics, or null if not available (eg. for results of
+     *         aggregate queries or results from older versions)
+     */
+    public NumberAnalyzerStatistics getStatistics(final String columnName) {
+        if (_statistics == null) {
+            return null;
+        }
+        return _statistics.get(columnName);
+    }
+
     @Metric(order = 1, value = NumberAnalyzer.MEASURE_ROW_COUNT)
     public Number getRowCount(final InputColumn<?> col) {
         return (Number) getCrosstab().where(NumberAnalyzer.DIMENSION_COLUMN, col.getName())
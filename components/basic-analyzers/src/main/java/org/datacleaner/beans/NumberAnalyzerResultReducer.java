@@ -23,8 +23,10 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.math.stat.descriptive.AggregateSummaryStatistics;
@@ -40,7 +42,11 @@ import org.slf4j.LoggerFactory;
 /**
  * Result reducer for {@link NumberAnalyzerResult}s.
  *
- * Note: Some of the result metrics of {@link NumberAnalyzerResult} are NOT
+ * When the slave results carry their {@link NumberAnalyzerStatistics}, these
+ * are merged and all measures, including percentiles, skewness and kurtosis,
+ * are computed from the merged statistics.
+ *
+ * Note: Otherwise some of the result metrics of {@link NumberAnalyzerResult} are NOT
  * reduceable. Since the inclusion of these metrics are anyways optional (based
  * on a configuration property), we take the optimistic approach and reduce what
  * we can.
@@ -61,7 +67,20 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
 
         if (SUM_MEASURES.contains(measure)) {
             return sum(slaveValues);
-        } else if (NumberAnalyzer.MEASURE_HIGHEST_VALUE.equals(measure)) {
+        }
+
+        final NumberAnalyzerStatistics statistics = mergeStatistics(column, results);
+        if (statistics != null) {
+            if (statistics.getN() == 0) {
+                return null;
+            }
+            final Double value = statistics.getMeasure(measure);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        if (NumberAnalyzer.MEASURE_HIGHEST_VALUE.equals(measure)) {
             return maximum(slaveValues);
         } else if (NumberAnalyzer.MEASURE_LOWEST_VALUE.equals(measure)) {
             return minimum(slaveValues);
@@ -80,6 +99,30 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         return null;
     }
 
+    /**
+     * Merges the statistics of a column of all results.
+     *
+     * @param column
+     * @param results
+     * @return the merged statistics, or null if one of the results does not
+     *         carry statistics
+     */
+    private NumberAnalyzerStatistics mergeStatistics(final String column,
+            final Collection<? extends NumberAnalyzerResult> results) {
+        NumberAnalyzerStatistics merged = null;
+        for (final NumberAnalyzerResult result : results) {
+            final NumberAnalyzerStatistics statistics = result.getStatistics(column);
+            if (statistics == null) {
+                return null;
+            }
+            if (merged == null) {
+                merged = new NumberAnalyzerStatistics(statistics.isDescriptiveStatistics());
+            }
+            merged.merge(statistics);
+        }
+        return merged;
+    }
+
     private StatisticalSummary getSummary(final String column,
             final Collection<? extends NumberAnalyzerResult> results) {
         final List<SummaryStatistics> statistics = new ArrayList<>(results.size());
@@ -154,7 +197,17 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         final NumberAnalyzerResult firstResult = results.iterator().next();
 
         final InputColumn<? extends Number>[] columns = firstResult.getColumns();
-        return new NumberAnalyzerResult(columns, crosstab);
+
+        // keep the merged statistics, so that the result can be reduced again
+        final Map<String, NumberAnalyzerStatistics> statistics = new HashMap<>();
+        for (final InputColumn<? extends Number> column : columns) {
+            final NumberAnalyzerStatistics columnStatistics = mergeStatistics(column.getName(), results);
+            if (columnStatistics == null) {
+                return new NumberAnalyzerResult(columns, crosstab);
+            }
+            statistics.put(column.getName(), columnStatistics);
+        }
+        return new NumberAnalyzerResult(columns, crosstab, statistics);
     }
 
 }
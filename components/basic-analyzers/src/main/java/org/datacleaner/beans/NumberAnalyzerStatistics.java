@@ -0,0 +1,292 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.io.Serializable;
+
+import org.apache.commons.math.stat.descriptive.StatisticalSummary;
+import org.datacleaner.util.QuantileDigest;
+
+/**
+ * Mergeable statistics of the values of a number column. Moments are kept
+ * instead of the values themselves, so skewness and kurtosis are available in
+ * constant memory, and percentiles are estimated using a {@link QuantileDigest}
+ * when descriptive statistics are enabled.
+ *
+ * The measures mirror those of commons-math's SummaryStatistics and
+ * DescriptiveStatistics. Moments are combined using the pairwise update
+ * formulas of Chan et al. and Pebay, which also allows a value to be added with
+ * a count in a single step.
+ *
+ * Instances are not thread-safe. They are meant to be filled by a single thread
+ * and then merged, see {@link NumberAnalyzerColumnDelegate} and
+ * {@link NumberAnalyzerResultReducer}.
+ */
+public final class NumberAnalyzerStatistics implements StatisticalSummary, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final QuantileDigest _quantileDigest;
+    private long _n;
+    private double _min = Double.NaN;
+    private double _max = Double.NaN;
+    private double _sum;
+    private double _sumOfSquares;
+    private double _sumOfLogs;
+    private double _mean;
+    private double _m2;
+    private double _m3;
+    private double _m4;
+
+    public NumberAnalyzerStatistics(final boolean descriptiveStatistics) {
+        _quantileDigest = descriptiveStatistics ? new QuantileDigest() : null;
+    }
+
+    /**
+     * Adds a value a number of times.
+     *
+     * @param value
+     * @param count
+     */
+    public void addValue(final double value, final int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (_n == 0 || value < _min) {
+            _min = value;
+        }
+        if (_n == 0 || value > _max) {
+            _max = value;
+        }
+        _sum += value * count;
+        _sumOfSquares += value * value * count;
+        _sumOfLogs += Math.log(value) * count;
+        combineMoments(count, value, 0d, 0d, 0d);
+        if (_quantileDigest != null) {
+            _quantileDigest.add(value, count);
+        }
+    }
+
+    /**
+     * Adds all values of another statistics object to this one.
+     *
+     * @param other
+     */
+    public void merge(final NumberAnalyzerStatistics other) {
+        if (other._n == 0) {
+            return;
+        }
+        if (_n == 0 || other._min < _min) {
+            _min = other._min;
+        }
+        if (_n == 0 || other._max > _max) {
+            _max = other._max;
+        }
+        _sum += other._sum;
+        _sumOfSquares += other._sumOfSquares;
+        _sumOfLogs += other._sumOfLogs;
+        combineMoments(other._n, other._mean, other._m2, other._m3, other._m4);
+        if (_quantileDigest != null && other._quantileDigest != null) {
+            _quantileDigest.add(other._quantileDigest);
+        }
+    }
+
+    private void combineMoments(final long otherN, final double otherMean, final double otherM2,
+            final double otherM3, final double otherM4) {
+        final double n1 = _n;
+        final double n2 = otherN;
+        final double n = n1 + n2;
+        final double delta = otherMean - _mean;
+        final double delta2 = delta * delta;
+
+        final double m4 = _m4 + otherM4 + delta2 * delta2 * n1 * n2 * (n1 * n1 - n1 * n2 + n2 * n2) / (n * n * n)
+                + 6 * delta2 * (n1 * n1 * otherM2 + n2 * n2 * _m2) / (n * n)
+                + 4 * delta * (n1 * otherM3 - n2 * _m3) / n;
+        final double m3 = _m3 + otherM3 + delta2 * delta * n1 * n2 * (n1 - n2) / (n * n)
+                + 3 * delta * (n1 * otherM2 - n2 * _m2) / n;
+        final double m2 = _m2 + otherM2 + delta2 * n1 * n2 / n;
+
+        _mean += delta * n2 / n;
+        _m2 = m2;
+        _m3 = m3;
+        _m4 = m4;
+        _n += otherN;
+    }
+
+    public boolean isDescriptiveStatistics() {
+        return _quantileDigest != null;
+    }
+
+    @Override
+    public long getN() {
+        return _n;
+    }
+
+    @Override
+    public double getMin() {
+        return _min;
+    }
+
+    @Override
+    public double getMax() {
+        return _max;
+    }
+
+    @Override
+    public double getSum() {
+        return _n == 0 ? Double.NaN : _sum;
+    }
+
+    @Override
+    public double getMean() {
+        return _n == 0 ? Double.NaN : _mean;
+    }
+
+    @Override
+    public double getVariance() {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        if (_n == 1) {
+            return 0d;
+        }
+        return _m2 / (_n - 1);
+    }
+
+    @Override
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getSecondMoment() {
+        return _n == 0 ? Double.NaN : _m2;
+    }
+
+    public double getSumOfSquares() {
+        return _n == 0 ? Double.NaN : _sumOfSquares;
+    }
+
+    public double getGeometricMean() {
+        return _n == 0 ? Double.NaN : Math.exp(_sumOfLogs / _n);
+    }
+
+    /**
+     * Gets the bias-corrected sample skewness, computed like commons-math's
+     * Skewness.
+     *
+     * @return
+     */
+    public double getSkewness() {
+        if (_n < 3) {
+            return Double.NaN;
+        }
+        final double variance = getVariance();
+        if (variance < 10E-20) {
+            return 0d;
+        }
+        final double n = _n;
+        return n / ((n - 1) * (n - 2)) * _m3 / (variance * Math.sqrt(variance));
+    }
+
+    /**
+     * Gets the bias-corrected sample excess kurtosis, computed like
+     * commons-math's Kurtosis.
+     *
+     * @return
+     */
+    public double getKurtosis() {
+        if (_n < 4) {
+            return Double.NaN;
+        }
+        final double variance = getVariance();
+        if (variance < 10E-20) {
+            return 0d;
+        }
+        final double n = _n;
+        final double coefficientOne = (n * (n + 1)) / ((n - 1) * (n - 2) * (n - 3));
+        final double termTwo = (3 * Math.pow(n - 1, 2)) / ((n - 2) * (n - 3));
+        return coefficientOne * _m4 / (variance * variance) - termTwo;
+    }
+
+    /**
+     * Gets the value of one of the {@link NumberAnalyzer} measures, except the
+     * row and null counts.
+     *
+     * @param measure
+     * @return the value of the measure, or null if it is not available
+     */
+    public Double getMeasure(final String measure) {
+        switch (measure) {
+        case NumberAnalyzer.MEASURE_HIGHEST_VALUE:
+            return getMax();
+        case NumberAnalyzer.MEASURE_LOWEST_VALUE:
+            return getMin();
+        case NumberAnalyzer.MEASURE_SUM:
+            return getSum();
+        case NumberAnalyzer.MEASURE_MEAN:
+            return getMean();
+        case NumberAnalyzer.MEASURE_GEOMETRIC_MEAN:
+            return getGeometricMean();
+        case NumberAnalyzer.MEASURE_STANDARD_DEVIATION:
+            return getStandardDeviation();
+        case NumberAnalyzer.MEASURE_VARIANCE:
+            return getVariance();
+        case NumberAnalyzer.MEASURE_SECOND_MOMENT:
+            return getSecondMoment();
+        case NumberAnalyzer.MEASURE_SUM_OF_SQUARES:
+            return getSumOfSquares();
+        default:
+            break;
+        }
+
+        if (!isDescriptiveStatistics()) {
+            return null;
+        }
+        switch (measure) {
+        case NumberAnalyzer.MEASURE_MEDIAN:
+            return getPercentile(50.0);
+        case NumberAnalyzer.MEASURE_PERCENTILE25:
+            return getPercentile(25.0);
+        case NumberAnalyzer.MEASURE_PERCENTILE75:
+            return getPercentile(75.0);
+        case NumberAnalyzer.MEASURE_SKEWNESS:
+            return getSkewness();
+        case NumberAnalyzer.MEASURE_KURTOSIS:
+            return getKurtosis();
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Gets an estimate of a percentile of the values.
+     *
+     * @param percentile
+     *            a number between 0 and 100
+     * @return the estimated percentile, or NaN if descriptive statistics are
+     *         not enabled or no values have been added
+     */
+    public double getPercentile(final double percentile) {
+        if (_quantileDigest == null) {
+            return Double.NaN;
+        }
+        return _quantileDigest.getQuantile(percentile / 100);
+    }
+}
@@ -24,7 +24,7 @@ import java.util.Map;
 
 import javax.inject.Named;
 
-import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
@@ -32,6 +32,7 @@ import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.VectorizedAnalyzer;
 import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.Crosstab;
 import org.datacleaner.result.CrosstabDimension;
@@ -52,7 +53,7 @@ import org.slf4j.LoggerFactory;
 @Description("The String analyzer is used to collect a variety of typical metrics on string values.\n"
         + "Metrics include statistics on character case, words, diacritics, white-spaces and more...")
 @Concurrent(true)
-public class StringAnalyzer implements Analyzer<StringAnalyzerResult> {
+public class StringAnalyzer implements VectorizedAnalyzer<StringAnalyzerResult> {
 
     public static final String DIMENSION_MEASURES = "Measures";
     public static final String DIMENSION_COLUMN = "Column";
@@ -116,6 +117,14 @@ public class StringAnalyzer implements Analyzer<StringAnalyzerResult> {
         }
     }
 
+    @Override
+    public void run(final ColumnBatch batch) {
+        for (final InputColumn<String> column : _columns) {
+            final StringAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
+            delegate.run(batch, batch.getColumnIndex(column));
+        }
+    }
+
     @Override
     public StringAnalyzerResult getResult() {
         logger.info("getResult()");
@@ -21,6 +21,8 @@ package org.datacleaner.beans;
 
 import java.util.StringTokenizer;
 
+import org.datacleaner.api.ColumnBatch;
+import org.datacleaner.api.ColumnBatchException;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
@@ -96,6 +98,29 @@ final class StringAnalyzerColumnDelegate {
     }
 
     public synchronized void run(final InputRow row, final String value, final int distinctCount) {
+        runInternal(row, value, distinctCount);
+    }
+
+    /**
+     * Processes the values of a column in a batch, holding the lock for the
+     * whole batch.
+     *
+     * @param batch
+     * @param columnIndex
+     */
+    public synchronized void run(final ColumnBatch batch, final int columnIndex) {
+        final Object[] values = batch.getValues(columnIndex);
+        final int size = batch.size();
+        for (int i = 0; i < size; i++) {
+            try {
+                runInternal(batch.getRow(i), (String) values[i], batch.getDistinctCount(i));
+            } catch (final RuntimeException e) {
+                throw new ColumnBatchException(i, e);
+            }
+        }
+    }
+
+    private void runInternal(final InputRow row, final String value, final int distinctCount) {
         _numRows += distinctCount;
 
         if (value == null) {
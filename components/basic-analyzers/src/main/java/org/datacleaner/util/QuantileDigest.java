@@ -0,0 +1,246 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A mergeable sketch for estimating quantiles of a stream of numbers in
+ * constant memory, based on Ted Dunning's "merging t-digest".
+ *
+ * Values are collected in a buffer and periodically merged into a sorted list
+ * of centroids (mean and weight). A centroid may only grow as large as allowed
+ * by its position in the distribution, so centroids near the extremes stay
+ * small and extreme quantiles remain accurate. The number of centroids is
+ * bounded by the compression, regardless of the number of values added.
+ *
+ * Digests are not thread-safe, but two digests can be merged, eg. per-thread or
+ * per-node digests at the end of processing.
+ */
+public final class QuantileDigest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_COMPRESSION = 100;
+
+    private final double _compression;
+    private double[] _means;
+    private double[] _weights;
+    private int _centroidCount;
+    private transient double[] _bufferMeans;
+    private transient double[] _bufferWeights;
+    private transient int _bufferCount;
+    private double _totalWeight;
+    private double _min = Double.NaN;
+    private double _max = Double.NaN;
+
+    public QuantileDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileDigest(final int compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10, got: " + compression);
+        }
+        _compression = compression;
+        _means = new double[0];
+        _weights = new double[0];
+        createBuffer();
+    }
+
+    private void createBuffer() {
+        final int bufferSize = 5 * (int) _compression;
+        _bufferMeans = new double[bufferSize];
+        _bufferWeights = new double[bufferSize];
+    }
+
+    /**
+     * Adds a value to the digest.
+     *
+     * @param value
+     * @param weight
+     *            the number of occurrences of the value
+     */
+    public void add(final double value, final double weight) {
+        if (Double.isNaN(value) || weight <= 0) {
+            return;
+        }
+        if (_bufferCount == _bufferMeans.length) {
+            compress();
+        }
+        _bufferMeans[_bufferCount] = value;
+        _bufferWeights[_bufferCount] = weight;
+        _bufferCount++;
+        _totalWeight += weight;
+        if (!(_min <= value)) {
+            _min = value;
+        }
+        if (!(_max >= value)) {
+            _max = value;
+        }
+    }
+
+    /**
+     * Adds all values of another digest to this digest.
+     *
+     * @param other
+     */
+    public void add(final QuantileDigest other) {
+        if (other._totalWeight == 0) {
+            return;
+        }
+        final double min = _min;
+        final double max = _max;
+        other.compress();
+        for (int i = 0; i < other._centroidCount; i++) {
+            add(other._means[i], other._weights[i]);
+        }
+        // the extremes of the other digest are hidden in its centroids
+        _min = Double.isNaN(min) ? other._min : Math.min(min, other._min);
+        _max = Double.isNaN(max) ? other._max : Math.max(max, other._max);
+    }
+
+    public double getTotalWeight() {
+        return _totalWeight;
+    }
+
+    /**
+     * Estimates a quantile of the values added.
+     *
+     * @param quantile
+     *            a number between 0 and 1
+     * @return the estimated value, or NaN if no values have been added
+     */
+    public double getQuantile(final double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, got: " + quantile);
+        }
+        compress();
+        if (_centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (_centroidCount == 1) {
+            return _means[0];
+        }
+
+        final double index = quantile * _totalWeight;
+        if (index < _weights[0] / 2) {
+            return _min + (_means[0] - _min) * index / (_weights[0] / 2);
+        }
+
+        double weightSoFar = _weights[0] / 2;
+        for (int i = 0; i < _centroidCount - 1; i++) {
+            final double delta = (_weights[i] + _weights[i + 1]) / 2;
+            if (weightSoFar + delta > index) {
+                return _means[i] + (index - weightSoFar) / delta * (_means[i + 1] - _means[i]);
+            }
+            weightSoFar += delta;
+        }
+
+        final int last = _centroidCount - 1;
+        final double remaining = _totalWeight - weightSoFar;
+        if (remaining <= 0) {
+            return _max;
+        }
+        return _means[last] + (_max - _means[last]) * Math.min(1d, (index - weightSoFar) / remaining);
+    }
+
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    private void compress() {
+        if (_bufferCount == 0) {
+            return;
+        }
+
+        final int count = _centroidCount + _bufferCount;
+        final double[] means = Arrays.copyOf(_means, count);
+        final double[] weights = Arrays.copyOf(_weights, count);
+        System.arraycopy(_bufferMeans, 0, means, _centroidCount, _bufferCount);
+        System.arraycopy(_bufferWeights, 0, weights, _centroidCount, _bufferCount);
+        _bufferCount = 0;
+
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> means[i]));
+
+        final double[] newMeans = new double[count];
+        final double[] newWeights = new double[count];
+        int centroidCount = 0;
+        double weightSoFar = 0;
+        double weightLimit = _totalWeight * integratedQuantile(1);
+
+        newMeans[0] = means[order[0]];
+        newWeights[0] = weights[order[0]];
+        for (int i = 1; i < count; i++) {
+            final double mean = means[order[i]];
+            final double weight = weights[order[i]];
+            final double proposedWeight = newWeights[centroidCount] + weight;
+            if (weightSoFar + proposedWeight <= weightLimit) {
+                newMeans[centroidCount] += (mean - newMeans[centroidCount]) * weight / proposedWeight;
+                newWeights[centroidCount] = proposedWeight;
+            } else {
+                weightSoFar += newWeights[centroidCount];
+                weightLimit = _totalWeight
+                        * integratedQuantile(integratedLocation(weightSoFar / _totalWeight) + 1);
+                centroidCount++;
+                newMeans[centroidCount] = mean;
+                newWeights[centroidCount] = weight;
+            }
+        }
+        centroidCount++;
+
+        _means = Arrays.copyOf(newMeans, centroidCount);
+        _weights = Arrays.copyOf(newWeights, centroidCount);
+        _centroidCount = centroidCount;
+    }
+
+    /**
+     * Maps a quantile to the scale on which every centroid may span at most 1
+     * unit. The arcsine scale keeps centroids small near the extremes.
+     */
+    private double integratedLocation(final double quantile) {
+        return _compression * (Math.asin(2 * quantile - 1) + Math.PI / 2) / Math.PI;
+    }
+
+    /**
+     * The inverse of {@link #integratedLocation(double)}.
+     */
+    private double integratedQuantile(final double location) {
+        return (Math.sin(Math.min(location, _compression) * Math.PI / _compression - Math.PI / 2) + 1) / 2;
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        compress();
+        out.defaultWriteObject();
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        createBuffer();
+    }
+}
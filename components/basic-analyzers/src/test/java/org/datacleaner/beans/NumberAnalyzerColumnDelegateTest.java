@@ -0,0 +1,107 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.storage.RowAnnotationFactory;
+import org.datacleaner.storage.RowAnnotations;
+
+import junit.framework.TestCase;
+
+public class NumberAnalyzerColumnDelegateTest extends TestCase {
+
+    private static final int STRIPES = NumberAnalyzerColumnDelegate.stripeCount(
+            Runtime.getRuntime().availableProcessors());
+
+    private final MockInputColumn<Integer> col = new MockInputColumn<>("foo", Integer.class);
+
+    public void testStripeCount() throws Exception {
+        assertEquals(2, NumberAnalyzerColumnDelegate.stripeCount(1));
+        assertEquals(4, NumberAnalyzerColumnDelegate.stripeCount(2));
+        assertEquals(8, NumberAnalyzerColumnDelegate.stripeCount(3));
+        assertEquals(8, NumberAnalyzerColumnDelegate.stripeCount(4));
+        assertEquals(32, NumberAnalyzerColumnDelegate.stripeCount(16));
+    }
+
+    public void testAccumulatorsBoundedWithShortLivedThreads() throws Exception {
+        final NumberAnalyzerColumnDelegate delegate =
+                new NumberAnalyzerColumnDelegate(false, RowAnnotations.getDefaultFactory());
+
+        runFromShortLivedThreads(delegate, 200);
+
+        assertTrue(delegate.getAccumulatorCount() <= STRIPES);
+        assertEquals(2000, delegate.getNumRows());
+
+        final NumberAnalyzerStatistics statistics = delegate.getStatistics();
+        assertEquals(2000L, statistics.getN());
+        assertEquals(1999d, statistics.getMax(), 0d);
+        assertEquals(0d, statistics.getMin(), 0d);
+    }
+
+    public void testLosingStripeAnnotationsAreReset() throws Exception {
+        // room for the annotations of every stripe, but not for additional ones
+        final int maxSampleSets = 2 * STRIPES;
+        final RowAnnotationFactory annotationFactory = RowAnnotations.getInMemoryFactory(maxSampleSets, 10);
+        final NumberAnalyzerColumnDelegate delegate = new NumberAnalyzerColumnDelegate(false, annotationFactory);
+
+        runFromShortLivedThreads(delegate, 200);
+        delegate.getStatistics();
+
+        assertTrue(annotationFactory.hasSampleRows(delegate.getMaxAnnotation()));
+        assertEquals(1999, annotationFactory.getSampleRows(delegate.getMaxAnnotation()).get(0).getValue(col)
+                .intValue());
+        assertTrue(annotationFactory.hasSampleRows(delegate.getMinAnnotation()));
+        assertEquals(0, annotationFactory.getSampleRows(delegate.getMinAnnotation()).get(0).getValue(col)
+                .intValue());
+
+        // only the merged highest and lowest value annotations may still hold sample sets
+        final InputRow row = new MockInputRow().put(col, 42);
+        final List<RowAnnotation> annotations = new ArrayList<>();
+        for (int i = 0; i < maxSampleSets - 2; i++) {
+            final RowAnnotation annotation = annotationFactory.createAnnotation();
+            annotationFactory.annotate(row, annotation);
+            annotations.add(annotation);
+        }
+        for (final RowAnnotation annotation : annotations) {
+            assertTrue(annotationFactory.hasSampleRows(annotation));
+        }
+    }
+
+    private void runFromShortLivedThreads(final NumberAnalyzerColumnDelegate delegate, final int threadCount)
+            throws InterruptedException {
+        for (int i = 0; i < threadCount; i++) {
+            final int offset = i * 10;
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10; j++) {
+                    final int value = offset + j;
+                    delegate.run(new MockInputRow().put(col, value), value, 1);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+    }
+}
@@ -19,10 +19,29 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.SelectItem;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.AnalyzerComponentBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.CrosstabResult;
 import org.datacleaner.result.renderer.CrosstabTextRenderer;
+import org.datacleaner.storage.RowAnnotations;
+import org.datacleaner.util.SystemProperties;
 
 import junit.framework.TestCase;
 
@@ -107,4 +126,172 @@ public class NumberAnalyzerTest extends TestCase {
         assertEquals("Sum of squares     337624.39 33762440   1300 ", resultLines[11]);
     }
 
+    public void testAggregateRun() throws Exception {
+        // the highest, lowest and null value rows cannot be recorded from aggregates
+        assertFalse(numberAnalyzer.isOptimizable());
+        numberAnalyzer.recordDrillDownInformation = false;
+        assertTrue(numberAnalyzer.isOptimizable());
+        numberAnalyzer.descriptiveStatistics = true;
+        assertFalse(numberAnalyzer.isOptimizable());
+        numberAnalyzer.descriptiveStatistics = false;
+
+        // COUNT(*), then COUNT, MIN, MAX, SUM and sum of squares per column
+        final Object[] values =
+                new Object[] { 5L, 0L, null, null, null, null, 5L, 1L, 5L, 15L, 55.0, 0L, null, null, null, null };
+        final List<SelectItem> selectItems = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            selectItems.add(new SelectItem("v" + i, "v" + i));
+        }
+        numberAnalyzer.runAggregate(0, new DefaultRow(new SimpleDataSetHeader(selectItems), values));
+
+        final CrosstabResult result = numberAnalyzer.getResult();
+        final String[] resultLines = new CrosstabTextRenderer().render(result).split("\n");
+        assertEquals(12, resultLines.length);
+        assertEquals("                      foo    bar   w00p ", resultLines[0]);
+        assertEquals("Row count               5      5      5 ", resultLines[1]);
+        assertEquals("Null count              5      0      5 ", resultLines[2]);
+        assertEquals("Highest value      <null>      5 <null> ", resultLines[3]);
+        assertEquals("Lowest value       <null>      1 <null> ", resultLines[4]);
+        assertEquals("Sum                <null>     15 <null> ", resultLines[5]);
+        assertEquals("Mean               <null>      3 <null> ", resultLines[6]);
+        assertEquals("Geometric mean     <null> <null> <null> ", resultLines[7]);
+        assertEquals("Standard deviation <null>   1.58 <null> ", resultLines[8]);
+        assertEquals("Variance           <null>    2.5 <null> ", resultLines[9]);
+        assertEquals("Second moment      <null>     10 <null> ", resultLines[10]);
+        assertEquals("Sum of squares     <null>     55 <null> ", resultLines[11]);
+    }
+
+    public void testPushdownGivesSameResultAsRowByRow() throws Throwable {
+        final String[] rowByRowLines = runOrderFactJob(false);
+        final String[] pushedDownLines = runOrderFactJob(true);
+        assertEquals(12, rowByRowLines.length);
+        assertEquals(rowByRowLines.length, pushedDownLines.length);
+        assertEquals("Row count                     2996            2996 ", rowByRowLines[1]);
+
+        for (int i = 0; i < rowByRowLines.length; i++) {
+            if (rowByRowLines[i].startsWith(NumberAnalyzer.MEASURE_GEOMETRIC_MEAN)) {
+                // not available from the aggregates, which tells that they were used
+                assertFalse(rowByRowLines[i].contains("<null>"));
+                assertEquals("Geometric mean              <null>          <null> ", pushedDownLines[i]);
+            } else {
+                assertEquals(rowByRowLines[i], pushedDownLines[i]);
+            }
+        }
+    }
+
+    private String[] runOrderFactJob(final boolean pushdown) throws Throwable {
+        if (pushdown) {
+            System.setProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN, "true");
+        }
+        try {
+            final Datastore datastore = new JdbcDatastore("orderdb", "jdbc:hsqldb:res:orderdb;readonly=true",
+                    "org.hsqldb.jdbcDriver", "SA", "", true);
+            final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl().withDatastores(datastore);
+            final AnalysisJob job;
+            try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(configuration)) {
+                ajb.setDatastore(datastore);
+                ajb.addSourceColumns("ORDERFACT.QUANTITYORDERED", "ORDERFACT.PRICEEACH");
+
+                final AnalyzerComponentBuilder<NumberAnalyzer> analyzer = ajb.addAnalyzer(NumberAnalyzer.class);
+                analyzer.addInputColumns(ajb.getSourceColumns());
+                analyzer.setConfiguredProperty(NumberAnalyzer.PROPERTY_RECORD_DRILL_DOWN_INFORMATION, false);
+                job = ajb.toAnalysisJob();
+            }
+
+            final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+            resultFuture.await();
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            return new CrosstabTextRenderer().render((CrosstabResult) resultFuture.getResults().get(0)).split("\n");
+        } finally {
+            System.clearProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN);
+        }
+    }
+
+    public void testDistinctCount() throws Exception {
+        numberAnalyzer.run(new MockInputRow().put(col2, 2L), 3);
+        numberAnalyzer.run(new MockInputRow().put(col2, 4L), 1);
+
+        final NumberAnalyzerResult result = numberAnalyzer.getResult();
+        assertEquals(4, result.getRowCount(col2).intValue());
+        assertEquals(10d, result.getSum(col2).doubleValue());
+        assertEquals(2.5d, result.getMean(col2).doubleValue());
+        assertEquals(1d, result.getVariance(col2).doubleValue(), 0.0001);
+        assertEquals(3d, result.getSecondMoment(col2).doubleValue(), 0.0001);
+    }
+
+    public void testDescriptiveStatistics() throws Exception {
+        final NumberAnalyzer analyzer = createDescriptiveAnalyzer();
+        for (long i = 1; i <= 5; i++) {
+            analyzer.run(new MockInputRow().put(col2, i), 1);
+        }
+
+        final NumberAnalyzerResult result = analyzer.getResult();
+        assertEquals(3d, result.getMedian(col2).doubleValue(), 0.0001);
+        assertEquals(0d, result.getSkewness(col2).doubleValue(), 0.0001);
+        assertEquals(-1.2d, result.getKurtosis(col2).doubleValue(), 0.0001);
+        assertTrue(result.getPercentile25(col2).doubleValue() < 3d);
+        assertTrue(result.getPercentile75(col2).doubleValue() > 3d);
+    }
+
+    public void testRunFromMultipleThreads() throws Exception {
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (long j = 1; j <= 1000; j++) {
+                    numberAnalyzer.run(new MockInputRow().put(col2, j), 1);
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final NumberAnalyzerResult result = numberAnalyzer.getResult();
+        assertEquals(4000, result.getRowCount(col2).intValue());
+        assertEquals(4 * 500500d, result.getSum(col2).doubleValue());
+        assertEquals(1000d, result.getHighestValue(col2).doubleValue());
+        assertEquals(1d, result.getLowestValue(col2).doubleValue());
+
+        final AnnotatedRowsResult highestValueRows = (AnnotatedRowsResult) result.getCrosstab().where(
+                NumberAnalyzer.DIMENSION_COLUMN, col2.getName()).where(NumberAnalyzer.DIMENSION_MEASURE,
+                NumberAnalyzer.MEASURE_HIGHEST_VALUE).explore().getResult();
+        assertEquals(4, highestValueRows.getAnnotatedRowCount());
+    }
+
+    public void testReduceDescriptiveStatistics() throws Exception {
+        final NumberAnalyzer analyzer1 = createDescriptiveAnalyzer();
+        final NumberAnalyzer analyzer2 = createDescriptiveAnalyzer();
+        final NumberAnalyzer analyzerAll = createDescriptiveAnalyzer();
+        for (long i = 1; i <= 1000; i++) {
+            final MockInputRow row = new MockInputRow().put(col2, i * i);
+            (i % 2 == 0 ? analyzer1 : analyzer2).run(row, 1);
+            analyzerAll.run(row, 1);
+        }
+
+        final NumberAnalyzerResult expected = analyzerAll.getResult();
+        final NumberAnalyzerResult reduced =
+                new NumberAnalyzerResultReducer().reduce(Arrays.asList(analyzer1.getResult(), analyzer2.getResult()));
+
+        assertEquals(1000, reduced.getRowCount(col2).intValue());
+        assertEquals(expected.getVariance(col2).doubleValue(), reduced.getVariance(col2).doubleValue(), 0.01);
+        assertEquals(expected.getGeometricMean(col2).doubleValue(), reduced.getGeometricMean(col2).doubleValue(),
+                0.01);
+        assertEquals(expected.getSkewness(col2).doubleValue(), reduced.getSkewness(col2).doubleValue(), 0.0001);
+        assertEquals(expected.getKurtosis(col2).doubleValue(), reduced.getKurtosis(col2).doubleValue(), 0.0001);
+        assertEquals(250000d, reduced.getMedian(col2).doubleValue(), 5000d);
+        assertNotNull(reduced.getStatistics(col2.getName()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private NumberAnalyzer createDescriptiveAnalyzer() {
+        final NumberAnalyzer analyzer = new NumberAnalyzer();
+        analyzer._columns = new MockInputColumn[] { col2 };
+        analyzer._annotationFactory = RowAnnotations.getDefaultFactory();
+        analyzer.descriptiveStatistics = true;
+        analyzer.init();
+        return analyzer;
+    }
 }
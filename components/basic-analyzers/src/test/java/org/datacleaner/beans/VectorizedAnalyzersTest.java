@@ -0,0 +1,220 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.apache.metamodel.pojo.ArrayTableDataProvider;
+import org.apache.metamodel.pojo.TableDataProvider;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.Filter;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.beans.CompletenessAnalyzer.Condition;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.PojoDatastore;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.AnalyzerComponentBuilder;
+import org.datacleaner.job.builder.FilterComponentBuilder;
+import org.datacleaner.job.runner.AnalysisListenerAdaptor;
+import org.datacleaner.job.runner.ConsumeRowHandler;
+import org.datacleaner.job.runner.RowProcessingConsumer;
+import org.datacleaner.result.CrosstabResult;
+import org.datacleaner.result.renderer.CrosstabTextRenderer;
+
+import junit.framework.TestCase;
+
+/**
+ * Verifies that vectorized analyzers produce the same results when consumed in
+ * column batches as when consumed row by row.
+ */
+public class VectorizedAnalyzersTest extends TestCase {
+
+    @Named("Row id parity filter")
+    public static class RowIdParityFilter implements Filter<RowIdParityFilter.Parity> {
+
+        public enum Parity {
+            EVEN, ODD
+        }
+
+        @Configured
+        InputColumn<?> column;
+
+        @Override
+        public Parity categorize(final InputRow inputRow) {
+            return inputRow.getId() % 2 == 0 ? Parity.EVEN : Parity.ODD;
+        }
+    }
+
+    private final DataCleanerConfiguration _configuration = new DataCleanerConfigurationImpl();
+
+    public void testBatchResultsEqualRowByRowResults() throws Exception {
+        final List<TableDataProvider<?>> tableDataProviders = new ArrayList<>();
+        tableDataProviders.add(new ArrayTableDataProvider(
+                new SimpleTableDef("table", new String[] { "name", "age" },
+                        new ColumnType[] { ColumnType.VARCHAR, ColumnType.INTEGER }), new ArrayList<>()));
+
+        final AnalysisJob job;
+        final InputColumn<?> nameColumn;
+        final InputColumn<?> ageColumn;
+        try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(_configuration)) {
+            ajb.setDatastore(new PojoDatastore("ds", "sch", tableDataProviders));
+            ajb.addSourceColumns("name", "age");
+            nameColumn = ajb.getSourceColumnByName("name");
+            ageColumn = ajb.getSourceColumnByName("age");
+
+            final FilterComponentBuilder<RowIdParityFilter, RowIdParityFilter.Parity> filter =
+                    ajb.addFilter(RowIdParityFilter.class);
+            filter.addInputColumn(nameColumn);
+
+            // one analyzer of each kind without requirement, and one that only
+            // gets the even rows
+            for (final RowIdParityFilter.Parity requirement : new RowIdParityFilter.Parity[] { null,
+                    RowIdParityFilter.Parity.EVEN }) {
+                final AnalyzerComponentBuilder<NumberAnalyzer> numberAnalyzer = ajb.addAnalyzer(NumberAnalyzer.class);
+                numberAnalyzer.addInputColumn(ageColumn);
+
+                final AnalyzerComponentBuilder<StringAnalyzer> stringAnalyzer = ajb.addAnalyzer(StringAnalyzer.class);
+                stringAnalyzer.addInputColumn(nameColumn);
+
+                final AnalyzerComponentBuilder<CompletenessAnalyzer> completenessAnalyzer =
+                        ajb.addAnalyzer(CompletenessAnalyzer.class);
+                completenessAnalyzer.addInputColumns(nameColumn, ageColumn);
+                completenessAnalyzer.setConfiguredProperty(CompletenessAnalyzer.PROPERTY_CONDITIONS,
+                        new Condition[] { Condition.NOT_BLANK_OR_NULL, Condition.NOT_NULL });
+
+                if (requirement != null) {
+                    numberAnalyzer.setRequirement(filter, requirement);
+                    stringAnalyzer.setRequirement(filter, requirement);
+                    completenessAnalyzer.setRequirement(filter, requirement);
+                }
+            }
+
+            job = ajb.toAnalysisJob();
+        }
+
+        final List<InputRow> rows = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            final String name = i % 7 == 0 ? null : (i % 11 == 0 ? "" : "name" + (i % 13));
+            final Integer age = i % 5 == 0 ? null : i % 97;
+            rows.add(new MockInputRow(i).put(nameColumn, name).put(ageColumn, age));
+        }
+
+        final ConsumeRowHandler rowByRowHandler =
+                new ConsumeRowHandler(job, _configuration, new ConsumeRowHandler.Configuration());
+        for (final InputRow row : rows) {
+            rowByRowHandler.consumeRow(row);
+        }
+
+        final ConsumeRowHandler batchHandler =
+                new ConsumeRowHandler(job, _configuration, new ConsumeRowHandler.Configuration());
+        assertEquals(rows.size(), batchHandler.consumeRows(rows).getRows().size());
+
+        final List<AnalyzerResult> rowByRowResults = getResults(rowByRowHandler);
+        final List<AnalyzerResult> batchResults = getResults(batchHandler);
+        assertEquals(6, rowByRowResults.size());
+        assertEquals(rowByRowResults.size(), batchResults.size());
+
+        for (int i = 0; i < rowByRowResults.size(); i++) {
+            final AnalyzerResult expected = rowByRowResults.get(i);
+            final AnalyzerResult actual = batchResults.get(i);
+            if (expected instanceof CompletenessAnalyzerResult) {
+                final CompletenessAnalyzerResult expectedCompleteness = (CompletenessAnalyzerResult) expected;
+                final CompletenessAnalyzerResult actualCompleteness = (CompletenessAnalyzerResult) actual;
+                assertTrue(expectedCompleteness.getInvalidRowCount() > 0);
+                assertEquals(expectedCompleteness.getTotalRowCount(), actualCompleteness.getTotalRowCount());
+                assertEquals(expectedCompleteness.getInvalidRowCount(), actualCompleteness.getInvalidRowCount());
+            } else {
+                final CrosstabTextRenderer renderer = new CrosstabTextRenderer();
+                assertEquals(renderer.render((CrosstabResult) expected), renderer.render((CrosstabResult) actual));
+            }
+        }
+
+        // the analyzers with a requirement only got the even rows
+        final List<Integer> completenessRowCounts = new ArrayList<>();
+        for (final AnalyzerResult result : batchResults) {
+            if (result instanceof CompletenessAnalyzerResult) {
+                completenessRowCounts.add(((CompletenessAnalyzerResult) result).getTotalRowCount());
+            }
+        }
+        assertEquals(2, completenessRowCounts.size());
+        assertTrue(completenessRowCounts.contains(500));
+        assertTrue(completenessRowCounts.contains(250));
+    }
+
+    public void testBatchErrorIsReportedForFailingRowOnly() throws Exception {
+        final List<TableDataProvider<?>> tableDataProviders = new ArrayList<>();
+        tableDataProviders.add(new ArrayTableDataProvider(
+                new SimpleTableDef("table", new String[] { "age" }, new ColumnType[] { ColumnType.INTEGER }),
+                new ArrayList<>()));
+
+        final AnalysisJob job;
+        final InputColumn<?> ageColumn;
+        try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(_configuration)) {
+            ajb.setDatastore(new PojoDatastore("ds", "sch", tableDataProviders));
+            ajb.addSourceColumns("age");
+            ageColumn = ajb.getSourceColumnByName("age");
+            ajb.addAnalyzer(NumberAnalyzer.class).addInputColumn(ageColumn);
+            job = ajb.toAnalysisJob();
+        }
+
+        final List<InputRow> errorRows = new ArrayList<>();
+        final ConsumeRowHandler.Configuration configuration = new ConsumeRowHandler.Configuration();
+        configuration.analysisListener = new AnalysisListenerAdaptor() {
+            @Override
+            public void errorInComponent(final AnalysisJob job, final ComponentJob componentJob, final InputRow row,
+                    final Throwable throwable) {
+                assertTrue(throwable instanceof ClassCastException);
+                errorRows.add(row);
+            }
+        };
+        final ConsumeRowHandler handler = new ConsumeRowHandler(job, _configuration, configuration);
+
+        final List<InputRow> rows = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            rows.add(new MockInputRow(i).put(ageColumn, i == 4 ? "foo" : i));
+        }
+        handler.consumeRows(rows);
+
+        assertEquals(1, errorRows.size());
+        assertEquals(4, errorRows.get(0).getId());
+    }
+
+    private List<AnalyzerResult> getResults(final ConsumeRowHandler handler) {
+        final List<AnalyzerResult> results = new ArrayList<>();
+        for (final RowProcessingConsumer consumer : handler.getConsumers()) {
+            if (consumer.getComponent() instanceof Analyzer) {
+                results.add(((Analyzer<?>) consumer.getComponent()).getResult());
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class QuantileDigestTest extends TestCase {
+
+    public void testEmpty() throws Exception {
+        final QuantileDigest digest = new QuantileDigest();
+        assertTrue(Double.isNaN(digest.getQuantile(0.5)));
+        assertEquals(0d, digest.getTotalWeight());
+    }
+
+    public void testSmallNumberOfValues() throws Exception {
+        final QuantileDigest digest = new QuantileDigest();
+        for (int i = 1; i <= 5; i++) {
+            digest.add(i, 1);
+        }
+        assertEquals(3d, digest.getQuantile(0.5), 0.0001);
+        assertEquals(1d, digest.getQuantile(0), 0.0001);
+        assertEquals(5d, digest.getQuantile(1), 0.0001);
+    }
+
+    public void testUniformDistribution() throws Exception {
+        final QuantileDigest digest = new QuantileDigest();
+        final Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            digest.add(random.nextDouble(), 1);
+        }
+        assertEquals(100000d, digest.getTotalWeight());
+        assertEquals(0.25, digest.getQuantile(0.25), 0.01);
+        assertEquals(0.5, digest.getQuantile(0.5), 0.01);
+        assertEquals(0.75, digest.getQuantile(0.75), 0.01);
+    }
+
+    public void testWeightedValues() throws Exception {
+        final QuantileDigest digest = new QuantileDigest();
+        digest.add(1, 1000);
+        digest.add(2, 3000);
+        assertEquals(4000d, digest.getTotalWeight());
+        assertEquals(2d, digest.getQuantile(0.75), 0.01);
+        assertEquals(1d, digest.getQuantile(0.05), 0.01);
+    }
+
+    public void testMerge() throws Exception {
+        final QuantileDigest digest1 = new QuantileDigest();
+        final QuantileDigest digest2 = new QuantileDigest();
+        for (int i = 0; i < 10000; i++) {
+            digest1.add(i, 1);
+            digest2.add(10000 + i, 1);
+        }
+        digest1.add(digest2);
+
+        assertEquals(20000d, digest1.getTotalWeight());
+        assertEquals(10000d, digest1.getQuantile(0.5), 100);
+        assertEquals(0d, digest1.getQuantile(0), 0.0001);
+        assertEquals(19999d, digest1.getQuantile(1), 0.0001);
+    }
+
+    public void testSerializeAndDeserialize() throws Exception {
+        final QuantileDigest digest = new QuantileDigest();
+        for (int i = 0; i < 1000; i++) {
+            digest.add(i, 1);
+        }
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(digest);
+        }
+        final QuantileDigest deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            deserialized = (QuantileDigest) in.readObject();
+        }
+
+        assertEquals(digest.getQuantile(0.5), deserialized.getQuantile(0.5), 0.0001);
+        deserialized.add(1000, 1);
+        assertEquals(1001d, deserialized.getTotalWeight());
+    }
+}
@@ -20,13 +20,11 @@
 package org.datacleaner.beans.transform;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -51,6 +49,8 @@ import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.reference.Dictionary;
 import org.datacleaner.reference.DictionaryConnection;
 import org.datacleaner.util.StringUtils;
+import org.datacleaner.util.WordSequenceMatcher;
+import org.datacleaner.util.WordSequenceMatcher.Match;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
@@ -100,7 +100,7 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     DataCleanerConfiguration _configuration;
 
     private DictionaryConnection _dictionaryConnection;
-    private Map<String, Pattern> multiWordDictionaryPatterns;
+    private WordSequenceMatcher<String> multiWordDictionaryMatcher;
 
     public RemoveDictionaryMatchesTransformer() {
     }
@@ -140,21 +140,16 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     @Initialize
     public void init() {
         _dictionaryConnection = _dictionary.openConnection(_configuration);
-        multiWordDictionaryPatterns = new LinkedHashMap<>();
 
+        final Map<String, String> multiWordValues = new LinkedHashMap<>();
         final Iterator<String> allValues = _dictionaryConnection.getLengthSortedValues();
         while (allValues.hasNext()) {
             final String value = allValues.next();
             if (!StringUtils.isSingleWord(value)) {
-                final Pattern pattern;
-                if (_dictionary.isCaseSensitive()) {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value) + "\\b");
-                } else {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value.toLowerCase()) + "\\b");
-                }
-                multiWordDictionaryPatterns.put(value, pattern);
+                multiWordValues.put(value, value);
             }
         }
+        multiWordDictionaryMatcher = new WordSequenceMatcher<>(multiWordValues, _dictionary.isCaseSensitive());
     }
 
     @Close
@@ -174,31 +169,29 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     public Object[] transform(String value) {
         final List<String> removedParts = new ArrayList<>(2);
         if (!Strings.isNullOrEmpty(value)) {
-            for (final Entry<String, Pattern> entry : multiWordDictionaryPatterns.entrySet()) {
-                final Pattern pattern = entry.getValue();
-                final Matcher matcher;
-                if (_dictionary.isCaseSensitive()) {
-                    matcher = pattern.matcher(value);
+            final List<Match<String>> matches = multiWordDictionaryMatcher.findLongest(value);
+            for (final Match<String> match : matches) {
+                removedParts.add(match.getValue());
+            }
+
+            // remove matches from right to left to keep the indices of the
+            // remaining matches valid
+            matches.sort(Comparator.comparingInt(Match<String>::getStartIndex).reversed());
+            for (final Match<String> match : matches) {
+                final int start;
+                final int end;
+                if (match.getStartIndex() > 0 && value.charAt(match.getStartIndex() - 1) == ' ') {
+                    start = match.getStartIndex() - 1;
+                    end = match.getEndIndex();
+                } else if (match.getEndIndex() < value.length() && value.charAt(match.getEndIndex()) == ' ') {
+                    start = match.getStartIndex();
+                    end = match.getEndIndex() + 1;
                 } else {
-                    matcher = pattern.matcher(value.toLowerCase());
+                    start = match.getStartIndex();
+                    end = match.getEndIndex();
                 }
-                while (matcher.find()) {
-                    final int start;
-                    final int end;
-                    if (matcher.start() > 0 && value.charAt(matcher.start() - 1) == ' ') {
-                        start = matcher.start() - 1;
-                        end = matcher.end();
-                    } else if (matcher.end() < value.length() && value.charAt(matcher.end()) == ' ') {
-                        start = matcher.start();
-                        end = matcher.end() + 1;
-                    } else {
-                        start = matcher.start();
-                        end = matcher.end();
-                    }
 
-                    value = value.substring(0, start) + value.substring(end);
-                    removedParts.add(entry.getKey());
-                }
+                value = value.substring(0, start) + value.substring(end);
             }
 
             // do word-by-word dictionary lookups
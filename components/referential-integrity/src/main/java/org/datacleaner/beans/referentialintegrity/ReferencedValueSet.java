@@ -0,0 +1,161 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.referentialintegrity;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.metamodel.schema.ColumnType;
+import org.datacleaner.util.ColumnValueKeys;
+
+/**
+ * A compact, read-optimized set of the values of a referenced (primary key)
+ * column. Values are normalized according to the type of the referenced column
+ * using {@link ColumnValueKeys}, so that eg. an integer foreign key matches a
+ * decimal primary key with the same value, like a comparison in the database
+ * would.
+ *
+ * Integral numbers, which is by far the most common key type, are kept in a
+ * primitive open addressing hash table instead of as boxed objects.
+ *
+ * The set is populated by a single thread and may afterwards be queried
+ * concurrently.
+ */
+final class ReferencedValueSet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // marks an empty slot in the long table
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final ColumnType _columnType;
+    private final Set<Object> _objects;
+    private long[] _longs;
+    private int _longCount;
+    private boolean _containsEmptyMarker;
+
+    public ReferencedValueSet(final ColumnType columnType) {
+        _columnType = columnType;
+        _objects = new HashSet<>();
+        _longs = newTable(INITIAL_CAPACITY);
+        _longCount = 0;
+    }
+
+    public void add(final Object value) {
+        final Object key = normalize(value);
+        if (key == null) {
+            return;
+        }
+        if (key instanceof Long) {
+            addLong((Long) key);
+        } else {
+            _objects.add(key);
+        }
+    }
+
+    public boolean contains(final Object value) {
+        final Object key = normalize(value);
+        if (key == null) {
+            return false;
+        }
+        if (key instanceof Long) {
+            return containsLong((Long) key);
+        }
+        return _objects.contains(key);
+    }
+
+    public int size() {
+        return _longCount + (_containsEmptyMarker ? 1 : 0) + _objects.size();
+    }
+
+    private void addLong(final long value) {
+        if (value == EMPTY) {
+            _containsEmptyMarker = true;
+            return;
+        }
+        if ((_longCount + 1) * 3L > _longs.length * 2L) {
+            rehash(_longs.length * 2);
+        }
+        if (insert(_longs, value)) {
+            _longCount++;
+        }
+    }
+
+    private boolean containsLong(final long value) {
+        if (value == EMPTY) {
+            return _containsEmptyMarker;
+        }
+        final long[] table = _longs;
+        final int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (true) {
+            final long slot = table[index];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void rehash(final int capacity) {
+        final long[] table = newTable(capacity);
+        for (final long value : _longs) {
+            if (value != EMPTY) {
+                insert(table, value);
+            }
+        }
+        _longs = table;
+    }
+
+    private static boolean insert(final long[] table, final long value) {
+        final int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (true) {
+            final long slot = table[index];
+            if (slot == value) {
+                return false;
+            }
+            if (slot == EMPTY) {
+                table[index] = value;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private static long[] newTable(final int capacity) {
+        final long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(final long value) {
+        final long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private Object normalize(final Object value) {
+        return ColumnValueKeys.toKey(_columnType, value);
+    }
+}
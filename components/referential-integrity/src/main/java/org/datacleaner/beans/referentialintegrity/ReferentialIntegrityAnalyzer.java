@@ -19,11 +19,24 @@
  */
 package org.datacleaner.beans.referentialintegrity;
 
+import java.util.Collections;
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FromItem;
+import org.apache.metamodel.query.GroupByItem;
+import org.apache.metamodel.query.JoinType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
 import org.datacleaner.api.Alias;
-import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.Configured;
@@ -33,17 +46,29 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.MappedProperty;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
 import org.datacleaner.api.SchemaProperty;
 import org.datacleaner.api.TableProperty;
 import org.datacleaner.components.tablelookup.TableLookupTransformer;
 import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 @Named("Referential integrity")
 @Description( "Check the integrity of a foreign key by checking that every value can be resolved in "
         + "another table (which may be in a different datastore altogether).")
-public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegrityAnalyzerResult> {
+public class ReferentialIntegrityAnalyzer implements QueryOptimizedAnalyzer<ReferentialIntegrityAnalyzerResult> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferentialIntegrityAnalyzer.class);
 
     private static final String PROPERTY_NAME_DATASTORE = "Datastore";
     private static final String PROPERTY_NAME_SCHEMA_NAME = "Schema name";
@@ -87,6 +112,12 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
     @Description("Ignore null values")
     boolean ignoreNullValues = true;
 
+    @Inject
+    @Configured(required = false, value = "Load referenced values into memory")
+    @Description("Read the referenced column once and check foreign keys against an in-memory set of its values, "
+            + "instead of looking up every foreign key in the referenced table.")
+    boolean loadReferencedValues = false;
+
     @Inject
     @Provided
     RowAnnotation annotation;
@@ -95,13 +126,54 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
     @Provided
     RowAnnotationFactory annotationFactory;
 
+    @Inject
+    @Provided
+    AnalysisJob analysisJob;
+
     private TableLookupTransformer _tableLookup;
+    private Supplier<ReferencedValueSet> _referencedValues;
 
     @Initialize
     public void init() {
-        _tableLookup = new TableLookupTransformer(datastore, schemaName, tableName, new String[] { columnName },
-                new InputColumn<?>[] { foreignKey }, new String[] { columnName }, cacheLookups);
-        _tableLookup.init();
+        if (loadReferencedValues) {
+            // loaded on first use, so that nothing is read if the analyzer is
+            // pushed down into an anti-join query
+            _referencedValues = Suppliers.memoize(this::loadReferencedValueSet);
+        } else {
+            _tableLookup = new TableLookupTransformer(datastore, schemaName, tableName, new String[] { columnName },
+                    new InputColumn<?>[] { foreignKey }, new String[] { columnName }, cacheLookups);
+            _tableLookup.init();
+        }
+    }
+
+    private ReferencedValueSet loadReferencedValueSet() {
+        try (DatastoreConnection con = datastore.openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+            final Column column = getReferencedColumn(con);
+
+            final Query query = dataContext.query().from(column.getTable()).select(column).toQuery();
+            if (datastore.getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+                query.getSelectClause().setDistinct(true);
+            }
+
+            final ReferencedValueSet referencedValues = new ReferencedValueSet(column.getType());
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
+                while (dataSet.next()) {
+                    referencedValues.add(dataSet.getRow().getValue(0));
+                }
+            }
+            logger.info("Loaded {} referenced values from {}", referencedValues.size(), column);
+            return referencedValues;
+        }
+    }
+
+    private Column getReferencedColumn(final DatastoreConnection con) {
+        final Table table = con.getSchemaNavigator().convertToTable(schemaName, tableName);
+        final Column column = table.getColumnByName(columnName);
+        if (column == null) {
+            throw new IllegalStateException("Column '" + columnName + "' not found in table: " + table);
+        }
+        return column;
     }
 
     @Override
@@ -118,6 +190,13 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
             }
         }
 
+        if (_referencedValues != null) {
+            if (!_referencedValues.get().contains(value)) {
+                annotationFactory.annotate(row, distinctCount, annotation);
+            }
+            return;
+        }
+
         final Object[] result = _tableLookup.transform(row);
         assert result.length == 1;
 
@@ -127,6 +206,54 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
         }
     }
 
+    @Override
+    public boolean isOptimizable() {
+        // an anti-join is only possible when the referenced table resides in
+        // the same (JDBC) datastore as the job's source table
+        return analysisJob != null && datastore instanceof JdbcDatastore && analysisJob.getDatastore() != null
+                && datastore.getName().equals(analysisJob.getDatastore().getName());
+    }
+
+    @Override
+    public List<Query> createAggregateQueries(final Query baseQuery) {
+        final Column referencedColumn;
+        try (DatastoreConnection con = datastore.openConnection()) {
+            referencedColumn = getReferencedColumn(con);
+        }
+
+        // SELECT fk, COUNT(*) FROM source LEFT JOIN referenced ON fk = pk
+        // WHERE pk IS NULL GROUP BY fk
+        final Query query = baseQuery.clone();
+        final FromItem sourceFromItem = query.getFromClause().getItem(0);
+        final FromItem referencedFromItem = new FromItem(referencedColumn.getTable());
+        // the alias allows the foreign key to reference its own table
+        referencedFromItem.setAlias("referenced");
+
+        final SelectItem foreignKeySelectItem = new SelectItem(foreignKey.getPhysicalColumn(), sourceFromItem);
+        final SelectItem referencedSelectItem = new SelectItem(referencedColumn, referencedFromItem);
+
+        query.getSelectClause().removeItems();
+        query.getFromClause().removeItems();
+        query.from(new FromItem(JoinType.LEFT, sourceFromItem, referencedFromItem,
+                new SelectItem[] { foreignKeySelectItem }, new SelectItem[] { referencedSelectItem }));
+        query.where(referencedSelectItem, OperatorType.EQUALS_TO, null);
+        if (ignoreNullValues) {
+            query.where(foreignKeySelectItem, OperatorType.DIFFERENT_FROM, null);
+        }
+        query.select(foreignKeySelectItem);
+        query.groupBy(new GroupByItem(foreignKeySelectItem));
+        query.selectCount();
+        return Collections.singletonList(query);
+    }
+
+    @Override
+    public void runAggregate(final int queryIndex, final Row row) {
+        final Object value = row.getValue(0);
+        final int count = ((Number) row.getValue(1)).intValue();
+        final MockInputRow inputRow = new MockInputRow().put(foreignKey, value);
+        annotationFactory.annotate(inputRow, count, annotation);
+    }
+
     @Override
     public ReferentialIntegrityAnalyzerResult getResult() {
         return new ReferentialIntegrityAnalyzerResult(annotation, annotationFactory,
@@ -139,6 +266,7 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
             _tableLookup.close();
             _tableLookup = null;
         }
+        _referencedValues = null;
     }
 
 }
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.beans.referentialintegrity;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.datacleaner.api.InputColumn;
@@ -26,12 +28,15 @@ import org.datacleaner.api.InputRow;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.data.MockInputRow;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.job.builder.AnalyzerComponentBuilder;
 import org.datacleaner.job.runner.AnalysisResultFuture;
 import org.datacleaner.job.runner.AnalysisRunnerImpl;
 import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
 
 import junit.framework.TestCase;
 
@@ -82,4 +87,73 @@ public class ReferentialIntegrityAnalyzerTest extends TestCase {
         assertEquals(-1, rows.get(2).getValue(salesRepEmployeeNumber));
     }
 
+    public void testLoadReferencedValues() throws Throwable {
+        final ReferentialIntegrityAnalyzerResult result =
+                runAnalysis(TestHelper.createSampleDatabaseDatastore("orderdb"), true);
+        assertEquals(3, result.getAnnotatedRowCount());
+        assertEquals("[-1, -1, 0]", getSortedForeignKeys(result).toString());
+    }
+
+    public void testAntiJoinPushdown() throws Throwable {
+        System.setProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN, "true");
+        try {
+            // only JDBC datastores support the anti-join
+            final Datastore datastore = new JdbcDatastore("orderdb", "jdbc:hsqldb:res:orderdb;readonly=true",
+                    "org.hsqldb.jdbcDriver", "SA", "", true);
+            final ReferentialIntegrityAnalyzerResult result = runAnalysis(datastore, false);
+            assertEquals(3, result.getAnnotatedRowCount());
+            assertEquals("[-1, -1, 0]", getSortedForeignKeys(result).toString());
+
+            // the aggregated rows carry only the foreign key, not the source rows
+            for (final InputRow row : result.getSampleRows()) {
+System.err.println("DBG " + row.getClass() + " " + row.getId() + " " + row.getInputColumns());
+            }
+        } finally {
+            System.clearProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN);
+        }
+    }
+
+    private List<Integer> getSortedForeignKeys(final ReferentialIntegrityAnalyzerResult result) {
+        final InputColumn<?> foreignKey = result.getHighlightedColumns()[0];
+        final List<Integer> values = new ArrayList<>();
+        for (final InputRow row : result.getSampleRows()) {
+            values.add((Integer) row.getValue(foreignKey));
+        }
+        Collections.sort(values);
+        return values;
+    }
+
+    private ReferentialIntegrityAnalyzerResult runAnalysis(final Datastore datastore,
+            final boolean loadReferencedValues) throws Throwable {
+        final DataCleanerConfigurationImpl configuration =
+                new DataCleanerConfigurationImpl().withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+        final AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration);
+
+        jobBuilder.setDatastore(datastore);
+        jobBuilder.addSourceColumns("customers.SALESREPEMPLOYEENUMBER");
+
+        final AnalyzerComponentBuilder<ReferentialIntegrityAnalyzer> analyzer =
+                jobBuilder.addAnalyzer(ReferentialIntegrityAnalyzer.class);
+        final ReferentialIntegrityAnalyzer referentialIntegrity = analyzer.getComponentInstance();
+        referentialIntegrity.foreignKey = jobBuilder.getSourceColumnByName("SALESREPEMPLOYEENUMBER");
+        referentialIntegrity.loadReferencedValues = loadReferencedValues;
+        referentialIntegrity.datastore = datastore;
+        referentialIntegrity.schemaName = "PUBLIC";
+        referentialIntegrity.tableName = "employees";
+        referentialIntegrity.columnName = "EMPLOYEENUMBER";
+
+        final AnalysisJob analysisJob = jobBuilder.toAnalysisJob();
+
+        jobBuilder.close();
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(analysisJob);
+
+        resultFuture.await();
+
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        return resultFuture.getResults(ReferentialIntegrityAnalyzerResult.class).get(0);
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over pre-computed 64 bit hashes, using double
+ * hashing to derive the bit positions.
+ */
+final class ConcurrentBloomFilter {
+
+    private final AtomicLongArray _words;
+    private final long _bitCount;
+    private final int _hashCount;
+
+    public ConcurrentBloomFilter(final long expectedInsertions, final double falsePositiveProbability) {
+        final double ln2 = Math.log(2);
+        final long optimalBits =
+                (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        final long wordCount = Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        _words = new AtomicLongArray((int) wordCount);
+        _bitCount = wordCount * 64;
+        _hashCount = (int) Math.max(1, Math.round((double) _bitCount / Math.max(1, expectedInsertions) * ln2));
+    }
+
+    /**
+     * Puts a key into the filter.
+     *
+     * @param hash1
+     * @param hash2
+     * @return true if the filter changed, meaning that the key was definitely
+     *         not in the filter before. False if the key was probably in the
+     *         filter already.
+     */
+    public boolean put(final long hash1, final long hash2) {
+        boolean changed = false;
+        long combinedHash = hash1;
+        for (int i = 0; i < _hashCount; i++) {
+            final long bitIndex = (combinedHash & Long.MAX_VALUE) % _bitCount;
+            final int wordIndex = (int) (bitIndex >>> 6);
+            final long mask = 1L << bitIndex;
+            if ((_words.get(wordIndex) & mask) == 0) {
+                final long previous = _words.getAndAccumulate(wordIndex, mask, (word, bit) -> word | bit);
+                if ((previous & mask) == 0) {
+                    changed = true;
+                }
+            }
+            combinedHash += hash2;
+        }
+        return changed;
+    }
+
+    public long getBitCount() {
+        return _bitCount;
+    }
+
+    public int getHashCount() {
+        return _hashCount;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe HyperLogLog cardinality estimator over pre-computed 64 bit
+ * hashes. The relative standard error is about 1.04 / sqrt(2^precision).
+ */
+final class HyperLogLog {
+
+    private final int _precision;
+    private final int _registerCount;
+    private final AtomicIntegerArray _registers;
+
+    public HyperLogLog(final int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18, was: " + precision);
+        }
+        _precision = precision;
+        _registerCount = 1 << precision;
+        _registers = new AtomicIntegerArray(_registerCount);
+    }
+
+    public void add(final long hash) {
+        final int index = (int) (hash >>> (64 - _precision));
+        // the guard bit bounds the rank when the remaining bits are all zero
+        final long remainingBits = (hash << _precision) | (1L << (_precision - 1));
+        final int rank = Long.numberOfLeadingZeros(remainingBits) + 1;
+        if (rank > _registers.get(index)) {
+            _registers.accumulateAndGet(index, rank, Math::max);
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (int i = 0; i < _registerCount; i++) {
+            final int register = _registers.get(i);
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        final double alpha = 0.7213 / (1 + 1.079 / _registerCount);
+        final double estimate = alpha * _registerCount * _registerCount / sum;
+        if (estimate <= 2.5 * _registerCount && zeroRegisters > 0) {
+            // small range correction, using linear counting
+            return Math.round(_registerCount * Math.log((double) _registerCount / zeroRegisters));
+        }
+        return Math.round(estimate);
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Exact, thread-safe counter of keys that keeps its data in off-heap (direct)
+ * memory, bounded by a memory budget.
+ *
+ * Keys are stored as bytes in off-heap arenas and indexed by open-addressing
+ * hash tables of 64 bit fingerprints. Key bytes are only compared when
+ * fingerprints match, so a fingerprint collision costs a byte comparison but
+ * never a wrong count. The tables are split into segments that are locked
+ * independently.
+ *
+ * If the JVM runs out of direct memory before the budget is reached (see
+ * -XX:MaxDirectMemorySize), the counter behaves as if the budget was exhausted.
+ *
+ * Releasing the memory (see {@link #drain(KeyHandler)} and {@link #close()})
+ * returns it to the budget and drops all references to it, but the direct
+ * memory itself is only reclaimed by the JVM when the buffers are garbage
+ * collected.
+ */
+final class OffHeapKeyCounter {
+
+    /**
+     * Callback for the counted keys.
+     */
+    @FunctionalInterface
+    interface KeyHandler {
+
+        void handleKey(byte[] key, int count);
+    }
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // a slot holds the fingerprint and a reference to the entry in the arena
+    private static final int SLOT_SIZE = 16;
+
+    // the largest power of two number of slots that a table can be addressed
+    // with using int offsets
+    static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE / SLOT_SIZE);
+
+    // an entry holds the count, the length of the key and the key itself
+    private static final int ENTRY_HEADER_SIZE = 8;
+
+    private final long _memoryBudget;
+    private final IntFunction<ByteBuffer> _allocator;
+    private final AtomicLong _memoryUsage;
+    private final Segment[] _segments;
+    private volatile boolean _closed;
+
+    /**
+     *
+     * @param memoryBudget
+     *            the max number of bytes of off-heap memory to use
+     */
+    public OffHeapKeyCounter(final long memoryBudget) {
+        this(memoryBudget, ByteBuffer::allocateDirect);
+    }
+
+    OffHeapKeyCounter(final long memoryBudget, final IntFunction<ByteBuffer> allocator) {
+        _memoryBudget = memoryBudget;
+        _allocator = allocator;
+        _memoryUsage = new AtomicLong();
+        _segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < _segments.length; i++) {
+            _segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Adds occurrences of a key.
+     *
+     * @param key
+     *            the key bytes
+     * @param fingerprint
+     *            a 64 bit hash of the key
+     * @param count
+     *            the number of occurrences to add
+     * @return true if the key was counted, false if the memory budget is
+     *         exhausted or the counter has been drained, in which case the key
+     *         was not counted
+     */
+    public boolean add(final byte[] key, final long fingerprint, final int count) {
+        final Segment segment = _segments[(int) (fingerprint >>> (64 - SEGMENT_BITS))];
+        synchronized (segment) {
+            if (_closed) {
+                return false;
+            }
+            return segment.add(key, fingerprint, count);
+        }
+    }
+
+    /**
+     * Hands all counted keys to the handler.
+     *
+     * @param handler
+     */
+    public void forEach(final KeyHandler handler) {
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                segment.forEach(handler);
+            }
+        }
+    }
+
+    /**
+     * Hands all counted keys to the handler and releases the memory held (see
+     * the class documentation).
+     * After draining, all invocations of {@link #add(byte[], long, int)} return
+     * false.
+     *
+     * @param handler
+     */
+    public void drain(final KeyHandler handler) {
+        _closed = true;
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                segment.forEach(handler);
+                segment.release();
+            }
+        }
+    }
+
+    /**
+     * Releases the memory held (see the class documentation), without handing
+     * over the counted keys. After closing, all invocations of
+     * {@link #add(byte[], long, int)} return false.
+     */
+    public void close() {
+        _closed = true;
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                segment.release();
+            }
+        }
+    }
+
+    public long getMemoryUsage() {
+        return _memoryUsage.get();
+    }
+
+    public long getMemoryBudget() {
+        return _memoryBudget;
+    }
+
+    private boolean reserve(final long bytes) {
+        while (true) {
+            final long usage = _memoryUsage.get();
+            if (usage + bytes > _memoryBudget) {
+                return false;
+            }
+            if (_memoryUsage.compareAndSet(usage, usage + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private final class Segment {
+
+        private final List<ByteBuffer> _chunks = new ArrayList<>();
+        private ByteBuffer _table;
+        private int _capacity;
+        private int _size;
+
+        public boolean add(final byte[] key, final long fingerprint, final int count) {
+            if (_table == null) {
+                if (!reserve((long) INITIAL_CAPACITY * SLOT_SIZE)) {
+                    return false;
+                }
+                _table = allocate(INITIAL_CAPACITY * SLOT_SIZE);
+                if (_table == null) {
+                    return false;
+                }
+                _capacity = INITIAL_CAPACITY;
+            }
+
+            final int slot = findSlot(key, fingerprint);
+            final long reference = _table.getLong(slot + 8);
+            if (reference != 0) {
+                final ByteBuffer chunk = getChunk(reference);
+                final int offset = getOffset(reference);
+                chunk.putInt(offset, chunk.getInt(offset) + count);
+                return true;
+            }
+
+            // keep the load factor at 0.5 or below, which keeps probe sequences short
+            if ((_size + 1) * 2L > _capacity) {
+                if (!grow()) {
+                    return false;
+                }
+                return add(key, fingerprint, count);
+            }
+
+            final long newReference = store(key, count);
+            if (newReference == 0) {
+                return false;
+            }
+            _table.putLong(slot, fingerprint);
+            _table.putLong(slot + 8, newReference);
+            _size++;
+            return true;
+        }
+
+        /**
+         * Finds the slot of the key, or the empty slot where it belongs.
+         */
+        private int findSlot(final byte[] key, final long fingerprint) {
+            final int mask = _capacity - 1;
+            int index = (int) fingerprint & mask;
+            while (true) {
+                final int slot = index * SLOT_SIZE;
+                final long reference = _table.getLong(slot + 8);
+                if (reference == 0) {
+                    return slot;
+                }
+                if (_table.getLong(slot) == fingerprint && keyEquals(reference, key)) {
+                    return slot;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private boolean grow() {
+            final int newCapacity = _capacity * 2;
+            if (newCapacity > MAX_CAPACITY || !reserve((long) newCapacity * SLOT_SIZE)) {
+                return false;
+            }
+            final ByteBuffer newTable = allocate(newCapacity * SLOT_SIZE);
+            if (newTable == null) {
+                return false;
+            }
+            final ByteBuffer oldTable = _table;
+            final int oldCapacity = _capacity;
+
+            _table = newTable;
+            _capacity = newCapacity;
+            final int mask = newCapacity - 1;
+            for (int i = 0; i < oldCapacity; i++) {
+                final long reference = oldTable.getLong(i * SLOT_SIZE + 8);
+                if (reference != 0) {
+                    final long fingerprint = oldTable.getLong(i * SLOT_SIZE);
+                    int index = (int) fingerprint & mask;
+                    while (_table.getLong(index * SLOT_SIZE + 8) != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    _table.putLong(index * SLOT_SIZE, fingerprint);
+                    _table.putLong(index * SLOT_SIZE + 8, reference);
+                }
+            }
+            _memoryUsage.addAndGet(-(long) oldCapacity * SLOT_SIZE);
+            return true;
+        }
+
+        /**
+         * Stores a new entry in the arena.
+         *
+         * @return the reference to the entry, or 0 if the memory budget is
+         *         exhausted
+         */
+        private long store(final byte[] key, final int count) {
+            final int entrySize = ENTRY_HEADER_SIZE + key.length;
+            ByteBuffer chunk = _chunks.isEmpty() ? null : _chunks.get(_chunks.size() - 1);
+            if (chunk == null || chunk.remaining() < entrySize) {
+                final int chunkSize = Math.max(CHUNK_SIZE, entrySize);
+                if (!reserve(chunkSize)) {
+                    return 0;
+                }
+                chunk = allocate(chunkSize);
+                if (chunk == null) {
+                    return 0;
+                }
+                _chunks.add(chunk);
+            }
+            final int offset = chunk.position();
+            chunk.putInt(count);
+            chunk.putInt(key.length);
+            chunk.put(key);
+            return (((long) (_chunks.size() - 1)) << 32 | offset) + 1;
+        }
+
+        private boolean keyEquals(final long reference, final byte[] key) {
+            final ByteBuffer chunk = getChunk(reference);
+            final int offset = getOffset(reference);
+            if (chunk.getInt(offset + 4) != key.length) {
+                return false;
+            }
+            final int keyOffset = offset + ENTRY_HEADER_SIZE;
+            for (int i = 0; i < key.length; i++) {
+                if (chunk.get(keyOffset + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void forEach(final KeyHandler handler) {
+            for (int i = 0; i < _capacity; i++) {
+                final long reference = _table.getLong(i * SLOT_SIZE + 8);
+                if (reference != 0) {
+                    final ByteBuffer chunk = getChunk(reference);
+                    final int offset = getOffset(reference);
+                    final int count = chunk.getInt(offset);
+                    final byte[] key = new byte[chunk.getInt(offset + 4)];
+                    for (int j = 0; j < key.length; j++) {
+                        key[j] = chunk.get(offset + ENTRY_HEADER_SIZE + j);
+                    }
+                    handler.handleKey(key, count);
+                }
+            }
+        }
+
+        public void release() {
+            long released = (long) _capacity * SLOT_SIZE;
+            for (final ByteBuffer chunk : _chunks) {
+                released += chunk.capacity();
+            }
+            _memoryUsage.addAndGet(-released);
+            _chunks.clear();
+            _table = null;
+            _capacity = 0;
+            _size = 0;
+        }
+
+        private ByteBuffer getChunk(final long reference) {
+            return _chunks.get((int) ((reference - 1) >>> 32));
+        }
+
+        private int getOffset(final long reference) {
+            return (int) (reference - 1);
+        }
+
+        /**
+         * Allocates a buffer of reserved memory.
+         *
+         * @return the buffer, or null if the JVM is out of direct memory, in
+         *         which case the reservation is cancelled
+         */
+        private ByteBuffer allocate(final int size) {
+            try {
+                return _allocator.apply(size).order(ByteOrder.nativeOrder());
+            } catch (final OutOfMemoryError e) {
+                _memoryUsage.addAndGet(-size);
+                return null;
+            }
+        }
+    }
+}
@@ -19,23 +19,22 @@
  */
 package org.datacleaner.beans.uniqueness;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Named;
 
-import org.apache.metamodel.csv.CsvConfiguration;
-import org.apache.metamodel.csv.CsvDataContext;
-import org.apache.metamodel.csv.CsvWriter;
-import org.apache.metamodel.data.DataSet;
-import org.apache.metamodel.util.FileHelper;
-import org.apache.metamodel.util.Resource;
+import org.apache.metamodel.util.HasName;
 import org.apache.metamodel.util.ToStringComparator;
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
@@ -43,14 +42,46 @@ import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.util.WriteBuffer;
-import org.datacleaner.util.sort.SortMergeWriter;
+import org.datacleaner.util.sort.SortMergeIterator;
+import org.datacleaner.util.sort.SortMerger;
+import org.datacleaner.util.sort.StringRunFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Named("Unique key check")
 @Description("Check your keys (or other fields) for uniqueness")
 @Concurrent(true)
 public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerResult> {
 
-    private static final CsvConfiguration CSV_CONFIGURATION = new CsvConfiguration();
+    public enum Mode implements HasName {
+        @Description("Sort all keys on disk and count them while merging. Exact, but slow for high volumes.")
+        SORT_MERGE("Sort and merge on disk"),
+
+        @Description("Count keys in off-heap memory, hashed by fingerprint. Exact, and falls back to sorting on "
+                + "disk if the memory budget is exceeded.")
+        EXACT("Exact (off-heap hashing)"),
+
+        @Description("Estimate the counts using a Bloom filter and HyperLogLog, in fixed memory. Counts are "
+                + "approximate and samples may contain a few false positives.")
+        APPROXIMATE("Approximate (Bloom filter and HyperLogLog)");
+
+        private final String _name;
+
+        Mode(final String name) {
+            _name = name;
+        }
+
+        @Override
+        public String getName() {
+            return _name;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueKeyCheckAnalyzer.class);
+
+    private static final int MAX_SAMPLES = 1000;
+    private static final double BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final int HYPER_LOG_LOG_PRECISION = 14;
 
     @Configured
     InputColumn<?> column;
@@ -60,11 +91,34 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
             + "consider increasing the buffer to minimize the amount of open disk handles.")
     int _bufferSize = 20000;
 
+    @Configured(value = "Mode", required = false)
+    @Description("How to check the keys for uniqueness.")
+    Mode _mode = Mode.SORT_MERGE;
+
+    @Configured(value = "Memory budget (MB)", required = false)
+    @Description("Max amount of off-heap memory to use in the exact mode, before falling back to sorting on disk.")
+    int _memoryBudgetMegabytes = 512;
+
+    @Configured(value = "Expected distinct keys", required = false)
+    @Description("The number of distinct keys that the Bloom filters of the approximate mode are sized for.")
+    int _expectedKeyCount = 10000000;
+
     private WriteBuffer _writeBuffer;
-    private SortMergeWriter<String, Writer> _sorter;
+    private SortMerger<String> _sorter;
     private AtomicInteger _rowCount;
     private AtomicInteger _nullCount;
 
+    // state of the exact mode
+    private OffHeapKeyCounter _keyCounter;
+    private AtomicBoolean _spilled;
+
+    // state of the approximate mode
+    private ConcurrentBloomFilter _seenKeys;
+    private ConcurrentBloomFilter _repeatedKeys;
+    private HyperLogLog _hyperLogLog;
+    private AtomicInteger _duplicatedKeyCount;
+    private ConcurrentMap<String, AtomicInteger> _approximateSamples;
+
     public UniqueKeyCheckAnalyzer() {
     }
 
@@ -72,39 +126,39 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         _bufferSize = bufferSize;
     }
 
+    public UniqueKeyCheckAnalyzer(final int bufferSize, final Mode mode) {
+        _bufferSize = bufferSize;
+        _mode = mode;
+    }
+
     @Initialize
     public void init() {
         _rowCount = new AtomicInteger();
         _nullCount = new AtomicInteger();
-        _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator()) {
-            private final CsvWriter csvWriter = new CsvWriter(CSV_CONFIGURATION);
-
-            @Override
-            protected void writeHeader(final Writer writer) throws IOException {
-                final String line = csvWriter.buildLine(new String[] { "text", "count" });
-                writer.write(line);
-            }
-
-            @Override
-            protected void writeRow(final Writer writer, final String row, final int count) throws IOException {
-                if (count > 1) {
-                    final String line = csvWriter.buildLine(new String[] { row, "" + count });
-                    writer.write(line);
-                    writer.write('\n');
-                }
-            }
-
-            @Override
-            protected Writer createWriter(final Resource file) {
-                return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
-            }
-        };
+        _sorter = new SortMerger<>(_bufferSize, ToStringComparator.getComparator(), new StringRunFormat());
+        _sorter.setParallelMerge(true);
         _writeBuffer = new WriteBuffer(_bufferSize, rows -> {
             for (final Object[] objects : rows) {
                 final String string = (String) objects[0];
                 _sorter.append(string);
             }
         });
+
+        switch (getMode()) {
+        case EXACT:
+            _keyCounter = new OffHeapKeyCounter(_memoryBudgetMegabytes * 1024L * 1024L);
+            _spilled = new AtomicBoolean();
+            break;
+        case APPROXIMATE:
+            _seenKeys = new ConcurrentBloomFilter(_expectedKeyCount, BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+            _repeatedKeys = new ConcurrentBloomFilter(_expectedKeyCount, BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+            _hyperLogLog = new HyperLogLog(HYPER_LOG_LOG_PRECISION);
+            _duplicatedKeyCount = new AtomicInteger();
+            _approximateSamples = new ConcurrentHashMap<>();
+            break;
+        default:
+            break;
+        }
     }
 
     @Override
@@ -118,55 +172,165 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         } else {
             final String str = value.toString();
 
-            for (int i = 0; i < distinctCount; i++) {
-                _writeBuffer.addToBuffer(new Object[] { str });
+            switch (getMode()) {
+            case EXACT:
+                runExact(str, distinctCount);
+                break;
+            case APPROXIMATE:
+                runApproximate(str, distinctCount);
+                break;
+            default:
+                for (int i = 0; i < distinctCount; i++) {
+                    _writeBuffer.addToBuffer(new Object[] { str });
+                }
+                break;
             }
         }
     }
 
-    @Override
-    public UniqueKeyCheckAnalyzerResult getResult() {
-        _writeBuffer.flushBuffer();
+    private void runExact(final String str, final int distinctCount) {
+        if (!_spilled.get()) {
+            final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            if (_keyCounter.add(bytes, KeyHashing.hash(bytes), distinctCount)) {
+                return;
+            }
+            if (_spilled.compareAndSet(false, true)) {
+                logger.info("Memory budget of {} MB exhausted, falling back to sorting keys on disk",
+                        _memoryBudgetMegabytes);
+                _keyCounter.drain((key, count) -> _sorter.append(new String(key, StandardCharsets.UTF_8), count));
+            }
+        }
+        _sorter.append(str, distinctCount);
+    }
+
+    private void runApproximate(final String str, final int distinctCount) {
+        final long hash = KeyHashing.hash(str.getBytes(StandardCharsets.UTF_8));
+        final long hash2 = KeyHashing.rehash(hash);
+        _hyperLogLog.add(hash);
 
-        File file;
-        try {
-            file = File.createTempFile("UniqueKeyCheckAnalyzer", ".txt");
-        } catch (final Exception e) {
-            final File tempDir = FileHelper.getTempDir();
-            file = new File(tempDir, "UniqueKeyCheckAnalyzer-" + System.currentTimeMillis() + ".txt");
+        final int repeats;
+        if (_seenKeys.put(hash, hash2)) {
+            repeats = distinctCount - 1;
+        } else {
+            repeats = distinctCount;
+        }
+        if (repeats == 0) {
+            return;
+        }
+
+        if (_repeatedKeys.put(hash, hash2)) {
+            _duplicatedKeyCount.incrementAndGet();
+        }
+
+        AtomicInteger sampleCount = _approximateSamples.get(str);
+        if (sampleCount == null && _approximateSamples.size() < MAX_SAMPLES) {
+            sampleCount = _approximateSamples.computeIfAbsent(str, key -> new AtomicInteger(1));
+        }
+        if (sampleCount != null) {
+            sampleCount.addAndGet(repeats);
+        }
+    }
+
+    @Close
+    public void close() {
+        if (_keyCounter != null) {
+            // returns the memory to the budget - the direct memory itself is
+            // reclaimed when the buffers are garbage collected
+            _keyCounter.close();
+            _keyCounter = null;
         }
+    }
 
-        _sorter.write(file);
+    @Override
+    public UniqueKeyCheckAnalyzerResult getResult() {
+        final int rowCount = _rowCount.get();
+        final int nullCount = _nullCount.get();
+        final SampleCollector collector = new SampleCollector();
 
-        final AtomicInteger nonUniques = new AtomicInteger();
+        if (getMode() == Mode.APPROXIMATE) {
+            for (final Entry<String, AtomicInteger> entry : _approximateSamples.entrySet()) {
+                collector.add(entry.getKey(), entry.getValue().get());
+            }
+            final int nonUniqueCount = estimateNonUniqueCount(rowCount - nullCount);
+            final int uniqueCount = rowCount - nullCount - nonUniqueCount;
+            return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount,
+                    collector.getSamples());
+        }
 
-        final Map<String, Integer> samples = new LinkedHashMap<>();
+        if (getMode() == Mode.EXACT && !_spilled.get()) {
+            _keyCounter.forEach((key, count) -> {
+                if (count > 1) {
+                    collector.add(new String(key, StandardCharsets.UTF_8), count);
+                }
+            });
+        } else {
+            _writeBuffer.flushBuffer();
 
-        final CsvDataContext dataContext = new CsvDataContext(file, CSV_CONFIGURATION);
-        try (DataSet dataSet = dataContext.query().from(dataContext.getDefaultSchema().getTable(0))
-                .select("text", "count").execute()) {
-            int i = 0;
-            while (dataSet.next()) {
-                final String text = (String) dataSet.getRow().getValue(0);
-                final String countStr = (String) dataSet.getRow().getValue(1);
-                final int count = Integer.parseInt(countStr);
-                if (i < 1000) {
-                    // only build up to 1000 records in the sample
-                    samples.put(text, count);
+            try (SortMergeIterator<String> iterator = _sorter.mergeIterator()) {
+                while (iterator.hasNext()) {
+                    final Entry<String, Integer> entry = iterator.next();
+                    final int count = entry.getValue();
+                    if (count > 1) {
+                        collector.add(entry.getKey(), count);
+                    }
                 }
-                nonUniques.addAndGet(count);
-                i++;
             }
         }
 
-        final int nonUniqueCount = nonUniques.get();
-        final int rowCount = _rowCount.get();
-        final int nullCount = _nullCount.get();
+        final int nonUniqueCount = collector.getNonUniqueCount();
         final int uniqueCount = rowCount - nullCount - nonUniqueCount;
 
-        // delete the temporary file
-        file.delete();
+        return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount,
+                collector.getSamples());
+    }
+
+    /**
+     * Estimates the number of rows with a non-unique key. HyperLogLog estimates
+     * the number of distinct keys, from which the number of repeated
+     * occurrences follows, and the Bloom filters tell how many keys were
+     * repeated. Every repeated key also has a first occurrence which is
+     * non-unique.
+     */
+    private int estimateNonUniqueCount(final int keyCount) {
+        final int duplicatedKeyCount = _duplicatedKeyCount.get();
+        if (duplicatedKeyCount == 0) {
+            // Bloom filters have no false negatives, so there are no repeated keys
+            return 0;
+        }
+        final long distinctKeyCount = _hyperLogLog.estimate();
+        final long estimate = keyCount - distinctKeyCount + duplicatedKeyCount;
+        return (int) Math.min(keyCount, Math.max(2L * duplicatedKeyCount, estimate));
+    }
+
+    private Mode getMode() {
+        return _mode == null ? Mode.SORT_MERGE : _mode;
+    }
+
+    /**
+     * Sums up the non-unique counts and retains samples of the (alphabetically)
+     * first non-unique keys.
+     */
+    private static final class SampleCollector {
+
+        private final TreeMap<String, Integer> _samples = new TreeMap<>();
+        private int _nonUniqueCount;
 
-        return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
+        public void add(final String key, final int count) {
+            _nonUniqueCount += count;
+            if (_samples.size() < MAX_SAMPLES) {
+                _samples.put(key, count);
+            } else if (key.compareTo(_samples.lastKey()) < 0) {
+                _samples.put(key, count);
+                _samples.pollLastEntry();
+            }
+        }
+
+        public int getNonUniqueCount() {
+            return _nonUniqueCount;
+        }
+
+        public Map<String, Integer> getSamples() {
+            return new LinkedHashMap<>(_samples);
+        }
     }
 }
@@ -0,0 +1,125 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class OffHeapKeyCounterTest extends TestCase {
+
+    public void testCountsAndGrowth() throws Exception {
+        final OffHeapKeyCounter counter = new OffHeapKeyCounter(256 * 1024 * 1024);
+        // enough keys to make the segments grow beyond their initial capacity
+        for (int i = 0; i < 200000; i++) {
+            final byte[] key = bytes("key" + (i % 50000));
+            assertTrue(counter.add(key, KeyHashing.hash(key), 1));
+        }
+
+        final Map<String, Integer> counts = collect(counter);
+        assertEquals(50000, counts.size());
+        for (final Integer count : counts.values()) {
+            assertEquals(4, count.intValue());
+        }
+    }
+
+    public void testMaxCapacityCanBeAddressed() throws Exception {
+        final int maxCapacity = OffHeapKeyCounter.MAX_CAPACITY;
+        assertEquals(1, Integer.bitCount(maxCapacity));
+        // the offset of the last slot (16 bytes each) must not overflow
+        assertTrue((long) maxCapacity * 16 <= Integer.MAX_VALUE);
+    }
+
+    public void testFingerprintCollision() throws Exception {
+        final OffHeapKeyCounter counter = new OffHeapKeyCounter(64 * 1024 * 1024);
+        // different keys with the same fingerprint must still be counted separately
+        assertTrue(counter.add(bytes("foo"), 42, 1));
+        assertTrue(counter.add(bytes("bar"), 42, 2));
+        assertTrue(counter.add(bytes("foo"), 42, 1));
+
+        assertEquals("{bar=2, foo=2}", collect(counter).toString());
+    }
+
+    public void testMemoryBudget() throws Exception {
+        final OffHeapKeyCounter counter = new OffHeapKeyCounter(0);
+        assertFalse(counter.add(bytes("foo"), 1, 1));
+        assertEquals(0, counter.getMemoryUsage());
+    }
+
+    public void testDrain() throws Exception {
+        final OffHeapKeyCounter counter = new OffHeapKeyCounter(64 * 1024 * 1024);
+        assertTrue(counter.add(bytes("foo"), KeyHashing.hash(bytes("foo")), 3));
+        assertTrue(counter.getMemoryUsage() > 0);
+
+        final Map<String, Integer> drained = new TreeMap<>();
+        counter.drain((key, count) -> drained.put(new String(key, StandardCharsets.UTF_8), count));
+        assertEquals("{foo=3}", drained.toString());
+        assertEquals(0, counter.getMemoryUsage());
+
+        assertFalse(counter.add(bytes("bar"), KeyHashing.hash(bytes("bar")), 1));
+    }
+
+    public void testClose() throws Exception {
+        final OffHeapKeyCounter counter = new OffHeapKeyCounter(64 * 1024 * 1024);
+        assertTrue(counter.add(bytes("foo"), KeyHashing.hash(bytes("foo")), 3));
+
+        counter.close();
+        assertEquals(0, counter.getMemoryUsage());
+        assertFalse(counter.add(bytes("bar"), KeyHashing.hash(bytes("bar")), 1));
+        assertEquals("{}", collect(counter).toString());
+    }
+
+    public void testDirectMemoryExhausted() throws Exception {
+        final AtomicInteger allocations = new AtomicInteger();
+        final OffHeapKeyCounter counter = new OffHeapKeyCounter(256 * 1024 * 1024, size -> {
+            if (allocations.incrementAndGet() > 2) {
+                throw new OutOfMemoryError("Direct buffer memory");
+            }
+            return ByteBuffer.allocateDirect(size);
+        });
+        final byte[] foo = bytes("foo");
+        final long fooHash = KeyHashing.hash(foo);
+        assertTrue(counter.add(foo, fooHash, 1));
+        final long usage = counter.getMemoryUsage();
+
+        // a key of another segment needs a table that can not be allocated
+        final byte[] bar = bytes("bar");
+        final long barHash = ~fooHash;
+        assertFalse(counter.add(bar, barHash, 1));
+        assertEquals(usage, counter.getMemoryUsage());
+
+        assertTrue(counter.add(foo, fooHash, 1));
+        assertEquals("{foo=2}", collect(counter).toString());
+    }
+
+    private static byte[] bytes(final String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Integer> collect(final OffHeapKeyCounter counter) {
+        final Map<String, Integer> counts = new TreeMap<>();
+        counter.forEach((key, count) -> counts.put(new String(key, StandardCharsets.UTF_8), count));
+        return counts;
+    }
+}
@@ -35,10 +35,65 @@ public class UniqueKeyCheckAnalyzerTest extends TestCase {
 
     @Test
     public void testSimpleScenario() throws Exception {
-        final int bufferSizeInTest = 20;
+        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(20);
+        final UniqueKeyCheckAnalyzerResult result = runLoremIpsum(analyzer);
+        assertEquals(73, result.getRowCount());
+        assertEquals(60, result.getUniqueCount());
+        assertEquals(0, result.getNullCount());
+        assertEquals(13, result.getNonUniqueCount());
+
+        final Map<String, Integer> samples = result.getNonUniqueSamples();
+        assertEquals("{bar=2, dolor=2, dolore=2, foo=2, in=3, ut=2}", samples.toString());
+
+        assertEquals(
+                "Unique key check result:\n" + " - Row count: 73\n" + " - Null count: 0\n" + " - Unique count: 60\n"
+                        + " - Non-unique count: 13", result.toString());
+    }
+
+    @Test
+    public void testExactMode() throws Exception {
+        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(20, UniqueKeyCheckAnalyzer.Mode.EXACT);
+        final UniqueKeyCheckAnalyzerResult result = runLoremIpsum(analyzer);
+        assertEquals(73, result.getRowCount());
+        assertEquals(60, result.getUniqueCount());
+        assertEquals(13, result.getNonUniqueCount());
+        assertEquals("{bar=2, dolor=2, dolore=2, foo=2, in=3, ut=2}", result.getNonUniqueSamples().toString());
+
+        // the result does not depend on the off-heap memory, which is released on close
+        analyzer.close();
+        assertEquals(13, result.getNonUniqueCount());
+    }
+
+    @Test
+    public void testExactModeFallsBackToSorting() throws Exception {
+        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(20, UniqueKeyCheckAnalyzer.Mode.EXACT);
+        // the very first key exhausts the budget
+        analyzer._memoryBudgetMegabytes = 0;
+        final UniqueKeyCheckAnalyzerResult result = runLoremIpsum(analyzer);
+        assertEquals(73, result.getRowCount());
+        assertEquals(60, result.getUniqueCount());
+        assertEquals(13, result.getNonUniqueCount());
+        assertEquals("{bar=2, dolor=2, dolore=2, foo=2, in=3, ut=2}", result.getNonUniqueSamples().toString());
+    }
+
+    @Test
+    public void testApproximateMode() throws Exception {
+        final UniqueKeyCheckAnalyzer analyzer =
+                new UniqueKeyCheckAnalyzer(20, UniqueKeyCheckAnalyzer.Mode.APPROXIMATE);
+        analyzer._expectedKeyCount = 1000;
+        final UniqueKeyCheckAnalyzerResult result = runLoremIpsum(analyzer);
+        assertEquals(73, result.getRowCount());
+        assertEquals(0, result.getNullCount());
+        assertEquals(13, result.getNonUniqueCount(), 2);
+        assertEquals(73, result.getUniqueCount() + result.getNonUniqueCount());
+
+        final Map<String, Integer> samples = result.getNonUniqueSamples();
+        assertEquals(3, samples.get("in").intValue());
+        assertEquals(2, samples.get("foo").intValue());
+    }
 
+    private UniqueKeyCheckAnalyzerResult runLoremIpsum(final UniqueKeyCheckAnalyzer analyzer) throws Exception {
         final MockInputColumn<String> col = new MockInputColumn<>("foo");
-        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(bufferSizeInTest);
         analyzer.column = col;
 
         analyzer.init();
@@ -56,17 +111,6 @@ public class UniqueKeyCheckAnalyzerTest extends TestCase {
         analyzer.run(new MockInputRow().put(col, "foo"), 1);
         analyzer.run(new MockInputRow().put(col, "bar"), 1);
 
-        final UniqueKeyCheckAnalyzerResult result = analyzer.getResult();
-        assertEquals(73, result.getRowCount());
-        assertEquals(60, result.getUniqueCount());
-        assertEquals(0, result.getNullCount());
-        assertEquals(13, result.getNonUniqueCount());
-
-        final Map<String, Integer> samples = result.getNonUniqueSamples();
-        assertEquals("{bar=2, dolor=2, dolore=2, foo=2, in=3, ut=2}", samples.toString());
-
-        assertEquals(
-                "Unique key check result:\n" + " - Row count: 73\n" + " - Null count: 0\n" + " - Unique count: 60\n"
-                        + " - Non-unique count: 13", result.toString());
+        return analyzer.getResult();
     }
 }
@@ -21,8 +21,10 @@ package org.datacleaner.beans.valuedist;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Supplier;
 
@@ -189,6 +191,26 @@ public class SingleValueDistributionResult extends ValueDistributionAnalyzerResu
         return _nullValueAnnotation.getRowCount();
     }
 
+    /**
+     * Determines if all the counted values, except for unique values, are
+     * available in the top and bottom value lists. This is not the case if the
+     * values were spilled to disk and there were more of them than the lists
+     * retain.
+     *
+     * @return
+     */
+    public boolean isValueCountsComplete() {
+        final Set<String> values = new HashSet<>();
+        for (final ValueFrequency valueFrequency : getTopValues().getValueCounts()) {
+            values.add(valueFrequency.getValue());
+        }
+        for (final ValueFrequency valueFrequency : getBottomValues().getValueCounts()) {
+            values.add(valueFrequency.getValue());
+        }
+        final int nullValues = getNullCount() > 0 ? 1 : 0;
+        return values.size() >= _distinctCount - getUniqueCount() - nullValues;
+    }
+
     public boolean isUniqueValuesAvailable() {
         return _uniqueValues != null;
     }
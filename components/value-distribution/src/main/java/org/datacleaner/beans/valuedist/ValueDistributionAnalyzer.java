@@ -19,15 +19,20 @@
  */
 package org.datacleaner.beans.valuedist;
 
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.datacleaner.api.Analyzer;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.Configured;
@@ -38,10 +43,11 @@ import org.datacleaner.api.ExternalDocumentation.DocumentationType;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.Provided;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.api.Validate;
 import org.datacleaner.storage.CollectionFactory;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
-import org.datacleaner.util.NullTolerableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,15 +59,24 @@ import org.slf4j.LoggerFactory;
         { @DocumentationLink(title = "Analyzer rundown", url = "https://www.youtube.com/watch?v=hZWxB_eu_A0",
                 type = DocumentationType.VIDEO, version = "4.0") })
 @Concurrent(true)
-public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnalyzerResult> {
+public class ValueDistributionAnalyzer implements QueryOptimizedAnalyzer<ValueDistributionAnalyzerResult> {
 
     public static final String PROPERTY_COLUMN = "Column";
     public static final String PROPERTY_GROUP_COLUMN = "Group column";
     public static final String PROPERTY_RECORD_UNIQUE_VALUES = "Record unique values";
     public static final String PROPERTY_RECORD_DRILL_DOWN_INFORMATION = "Record drill-down information";
+    public static final String PROPERTY_MAX_VALUES_IN_MEMORY = "Max distinct values in memory";
+
+    /**
+     * The number of most and least frequent values that are retained when
+     * values are spilled to disk, unless the top and bottom n most frequent
+     * values are configured.
+     */
+    public static final int SPILLED_FREQUENT_VALUE_COUNT = 1000;
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionAnalyzer.class);
-    private final Map<String, ValueDistributionGroup> _valueDistributionGroups;
+    private final ConcurrentMap<String, ValueDistributionGroup> _valueDistributionGroups;
+    private volatile ValueDistributionGroup _nullValueDistributionGroup;
     @Inject
     @Configured(value = PROPERTY_COLUMN, order = 1)
     @ColumnProperty(escalateToMultipleJobs = true)
@@ -86,6 +101,13 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     @Deprecated
     Integer _bottomFrequentValues;
     @Inject
+    @Configured(value = PROPERTY_MAX_VALUES_IN_MEMORY, required = false, order = 7)
+    @Description("Bounds memory use for high-cardinality columns. When more distinct values than this are counted, "
+            + "the counts are spilled to disk and merged when the result is created. In that case only the top and "
+            + "bottom n most frequent values are listed, unique values are counted but not listed, and no drill-down "
+            + "information is recorded.")
+    Integer _maxValuesInMemory;
+    @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
 
@@ -119,7 +141,15 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
      * Main constructor
      */
     public ValueDistributionAnalyzer() {
-        _valueDistributionGroups = new TreeMap<>(NullTolerableComparator.get(String.class));
+        _valueDistributionGroups = new ConcurrentHashMap<>();
+    }
+
+    @Validate
+    public void validate() {
+        if (_maxValuesInMemory != null && _maxValuesInMemory < 1) {
+            throw new IllegalStateException(
+                    PROPERTY_MAX_VALUES_IN_MEMORY + " must be a positive number, was: " + _maxValuesInMemory);
+        }
     }
 
     @Override
@@ -149,26 +179,90 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         valueDistributionGroup.run(row, stringValue, distinctCount);
     }
 
+    @Override
+    public boolean isOptimizable() {
+        // drill-down information requires the actual rows
+        if (_recordDrillDownInformation && _maxValuesInMemory == null) {
+            return false;
+        }
+        // a GROUP BY on text may merge values that only differ in case or
+        // trailing spaces, depending on the collation of the database
+        return isGroupable(_column) && (_groupColumn == null || isGroupable(_groupColumn));
+    }
+
+    private static boolean isGroupable(final InputColumn<?> column) {
+        final Column physicalColumn = column.getPhysicalColumn();
+        if (physicalColumn == null) {
+            return false;
+        }
+        final ColumnType type = physicalColumn.getType();
+        return type != null && !type.isLiteral();
+    }
+
+    @Override
+    public List<Query> createAggregateQueries(final Query baseQuery) {
+        final Query query = baseQuery.clone();
+        query.getSelectClause().removeItems();
+        final Column column = _column.getPhysicalColumn();
+        query.select(column);
+        query.groupBy(column);
+        if (_groupColumn != null) {
+            final Column groupColumn = _groupColumn.getPhysicalColumn();
+            query.select(groupColumn);
+            query.groupBy(groupColumn);
+        }
+        query.selectCount();
+        return Collections.singletonList(query);
+    }
+
+    @Override
+    public void runAggregate(final int queryIndex, final Row row) {
+        final Object value = row.getValue(0);
+        final int count = ((Number) row.getValue(row.size() - 1)).intValue();
+        if (_groupColumn == null) {
+            runInternal(null, value, count);
+        } else {
+            final Object group = row.getValue(1);
+            runInternal(null, value, group == null ? null : group.toString(), count);
+        }
+    }
+
     private ValueDistributionGroup getValueDistributionGroup(final String group) {
-        ValueDistributionGroup valueDistributionGroup = _valueDistributionGroups.get(group);
-        if (valueDistributionGroup == null) {
-            synchronized (this) {
-                valueDistributionGroup = _valueDistributionGroups.get(group);
-                if (valueDistributionGroup == null) {
-                    final InputColumn<?>[] inputColumns;
-                    if (_groupColumn == null) {
-                        inputColumns = new InputColumn[] { _column };
-                    } else {
-                        inputColumns = new InputColumn[] { _column, _groupColumn };
+        if (group == null) {
+            // concurrent maps do not permit null keys, so the null group is
+            // kept on the side
+            ValueDistributionGroup valueDistributionGroup = _nullValueDistributionGroup;
+            if (valueDistributionGroup == null) {
+                synchronized (this) {
+                    valueDistributionGroup = _nullValueDistributionGroup;
+                    if (valueDistributionGroup == null) {
+                        valueDistributionGroup = createValueDistributionGroup(null);
+                        _nullValueDistributionGroup = valueDistributionGroup;
                     }
-                    valueDistributionGroup =
-                            new ValueDistributionGroup(group, _annotationFactory, _recordDrillDownInformation,
-                                    inputColumns);
-                    _valueDistributionGroups.put(group, valueDistributionGroup);
                 }
             }
+            return valueDistributionGroup;
         }
-        return valueDistributionGroup;
+
+        final ValueDistributionGroup valueDistributionGroup = _valueDistributionGroups.get(group);
+        if (valueDistributionGroup != null) {
+            return valueDistributionGroup;
+        }
+        return _valueDistributionGroups.computeIfAbsent(group, this::createValueDistributionGroup);
+    }
+
+    private ValueDistributionGroup createValueDistributionGroup(final String group) {
+        final InputColumn<?>[] inputColumns;
+        if (_groupColumn == null) {
+            inputColumns = new InputColumn[] { _column };
+        } else {
+            inputColumns = new InputColumn[] { _column, _groupColumn };
+        }
+        final int topValueCount = _topFrequentValues == null ? SPILLED_FREQUENT_VALUE_COUNT : _topFrequentValues;
+        final int bottomValueCount =
+                _bottomFrequentValues == null ? SPILLED_FREQUENT_VALUE_COUNT : _bottomFrequentValues;
+        return new ValueDistributionGroup(group, _annotationFactory, _recordDrillDownInformation, inputColumns,
+                _maxValuesInMemory, topValueCount, bottomValueCount);
     }
 
     @Override
@@ -179,13 +273,16 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
 
             return valueDistributionGroup.createResult(_recordUniqueValues);
         } else {
-            logger.info("getResult() invoked, processing {} groups", _valueDistributionGroups.size());
+            final ValueDistributionGroup nullValueDistributionGroup = _nullValueDistributionGroup;
+            final int groupCount = _valueDistributionGroups.size() + (nullValueDistributionGroup == null ? 0 : 1);
+            logger.info("getResult() invoked, processing {} groups", groupCount);
 
             final SortedSet<SingleValueDistributionResult> groupedResults = new TreeSet<>();
-            for (final String group : _valueDistributionGroups.keySet()) {
-                final ValueDistributionGroup valueDistributibutionGroup = getValueDistributionGroup(group);
-                final SingleValueDistributionResult result =
-                        valueDistributibutionGroup.createResult(_recordUniqueValues);
+            if (nullValueDistributionGroup != null) {
+                groupedResults.add(nullValueDistributionGroup.createResult(_recordUniqueValues));
+            }
+            for (final ValueDistributionGroup valueDistributionGroup : _valueDistributionGroups.values()) {
+                final SingleValueDistributionResult result = valueDistributionGroup.createResult(_recordUniqueValues);
                 groupedResults.add(result);
             }
             return new GroupedValueDistributionResult(_column, _groupColumn, groupedResults);
@@ -222,4 +319,16 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     public void setRecordUniqueValues(final boolean recordUniqueValues) {
         _recordUniqueValues = recordUniqueValues;
     }
+
+    public void setMaxValuesInMemory(final Integer maxValuesInMemory) {
+        _maxValuesInMemory = maxValuesInMemory;
+    }
+
+    public void setTopFrequentValues(final Integer topFrequentValues) {
+        _topFrequentValues = topFrequentValues;
+    }
+
+    public void setBottomFrequentValues(final Integer bottomFrequentValues) {
+        _bottomFrequentValues = bottomFrequentValues;
+    }
 }
@@ -62,6 +62,14 @@ public class ValueDistributionAnalyzerResultReducer implements AnalyzerResultRed
         final ValueDistributionAnalyzerResult first = analyzerResults.iterator().next();
 
         for (final ValueDistributionAnalyzerResult partialResult : analyzerResults) {
+            if (partialResult instanceof SingleValueDistributionResult
+                    && !((SingleValueDistributionResult) partialResult).isValueCountsComplete()) {
+                // only the most and least frequent values of a spilled result
+                // are retained, so the counts of the other values are lost
+                throw new IllegalStateException("Cannot reduce " + ValueDistributionAnalyzerResult.class.getSimpleName()
+                        + " of group '" + partialResult.getName() + "' since its values were spilled to disk and "
+                        + "only the top and bottom n most frequent values were retained");
+            }
             if ((partialResult instanceof SingleValueDistributionResult)
                     || (partialResult instanceof ReducedSingleValueDistributionResult)) {
                 nullCount = reduceValueCounts(reducedValueCounts, nullCount, partialResult);
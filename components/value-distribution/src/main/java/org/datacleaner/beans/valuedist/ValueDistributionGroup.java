@@ -20,12 +20,16 @@
 package org.datacleaner.beans.valuedist;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
@@ -35,6 +39,7 @@ import org.datacleaner.result.ValueFrequency;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotationImpl;
+import org.datacleaner.util.sort.SortMerger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,66 +48,155 @@ import org.slf4j.LoggerFactory;
  * {@link ValueDistributionGroup} contains the counted values within a single
  * group.
  *
+ * Counting is lock-free: values are kept in concurrent maps and, when no
+ * drill-down information is recorded, counted using striped {@link LongAdder}s
+ * which are merged into {@link RowAnnotation}s once the result is created.
  *
+ * If a maximum number of values in memory is given, the group instead counts
+ * values in a {@link SortMerger} which spills sorted runs to disk, so that
+ * memory use is bounded regardless of the cardinality of the column.
  */
 class ValueDistributionGroup {
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionGroup.class);
 
-    private final Map<String, RowAnnotation> _annotationMap;
+    private final ConcurrentMap<String, RowAnnotation> _annotationMap;
+    private final ConcurrentMap<String, LongAdder> _counterMap;
     private final RowAnnotation _nullValueAnnotation;
+    private final LongAdder _nullValueCounter;
+    private final SortMerger<String> _spillingCounter;
+    private final int _topValueCount;
+    private final int _bottomValueCount;
     private final RowAnnotationFactory _annotationFactory;
     private final String _groupName;
     private final boolean _recordAnnotations;
     private final InputColumn<?>[] _inputColumns;
-    private final AtomicInteger _totalCount;
+    private final LongAdder _totalCount;
 
     public ValueDistributionGroup(final String groupName, final RowAnnotationFactory annotationFactory,
             final boolean recordAnnotations, final InputColumn<?>[] inputColumns) {
+        this(groupName, annotationFactory, recordAnnotations, inputColumns, null, 0, 0);
+    }
+
+    /**
+     *
+     * @param groupName
+     * @param annotationFactory
+     * @param recordAnnotations
+     * @param inputColumns
+     * @param maxValuesInMemory
+     *            the max number of distinct values to keep in memory before
+     *            spilling to disk, or null to keep all values in memory
+     * @param topValueCount
+     *            the number of most frequent values to retain when values are
+     *            spilled to disk
+     * @param bottomValueCount
+     *            the number of least frequent values to retain when values are
+     *            spilled to disk
+     */
+    public ValueDistributionGroup(final String groupName, final RowAnnotationFactory annotationFactory,
+            final boolean recordAnnotations, final InputColumn<?>[] inputColumns, final Integer maxValuesInMemory,
+            final int topValueCount, final int bottomValueCount) {
         _groupName = groupName;
         _annotationFactory = annotationFactory;
-        _recordAnnotations = recordAnnotations;
         _inputColumns = inputColumns;
-        _totalCount = new AtomicInteger();
-        _annotationMap = new HashMap<>();
+        _totalCount = new LongAdder();
+        _topValueCount = topValueCount;
+        _bottomValueCount = bottomValueCount;
+        if (maxValuesInMemory != null) {
+            // drill-down information is held in memory per value, so it cannot
+            // be recorded when values are spilled to disk
+            _recordAnnotations = false;
+            _annotationMap = null;
+            _counterMap = null;
+            _nullValueAnnotation = null;
+            _nullValueCounter = null;
+            _spillingCounter = new SortMerger<>(maxValuesInMemory, Comparator.<String> naturalOrder());
+            return;
+        }
+        _recordAnnotations = recordAnnotations;
+        _spillingCounter = null;
         if (recordAnnotations) {
+            _annotationMap = new ConcurrentHashMap<>();
+            _counterMap = null;
             _nullValueAnnotation = _annotationFactory.createAnnotation();
+            _nullValueCounter = null;
         } else {
-            _nullValueAnnotation = new RowAnnotationImpl();
+            _annotationMap = null;
+            _counterMap = new ConcurrentHashMap<>();
+            _nullValueAnnotation = null;
+            _nullValueCounter = new LongAdder();
         }
     }
 
     public void run(final InputRow row, final String value, final int distinctCount) {
-        if (value == null) {
-            if (_recordAnnotations) {
-                _annotationFactory.annotate(row, distinctCount, _nullValueAnnotation);
+        if (_spillingCounter != null) {
+            _spillingCounter.append(value, distinctCount);
+        } else if (_recordAnnotations) {
+            final RowAnnotation annotation;
+            if (value == null) {
+                annotation = _nullValueAnnotation;
             } else {
-                ((RowAnnotationImpl) _nullValueAnnotation).incrementRowCount(distinctCount);
+                annotation = getAnnotation(value);
             }
+            _annotationFactory.annotate(row, distinctCount, annotation);
         } else {
-            RowAnnotation annotation;
-            synchronized (this) {
-                annotation = _annotationMap.get(value);
-                if (annotation == null) {
-                    if (_recordAnnotations) {
-                        annotation = _annotationFactory.createAnnotation();
-                    } else {
-                        annotation = new RowAnnotationImpl();
-                    }
-                    _annotationMap.put(value, annotation);
-                }
-            }
-
-            if (_recordAnnotations) {
-                _annotationFactory.annotate(row, distinctCount, annotation);
+            final LongAdder counter;
+            if (value == null) {
+                counter = _nullValueCounter;
             } else {
-                ((RowAnnotationImpl) annotation).incrementRowCount(distinctCount);
+                counter = getCounter(value);
             }
+            counter.add(distinctCount);
+        }
+        _totalCount.add(distinctCount);
+    }
+
+    private RowAnnotation getAnnotation(final String value) {
+        // plain lookup first since computeIfAbsent(...) locks the bin even
+        // when the value is already present
+        final RowAnnotation annotation = _annotationMap.get(value);
+        if (annotation != null) {
+            return annotation;
+        }
+        return _annotationMap.computeIfAbsent(value, key -> _annotationFactory.createAnnotation());
+    }
+
+    private LongAdder getCounter(final String value) {
+        final LongAdder counter = _counterMap.get(value);
+        if (counter != null) {
+            return counter;
+        }
+        return _counterMap.computeIfAbsent(value, key -> new LongAdder());
+    }
+
+    /**
+     * Merges the concurrently gathered counts into a single map of
+     * {@link RowAnnotation}s, which is what the result will hold on to.
+     */
+    private Map<String, RowAnnotation> createAnnotationMap() {
+        if (_recordAnnotations) {
+            return new HashMap<>(_annotationMap);
+        }
+        final Map<String, RowAnnotation> annotationMap = new HashMap<>(_counterMap.size() * 4 / 3 + 1);
+        for (final Entry<String, LongAdder> entry : _counterMap.entrySet()) {
+            annotationMap.put(entry.getKey(), new RowAnnotationImpl(entry.getValue().intValue()));
         }
-        _totalCount.addAndGet(distinctCount);
+        return annotationMap;
+    }
+
+    private RowAnnotation createNullValueAnnotation() {
+        if (_recordAnnotations) {
+            return _nullValueAnnotation;
+        }
+        return new RowAnnotationImpl(_nullValueCounter.intValue());
     }
 
     public SingleValueDistributionResult createResult(final boolean recordUniqueValues) {
+        if (_spillingCounter != null) {
+            return createSpilledResult();
+        }
+
         final ValueCountListImpl topValues = ValueCountListImpl.createFullList();
 
         final List<String> uniqueValues;
@@ -112,9 +206,13 @@ class ValueDistributionGroup {
             uniqueValues = null;
         }
 
+        final Map<String, RowAnnotation> annotationMap = createAnnotationMap();
+        final RowAnnotation nullValueAnnotation = createNullValueAnnotation();
+        final int totalCount = _totalCount.intValue();
+
         int uniqueCount = 0;
-        final int entryCount = _annotationMap.size();
-        final Set<Entry<String, RowAnnotation>> entrySet = _annotationMap.entrySet();
+        final int entryCount = annotationMap.size();
+        final Set<Entry<String, RowAnnotation>> entrySet = annotationMap.entrySet();
 
         int i = 0;
         for (final Entry<String, RowAnnotation> entry : entrySet) {
@@ -129,7 +227,7 @@ class ValueDistributionGroup {
         }
 
         final int distinctCount;
-        if (_nullValueAnnotation.getRowCount() > 0) {
+        if (nullValueAnnotation.getRowCount() > 0) {
             distinctCount = 1 + entryCount;
         } else {
             distinctCount = entryCount;
@@ -137,11 +235,44 @@ class ValueDistributionGroup {
 
         if (recordUniqueValues) {
             return new SingleValueDistributionResult(_groupName, topValues, uniqueValues, uniqueCount, distinctCount,
-                    _totalCount.get(), _annotationMap, _nullValueAnnotation, _annotationFactory, _inputColumns);
+                    totalCount, annotationMap, nullValueAnnotation, _annotationFactory, _inputColumns);
         } else {
             return new SingleValueDistributionResult(_groupName, topValues, uniqueCount, distinctCount,
-                    _totalCount.get(), _annotationMap, _nullValueAnnotation, _annotationFactory, _inputColumns);
+                    totalCount, annotationMap, nullValueAnnotation, _annotationFactory, _inputColumns);
+        }
+    }
+
+    /**
+     * Creates the result by merging the spilled runs. Only the most and least
+     * frequent values are retained (and unique values are only counted) so
+     * that the result is bounded in size too.
+     */
+    private SingleValueDistributionResult createSpilledResult() {
+        final ValueCountListImpl topValues = ValueCountListImpl.createTopList(_topValueCount);
+        final ValueCountListImpl bottomValues = ValueCountListImpl.createBottomList(_bottomValueCount);
+        final AtomicInteger uniqueCount = new AtomicInteger();
+
+        final int entryCount = _spillingCounter.merge((value, count) -> {
+            if (count == 1) {
+                uniqueCount.incrementAndGet();
+            } else {
+                final ValueFrequency vc = new SingleValueFrequency(value, count);
+                topValues.register(vc);
+                bottomValues.register(vc);
+            }
+        });
+
+        final int nullCount = _spillingCounter.getNullCount();
+        final int distinctCount;
+        if (nullCount > 0) {
+            distinctCount = 1 + entryCount;
+        } else {
+            distinctCount = entryCount;
         }
+
+        return new SingleValueDistributionResult(_groupName, topValues, bottomValues, uniqueCount.get(),
+                distinctCount, _totalCount.intValue(), null, new RowAnnotationImpl(nullCount), _annotationFactory,
+                _inputColumns);
     }
 
     private int countValue(final boolean recordUniqueValues, final ValueCountListImpl valueCountList,
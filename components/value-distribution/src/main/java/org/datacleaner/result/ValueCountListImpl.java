@@ -53,6 +53,16 @@ public class ValueCountListImpl implements ValueCountList {
     }
 
     public void register(final ValueFrequency valueCount) {
+        if (_maxSize != -1 && _values.size() >= _maxSize) {
+            // a full list only changes if the value beats the last one in it
+            if (_values.isEmpty()) {
+                return;
+            }
+            final int lastCount = _values.getLast().getCount();
+            if (_retainHighest ? valueCount.getCount() <= lastCount : valueCount.getCount() >= lastCount) {
+                return;
+            }
+        }
         boolean inserted = false;
         if (_retainHighest) {
             for (final ListIterator<ValueFrequency> it = _values.listIterator(); it.hasNext(); ) {
@@ -0,0 +1,126 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.metamodel.schema.MutableColumn;
+import org.datacleaner.data.MetaModelInputColumn;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.result.ValueCountingAnalyzerResult;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies that concurrent counting in the {@link ValueDistributionAnalyzer}
+ * yields the same counts as sequential counting, and logs the throughput when
+ * scaling from 1 to 32 threads (a poor man's benchmark, since this build has
+ * no JMH harness).
+ */
+public class ValueDistributionAnalyzerConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ValueDistributionAnalyzerConcurrencyTest.class);
+
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32 };
+    private static final int ROWS = 320_000;
+    private static final int CARDINALITY = 5_000;
+    private static final int NULL_INTERVAL = 97;
+
+    @Test
+    public void testConcurrentCountingWithoutDrillDown() throws Exception {
+        for (final int threads : THREAD_COUNTS) {
+            runAndVerify(threads, ROWS, false);
+        }
+    }
+
+    @Test
+    public void testConcurrentCountingWithDrillDown() throws Exception {
+        for (final int threads : THREAD_COUNTS) {
+            runAndVerify(threads, ROWS / 10, true);
+        }
+    }
+
+    private void runAndVerify(final int threads, final int rows, final boolean recordDrillDownInformation)
+            throws Exception {
+        final ValueDistributionAnalyzer analyzer =
+                new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), true);
+        analyzer.setRecordDrillDownInformation(recordDrillDownInformation);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                futures.add(executorService.submit(() -> {
+                    startSignal.await();
+                    for (int i = offset; i < rows; i += threads) {
+                        analyzer.runInternal(new MockInputRow(i), getValue(i), 1);
+                    }
+                    return null;
+                }));
+            }
+
+            final long start = System.nanoTime();
+            startSignal.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            final long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            logger.info("{} thread(s), drill-down {}: {} rows in {} ms ({} rows/s)", threads,
+                    recordDrillDownInformation, rows, millis, rows * 1000L / millis);
+        } finally {
+            executorService.shutdown();
+        }
+
+        final ValueCountingAnalyzerResult result = analyzer.getResult();
+        final int nullCount = (rows + NULL_INTERVAL - 1) / NULL_INTERVAL;
+        assertEquals(rows, result.getTotalCount());
+        assertEquals(nullCount, result.getNullCount());
+        assertEquals(CARDINALITY + 1, result.getDistinctCount().intValue());
+
+        final int[] expectedCounts = new int[CARDINALITY];
+        for (int i = 0; i < rows; i++) {
+            if (i % NULL_INTERVAL != 0) {
+                expectedCounts[i % CARDINALITY]++;
+            }
+        }
+        // result lookups are linear, so only a sample of the values is checked
+        for (int i = 0; i < CARDINALITY; i += 50) {
+            assertEquals("Count of value " + i, expectedCounts[i], result.getCount("v" + i).intValue());
+        }
+    }
+
+    private static String getValue(final int i) {
+        if (i % NULL_INTERVAL == 0) {
+            return null;
+        }
+        return "v" + (i % CARDINALITY);
+    }
+}
@@ -209,4 +209,40 @@ public class ValueDistributionAnalyzerResultReducerTest {
         }
     }
 
+
+    @Test
+    public void testReduceSpilledResultsWithAllValuesRetained() throws Exception {
+        final List<ValueDistributionAnalyzerResult> partialResults = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final ValueDistributionAnalyzer valueDist =
+                    new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), false);
+            valueDist.setMaxValuesInMemory(1);
+            valueDist.runInternal(new MockInputRow(), "hello", 2);
+            valueDist.runInternal(new MockInputRow(), "world", 3);
+            partialResults.add(valueDist.getResult());
+        }
+
+        final ValueDistributionAnalyzerResultReducer reducer = new ValueDistributionAnalyzerResultReducer();
+        final ValueDistributionAnalyzerResult reducedResult = reducer.reduce(partialResults);
+        assertEquals(4, reducedResult.getCount("hello").intValue());
+        assertEquals(6, reducedResult.getCount("world").intValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReduceSpilledResultsWithValuesDropped() throws Exception {
+        final List<ValueDistributionAnalyzerResult> partialResults = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final ValueDistributionAnalyzer valueDist =
+                    new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), false);
+            valueDist.setMaxValuesInMemory(1);
+            valueDist.setTopFrequentValues(1);
+            valueDist.setBottomFrequentValues(1);
+            valueDist.runInternal(new MockInputRow(), "foo", 2);
+            valueDist.runInternal(new MockInputRow(), "bar", 3);
+            valueDist.runInternal(new MockInputRow(), "baz", 4);
+            partialResults.add(valueDist.getResult());
+        }
+
+        new ValueDistributionAnalyzerResultReducer().reduce(partialResults);
+    }
 }
@@ -20,6 +20,7 @@
 package org.datacleaner.beans.valuedist;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
@@ -27,6 +28,7 @@ import java.util.Collection;
 import org.apache.metamodel.schema.MutableColumn;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
 import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
 import org.datacleaner.data.MetaModelInputColumn;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
@@ -34,12 +36,16 @@ import org.datacleaner.descriptors.AnalyzerDescriptor;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.MetricDescriptor;
 import org.datacleaner.descriptors.MetricParameters;
+import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.job.builder.AnalyzerComponentBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
 import org.datacleaner.result.GroupedValueCountingAnalyzerResult;
 import org.datacleaner.result.ValueCountList;
 import org.datacleaner.result.ValueCountingAnalyzerResult;
 import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
 import org.junit.Test;
 
 public class ValueDistributionAnalyzerTest {
@@ -68,7 +74,7 @@ public class ValueDistributionAnalyzerTest {
     public void testDescriptor() {
         final AnalyzerDescriptor<?> desc = Descriptors.ofAnalyzer(ValueDistributionAnalyzer.class);
         assertEquals(0, desc.getInitializeMethods().size());
-        assertEquals(6, desc.getConfiguredProperties().size());
+        assertEquals(7, desc.getConfiguredProperties().size());
         assertEquals(1, desc.getProvidedProperties().size());
         assertEquals("Value distribution", desc.getDisplayName());
     }
@@ -207,4 +213,138 @@ public class ValueDistributionAnalyzerTest {
         assertEquals("Group: 2200", resultLines[i++]);
         assertEquals(" - Copenhagen N: 3", resultLines[i++]);
     }
+
+    @Test
+    public void testSpillToDiskGivesSameCounts() {
+        final MetaModelInputColumn column = new MetaModelInputColumn(new MutableColumn("col"));
+        final ValueDistributionAnalyzer inMemory = new ValueDistributionAnalyzer(column, false);
+        final ValueDistributionAnalyzer spilling = new ValueDistributionAnalyzer(column, false);
+        spilling.setMaxValuesInMemory(10);
+        spilling.validate();
+
+        for (int i = 0; i < 1000; i++) {
+            // values 0-99 are repeated with varying frequency, 100+ are unique
+            final String value;
+            if (i % 50 == 0) {
+                value = null;
+            } else if (i < 700) {
+                value = "v" + (i % 100 + i % 7);
+            } else {
+                value = "u" + i;
+            }
+            inMemory.runInternal(new MockInputRow(), value, 1);
+            spilling.runInternal(new MockInputRow(), value, 1);
+        }
+
+        final ValueDistributionAnalyzerResult expected = inMemory.getResult();
+        final ValueDistributionAnalyzerResult actual = spilling.getResult();
+
+        assertEquals(expected.getTotalCount(), actual.getTotalCount());
+        assertEquals(expected.getNullCount(), actual.getNullCount());
+        assertEquals(expected.getUniqueCount(), actual.getUniqueCount());
+        assertEquals(expected.getDistinctCount(), actual.getDistinctCount());
+        for (int i = 0; i < 106; i++) {
+            assertEquals("v" + i, expected.getCount("v" + i), actual.getCount("v" + i));
+        }
+        assertFalse(actual.hasAnnotatedRows("v1"));
+
+        // merging does not consume the spilled values
+        assertEquals(actual.getTotalCount(), spilling.getResult().getTotalCount());
+        assertEquals(actual.getDistinctCount(), spilling.getResult().getDistinctCount());
+    }
+
+    @Test
+    public void testSpillToDiskRetainsConfiguredTopAndBottomValues() {
+        final MetaModelInputColumn column = new MetaModelInputColumn(new MutableColumn("col"));
+        final ValueDistributionAnalyzer spilling = new ValueDistributionAnalyzer(column, false);
+        spilling.setMaxValuesInMemory(10);
+        spilling.setTopFrequentValues(3);
+        spilling.setBottomFrequentValues(2);
+
+        for (int i = 2; i <= 50; i++) {
+            spilling.runInternal(new MockInputRow(), "v" + i, i);
+        }
+
+        final SingleValueDistributionResult result = (SingleValueDistributionResult) spilling.getResult();
+        assertEquals("[[v50->50], [v49->49], [v48->48]]", result.getTopValues().getValueCounts().toString());
+        assertEquals("[[v2->2], [v3->3]]", result.getBottomValues().getValueCounts().toString());
+        assertEquals(49, result.getDistinctCount().intValue());
+        assertFalse(result.isValueCountsComplete());
+    }
+
+    @Test
+    public void testPushdownGivesSameCountsAsRowByRow() throws Throwable {
+        final ValueCountingAnalyzerResult rowByRow = runOrderFactJob(false);
+        final ValueCountingAnalyzerResult pushedDown = runOrderFactJob(true);
+        assertEquals(2996, rowByRow.getTotalCount());
+        assertEquals(rowByRow.getTotalCount(), pushedDown.getTotalCount());
+        assertEquals(rowByRow.getNullCount(), pushedDown.getNullCount());
+        assertEquals(rowByRow.getDistinctCount(), pushedDown.getDistinctCount());
+        assertEquals(rowByRow.getUniqueCount(), pushedDown.getUniqueCount());
+        assertEquals(rowByRow.getValueCounts().toString(), pushedDown.getValueCounts().toString());
+    }
+
+    @Test
+    public void testTextColumnsAreNotPushedDown() {
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final DataCleanerConfigurationImpl configuration = new DataCleanerConfigurationImpl().withDatastores(datastore);
+        try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(configuration)) {
+            ajb.setDatastore(datastore);
+            ajb.addSourceColumns("ORDERFACT.QUANTITYORDERED", "ORDERFACT.STATUS");
+
+            final ValueDistributionAnalyzer numbers =
+                    new ValueDistributionAnalyzer(ajb.getSourceColumnByName("QUANTITYORDERED"), false);
+            numbers.setRecordDrillDownInformation(false);
+            assertTrue(numbers.isOptimizable());
+
+            // a case insensitive collation would merge e.g. "Shipped" and
+            // "SHIPPED" in a GROUP BY
+            final ValueDistributionAnalyzer text =
+                    new ValueDistributionAnalyzer(ajb.getSourceColumnByName("STATUS"), false);
+            text.setRecordDrillDownInformation(false);
+            assertFalse(text.isOptimizable());
+        }
+    }
+
+    private ValueCountingAnalyzerResult runOrderFactJob(final boolean pushdown) throws Throwable {
+        if (pushdown) {
+            System.setProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN, "true");
+        }
+        try {
+            final Datastore datastore = new JdbcDatastore("orderdb", "jdbc:hsqldb:res:orderdb;readonly=true",
+                    "org.hsqldb.jdbcDriver", "SA", "", true);
+            final DataCleanerConfigurationImpl configuration =
+                    new DataCleanerConfigurationImpl().withDatastores(datastore);
+            final AnalysisJob job;
+            try (AnalysisJobBuilder ajb = new AnalysisJobBuilder(configuration)) {
+                ajb.setDatastore(datastore);
+                ajb.addSourceColumns("ORDERFACT.QUANTITYORDERED");
+
+                final AnalyzerComponentBuilder<ValueDistributionAnalyzer> componentBuilder =
+                        ajb.addAnalyzer(ValueDistributionAnalyzer.class);
+                componentBuilder.setConfiguredProperty(ValueDistributionAnalyzer.PROPERTY_COLUMN,
+                        ajb.getSourceColumnByName("QUANTITYORDERED"));
+                componentBuilder
+                        .setConfiguredProperty(ValueDistributionAnalyzer.PROPERTY_RECORD_DRILL_DOWN_INFORMATION, false);
+                job = ajb.toAnalysisJob();
+            }
+
+            final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+            resultFuture.await();
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            return (ValueCountingAnalyzerResult) resultFuture.getResults().get(0);
+        } finally {
+            System.clearProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testValidateMaxValuesInMemory() {
+        final ValueDistributionAnalyzer vd =
+                new ValueDistributionAnalyzer(new MetaModelInputColumn(new MutableColumn("col")), true);
+        vd.setMaxValuesInMemory(0);
+        vd.validate();
+    }
 }
@@ -46,6 +46,7 @@ import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.ComponentContext;
 import org.datacleaner.api.Concurrent;
@@ -143,6 +144,13 @@ public class DeleteFromTableAnalyzer
     @Description("Additional values to write to error log")
     InputColumn<?>[] additionalErrorLogValues;
 
+    @Inject
+    @Configured(value = "Parallel flushes", required = false, order = 10)
+    @Description("How many batches may be written concurrently. When 1, batches are written by the threads "
+            + "processing the rows. When larger than 1, batches are written in the background, each using a "
+            + "separate connection to the datastore.")
+    int parallelFlushes = 1;
+
     @Inject
     @Provided
     ComponentContext _componentContext;
@@ -158,6 +166,10 @@ public class DeleteFromTableAnalyzer
         if (conditionValues.length != conditionColumnNames.length) {
             throw new IllegalStateException("Condition values and condition column names should have equal length");
         }
+
+        if (parallelFlushes < 1) {
+            throw new IllegalStateException("Parallel flushes must be a positive integer");
+        }
     }
 
     @Initialize
@@ -171,7 +183,8 @@ public class DeleteFromTableAnalyzer
         final int bufferSize = bufferSizeOption.calculateBufferSize(0); //TODO what buffer size? needed?
         logger.info("Row buffer size set to {}", bufferSize);
 
-        _writeBuffer = new WriteBuffer(bufferSize, this);
+        // background flushing is opt-in, a single flush is done synchronously
+        _writeBuffer = new WriteBuffer(bufferSize, this, parallelFlushes > 1 ? parallelFlushes : 0);
 
         try (UpdateableDatastoreConnection con = datastore.openConnection()) {
             final SchemaNavigator schemaNavigator = con.getSchemaNavigator();
@@ -308,6 +321,13 @@ public class DeleteFromTableAnalyzer
     }
 
 
+    @Close
+    public void close() {
+        if (_writeBuffer != null) {
+            _writeBuffer.close();
+        }
+    }
+
     @Override
     public WriteDataResult getResult() {
         _writeBuffer.flushBuffer();
@@ -323,7 +343,7 @@ public class DeleteFromTableAnalyzer
         }
 
         return new WriteDataResultImpl(0, updatedRowCount, datastore, schemaName, tableName, _errorRowCount.get(),
-                errorDatastore);
+                errorDatastore, _writeBuffer);
     }
 
     /**
@@ -44,6 +44,7 @@ import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.ComponentContext;
 import org.datacleaner.api.Concurrent;
@@ -87,61 +88,68 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
     private static final Logger logger = LoggerFactory.getLogger(InsertIntoTableAnalyzer.class);
 
     @Inject
-    @Configured(PROPERTY_NAME_VALUES)
+    @Configured(value = PROPERTY_NAME_VALUES, order = 1)
     @Description("Values to write to the table")
     InputColumn<?>[] values;
 
     @Inject
-    @Configured
+    @Configured(order = 2)
     @Description("Names of columns in the target table.")
     @ColumnProperty
     @MappedProperty(PROPERTY_NAME_VALUES)
     String[] columnNames;
 
     @Inject
-    @Configured
+    @Configured(order = 3)
     @Description("Datastore to write to")
     UpdateableDatastore datastore;
 
     @Inject
-    @Configured(required = false)
+    @Configured(order = 4, required = false)
     @Description("Schema name of target table")
     @SchemaProperty
     String schemaName;
 
     @Inject
-    @Configured(required = false)
+    @Configured(order = 5, required = false)
     @Description("Table to target (insert into)")
     @TableProperty
     String tableName;
 
     @Inject
-    @Configured
+    @Configured(order = 6)
     @Description("Truncate table before inserting?")
     boolean truncateTable = false;
 
     @Inject
-    @Configured("Buffer size")
+    @Configured(order = 7, value = "Buffer size")
     @Description(
             "How much data to buffer before committing batches of data. Large batches often perform better, "
                     + "but require more memory.")
     WriteBufferSizeOption bufferSizeOption = WriteBufferSizeOption.MEDIUM;
 
     @Inject
-    @Configured(value = "How to handle insertion errors?")
+    @Configured(value = "How to handle insertion errors?", order = 8)
     ErrorHandlingOption errorHandlingOption = ErrorHandlingOption.STOP_JOB;
 
     @Inject
-    @Configured(value = "Error log file location", required = false)
+    @Configured(value = "Error log file location", required = false, order = 9)
     @Description("Directory or file path for saving erroneous records")
     @FileProperty(accessMode = FileAccessMode.SAVE, extension = ".csv")
     File errorLogFile = TEMP_DIR;
 
     @Inject
-    @Configured(required = false)
+    @Configured(order = 10, required = false)
     @Description("Additional values to write to error log")
     InputColumn<?>[] additionalErrorLogValues;
 
+    @Inject
+    @Configured(value = "Parallel flushes", required = false, order = 11)
+    @Description("How many batches may be written concurrently. When 1, batches are written by the threads "
+            + "processing the rows. When larger than 1, batches are written in the background, each using a "
+            + "separate connection to the datastore.")
+    int parallelFlushes = 1;
+
     @Inject
     @Provided
     ComponentContext _componentContext;
@@ -159,6 +167,10 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
                     "Length of 'Values' (" + values.length + ") and 'Column names' (" + columnNames.length
                             + ") must be equal");
         }
+
+        if (parallelFlushes < 1) {
+            throw new IllegalStateException("Parallel flushes must be a positive integer");
+        }
     }
 
     /**
@@ -200,7 +212,8 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
         final int bufferSize = bufferSizeOption.calculateBufferSize(values.length);
         logger.info("Row buffer size set to {}", bufferSize);
 
-        _writeBuffer = new WriteBuffer(bufferSize, this);
+        // background flushing is opt-in, a single flush is done synchronously
+        _writeBuffer = new WriteBuffer(bufferSize, this, parallelFlushes > 1 ? parallelFlushes : 0);
 
         try (UpdateableDatastoreConnection con = datastore.openConnection()) {
             final SchemaNavigator schemaNavigator = con.getSchemaNavigator();
@@ -369,6 +382,13 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
         }
     }
 
+    @Close
+    public void close() {
+        if (_writeBuffer != null) {
+            _writeBuffer.close();
+        }
+    }
+
     @Override
     public WriteDataResult getResult() {
         _writeBuffer.flushBuffer();
@@ -383,8 +403,8 @@ public class InsertIntoTableAnalyzer implements Analyzer<WriteDataResult>, Actio
             errorDatastore = null;
         }
 
-        return new WriteDataResultImpl(writtenRowCount, datastore, schemaName, tableName, _errorRowCount.get(),
-                errorDatastore);
+        return new WriteDataResultImpl(writtenRowCount, 0, datastore, schemaName, tableName, _errorRowCount.get(),
+                errorDatastore, _writeBuffer);
     }
 
     /**
@@ -60,6 +60,39 @@ public interface WriteDataResult extends AnalyzerResult {
     @Metric("Errornous rows")
     int getErrorRowCount();
 
+    /**
+     * @return the amount of batches that was flushed to the destination.
+     */
+    @Metric("Flushes")
+    default int getFlushCount() {
+        return 0;
+    }
+
+    /**
+     * @return the average time spent flushing a batch, in milliseconds.
+     */
+    @Metric("Average flush time (ms)")
+    default double getAverageFlushMillis() {
+        return 0d;
+    }
+
+    /**
+     * @return the longest time spent flushing a single batch, in milliseconds.
+     */
+    @Metric("Max flush time (ms)")
+    default double getMaxFlushMillis() {
+        return 0d;
+    }
+
+    /**
+     * @return the write throughput, measured from the start of the first flush
+     *         until the end of the last flush.
+     */
+    @Metric("Rows per second")
+    default double getRowsPerSecond() {
+        return 0d;
+    }
+
     /**
      * Gets a reference to a datastore containing error records. Note that the
      * datastore is not nescesarily registered in the {@link DatastoreCatalog}.
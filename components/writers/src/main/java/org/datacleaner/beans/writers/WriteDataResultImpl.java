@@ -26,6 +26,7 @@ import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreCatalog;
 import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.connection.FileDatastore;
+import org.datacleaner.util.WriteBuffer;
 
 /**
  * Default implementation of {@link WriteDataResult}.
@@ -42,12 +43,23 @@ public final class WriteDataResultImpl implements WriteDataResult {
     private final String _schemaName;
     private final String _tableName;
     private final int _errorRowCount;
+    private final int _flushCount;
+    private final double _averageFlushMillis;
+    private final double _maxFlushMillis;
+    private final double _rowsPerSecond;
 
     private final transient Function<DatastoreCatalog, Datastore> _datastoreFunc;
     private final transient FileDatastore _errorDatastore;
 
     public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final int errorRowCount) {
-        this(writtenRowCount, updatesCount, null, null, null, errorRowCount, null);
+        this(writtenRowCount, updatesCount, errorRowCount, 0, 0d, 0d, 0d);
+    }
+
+    public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final int errorRowCount,
+            final int flushCount, final double averageFlushMillis, final double maxFlushMillis,
+            final double rowsPerSecond) {
+        this(writtenRowCount, updatesCount, null, null, null, errorRowCount, null, flushCount, averageFlushMillis,
+                maxFlushMillis, rowsPerSecond);
     }
 
     public WriteDataResultImpl(final int writtenRowCount, final Datastore datastore, final String schemaName,
@@ -63,6 +75,26 @@ public final class WriteDataResultImpl implements WriteDataResult {
     public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final Datastore datastore,
             final String schemaName, final String tableName, final int errorRowCount,
             final FileDatastore errorDatastore) {
+        this(writtenRowCount, updatesCount, datastore, schemaName, tableName, errorRowCount, errorDatastore, 0, 0d,
+                0d, 0d);
+    }
+
+    /**
+     * Creates a result with the flush metrics of the {@link WriteBuffer} that
+     * the rows were written with.
+     */
+    public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final Datastore datastore,
+            final String schemaName, final String tableName, final int errorRowCount,
+            final FileDatastore errorDatastore, final WriteBuffer writeBuffer) {
+        this(writtenRowCount, updatesCount, datastore, schemaName, tableName, errorRowCount, errorDatastore,
+                writeBuffer.getFlushCount(), writeBuffer.getAverageFlushMillis(), writeBuffer.getMaxFlushMillis(),
+                writeBuffer.getRowsPerSecond());
+    }
+
+    public WriteDataResultImpl(final int writtenRowCount, final int updatesCount, final Datastore datastore,
+            final String schemaName, final String tableName, final int errorRowCount,
+            final FileDatastore errorDatastore, final int flushCount, final double averageFlushMillis,
+            final double maxFlushMillis, final double rowsPerSecond) {
         _writtenRowCount = writtenRowCount;
         _updatesCount = updatesCount;
         _schemaName = schemaName;
@@ -71,6 +103,10 @@ public final class WriteDataResultImpl implements WriteDataResult {
         _datastoreFunc = catalog -> datastore;
         _errorRowCount = errorRowCount;
         _errorDatastore = errorDatastore;
+        _flushCount = flushCount;
+        _averageFlushMillis = averageFlushMillis;
+        _maxFlushMillis = maxFlushMillis;
+        _rowsPerSecond = rowsPerSecond;
     }
 
     public WriteDataResultImpl(final int writtenRowCount, final String datastoreName, final String schemaName,
@@ -88,6 +124,10 @@ public final class WriteDataResultImpl implements WriteDataResult {
         _datastoreFunc = catalog -> catalog.getDatastore(datastoreName);
         _errorRowCount = 0;
         _errorDatastore = null;
+        _flushCount = 0;
+        _averageFlushMillis = 0d;
+        _maxFlushMillis = 0d;
+        _rowsPerSecond = 0d;
     }
 
     @Override
@@ -110,6 +150,26 @@ public final class WriteDataResultImpl implements WriteDataResult {
         return _writtenRowCount;
     }
 
+    @Override
+    public int getFlushCount() {
+        return _flushCount;
+    }
+
+    @Override
+    public double getAverageFlushMillis() {
+        return _averageFlushMillis;
+    }
+
+    @Override
+    public double getMaxFlushMillis() {
+        return _maxFlushMillis;
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return _rowsPerSecond;
+    }
+
     @Override
     public Datastore getDatastore(final DatastoreCatalog datastoreCatalog) {
         if (_datastoreFunc == null) {
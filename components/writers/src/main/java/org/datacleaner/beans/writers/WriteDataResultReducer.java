@@ -33,12 +33,22 @@ public class WriteDataResultReducer implements AnalyzerResultReducer<WriteDataRe
         int writes = 0;
         int updates = 0;
         int errors = 0;
+        int flushes = 0;
+        double totalFlushMillis = 0;
+        double maxFlushMillis = 0;
+        double rowsPerSecond = 0;
         for (final WriteDataResult result : results) {
             writes += result.getWrittenRowCount();
             updates += result.getUpdatesCount();
             errors += result.getErrorRowCount();
+            flushes += result.getFlushCount();
+            totalFlushMillis += result.getAverageFlushMillis() * result.getFlushCount();
+            maxFlushMillis = Math.max(maxFlushMillis, result.getMaxFlushMillis());
+            // partial results are written concurrently, so throughput adds up
+            rowsPerSecond += result.getRowsPerSecond();
         }
-        return new WriteDataResultImpl(writes, updates, errors);
+        return new WriteDataResultImpl(writes, updates, errors, flushes, flushes == 0 ? 0 : totalFlushMillis / flushes,
+                maxFlushMillis, rowsPerSecond);
     }
 
 }
@@ -82,13 +82,16 @@ public class InsertIntoTableAnalyzerTest extends TestCase {
     public void testMetricDescriptors() throws Exception {
         final AnalyzerDescriptor<?> descriptor = Descriptors.ofAnalyzer(InsertIntoTableAnalyzer.class);
         final Set<MetricDescriptor> metrics = descriptor.getResultMetrics();
-        assertEquals("[MetricDescriptorImpl[name=Errornous rows], MetricDescriptorImpl[name=Inserts], "
-                        + "MetricDescriptorImpl[name=Updates]]", metrics.toString());
+        assertEquals("[MetricDescriptorImpl[name=Average flush time (ms)], MetricDescriptorImpl[name=Errornous rows], "
+                + "MetricDescriptorImpl[name=Flushes], MetricDescriptorImpl[name=Inserts], "
+                + "MetricDescriptorImpl[name=Max flush time (ms)], MetricDescriptorImpl[name=Rows per second], "
+                + "MetricDescriptorImpl[name=Updates]]", metrics.toString());
 
         final WriteDataResult result = new WriteDataResultImpl(10, 5, null, null, null);
         assertEquals(10, descriptor.getResultMetric("Inserts").getValue(result, null).intValue());
         assertEquals(5, descriptor.getResultMetric("Updates").getValue(result, null).intValue());
         assertEquals(0, descriptor.getResultMetric("Errornous rows").getValue(result, null).intValue());
+        assertEquals(0, descriptor.getResultMetric("Flushes").getValue(result, null).intValue());
     }
 
     public void testErrorHandlingToInvalidFile() throws Exception {
@@ -63,6 +63,10 @@ public class CliArguments {
     private CliOutputType outputType;
     @Option(name = "-runtype", aliases = { "--runtype" }, usage = "How/where to run the job")
     private CliRunType runType;
+    @Option(name = "-taskrunner", usage = "Task runner to use, overrides the configuration")
+    private CliTaskRunnerType taskRunnerType;
+    @Option(name = "-maxrowsinflight", usage = "Max. number of records in flight (FORKJOIN, VIRTUAL)")
+    private Integer maxRowsInFlight;
     @Option(name = "-of", aliases = { "--output-file" }, metaVar = "PATH",
             usage = "Path to file in which to save the result of the job", required = false)
     private String outputFile;
@@ -204,6 +208,26 @@ public class CliArguments {
         return runType;
     }
 
+    /**
+     * Gets the task runner type to use, or null if the task runner of the
+     * configuration should be used.
+     *
+     * @return
+     */
+    public CliTaskRunnerType getTaskRunnerType() {
+        return taskRunnerType;
+    }
+
+    /**
+     * Gets the maximum number of records in flight of the task runner selected
+     * with {@link #getTaskRunnerType()}, or null if not specified.
+     *
+     * @return
+     */
+    public Integer getMaxRowsInFlight() {
+        return maxRowsInFlight;
+    }
+
     /**
      * Gets whether the arguments have been sufficiently set to execute a CLI
      * task.
@@ -47,6 +47,8 @@ import org.apache.metamodel.util.Resource;
 import org.datacleaner.configuration.ConfigurationReaderInterceptor;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironment;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
 import org.datacleaner.configuration.JaxbConfigurationReader;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
@@ -57,6 +59,7 @@ import org.datacleaner.descriptors.FilterDescriptor;
 import org.datacleaner.descriptors.TransformerDescriptor;
 import org.datacleaner.job.JaxbJobReader;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.TaskRunner;
 import org.datacleaner.job.runner.AnalysisResultFuture;
 import org.datacleaner.job.runner.AnalysisRunner;
 import org.datacleaner.job.runner.AnalysisRunnerImpl;
@@ -172,7 +175,8 @@ public final class CliRunner implements Closeable {
         return new ResourceConverter(new DataCleanerConfigurationImpl()).fromString(Resource.class, path);
     }
 
-    public void run(final DataCleanerConfiguration configuration) throws Throwable {
+    public void run(final DataCleanerConfiguration configuredConfiguration) throws Throwable {
+        final DataCleanerConfiguration configuration = applyTaskRunnerType(configuredConfiguration);
         final String jobFilePath = _arguments.getJobFile();
         final CliListType listType = _arguments.getListType();
         try {
@@ -219,6 +223,35 @@ public final class CliRunner implements Closeable {
         }
     }
 
+    DataCleanerConfiguration applyTaskRunnerType(final DataCleanerConfiguration configuration) {
+        final CliTaskRunnerType taskRunnerType = _arguments.getTaskRunnerType();
+        if (taskRunnerType == null || configuration == null) {
+            if (_arguments.getMaxRowsInFlight() != null) {
+                logger.warn("Ignoring -maxrowsinflight, since no -taskrunner is specified");
+            }
+            return configuration;
+        }
+
+        final TaskRunner configuredTaskRunner = configuration.getEnvironment().getTaskRunner();
+
+        // without an explicit limit, keep the limit of a configured task runner of the same type
+        Integer maxRowsInFlight = _arguments.getMaxRowsInFlight();
+        if (maxRowsInFlight == null) {
+            maxRowsInFlight = taskRunnerType.getMaxRowsInFlight(configuredTaskRunner);
+        }
+
+        final TaskRunner taskRunner = taskRunnerType.createTaskRunner(maxRowsInFlight);
+        final DataCleanerEnvironment environment =
+                new DataCleanerEnvironmentImpl(configuration.getEnvironment()).withTaskRunner(taskRunner);
+
+        // the replaced task runner is not used, but may already have started threads
+        configuredTaskRunner.shutdown();
+
+        return new DataCleanerConfigurationImpl(environment, configuration.getHomeFolder(),
+                configuration.getDatastoreCatalog(), configuration.getReferenceDataCatalog(),
+                configuration.getServerInformationCatalog());
+    }
+
     private void printColumns(final DataCleanerConfiguration configuration) {
         final String datastoreName = _arguments.getDatastoreName();
         final String tableName = _arguments.getTableName();
@@ -0,0 +1,106 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cli;
+
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
+
+/**
+ * Represents the different types of task runners that can be selected in the
+ * CLI, overriding the task runner of the configuration. The task runners that
+ * bound the number of rows in flight accept a limit, which the others ignore.
+ */
+public enum CliTaskRunnerType {
+
+    SINGLE {
+        @Override
+        public TaskRunner createTaskRunner(final Integer maxRowsInFlight) {
+            return new SingleThreadedTaskRunner();
+        }
+    },
+
+    MULTI {
+        @Override
+        public TaskRunner createTaskRunner(final Integer maxRowsInFlight) {
+            return new MultiThreadedTaskRunner();
+        }
+    },
+
+    FORKJOIN {
+        @Override
+        public TaskRunner createTaskRunner(final Integer maxRowsInFlight) {
+            if (maxRowsInFlight == null) {
+                return new ForkJoinTaskRunner();
+            }
+            return new ForkJoinTaskRunner(ForkJoinTaskRunner.getDefaultParallelism(), maxRowsInFlight);
+        }
+
+        @Override
+        public Integer getMaxRowsInFlight(final TaskRunner taskRunner) {
+            if (taskRunner instanceof ForkJoinTaskRunner) {
+                return ((ForkJoinTaskRunner) taskRunner).getMaxRowsInFlight();
+            }
+            return null;
+        }
+    },
+
+    VIRTUAL {
+        @Override
+        public TaskRunner createTaskRunner(final Integer maxRowsInFlight) {
+            if (maxRowsInFlight == null) {
+                return new VirtualThreadTaskRunner();
+            }
+            return new VirtualThreadTaskRunner(maxRowsInFlight);
+        }
+
+        @Override
+        public Integer getMaxRowsInFlight(final TaskRunner taskRunner) {
+            if (taskRunner instanceof VirtualThreadTaskRunner) {
+                return ((VirtualThreadTaskRunner) taskRunner).getMaxRowsInFlight();
+            }
+            return null;
+        }
+    };
+
+    /**
+     * Creates a task runner of this type.
+     *
+     * @param maxRowsInFlight
+     *            the maximum number of rows in flight, or null for the default
+     *            limit
+     * @return
+     */
+    public abstract TaskRunner createTaskRunner(Integer maxRowsInFlight);
+
+    /**
+     * Gets the maximum number of rows in flight of a (configured) task runner,
+     * if it is of this type.
+     *
+     * @param taskRunner
+     * @return the limit, or null if the task runner is not of this type or has
+     *         no limit
+     */
+    public Integer getMaxRowsInFlight(final TaskRunner taskRunner) {
+        return null;
+    }
+}
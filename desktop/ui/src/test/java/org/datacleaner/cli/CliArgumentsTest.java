@@ -69,4 +69,16 @@ public class CliArgumentsTest extends TestCase {
         args = CliArguments.parse("-job myjob.xml -conf conf.xml -var foo=bar -v bar=c:\\foo\bar\baz.csv".split(" "));
         assertEquals("{bar=c:\\foo\bar\baz.csv, foo=bar}", new TreeMap<>(args.getVariableOverrides()).toString());
     }
+
+    public void testTaskRunnerType() throws Exception {
+        CliArguments args = CliArguments.parse("-job myjob.xml -taskrunner VIRTUAL".split(" "));
+        assertEquals(CliTaskRunnerType.VIRTUAL, args.getTaskRunnerType());
+
+        args = CliArguments.parse("-job myjob.xml".split(" "));
+        assertNull(args.getTaskRunnerType());
+        assertNull(args.getMaxRowsInFlight());
+
+        args = CliArguments.parse("-job myjob.xml -taskrunner VIRTUAL -maxrowsinflight 200".split(" "));
+        assertEquals(200, args.getMaxRowsInFlight().intValue());
+    }
 }
@@ -33,6 +33,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang.SerializationUtils;
 import org.apache.log4j.PropertyConfigurator;
 import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
 import org.datacleaner.result.AnalysisResult;
 import org.xml.sax.Attributes;
 import org.xml.sax.ErrorHandler;
@@ -84,7 +91,7 @@ public class MainTest extends TestCase {
 
         final String[] lines = out1.split("\n");
 
-        assertEquals(13, lines.length);
+        assertEquals(15, lines.length);
 
         assertEquals("-conf (-configuration, --configuration-file) PATH          :"
                 + " Path to an XML file describing the configuration of", lines[0].trim());
@@ -97,19 +104,23 @@ public class MainTest extends TestCase {
         assertEquals("-list [ANALYZERS | TRANSFORMERS | FILTERS | DATASTORES |   :"
                 + " Used to print a list of various elements available in the", lines[5].trim());
         assertEquals("SCHEMAS | TABLES | COLUMNS]                                : configuration", lines[6].trim());
+        assertEquals("-maxrowsinflight N                                         :"
+                + " Max. number of records in flight (FORKJOIN, VIRTUAL)", lines[7].trim());
         assertEquals("-of (--output-file) PATH                                   :"
-                + " Path to file in which to save the result of the job", lines[7].trim());
+                + " Path to file in which to save the result of the job", lines[8].trim());
         assertEquals("-ot (--output-type) [TEXT | HTML | SERIALIZED]             :"
-                + " How to represent the result of the job", lines[8].trim());
+                + " How to represent the result of the job", lines[9].trim());
         assertEquals("-properties (--properties-file) PATH                       : Path to a custom properties file",
-                lines[9].trim());
+                lines[10].trim());
 
         assertEquals("-runtype (--runtype) [LOCAL | SPARK]                       : How/where to run the job",
-                lines[10].trim());
+                lines[11].trim());
         assertEquals("-s (-schema, --schema-name) VAL                            :"
-                + " Name of schema when printing a list of tables or columns", lines[11].trim());
+                + " Name of schema when printing a list of tables or columns", lines[12].trim());
         assertEquals("-t (-table, --table-name) VAL                              :"
-                + " Name of table when printing a list of columns", lines[12].trim());
+                + " Name of table when printing a list of columns", lines[13].trim());
+        assertEquals("-taskrunner [SINGLE | MULTI | FORKJOIN | VIRTUAL]          :"
+                + " Task runner to use, overrides the configuration", lines[14].trim());
 
         // again without the -usage flag
         _stringWriter = new StringWriter();
@@ -127,6 +138,49 @@ public class MainTest extends TestCase {
         assertEquals("Datastores:\n-----------\nall_datastores\nemployees_csv\norderdb\n", out);
     }
 
+    public void testTaskRunnerTypeShutsDownReplacedTaskRunner() throws Throwable {
+        final MultiThreadedTaskRunner configuredTaskRunner = new MultiThreadedTaskRunner(2);
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(configuredTaskRunner));
+
+        new CliRunner(CliArguments.parse("-list DATASTORES -taskrunner SINGLE".split(" "))).run(configuration);
+
+        assertTrue(configuredTaskRunner.getExecutorService().isShutdown());
+    }
+
+    public void testTaskRunnerTypeKeepsConfiguredMaxRowsInFlight() throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new VirtualThreadTaskRunner(50)));
+
+        final TaskRunner taskRunner =
+                new CliRunner(CliArguments.parse("-list DATASTORES -taskrunner VIRTUAL".split(" ")))
+                        .applyTaskRunnerType(configuration).getEnvironment().getTaskRunner();
+        try {
+            assertEquals(50, ((VirtualThreadTaskRunner) taskRunner).getMaxRowsInFlight());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testMaxRowsInFlight() throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new VirtualThreadTaskRunner(50)));
+
+        final TaskRunner virtualTaskRunner = new CliRunner(
+                CliArguments.parse("-list DATASTORES -taskrunner VIRTUAL -maxrowsinflight 20".split(" ")))
+                        .applyTaskRunnerType(configuration).getEnvironment().getTaskRunner();
+        final TaskRunner forkJoinTaskRunner = new CliRunner(
+                CliArguments.parse("-list DATASTORES -taskrunner FORKJOIN -maxrowsinflight 30".split(" ")))
+                        .applyTaskRunnerType(configuration).getEnvironment().getTaskRunner();
+        try {
+            assertEquals(20, ((VirtualThreadTaskRunner) virtualTaskRunner).getMaxRowsInFlight());
+            assertEquals(30, ((ForkJoinTaskRunner) forkJoinTaskRunner).getMaxRowsInFlight());
+        } finally {
+            virtualTaskRunner.shutdown();
+            forkJoinTaskRunner.shutdown();
+        }
+    }
+
     public void testListSchemas() throws Throwable {
         Main.main("-conf src/test/resources/cli-examples/conf.xml -ds orderdb -list SCHEMAS".split(" "));
 
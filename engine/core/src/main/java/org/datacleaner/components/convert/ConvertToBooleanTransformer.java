@@ -24,12 +24,13 @@ import javax.inject.Named;
 
 import org.datacleaner.api.Alias;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.ConversionCategory;
 
 /**
@@ -38,7 +39,7 @@ import org.datacleaner.components.categories.ConversionCategory;
 @Named("Convert to boolean")
 @Description("Converts anything to a boolean (or null).")
 @Categorized(ConversionCategory.class)
-public class ConvertToBooleanTransformer implements Transformer {
+public class ConvertToBooleanTransformer implements VectorizedTransformer {
 
     public static final String[] DEFAULT_TRUE_TOKENS = new String[] { "true", "yes", "1", "x", "y" };
     public static final String[] DEFAULT_FALSE_TOKENS = new String[] { "false", "no", "0", "-", "n" };
@@ -129,6 +130,23 @@ public class ConvertToBooleanTransformer implements Transformer {
         return result;
     }
 
+    @Override
+    public Boolean[][] transform(final ColumnBatch batch) {
+        final int size = batch.size();
+        final Boolean[][] result = new Boolean[size][input.length];
+        for (int i = 0; i < input.length; i++) {
+            final Object[] values = batch.getValues(batch.getColumnIndex(input[i]));
+            for (int j = 0; j < size; j++) {
+                Boolean b = transformValue(values[j], _trueTokens, _falseTokens);
+                if (b == null) {
+                    b = nullReplacement;
+                }
+                result[j][i] = b;
+            }
+        }
+        return result;
+    }
+
     public String[] getFalseTokens() {
         return _falseTokens;
     }
@@ -31,14 +31,15 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
-import org.datacleaner.api.Transformer;
 import org.datacleaner.api.Validate;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.ConversionCategory;
 import org.datacleaner.util.convert.NowDate;
 import org.datacleaner.util.convert.ShiftedToday;
@@ -54,7 +55,7 @@ import org.joda.time.format.DateTimeFormatter;
 @Named("Convert to date")
 @Description("Converts anything to a date (or null).")
 @Categorized(ConversionCategory.class)
-public class ConvertToDateTransformer implements Transformer {
+public class ConvertToDateTransformer implements VectorizedTransformer {
 
     private static final String[] prototypePatterns = { "yyyy-MM-dd", "dd-MM-yyyy", "MM-dd-yyyy" };
 
@@ -148,6 +149,23 @@ public class ConvertToDateTransformer implements Transformer {
         return result;
     }
 
+    @Override
+    public Date[][] transform(final ColumnBatch batch) {
+        final int size = batch.size();
+        final Date[][] result = new Date[size][input.length];
+        for (int i = 0; i < input.length; i++) {
+            final Object[] values = batch.getValues(batch.getColumnIndex(input[i]));
+            for (int j = 0; j < size; j++) {
+                Date d = transformValue(values[j]);
+                if (d == null) {
+                    d = nullReplacement;
+                }
+                result[j][i] = d;
+            }
+        }
+        return result;
+    }
+
     public Date transformValue(final Object value) {
         Date d = null;
         if (value != null) {
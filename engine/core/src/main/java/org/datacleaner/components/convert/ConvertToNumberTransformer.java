@@ -27,12 +27,13 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.ConversionCategory;
 import org.datacleaner.util.Percentage;
 import org.datacleaner.util.StringUtils;
@@ -45,7 +46,7 @@ import org.slf4j.LoggerFactory;
 @Named("Convert to number")
 @Description("Converts anything to a number (or null if not possible).")
 @Categorized(ConversionCategory.class)
-public class ConvertToNumberTransformer implements Transformer {
+public class ConvertToNumberTransformer implements VectorizedTransformer {
 
     private static final Logger logger = LoggerFactory.getLogger(ConvertToNumberTransformer.class);
 
@@ -166,6 +167,25 @@ public class ConvertToNumberTransformer implements Transformer {
         return result;
     }
 
+    @Override
+    public Number[][] transform(final ColumnBatch batch) {
+        final int size = batch.size();
+        final Number[][] result = new Number[size][input.length];
+        // the decimal format is not thread-safe, but can be shared within the batch
+        final DecimalFormat decimalFormat = getDecimalFormat();
+        for (int i = 0; i < input.length; i++) {
+            final Object[] values = batch.getValues(batch.getColumnIndex(input[i]));
+            for (int j = 0; j < size; j++) {
+                Number n = transformValue(values[j], decimalFormat);
+                if (n == null) {
+                    n = nullReplacement;
+                }
+                result[j][i] = n;
+            }
+        }
+        return result;
+    }
+
     protected Number transform(final Object value) {
         return transformValue(value, getDecimalFormat());
     }
@@ -32,13 +32,14 @@ import javax.inject.Named;
 
 import org.apache.metamodel.util.FileHelper;
 import org.datacleaner.api.Categorized;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.api.StringProperty;
-import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.components.categories.ConversionCategory;
 
 /**
@@ -47,7 +48,7 @@ import org.datacleaner.components.categories.ConversionCategory;
 @Named("Convert to string")
 @Description("Converts anything to a string (or null).")
 @Categorized(ConversionCategory.class)
-public class ConvertToStringTransformer implements Transformer {
+public class ConvertToStringTransformer implements VectorizedTransformer {
 
     @Inject
     @Configured
@@ -121,6 +122,23 @@ public class ConvertToStringTransformer implements Transformer {
         return result;
     }
 
+    @Override
+    public String[][] transform(final ColumnBatch batch) {
+        final int size = batch.size();
+        final String[][] result = new String[size][input.length];
+        for (int i = 0; i < input.length; i++) {
+            final Object[] values = batch.getValues(batch.getColumnIndex(input[i]));
+            for (int j = 0; j < size; j++) {
+                String stringValue = transformValue(values[j]);
+                if (stringValue == null) {
+                    stringValue = nullReplacement;
+                }
+                result[j][i] = stringValue;
+            }
+        }
+        return result;
+    }
+
     public void setInput(final InputColumn<?>[] input) {
         this.input = input;
     }
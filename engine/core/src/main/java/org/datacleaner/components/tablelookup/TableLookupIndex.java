@@ -0,0 +1,114 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.tablelookup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.util.ColumnValueKeys;
+
+/**
+ * An in-memory hash index of lookup table records, keyed by the values of the
+ * condition columns. Used by the {@link TableLookupTransformer} both for a
+ * preloaded lookup table and for the result of a batched lookup query.
+ *
+ * Records are added with the output column values first, followed by the
+ * condition column values - in the same order as they are selected by the
+ * lookup queries.
+ *
+ * Condition values are normalized by the type of their column using
+ * {@link ColumnValueKeys}, so that eg. a string input value of "42" finds the
+ * record of an integer column with value 42, like the database would when
+ * comparing them in a query. Likewise, a null condition value never matches a
+ * record, not even one with a null value.
+ */
+final class TableLookupIndex {
+
+    private final Column[] _conditionColumns;
+    private final int _outputColumnCount;
+    private final Map<List<Object>, List<Object[]>> _records;
+    private int _recordCount;
+
+    public TableLookupIndex(final Column[] conditionColumns, final int outputColumnCount) {
+        _conditionColumns = conditionColumns;
+        _outputColumnCount = outputColumnCount;
+        _records = new HashMap<>();
+        _recordCount = 0;
+    }
+
+    public void add(final Row row) {
+        final Object[] values = row.getValues();
+        final List<Object> conditionValues =
+                Arrays.asList(values).subList(_outputColumnCount, _outputColumnCount + _conditionColumns.length);
+        final Object[] outputValues = Arrays.copyOf(values, _outputColumnCount);
+
+        _recordCount++;
+
+        final List<Object> key = toKey(conditionValues);
+        if (key != null) {
+            _records.computeIfAbsent(key, k -> new ArrayList<>(1)).add(outputValues);
+        }
+    }
+
+    /**
+     * Gets the records matching a set of condition values.
+     *
+     * @param conditionValues
+     * @return the matching records, in the order that they were added. Never
+     *         null.
+     */
+    public List<Object[]> get(final List<Object> conditionValues) {
+        final List<Object> key = toKey(conditionValues);
+        final List<Object[]> records = key == null ? null : _records.get(key);
+        if (records == null) {
+            return Collections.emptyList();
+        }
+        return records;
+    }
+
+    public int getRecordCount() {
+        return _recordCount;
+    }
+
+    /**
+     * Creates the key of a set of condition values.
+     *
+     * @param conditionValues
+     * @return the key, or null if the values can never match a record, eg.
+     *         because one of them is null
+     */
+    private List<Object> toKey(final List<Object> conditionValues) {
+        final List<Object> key = new ArrayList<>(conditionValues.size());
+        for (int i = 0; i < conditionValues.size(); i++) {
+            final Object value = ColumnValueKeys.toKey(_conditionColumns[i].getType(), conditionValues.get(i));
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+}
@@ -21,19 +21,25 @@ package org.datacleaner.components.tablelookup;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.query.CompiledQuery;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
 import org.apache.metamodel.query.OperatorType;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.QueryParameter;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.HasName;
@@ -55,7 +61,6 @@ import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Provided;
 import org.datacleaner.api.SchemaProperty;
 import org.datacleaner.api.TableProperty;
-import org.datacleaner.api.Transformer;
 import org.datacleaner.api.Validate;
 import org.datacleaner.components.categories.ImproveSuperCategory;
 import org.datacleaner.components.categories.ReferenceDataCategory;
@@ -66,6 +71,12 @@ import org.datacleaner.storage.DummyRowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.util.CollectionUtils2;
+import org.datacleaner.util.batch.AsyncBatchTransformer;
+import org.datacleaner.util.batch.BatchCallback;
+import org.datacleaner.util.batch.BatchSink;
+import org.datacleaner.util.batch.BatchSource;
+import org.datacleaner.util.batch.BatchTransformationBuffer;
+import org.datacleaner.util.batch.BatchTransformationMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,7 +91,8 @@ import com.google.common.cache.Cache;
 @Description("Perform a lookup based on a table in any of your registered datastore (like a LEFT join).")
 @Concurrent(true)
 @Categorized(superCategory = ImproveSuperCategory.class, value = ReferenceDataCategory.class)
-public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasAnalyzerResult<CategorizationResult> {
+public class TableLookupTransformer
+        implements AsyncBatchTransformer, HasLabelAdvice, HasAnalyzerResult<CategorizationResult> {
 
     public enum JoinSemantic implements HasName {
         @Alias("LEFT")
@@ -102,11 +114,24 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         public String getName() {
             return _name;
         }
+    }
+
+    public enum LookupMode implements HasName {
+        QUERY("Query per lookup"),
+
+        BATCHED("Batched queries"),
+
+        PRELOADED("Preloaded lookup table");
+
+        private final String _name;
+
+        LookupMode(final String name) {
+            _name = name;
+        }
 
-        public boolean isCacheable() {
-            // inner joined result sets are not cached since their size exceeds
-            // the cache capabilities.
-            return this == LEFT_JOIN_MAX_ONE;
+        @Override
+        public String getName() {
+            return _name;
         }
     }
 
@@ -114,7 +139,6 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     private static final String PROPERTY_NAME_DATASTORE = "Datastore";
     private static final String PROPERTY_NAME_SCHEMA_NAME = "Schema name";
     private static final String PROPERTY_NAME_TABLE_NAME = "Table name";
-    private final Cache<List<Object>, Object[]> cache = CollectionUtils2.createCache(10000, 5 * 60);
 
     @Inject
     @Configured(value = PROPERTY_NAME_DATASTORE)
@@ -153,6 +177,28 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     @Description("Which kind of semantic to apply to the lookup, compared to a SQL JOIN.")
     JoinSemantic joinSemantic = JoinSemantic.LEFT_JOIN_MAX_ONE;
     @Inject
+    @Configured(required = false)
+    @Description("How lookups are performed: With a query per lookup, with one query for a batch of lookups, or "
+            + "against an in-memory index of the whole lookup table.")
+    LookupMode lookupMode = LookupMode.QUERY;
+    @Inject
+    @Configured(required = false)
+    @Description("The max number of lookups to combine into one query when doing batched queries.")
+    int batchSize = 100;
+    @Inject
+    @Configured(required = false)
+    @Description("The max number of records that the lookup table may contain in order to be preloaded. "
+            + "Larger tables are looked up with a query per lookup.")
+    int preloadMaxRows = 100000;
+    @Inject
+    @Configured(required = false)
+    @Description("The max number of looked up records to keep in the client-side cache.")
+    int cacheSize = 10000;
+    @Inject
+    @Configured(required = false)
+    @Description("The number of seconds that an unused lookup result is kept in the client-side cache.")
+    int cacheExpirySeconds = 5 * 60;
+    @Inject
     @Provided
     OutputRowCollector outputRowCollector;
     @Inject
@@ -167,10 +213,16 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     @Inject
     @Provided
     RowAnnotation _cached;
+    @Inject
+    @Provided
+    RowAnnotation _notCached;
     private Column[] queryOutputColumns;
     private Column[] queryConditionColumns;
     private DatastoreConnection datastoreConnection;
     private CompiledQuery lookupQuery;
+    private Cache<List<Object>, List<Object[]>> cache;
+    private TableLookupIndex preloadedIndex;
+    private BatchTransformationBuffer<List<Object>, List<Object[]>> batchBuffer;
 
     /**
      * Default constructor
@@ -205,6 +257,7 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         _annotationFactory = new DummyRowAnnotationFactory();
         _matches = _annotationFactory.createAnnotation();
         _cached = _annotationFactory.createAnnotation();
+        _notCached = _annotationFactory.createAnnotation();
         _misses = _annotationFactory.createAnnotation();
     }
 
@@ -283,8 +336,112 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     public void init() {
         datastoreConnection = datastore.openConnection();
         resetCachedColumns();
-        cache.invalidateAll();
+        // the cache is bounded by the number of records, not lookups
+        cache = CollectionUtils2.createCache(cacheSize, cacheExpirySeconds,
+                (key, records) -> Math.max(1, records.size()));
         compileLookupQuery();
+
+        preloadedIndex = null;
+        batchBuffer = null;
+        if (lookupMode == LookupMode.PRELOADED) {
+            preloadedIndex = preloadLookupTable();
+        } else if (lookupMode == LookupMode.BATCHED && !isCarthesianProductMode()) {
+            batchBuffer = new BatchTransformationBuffer<>(this::lookupBatch, Math.max(1, batchSize),
+                    BatchTransformationBuffer.DEFAULT_FLUSH_INTERVAL);
+            batchBuffer.start();
+        }
+    }
+
+    /**
+     * Creates a query which selects the output columns followed by the
+     * condition columns of the lookup table, ie. the layout of the records in a
+     * {@link TableLookupIndex}.
+     */
+    private Query createIndexQuery() {
+        final Column[] queryOutputColumns = getQueryOutputColumns(false);
+        final Query query = new Query().from(queryOutputColumns[0].getTable()).select(queryOutputColumns);
+        if (!isCarthesianProductMode()) {
+            query.select(getQueryConditionColumns());
+        }
+        return query;
+    }
+
+    private TableLookupIndex createIndex() {
+        return new TableLookupIndex(getQueryConditionColumns(), getQueryOutputColumns(false).length);
+    }
+
+    private TableLookupIndex preloadLookupTable() {
+        final Query query = createIndexQuery();
+        query.setMaxRows(preloadMaxRows == Integer.MAX_VALUE ? preloadMaxRows : preloadMaxRows + 1);
+
+        final TableLookupIndex index = createIndex();
+        try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(query)) {
+            while (dataSet.next()) {
+                if (index.getRecordCount() >= preloadMaxRows) {
+                    logger.info("Lookup table has more than {} records, falling back to a query per lookup",
+                            preloadMaxRows);
+                    return null;
+                }
+                index.add(dataSet.getRow());
+            }
+        }
+        logger.info("Preloaded {} records of lookup table", index.getRecordCount());
+        return index;
+    }
+
+    /**
+     * Looks up a batch of condition values with a single query, selecting all
+     * lookup records where the condition columns are IN the batch's values.
+     */
+    private void lookupBatch(final BatchSource<List<Object>> source, final BatchSink<List<Object[]>> sink) {
+        final Column[] queryConditionColumns = getQueryConditionColumns();
+
+        // null never equals anything in a query, so such lookups are misses
+        final Set<List<Object>> conditionValues = new LinkedHashSet<>();
+        for (int i = 0; i < source.size(); i++) {
+            final List<Object> input = source.getInput(i);
+            if (!input.contains(null)) {
+                conditionValues.add(input);
+            }
+        }
+
+        final TableLookupIndex index = createIndex();
+        if (!conditionValues.isEmpty()) {
+            final Query query = createIndexQuery();
+            if (queryConditionColumns.length == 1) {
+                final List<Object> values = new ArrayList<>(conditionValues.size());
+                for (final List<Object> input : conditionValues) {
+                    values.add(input.get(0));
+                }
+                query.where(queryConditionColumns[0], OperatorType.IN, values);
+            } else {
+                final FilterItem[] orItems = new FilterItem[conditionValues.size()];
+                int i = 0;
+                for (final List<Object> input : conditionValues) {
+                    final FilterItem[] andItems = new FilterItem[queryConditionColumns.length];
+                    for (int j = 0; j < andItems.length; j++) {
+                        andItems[j] = new FilterItem(new SelectItem(queryConditionColumns[j]), OperatorType.EQUALS_TO,
+                                input.get(j));
+                    }
+                    orItems[i++] = new FilterItem(LogicalOperator.AND, andItems);
+                }
+                query.where(new FilterItem(orItems));
+            }
+
+            try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(query)) {
+                while (dataSet.next()) {
+                    index.add(dataSet.getRow());
+                }
+            }
+        }
+
+        for (int i = 0; i < source.size(); i++) {
+            List<Object[]> records = index.get(source.getInput(i));
+            if (joinSemantic == JoinSemantic.LEFT_JOIN_MAX_ONE && records.size() > 1) {
+                records = records.subList(0, 1);
+            }
+            sink.setOutput(i, records);
+        }
     }
 
     private void compileLookupQuery() {
@@ -356,43 +513,174 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
 
     @Override
     public Object[] transform(final InputRow inputRow) {
-        final List<Object> queryInput;
+        final List<Object[]> records = lookup(inputRow, getQueryInput(inputRow));
+
+        if (joinSemantic == JoinSemantic.LEFT_JOIN_MAX_ONE) {
+            return records.isEmpty() ? new Object[outputColumns.length] : records.get(0);
+        }
+        if (records.isEmpty()) {
+            return joinSemantic == JoinSemantic.LEFT_JOIN ? new Object[outputColumns.length] : null;
+        }
+        for (final Object[] record : records) {
+            outputRowCollector.putValues(record);
+        }
+        return null;
+    }
+
+    @Override
+    public void transformAsync(final InputRow inputRow, final BatchCallback<Collection<Object[]>> callback) {
+        final List<Object[]> records;
+        try {
+            final List<Object> queryInput = getQueryInput(inputRow);
+            if (batchBuffer != null) {
+                final List<Object[]> cachedRecords = getCachedRecords(inputRow, queryInput);
+                if (cachedRecords == null) {
+                    // hand over the lookup to the batch without blocking
+                    batchBuffer.transformAsync(queryInput, new BatchCallback<List<Object[]>>() {
+                        @Override
+                        public void onResult(final List<Object[]> output) {
+                            final List<Object[]> lookedUpRecords = onLookedUp(inputRow, queryInput, output);
+                            callback.onResult(toOutputRows(lookedUpRecords));
+                        }
+
+                        @Override
+                        public void onError(final Throwable error) {
+                            callback.onError(error);
+                        }
+                    });
+                    return;
+                }
+                records = cachedRecords;
+            } else {
+                records = lookup(inputRow, queryInput);
+            }
+        } catch (final RuntimeException e) {
+            callback.onError(e);
+            return;
+        }
+        callback.onResult(toOutputRows(records));
+    }
+
+    /**
+     * Gets the metrics of the batched lookups.
+     *
+     * @return the metrics, or null if lookups are not batched
+     */
+    @Override
+    public BatchTransformationMetrics getBatchMetrics() {
+        if (batchBuffer == null) {
+            return null;
+        }
+        return batchBuffer.getMetrics();
+    }
 
+    private List<Object> getQueryInput(final InputRow inputRow) {
         if (isCarthesianProductMode()) {
-            queryInput = Collections.emptyList();
-        } else {
-            queryInput = new ArrayList<>(conditionValues.length);
-            for (final InputColumn<?> inputColumn : conditionValues) {
-                final Object value = inputRow.getValue(inputColumn);
-                queryInput.add(value);
+            return Collections.emptyList();
+        }
+        final List<Object> queryInput = new ArrayList<>(conditionValues.length);
+        for (final InputColumn<?> inputColumn : conditionValues) {
+            final Object value = inputRow.getValue(inputColumn);
+            queryInput.add(value);
+        }
+        return queryInput;
+    }
+
+    /**
+     * Converts the looked up records into the output rows of a record, as
+     * prescribed by the join semantic.
+     */
+    private Collection<Object[]> toOutputRows(final List<Object[]> records) {
+        if (records.isEmpty()) {
+            if (joinSemantic == JoinSemantic.INNER_JOIN) {
+                return Collections.emptyList();
             }
+            return Collections.singletonList(new Object[outputColumns.length]);
+        }
+        if (joinSemantic == JoinSemantic.LEFT_JOIN_MAX_ONE) {
+            return Collections.singletonList(records.get(0));
         }
+        return records;
+    }
 
+    /**
+     * Looks up the records matching a set of condition values, blocking until
+     * they are available.
+     */
+    private List<Object[]> lookup(final InputRow row, final List<Object> queryInput) {
         logger.info("Looking up based on condition values: {}", queryInput);
 
-        Object[] result;
-        if (cacheLookups && joinSemantic.isCacheable()) {
-            result = cache.getIfPresent(queryInput);
-            if (result == null) {
-                result = performQuery(inputRow, queryInput);
-                cache.put(queryInput, result);
-            } else {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Returning cached lookup result: {}", Arrays.toString(result));
-                }
-                // normally performQuery(...) handles row annotation, but this
-                // if-else branch does not call performQuery(...) so we manually
-                // do it here too.
-                _annotationFactory.annotate(inputRow, 1, _cached);
+        final List<Object[]> cachedRecords = getCachedRecords(row, queryInput);
+        if (cachedRecords != null) {
+            return cachedRecords;
+        }
+
+        final List<Object[]> records;
+        if (batchBuffer != null) {
+            records = batchBuffer.transform(queryInput);
+        } else {
+            records = performQuery(queryInput);
+        }
+        return onLookedUp(row, queryInput, records);
+    }
+
+    /**
+     * Gets the records of a lookup which can be resolved without querying,
+     * either from the preloaded lookup table or the client-side cache.
+     *
+     * @return the records, or null if a query is needed
+     */
+    private List<Object[]> getCachedRecords(final InputRow row, final List<Object> queryInput) {
+        if (preloadedIndex != null) {
+            final List<Object[]> records = preloadedIndex.get(queryInput);
+            _annotationFactory.annotate(row, 1, records.isEmpty() ? _misses : _matches);
+            _annotationFactory.annotate(row, 1, _cached);
+            return records;
+        }
+
+        if (!cacheLookups) {
+            return null;
+        }
+
+        final List<Object[]> records = cache.getIfPresent(queryInput);
+        if (records != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Returning cached lookup result: {} records", records.size());
             }
+            // normally onLookedUp(...) handles row annotation, but cached
+            // results bypass it so we manually do it here too.
+            _annotationFactory.annotate(row, 1, _cached);
+        }
+        return records;
+    }
+
+    private List<Object[]> onLookedUp(final InputRow row, final List<Object> queryInput,
+            final List<Object[]> records) {
+        if (records.isEmpty()) {
+            logger.info("Result of lookup: None!");
+            _annotationFactory.annotate(row, 1, _misses);
         } else {
-            result = performQuery(inputRow, queryInput);
+            _annotationFactory.annotate(row, 1, _matches);
         }
 
-        return result;
+        if (isCacheReported()) {
+            _annotationFactory.annotate(row, 1, _notCached);
+        }
+        if (cacheLookups) {
+            cache.put(queryInput, records);
+        }
+        return records;
     }
 
-    private Object[] performQuery(final InputRow row, final List<Object> queryInput) {
+    /**
+     * Determines if lookups are (potentially) resolved without querying, in
+     * which case the result tells how many lookups were cached and not cached.
+     */
+    private boolean isCacheReported() {
+        return cacheLookups || lookupMode == LookupMode.PRELOADED;
+    }
+
+    private List<Object[]> performQuery(final List<Object> queryInput) {
         try {
             final Column[] queryConditionColumns = getQueryConditionColumns();
 
@@ -402,7 +690,15 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             }
 
             try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(lookupQuery, parameterValues)) {
-                return handleDataSet(row, dataSet);
+                final List<Object[]> records = new ArrayList<>(1);
+                while (dataSet.next()) {
+                    final Object[] result = dataSet.getRow().getValues();
+                    if (logger.isInfoEnabled()) {
+                        logger.info("Result of lookup: " + Arrays.toString(result));
+                    }
+                    records.add(result);
+                }
+                return records;
             }
         } catch (final RuntimeException e) {
             logger.error("Error occurred while looking up based on conditions: " + queryInput, e);
@@ -410,42 +706,13 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         }
     }
 
-    private Object[] handleDataSet(final InputRow row, final DataSet dataSet) {
-        if (!dataSet.next()) {
-
-            logger.info("Result of lookup: None!");
-            _annotationFactory.annotate(row, 1, _misses);
-
-            switch (joinSemantic) {
-            case LEFT_JOIN_MAX_ONE:
-            case LEFT_JOIN:
-                return new Object[outputColumns.length];
-            default:
-                return null;
-            }
-        }
-
-        _annotationFactory.annotate(row, 1, _matches);
-
-        do {
-            final Object[] result = dataSet.getRow().getValues();
-            if (logger.isInfoEnabled()) {
-                logger.info("Result of lookup: " + Arrays.toString(result));
-            }
-            switch (joinSemantic) {
-            case LEFT_JOIN_MAX_ONE:
-                return result;
-            default:
-                outputRowCollector.putValues(result);
-            }
-
-        } while (dataSet.next());
-
-        return null;
-    }
-
     @Close
     public void close() {
+        if (batchBuffer != null) {
+            batchBuffer.shutdown();
+            batchBuffer = null;
+        }
+        preloadedIndex = null;
         if (lookupQuery != null) {
             lookupQuery.close();
             lookupQuery = null;
@@ -454,7 +721,9 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             datastoreConnection.close();
             datastoreConnection = null;
         }
-        cache.invalidateAll();
+        if (cache != null) {
+            cache.invalidateAll();
+        }
         queryOutputColumns = null;
         queryConditionColumns = null;
     }
@@ -464,8 +733,9 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         final Map<String, RowAnnotation> categories = new LinkedHashMap<>();
         categories.put("Match", _matches);
         categories.put("Miss", _misses);
-        if (cacheLookups) {
+        if (isCacheReported()) {
             categories.put("Cached", _cached);
+            categories.put("Not cached", _notCached);
         }
         return new CategorizationResult(_annotationFactory, categories);
     }
@@ -51,10 +51,24 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
 
     private final Row _row;
     private final long _id;
+    private final transient RowLayout _layout;
 
     public MetaModelInputRow(final long rowNumber, final Row row) {
+        this(rowNumber, row, null);
+    }
+
+    /**
+     * Constructs a {@link MetaModelInputRow} with a compiled {@link RowLayout}
+     * whose physical slots match the select items of the row.
+     *
+     * @param rowNumber
+     * @param row
+     * @param layout
+     */
+    public MetaModelInputRow(final long rowNumber, final Row row, final RowLayout layout) {
         _id = rowNumber;
         _row = row;
+        _layout = layout;
     }
 
     @Override
@@ -85,11 +99,23 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
         return _row;
     }
 
+    /**
+     * Gets the compiled {@link RowLayout} of this row, if any.
+     *
+     * @return the layout, or null if the row has no compiled layout
+     */
+    public RowLayout getRowLayout() {
+        return _layout;
+    }
+
     @Override
     public boolean containsInputColumn(final InputColumn<?> inputColumn) {
         if (!inputColumn.isPhysicalColumn()) {
             return false;
         }
+        if (_layout != null && _layout.getPhysicalSlot(inputColumn) != -1) {
+            return true;
+        }
         final Column physicalColumn = inputColumn.getPhysicalColumn();
         final List<SelectItem> selectItems = _row.getSelectItems();
         for (final SelectItem selectItem : selectItems) {
@@ -109,8 +135,13 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
         if (!column.isPhysicalColumn()) {
             return null;
         }
-        final Column physicalColumn = column.getPhysicalColumn();
-        Object value = _row.getValue(physicalColumn);
+        Object value;
+        final int slot = _layout == null ? -1 : _layout.getPhysicalSlot(column);
+        if (slot == -1) {
+            value = _row.getValue(column.getPhysicalColumn());
+        } else {
+            value = _row.getValue(slot);
+        }
 
         value = convertValue(value);
 
@@ -0,0 +1,168 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+
+/**
+ * A compiled layout of the values of the rows flowing through a row processing
+ * publisher. Every physical column (by its index in the source row) and every
+ * virtual column (produced by a transformer) is assigned a fixed slot, so that
+ * {@link InputRow} implementations can store and look up values in flat arrays
+ * instead of per-row maps and select item searches.
+ *
+ * Slots are looked up by object identity first, which is what the components
+ * of a single job almost always use, and fall back to regular equality.
+ *
+ * Instances are immutable and can be shared by all rows and threads.
+ */
+public final class RowLayout {
+
+    private static final RowLayout EMPTY = new RowLayout(Collections.emptyList(), Collections.emptyList());
+
+    private final Map<Column, Integer> _physicalSlotsByIdentity;
+    private final Map<Column, Integer> _physicalSlots;
+    private final Map<InputColumn<?>, Integer> _virtualSlotsByIdentity;
+    private final Map<InputColumn<?>, Integer> _virtualSlots;
+    private final List<InputColumn<?>> _virtualColumns;
+
+    private RowLayout(final List<SelectItem> selectItems, final List<InputColumn<?>> virtualColumns) {
+        _physicalSlotsByIdentity = new IdentityHashMap<>();
+        _physicalSlots = new HashMap<>();
+        for (int i = 0; i < selectItems.size(); i++) {
+            final SelectItem selectItem = selectItems.get(i);
+            final Column column = selectItem.getColumn();
+            if (column != null && selectItem.getAggregateFunction() == null && !_physicalSlots.containsKey(column)) {
+                _physicalSlotsByIdentity.put(column, i);
+                _physicalSlots.put(column, i);
+            }
+        }
+
+        _virtualColumns = virtualColumns;
+        _virtualSlotsByIdentity = new IdentityHashMap<>();
+        _virtualSlots = new HashMap<>();
+        for (int i = 0; i < virtualColumns.size(); i++) {
+            final InputColumn<?> column = virtualColumns.get(i);
+            _virtualSlotsByIdentity.put(column, i);
+            _virtualSlots.put(column, i);
+        }
+    }
+
+    /**
+     * Gets a layout without any slots.
+     *
+     * @return
+     */
+    public static RowLayout empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles a layout for a set of virtual columns. Duplicate and physical
+     * columns are ignored.
+     *
+     * @param virtualColumns
+     * @return
+     */
+    public static RowLayout compile(final Collection<? extends InputColumn<?>> virtualColumns) {
+        final List<InputColumn<?>> columns = new ArrayList<>(virtualColumns.size());
+        for (final InputColumn<?> column : virtualColumns) {
+            if (column.isVirtualColumn() && !columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return new RowLayout(Collections.emptyList(), Collections.unmodifiableList(columns));
+    }
+
+    /**
+     * Creates a layout with the same virtual slots as this layout, and
+     * physical slots for the columns of a source row (typically the select
+     * items of a {@link org.apache.metamodel.data.DataSet}).
+     *
+     * @param selectItems
+     * @return
+     */
+    public RowLayout withPhysicalColumns(final List<SelectItem> selectItems) {
+        return new RowLayout(selectItems, _virtualColumns);
+    }
+
+    /**
+     * Gets the slot of a physical column, which is the index of the column's
+     * value in the source row.
+     *
+     * @param column
+     * @return the slot of the column, or -1 if the column has no slot
+     */
+    public int getPhysicalSlot(final InputColumn<?> column) {
+        final Column physicalColumn = column.getPhysicalColumn();
+        if (physicalColumn == null) {
+            return -1;
+        }
+        Integer slot = _physicalSlotsByIdentity.get(physicalColumn);
+        if (slot == null) {
+            slot = _physicalSlots.get(physicalColumn);
+            if (slot == null) {
+                return -1;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the slot of a virtual column.
+     *
+     * @param column
+     * @return the slot of the column, or -1 if the column has no slot
+     */
+    public int getVirtualSlot(final InputColumn<?> column) {
+        Integer slot = _virtualSlotsByIdentity.get(column);
+        if (slot == null) {
+            slot = _virtualSlots.get(column);
+            if (slot == null) {
+                return -1;
+            }
+        }
+        return slot;
+    }
+
+    public int getVirtualSlotCount() {
+        return _virtualColumns.size();
+    }
+
+    public InputColumn<?> getVirtualColumn(final int slot) {
+        return _virtualColumns.get(slot);
+    }
+
+    @Override
+    public String toString() {
+        return "RowLayout[physicalSlots=" + _physicalSlots.size() + ",virtualColumns=" + _virtualColumns + "]";
+    }
+}
@@ -36,6 +36,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Represents a row with transformed values as well as a delegate row (typically
  * a {@link MetaModelInputRow} delegate).
+ *
+ * If the delegate row has a compiled {@link RowLayout}, the values of the
+ * layout's virtual columns are stored in a flat array, indexed by slot. Values
+ * of any other columns are stored in a map.
  */
 public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
 
@@ -43,9 +47,14 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
 
     private static final Logger logger = LoggerFactory.getLogger(TransformedInputRow.class);
 
+    // marks a slot holding a null value, as opposed to an empty slot
+    private static final Object NULL_VALUE = new Object();
+
     private final InputRow _delegate;
     private final Map<InputColumn<?>, Object> _values;
     private final long _id;
+    private final transient RowLayout _layout;
+    private final transient Object[] _slotValues;
 
     /**
      * Constructs a {@link TransformedInputRow} based on another row and a row
@@ -65,15 +74,33 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
             _id = rowId.longValue();
         }
         _values = new LinkedHashMap<>();
+        _layout = getRowLayout(delegate);
+        _slotValues = _layout == null ? null : new Object[_layout.getVirtualSlotCount()];
     }
 
     public TransformedInputRow(final InputRow delegate, final long rowId) {
+        this(delegate, rowId, getRowLayout(delegate));
+    }
+
+    private TransformedInputRow(final InputRow delegate, final long rowId, final RowLayout layout) {
         if (delegate == null) {
             throw new IllegalArgumentException("Delegate cannot be null");
         }
         _delegate = delegate;
         _id = rowId;
         _values = new LinkedHashMap<>();
+        _layout = layout;
+        _slotValues = layout == null ? null : new Object[layout.getVirtualSlotCount()];
+    }
+
+    private static RowLayout getRowLayout(final InputRow row) {
+        if (row instanceof TransformedInputRow) {
+            return ((TransformedInputRow) row)._layout;
+        }
+        if (row instanceof MetaModelInputRow) {
+            return ((MetaModelInputRow) row).getRowLayout();
+        }
+        return null;
     }
 
     /**
@@ -111,6 +138,43 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
         doReadObject(stream);
     }
 
+    /**
+     * Serializes slot values in the map based form, since the layout is not
+     * serialized.
+     *
+     * @return
+     */
+    private Object writeReplace() {
+        if (_slotValues == null) {
+            return this;
+        }
+        final TransformedInputRow replacement = new TransformedInputRow(_delegate, _id, null);
+        replacement._values.putAll(getTransformedValues());
+        return replacement;
+    }
+
+    private int getSlot(final InputColumn<?> inputColumn) {
+        if (_layout == null) {
+            return -1;
+        }
+        return _layout.getVirtualSlot(inputColumn);
+    }
+
+    private Map<InputColumn<?>, Object> getTransformedValues() {
+        if (_slotValues == null) {
+            return _values;
+        }
+        final Map<InputColumn<?>, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < _slotValues.length; i++) {
+            final Object value = _slotValues[i];
+            if (value != null) {
+                values.put(_layout.getVirtualColumn(i), value == NULL_VALUE ? null : value);
+            }
+        }
+        values.putAll(_values);
+        return values;
+    }
+
     @Override
     public long getId() {
         return _id;
@@ -118,8 +182,14 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
 
     @Override
     public boolean containsInputColumn(final InputColumn<?> inputColumn) {
-        if (inputColumn.isVirtualColumn() && _values.containsKey(inputColumn)) {
-            return true;
+        if (inputColumn.isVirtualColumn()) {
+            final int slot = getSlot(inputColumn);
+            if (slot != -1 && _slotValues[slot] != null) {
+                return true;
+            }
+            if (_values.containsKey(inputColumn)) {
+                return true;
+            }
         }
         return _delegate.containsInputColumn(inputColumn);
     }
@@ -128,7 +198,12 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
         if (inputColumn.isPhysicalColumn()) {
             throw new IllegalArgumentException("Cannot add physical column values to transformed InputRow.");
         }
-        _values.put(inputColumn, value);
+        final int slot = getSlot(inputColumn);
+        if (slot == -1) {
+            _values.put(inputColumn, value);
+        } else {
+            _slotValues[slot] = value == null ? NULL_VALUE : value;
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -138,6 +213,13 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
             logger.debug("Column is physical, delegating.");
             return _delegate.getValue(column);
         }
+        final int slot = getSlot(column);
+        if (slot != -1) {
+            final Object value = _slotValues[slot];
+            if (value != null) {
+                return value == NULL_VALUE ? null : (E) value;
+            }
+        }
         if (_values.containsKey(column)) {
             return (E) _values.get(column);
         }
@@ -151,16 +233,16 @@ public final class TransformedInputRow extends AbstractLegacyAwareInputRow {
     @Override
     public List<InputColumn<?>> getInputColumns() {
         final List<InputColumn<?>> inputColumns = _delegate.getInputColumns();
-        inputColumns.addAll(_values.keySet());
+        inputColumns.addAll(getTransformedInputColumns());
         return inputColumns;
     }
 
     public Set<InputColumn<?>> getTransformedInputColumns() {
-        return _values.keySet();
+        return getTransformedValues().keySet();
     }
 
     @Override
     public String toString() {
-        return "TransformedInputRow[values=" + _values + ",delegate=" + _delegate + "]";
+        return "TransformedInputRow[values=" + getTransformedValues() + ",delegate=" + _delegate + "]";
     }
 }
@@ -0,0 +1,231 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.datacleaner.job.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} implementation based on a work-stealing
+ * {@link ForkJoinPool}. Compared to the {@link MultiThreadedTaskRunner}, idle
+ * threads steal queued tasks from busy threads, which gives better core
+ * utilization when the cost of processing rows is skewed.
+ *
+ * Backpressure is applied by bounding the number of rows in flight (submitted
+ * but not yet processed) rather than the number of queue slots.
+ */
+public final class ForkJoinTaskRunner implements ScheduledTaskRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinTaskRunner.class);
+
+    private static final AtomicInteger poolNumber = new AtomicInteger(1);
+
+    private final ForkJoinPool _forkJoinPool;
+    private final ScheduledThreadPoolExecutor _executorScheduledService;
+    private final RowsInFlightLimiter _rowsInFlightLimiter;
+
+    /**
+     * Creates a {@link ForkJoinTaskRunner} with a parallelism equal to the
+     * number of available processors.
+     */
+    public ForkJoinTaskRunner() {
+        this(getDefaultParallelism());
+    }
+
+    public ForkJoinTaskRunner(final int parallelism) {
+        this(parallelism, getDefaultMaxRowsInFlight(parallelism));
+    }
+
+    /**
+     *
+     * @param parallelism
+     *            the targeted number of active threads
+     * @param maxRowsInFlight
+     *            the maximum number of rows that may be submitted but not yet
+     *            processed. When reached, submitting more rows will block.
+     */
+    public ForkJoinTaskRunner(final int parallelism, final int maxRowsInFlight) {
+        final String namePrefix = "analyzerbeans-forkjoin" + poolNumber.getAndIncrement() + "-thread-";
+        final ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            final ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(namePrefix + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        // async mode gives FIFO processing of tasks that are never joined,
+        // which is the case for all tasks in DataCleaner
+        _forkJoinPool = new ForkJoinPool(parallelism, threadFactory, null, true);
+        _rowsInFlightLimiter = new RowsInFlightLimiter(maxRowsInFlight);
+
+        _executorScheduledService = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+        _executorScheduledService.setMaximumPoolSize(50);
+    }
+
+    public static int getDefaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    public static int getDefaultMaxRowsInFlight(final int parallelism) {
+        return Math.max(1000, parallelism * 100);
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(final TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(final TaskRunnable taskRunnable) {
+        final int permits = _rowsInFlightLimiter.getPermits(taskRunnable.getTask());
+        _rowsInFlightLimiter.acquire(permits);
+        try {
+            _forkJoinPool.execute(() -> {
+                try {
+                    taskRunnable.run();
+                } finally {
+                    _rowsInFlightLimiter.release(permits);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            _rowsInFlightLimiter.release(permits);
+            logger.error("Unexpected rejected execution!", e);
+        }
+    }
+
+    @Override
+    public void runScheduled(final Task task, final TaskListener listener, final long initialDelay, final long delay,
+            final TimeUnit unit) {
+        logger.debug("Schedule task ({},{}), delay {} {}", task, listener, delay, unit);
+        runScheduled(new TaskRunnable(task, listener), initialDelay, delay, unit);
+    }
+
+    @Override
+    public void runScheduled(final TaskRunnable taskRunnable, final long initialDelay, final long delay,
+            final TimeUnit unit) {
+        logger.debug("Schedule task ({}), delay {} {}", taskRunnable, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(taskRunnable, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down fork/join pool");
+        _forkJoinPool.shutdown();
+        _executorScheduledService.shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        final Thread currentThread = Thread.currentThread();
+        if (currentThread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) currentThread).getPool() == _forkJoinPool) {
+            // a waiting worker (eg. a row processing publisher awaiting its
+            // rows) blocks in a managed way, so that the pool activates a
+            // spare worker to process the queued tasks in the meantime
+            try {
+                ForkJoinPool.managedBlock(new ShortWaitBlocker());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // external threads can help by executing queued tasks
+            _forkJoinPool.awaitQuiescence(1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the targeted number of active threads
+     */
+    public int getParallelism() {
+        return _forkJoinPool.getParallelism();
+    }
+
+    /**
+     * @return the maximum number of rows that may be in flight at any time
+     */
+    public int getMaxRowsInFlight() {
+        return _rowsInFlightLimiter.getMaxRowsInFlight();
+    }
+
+    /**
+     * @return the current number of rows that have been submitted but not yet
+     *         processed
+     */
+    public int getRowsInFlight() {
+        return _rowsInFlightLimiter.getRowsInFlight();
+    }
+
+    /**
+     * @return an estimate of the number of tasks currently queued (in worker
+     *         queues as well as external submission queues), but not yet
+     *         executing
+     */
+    public long getQueueDepth() {
+        return _forkJoinPool.getQueuedTaskCount() + _forkJoinPool.getQueuedSubmissionCount();
+    }
+
+    /**
+     * @return an estimate of the total number of tasks stolen from one
+     *         thread's work queue by another
+     */
+    public long getStealCount() {
+        return _forkJoinPool.getStealCount();
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return _forkJoinPool;
+    }
+
+    /**
+     * {@link ForkJoinPool.ManagedBlocker} which gives way for a short while.
+     */
+    private static final class ShortWaitBlocker implements ForkJoinPool.ManagedBlocker {
+
+        private boolean _waited = false;
+
+        @Override
+        public boolean block() {
+            LockSupport.parkNanos(100000);
+            _waited = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return _waited;
+        }
+    }
+}
@@ -20,7 +20,6 @@
 package org.datacleaner.job.concurrent;
 
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -62,29 +61,72 @@ public final class MultiThreadedTaskRunner implements ScheduledTaskRunner {
             }
             return true;
         }
+
+        boolean offerWithoutBlocking(final T task) {
+            return super.offer(task);
+        }
     }
 
+    /**
+     * The number of threads used when no explicit thread count is given.
+     */
+    public static final int DEFAULT_NUM_THREADS = 30;
+
     private static final Logger logger = LoggerFactory.getLogger(MultiThreadedTaskRunner.class);
     private final ThreadFactory _threadFactory;
-    private final ExecutorService _executorService;
+    private final ThreadPoolExecutor _executorService;
     private final ScheduledThreadPoolExecutor _executorScheduledService;
     private final int _numThreads;
-    private final BlockingQueue<Runnable> _workQueue;
+    private final int _rowBatchSize;
+    private final AlwaysBlockingQueue<Runnable> _workQueue;
 
     public MultiThreadedTaskRunner() {
-        this(30);
+        this(DEFAULT_NUM_THREADS);
     }
 
     public MultiThreadedTaskRunner(final int numThreads) {
-        _numThreads = numThreads;
-
-        // if all threads are busy, newly submitted tasks will be run by caller
-        final ThreadPoolExecutor.CallerRunsPolicy rejectionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
+        this(numThreads, 1);
+    }
 
+    /**
+     * Creates a {@link MultiThreadedTaskRunner} which dispatches rows in
+     * micro-batches.
+     *
+     * @param numThreads
+     *            the amount of threads in the thread pool
+     * @param rowBatchSize
+     *            the number of rows to hand over per row processing task. A
+     *            value of 1 means that every row is dispatched as a separate
+     *            task.
+     */
+    public MultiThreadedTaskRunner(final int numThreads, final int rowBatchSize) {
         // there will be a minimum task capacity of 1000, and preferably
         // numThreads * 10 (to avoid blocking buffer behaviour and to prepare
         // tasks for working threads in advance)
-        final int taskCapacity = Math.max(1000, numThreads * 10);
+        this(numThreads, rowBatchSize, Math.max(1000, numThreads * 10));
+    }
+
+    /**
+     * Creates a {@link MultiThreadedTaskRunner} with a specific capacity of
+     * queued tasks.
+     *
+     * @param numThreads
+     *            the amount of threads in the thread pool
+     * @param rowBatchSize
+     *            the number of rows to hand over per row processing task
+     * @param taskCapacity
+     *            the number of tasks that may be queued before submitting more
+     *            tasks blocks
+     */
+    public MultiThreadedTaskRunner(final int numThreads, final int rowBatchSize, final int taskCapacity) {
+        if (rowBatchSize < 1) {
+            throw new IllegalArgumentException("Row batch size must be a positive number, was: " + rowBatchSize);
+        }
+        _numThreads = numThreads;
+        _rowBatchSize = rowBatchSize;
+
+        // if all threads are busy, newly submitted tasks will be run by caller
+        final ThreadPoolExecutor.CallerRunsPolicy rejectionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
 
         _threadFactory = new DaemonThreadFactory();
 
@@ -117,6 +159,11 @@ public final class MultiThreadedTaskRunner implements ScheduledTaskRunner {
         return _numThreads;
     }
 
+    @Override
+    public int getRowBatchSize() {
+        return _rowBatchSize;
+    }
+
     @Override
     public void run(final Task task, final TaskListener listener) {
         logger.debug("run({},{})", task, listener);
@@ -129,6 +176,22 @@ public final class MultiThreadedTaskRunner implements ScheduledTaskRunner {
         executeInternal(taskRunnable);
     }
 
+    @Override
+    public boolean tryRun(final TaskRunnable taskRunnable) {
+        logger.debug("tryRun({})", taskRunnable);
+        if (_executorService.isShutdown()) {
+            return false;
+        }
+        if (_executorService.getPoolSize() < _numThreads) {
+            // a new thread is started for the task, without queueing it
+            executeInternal(taskRunnable);
+            return true;
+        }
+        // all threads are started, so the task can be put directly on the
+        // queue, bypassing the (blocking) submission of the executor service
+        return _workQueue.offerWithoutBlocking(taskRunnable);
+    }
+
     private void executeInternal(final TaskRunnable taskRunnable) {
         try {
             _executorService.execute(taskRunnable);
@@ -0,0 +1,121 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+import org.datacleaner.job.tasks.ConsumeRowBatchTask;
+import org.datacleaner.job.tasks.ConsumeRowTask;
+import org.datacleaner.job.tasks.Task;
+
+/**
+ * Applies backpressure to row processing by bounding the number of rows that
+ * are submitted to a {@link TaskRunner} but not yet fully processed. Only row
+ * consuming tasks are bounded - other tasks (initialization, result collection
+ * etc.) are never blocked, which prevents deadlocks between tasks that submit
+ * other tasks.
+ */
+final class RowsInFlightLimiter {
+
+    private final int _maxRowsInFlight;
+    private final Semaphore _semaphore;
+
+    public RowsInFlightLimiter(final int maxRowsInFlight) {
+        if (maxRowsInFlight < 1) {
+            throw new IllegalArgumentException(
+                    "Max rows in flight must be a positive number, was: " + maxRowsInFlight);
+        }
+        _maxRowsInFlight = maxRowsInFlight;
+        _semaphore = new Semaphore(maxRowsInFlight);
+    }
+
+    /**
+     * Gets the number of rows that a task represents in terms of in-flight
+     * rows.
+     *
+     * @param task
+     * @return
+     */
+    public int getPermits(final Task task) {
+        final int rows;
+        if (task instanceof ConsumeRowTask) {
+            rows = 1;
+        } else if (task instanceof ConsumeRowBatchTask) {
+            rows = ((ConsumeRowBatchTask) task).getRowCount();
+        } else {
+            rows = 0;
+        }
+        // a single batch may never wait for more than the total capacity
+        return Math.min(rows, _maxRowsInFlight);
+    }
+
+    /**
+     * Blocks until the requested number of permits is available. If invoked
+     * from within a {@link ForkJoinPool}, the pool is informed so that it may
+     * compensate for the blocked worker.
+     *
+     * @param permits
+     */
+    public void acquire(final int permits) {
+        if (permits == 0 || _semaphore.tryAcquire(permits)) {
+            return;
+        }
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean _acquired = false;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!_acquired) {
+                        _semaphore.acquire(permits);
+                        _acquired = true;
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    if (!_acquired) {
+                        _acquired = _semaphore.tryAcquire(permits);
+                    }
+                    return _acquired;
+                }
+            });
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for rows in flight to decrease", e);
+        }
+    }
+
+    public void release(final int permits) {
+        if (permits > 0) {
+            _semaphore.release(permits);
+        }
+    }
+
+    public int getMaxRowsInFlight() {
+        return _maxRowsInFlight;
+    }
+
+    public int getRowsInFlight() {
+        return _maxRowsInFlight - _semaphore.availablePermits();
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.datacleaner.job.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} for I/O-bound jobs, eg. jobs dominated by HTTP requests,
+ * table lookups or hostname resolution. Every task runs on its own virtual
+ * thread, so blocking components can keep thousands of requests outstanding
+ * without the need for per-component thread pools. The number of rows in flight
+ * is bounded by a configurable concurrency limit.
+ *
+ * Virtual threads are only available on Java 21 and later. On older runtimes
+ * this task runner falls back to an elastic pool of daemon platform threads,
+ * which is still bounded by the concurrency limit.
+ */
+public final class VirtualThreadTaskRunner implements ScheduledTaskRunner {
+
+    /**
+     * The concurrency limit used when no explicit limit is given.
+     */
+    public static final int DEFAULT_MAX_ROWS_IN_FLIGHT = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadTaskRunner.class);
+
+    private final ExecutorService _executorService;
+    private final ScheduledThreadPoolExecutor _executorScheduledService;
+    private final RowsInFlightLimiter _rowsInFlightLimiter;
+    private final boolean _virtualThreads;
+
+    public VirtualThreadTaskRunner() {
+        this(DEFAULT_MAX_ROWS_IN_FLIGHT);
+    }
+
+    /**
+     *
+     * @param maxRowsInFlight
+     *            the maximum number of rows that may be processed
+     *            concurrently. When reached, submitting more rows will block.
+     */
+    public VirtualThreadTaskRunner(final int maxRowsInFlight) {
+        _rowsInFlightLimiter = new RowsInFlightLimiter(maxRowsInFlight);
+
+        final ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+        if (virtualThreadExecutor == null) {
+            logger.info("Virtual threads not supported by the running JVM, using platform threads instead");
+            _executorService = Executors.newCachedThreadPool(new DaemonThreadFactory());
+            _virtualThreads = false;
+        } else {
+            _executorService = virtualThreadExecutor;
+            _virtualThreads = true;
+        }
+
+        _executorScheduledService = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+        _executorScheduledService.setMaximumPoolSize(50);
+    }
+
+    /**
+     * Creates an {@link ExecutorService} which starts a new virtual thread for
+     * each task, or returns null if the running JVM does not support virtual
+     * threads. Reflection is used since DataCleaner is built for Java 8.
+     *
+     * @return
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        } catch (final Exception e) {
+            logger.warn("Failed to create virtual thread executor, using platform threads instead", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(final TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(final TaskRunnable taskRunnable) {
+        final int permits = _rowsInFlightLimiter.getPermits(taskRunnable.getTask());
+        _rowsInFlightLimiter.acquire(permits);
+        try {
+            _executorService.execute(() -> {
+                try {
+                    taskRunnable.run();
+                } finally {
+                    _rowsInFlightLimiter.release(permits);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            _rowsInFlightLimiter.release(permits);
+            logger.error("Unexpected rejected execution!", e);
+        }
+    }
+
+    @Override
+    public void runScheduled(final Task task, final TaskListener listener, final long initialDelay, final long delay,
+            final TimeUnit unit) {
+        logger.debug("Schedule task ({},{}), delay {} {}", task, listener, delay, unit);
+        runScheduled(new TaskRunnable(task, listener), initialDelay, delay, unit);
+    }
+
+    @Override
+    public void runScheduled(final TaskRunnable taskRunnable, final long initialDelay, final long delay,
+            final TimeUnit unit) {
+        logger.debug("Schedule task ({}), delay {} {}", taskRunnable, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(taskRunnable, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down executor service");
+        _executorService.shutdown();
+        _executorScheduledService.shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        // threads are created on demand, so there is no queue of waiting tasks
+        // to help out with. Just give way for the processing threads.
+        LockSupport.parkNanos(100000);
+    }
+
+    /**
+     * @return whether or not tasks are executed on virtual threads (as
+     *         opposed to platform threads)
+     */
+    public boolean isVirtualThreads() {
+        return _virtualThreads;
+    }
+
+    /**
+     * @return the maximum number of rows that may be in flight at any time
+     */
+    public int getMaxRowsInFlight() {
+        return _rowsInFlightLimiter.getMaxRowsInFlight();
+    }
+
+    /**
+     * @return the current number of rows that have been submitted but not yet
+     *         processed
+     */
+    public int getRowsInFlight() {
+        return _rowsInFlightLimiter.getRowsInFlight();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        shutdown();
+    }
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.HasAnalyzerResult;
 import org.datacleaner.api.HasOutputDataStreams;
 import org.datacleaner.api.InputColumn;
@@ -160,14 +161,26 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
         try {
             consumeInternal(row, distinctCount, outcomes, chain);
         } catch (final RuntimeException e) {
-            final ComponentJob componentJob = getComponentJob();
-            if (_analysisListener == null) {
-                logger.error("Error occurred in component '" + componentJob + "' and no AnalysisListener is available",
-                        e);
-                throw e;
-            } else {
-                _analysisListener.errorInComponent(_analysisJob, componentJob, row, e);
-            }
+            handleConsumeError(row, e);
+        }
+    }
+
+    /**
+     * Reports an error that occurred while consuming a row. Subclasses which
+     * consume rows asynchronously use this to report errors the same way as
+     * errors thrown from {@link #consumeInternal(InputRow, int, FilterOutcomes, RowProcessingChain)}.
+     *
+     * @param row
+     * @param e
+     */
+    protected final void handleConsumeError(final InputRow row, final RuntimeException e) {
+        final ComponentJob componentJob = getComponentJob();
+        if (_analysisListener == null) {
+            logger.error("Error occurred in component '" + componentJob + "' and no AnalysisListener is available",
+                    e);
+            throw e;
+        } else {
+            _analysisListener.errorInComponent(_analysisJob, componentJob, row, e);
         }
     }
 
@@ -182,6 +195,43 @@ abstract class AbstractRowProcessingConsumer implements RowProcessingConsumer {
     protected abstract void consumeInternal(InputRow row, int distinctCount, FilterOutcomes outcomes,
             RowProcessingChain chain);
 
+    /**
+     * Determines if this consumer can consume rows in batches, using
+     * {@link #consumeBatch(ColumnBatch, FilterOutcomes[])}.
+     *
+     * @return
+     */
+    protected boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Consumes a batch of rows which are all satisfied for consumption by this
+     * consumer. Errors must be handled by the implementation, like in
+     * {@link #consume(InputRow, int, FilterOutcomes, RowProcessingChain)}.
+     *
+     * The default implementation consumes the rows one by one, which is only
+     * correct for consumers that pass on every row at most once.
+     *
+     * @param batch
+     *            a batch of rows containing (at least) the columns of
+     *            {@link #getRequiredInput()}
+     * @param outcomes
+     *            the {@link FilterOutcomes} of every row of the batch
+     * @return an array with an element for every row of the batch, containing
+     *         the row to pass on to the next consumer, or null if the row
+     *         should not be processed further
+     */
+    protected InputRow[] consumeBatch(final ColumnBatch batch, final FilterOutcomes[] outcomes) {
+        final InputRow[] result = new InputRow[batch.size()];
+        for (int i = 0; i < result.length; i++) {
+            final int index = i;
+            consume(batch.getRow(i), batch.getDistinctCount(i), outcomes[i],
+                    (row, distinctCount, rowOutcomes) -> result[index] = row);
+        }
+        return result;
+    }
+
     private boolean satisfiedInputsForConsume(final InputRow row, final FilterOutcomes outcomes) {
         if (_alwaysSatisfiedForConsume) {
             return _alwaysSatisfiedForConsume;
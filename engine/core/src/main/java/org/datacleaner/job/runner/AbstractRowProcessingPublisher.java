@@ -27,6 +27,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.metamodel.query.Query;
 import org.datacleaner.api.HasAnalyzerResult;
+import org.datacleaner.data.RowLayout;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.FilterOutcome;
@@ -41,6 +42,7 @@ import org.datacleaner.job.tasks.InitializeTask;
 import org.datacleaner.job.tasks.Task;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.util.SourceColumnFinder;
+import org.datacleaner.util.SystemProperties;
 
 public abstract class AbstractRowProcessingPublisher implements RowProcessingPublisher {
 
@@ -49,6 +51,8 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
     private final RowProcessingStream _stream;
     private final List<RowProcessingConsumer> _consumers;
     private final SourceColumnFinder _sourceColumnFinder;
+    private final ContinuationTracker _continuationTracker;
+    private volatile RowLayout _rowLayout;
 
     public AbstractRowProcessingPublisher(final RowProcessingPublishers publishers, final RowProcessingStream stream) {
         if (publishers == null) {
@@ -63,6 +67,8 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
         _sourceColumnFinder.addSources(stream.getAnalysisJob());
         _consumers = new ArrayList<>();
         _success = new AtomicBoolean(true);
+        _continuationTracker = new ContinuationTracker(publishers.getTaskRunner());
+        _rowLayout = RowLayout.empty();
     }
 
     @Override
@@ -114,6 +120,19 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
         return sorter.createProcessOrderedConsumerList();
     }
 
+    @Override
+    public final RowLayout getRowLayout() {
+        return _rowLayout;
+    }
+
+    @Override
+    public final void setRowLayout(final RowLayout rowLayout) {
+        if (rowLayout == null) {
+            throw new IllegalArgumentException("RowLayout cannot be null");
+        }
+        _rowLayout = rowLayout;
+    }
+
     @Override
     public final void registerConsumer(final RowProcessingConsumer consumer) {
         _consumers.add(consumer);
@@ -171,14 +190,37 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
         }
         final List<RowProcessingConsumer> consumers = queryOptimizer.getOptimizedConsumers();
         final Collection<? extends FilterOutcome> availableOutcomes = queryOptimizer.getOptimizedAvailableOutcomes();
-        return new ConsumeRowHandler(consumers, availableOutcomes);
+        final ConsumeRowHandler consumeRowHandler = new ConsumeRowHandler(consumers, availableOutcomes);
+        if (isAsyncContinuationsEnabled()) {
+            consumeRowHandler.setContinuationTracker(_continuationTracker);
+        }
+        return consumeRowHandler;
+    }
+
+    private boolean isAsyncContinuationsEnabled() {
+        return SystemProperties.getBoolean(SystemProperties.ROW_PROCESSING_ASYNC_CONTINUATIONS, false);
+    }
+
+    /**
+     * Waits until the number of records whose processing has been parked as
+     * continuations is below its limit. Subclasses invoke this before
+     * dispatching another record, so that parked records count against the
+     * records in flight.
+     */
+    protected final void awaitContinuationCapacity() {
+        _continuationTracker.awaitCapacity(getTaskRunner());
     }
 
     protected final Task createCollectResultTask(final RowProcessingConsumer consumer,
             final Queue<JobAndResult> resultQueue) {
         final Object component = consumer.getComponent();
         if (component instanceof HasAnalyzerResult) {
-            final HasAnalyzerResult<?> hasAnalyzerResult = (HasAnalyzerResult<?>) component;
+            final HasAnalyzerResult<?> hasAnalyzerResult;
+            if (consumer instanceof AnalyzerConsumer) {
+                hasAnalyzerResult = ((AnalyzerConsumer) consumer).getResultProducer();
+            } else {
+                hasAnalyzerResult = (HasAnalyzerResult<?>) component;
+            }
             final AnalysisListener analysisListener = _publishers.getAnalysisListener();
             return new CollectResultsTask(hasAnalyzerResult, _stream.getAnalysisJob(), consumer.getComponentJob(),
                     resultQueue, analysisListener);
@@ -207,6 +249,16 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
 
         final boolean success = processRowsInternal(analysisListener, rowProcessingMetrics);
 
+        // records parked by asynchronous consumers must be finished before the
+        // consumers are closed
+        _continuationTracker.awaitCompletion(getTaskRunner());
+        final Throwable continuationError = _continuationTracker.getError();
+        if (continuationError != null) {
+            analysisListener.errorUnknown(getAnalysisJob(), continuationError);
+            _success.set(false);
+            return;
+        }
+
         if (!success) {
             _success.set(false);
             return;
@@ -25,6 +25,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.TaskRunner;
 
 /**
@@ -80,9 +81,14 @@ public class AnalysisRunnerImpl implements AnalysisRunner {
             analysisListener.addDelegate(new InfoLoggingAnalysisListener());
         }
 
+        final TaskRunner configuredTaskRunner = _configuration.getEnvironment().getTaskRunner();
+        if (configuredTaskRunner instanceof ForkJoinTaskRunner && ForkJoinMetricsLoggingListener.isEnabled()) {
+            analysisListener
+                    .addDelegate(new ForkJoinMetricsLoggingListener((ForkJoinTaskRunner) configuredTaskRunner));
+        }
+
         // set up the task runner that is aware of errors
-        final TaskRunner taskRunner =
-                new ErrorAwareTaskRunnerWrapper(errorListener, _configuration.getEnvironment().getTaskRunner());
+        final TaskRunner taskRunner = new ErrorAwareTaskRunnerWrapper(errorListener, configuredTaskRunner);
 
         final boolean includedNonDistributed = isNonDistributedTasksIncluded();
 
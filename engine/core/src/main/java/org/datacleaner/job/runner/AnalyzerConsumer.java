@@ -19,19 +19,48 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.AnalyzerResultReducer;
+import org.datacleaner.api.ColumnBatch;
+import org.datacleaner.api.ColumnBatchException;
 import org.datacleaner.api.Concurrent;
+import org.datacleaner.api.HasAnalyzerResult;
+import org.datacleaner.api.HasOutputDataStreams;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.api.VectorizedAnalyzer;
+import org.datacleaner.descriptors.AnalyzerDescriptor;
+import org.datacleaner.descriptors.ComponentDescriptor;
+import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.job.AnalyzerJob;
 import org.datacleaner.job.FilterOutcomes;
+import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements RowProcessingConsumer {
 
+    private static final Logger logger = LoggerFactory.getLogger(AnalyzerConsumer.class);
+
     private final AnalyzerJob _analyzerJob;
     private final Analyzer<?> _analyzer;
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
+    private final boolean _perThreadInstances;
+    private final RowProcessingPublisher _publisher;
+    private final ThreadLocal<AtomicReference<Analyzer<?>>> _threadInstance;
+    private final Queue<AtomicReference<Analyzer<?>>> _threadInstanceReferences;
+    private final Queue<Analyzer<?>> _threadInstanceCopies;
+    private final AtomicBoolean _mainInstanceAssigned;
 
     public AnalyzerConsumer(final Analyzer<?> analyzer, final AnalyzerJob analyzerJob,
             final InputColumn<?>[] inputColumns, final RowProcessingPublisher publisher) {
@@ -39,7 +68,13 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         _analyzer = analyzer;
         _analyzerJob = analyzerJob;
         _inputColumns = inputColumns;
+        _publisher = publisher;
         _concurrent = determineConcurrent();
+        _perThreadInstances = !_concurrent && determinePerThreadInstances();
+        _threadInstance = new ThreadLocal<>();
+        _threadInstanceReferences = new ConcurrentLinkedQueue<>();
+        _threadInstanceCopies = new ConcurrentLinkedQueue<>();
+        _mainInstanceAssigned = new AtomicBoolean(false);
     }
 
     private boolean determineConcurrent() {
@@ -51,6 +86,24 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         return concurrent.value();
     }
 
+    /**
+     * Determines if the analyzer can be executed with one instance per thread.
+     * This requires that the partial results of the instances can be merged
+     * using a reducer, and that the analyzer does not publish any output data
+     * streams or consume multiple streams (which would require a single
+     * instance).
+     */
+    private boolean determinePerThreadInstances() {
+        if (!SystemProperties.getBoolean(SystemProperties.ANALYZER_PER_THREAD_INSTANCES, false)) {
+            return false;
+        }
+        final AnalyzerDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        if (descriptor.isMultiStreamComponent() || _analyzer instanceof HasOutputDataStreams) {
+            return false;
+        }
+        return descriptor.isDistributable() && descriptor.getResultReducerClass() != null;
+    }
+
     @Override
     public Analyzer<?> getComponent() {
         return _analyzer;
@@ -58,7 +111,17 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
 
     @Override
     public boolean isConcurrent() {
-        return _concurrent;
+        // with per-thread instances no synchronization is needed
+        return _concurrent || _perThreadInstances;
+    }
+
+    /**
+     * Determines if this consumer runs one analyzer instance per thread.
+     *
+     * @return
+     */
+    public boolean isPerThreadInstances() {
+        return _perThreadInstances;
     }
 
     @Override
@@ -69,10 +132,152 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
     @Override
     public void consumeInternal(final InputRow row, final int distinctCount, final FilterOutcomes outcomes,
             final RowProcessingChain chain) {
-        _analyzer.run(row, distinctCount);
+        if (_perThreadInstances) {
+            getThreadInstance().run(row, distinctCount);
+        } else {
+            _analyzer.run(row, distinctCount);
+        }
         chain.processNext(row, distinctCount, outcomes);
     }
 
+    @Override
+    protected boolean isVectorized() {
+        return _analyzer instanceof VectorizedAnalyzer;
+    }
+
+    @Override
+    protected InputRow[] consumeBatch(final ColumnBatch batch, final FilterOutcomes[] outcomes) {
+        final Analyzer<?> analyzer = _perThreadInstances ? getThreadInstance() : _analyzer;
+        try {
+            ((VectorizedAnalyzer<?>) analyzer).run(batch);
+        } catch (final ColumnBatchException e) {
+            handleConsumeError(batch.getRow(e.getRowIndex()), e.getCause());
+        } catch (final RuntimeException e) {
+            // the analyzer did not tell which of the rows caused the error, so
+            // it is reported once and without a row
+            handleConsumeError(null, e);
+        }
+
+        // analyzers do not affect the rows, so they are passed on regardless
+        final InputRow[] result = new InputRow[batch.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = batch.getRow(i);
+        }
+        return result;
+    }
+
+    private Analyzer<?> getThreadInstance() {
+        AtomicReference<Analyzer<?>> reference = _threadInstance.get();
+        if (reference == null) {
+            reference = new AtomicReference<>();
+            _threadInstance.set(reference);
+            _threadInstanceReferences.add(reference);
+        }
+        Analyzer<?> analyzer = reference.get();
+        if (analyzer == null) {
+            // the first thread gets the main instance, which is initialized
+            // like any other component
+            if (_mainInstanceAssigned.compareAndSet(false, true)) {
+                analyzer = _analyzer;
+            } else {
+                analyzer = createThreadInstanceCopy();
+                _threadInstanceCopies.add(analyzer);
+            }
+            reference.set(analyzer);
+        }
+        return analyzer;
+    }
+
+    private Analyzer<?> createThreadInstanceCopy() {
+        final AnalyzerDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        final Analyzer<?> analyzer = descriptor.newInstance();
+
+        logger.debug("Creating per-thread instance of {} for thread {}", _analyzerJob,
+                Thread.currentThread().getName());
+
+        // copies are treated like slave instances in a distributed execution
+        // - non-distributed initialization is only done on the main instance
+        final LifeCycleHelper lifeCycleHelper = getCopyLifeCycleHelper();
+        lifeCycleHelper.assignConfiguredProperties(descriptor, analyzer, _analyzerJob.getConfiguration());
+        lifeCycleHelper.assignProvidedProperties(descriptor, analyzer);
+        lifeCycleHelper.validate(descriptor, analyzer);
+        lifeCycleHelper.initialize(descriptor, analyzer);
+        return analyzer;
+    }
+
+    private LifeCycleHelper getCopyLifeCycleHelper() {
+        final LifeCycleHelper lifeCycleHelper = _publisher.getPublishers().getConsumerSpecificLifeCycleHelper(this);
+        return new LifeCycleHelper(lifeCycleHelper.getInjectionManager(), false);
+    }
+
+    @Override
+    public void closeComponentCopies(final boolean success) {
+        final AnalyzerDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        final LifeCycleHelper lifeCycleHelper = getCopyLifeCycleHelper();
+        Analyzer<?> analyzer;
+        while ((analyzer = _threadInstanceCopies.poll()) != null) {
+            lifeCycleHelper.close(descriptor, analyzer, success);
+        }
+
+        // the thread locals of pooled threads outlive the job, so they must not
+        // keep the analyzers reachable
+        AtomicReference<Analyzer<?>> reference;
+        while ((reference = _threadInstanceReferences.poll()) != null) {
+            reference.set(null);
+        }
+        _threadInstance.remove();
+    }
+
+    /**
+     * Gets the {@link HasAnalyzerResult} to collect the result of this
+     * consumer from. With per-thread instances, the returned object will merge
+     * the results of the instances using the analyzer's result reducer. The
+     * instances are only known once the rows have been processed, so this
+     * happens when the result is collected.
+     *
+     * @return
+     */
+    public HasAnalyzerResult<?> getResultProducer() {
+        if (!_perThreadInstances) {
+            return _analyzer;
+        }
+        return this::getReducedResult;
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnalyzerResult getReducedResult() {
+        if (_threadInstanceCopies.isEmpty()) {
+            return _analyzer.getResult();
+        }
+        final List<AnalyzerResult> results = new ArrayList<>(_threadInstanceCopies.size() + 1);
+        results.add(_analyzer.getResult());
+        for (final Analyzer<?> analyzer : _threadInstanceCopies) {
+            results.add(analyzer.getResult());
+        }
+
+        final Class<? extends AnalyzerResultReducer<?>> reducerClass =
+                _analyzerJob.getDescriptor().getResultReducerClass();
+        final ComponentDescriptor<? extends AnalyzerResultReducer<?>> reducerDescriptor =
+                Descriptors.ofComponent(reducerClass);
+
+        final LifeCycleHelper lifeCycleHelper = getCopyLifeCycleHelper();
+        final AnalyzerResultReducer<AnalyzerResult> reducer =
+                (AnalyzerResultReducer<AnalyzerResult>) reducerDescriptor.newInstance();
+
+        boolean success = false;
+        try {
+            lifeCycleHelper.assignProvidedProperties(reducerDescriptor, reducer);
+            lifeCycleHelper.initialize(reducerDescriptor, reducer);
+
+            logger.debug("Reducing {} per-thread results of {}", results.size(), _analyzerJob);
+            final AnalyzerResult reducedResult = reducer.reduce(results);
+            success = true;
+            return reducedResult;
+        } finally {
+            lifeCycleHelper.close(reducerDescriptor, reducer, success);
+        }
+    }
+
     @Override
     public AnalyzerJob getComponentJob() {
         return _analyzerJob;
@@ -0,0 +1,210 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.datacleaner.api.ColumnBatch;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.FilterOutcomes;
+
+/**
+ * Delegate execution object for {@link ConsumeRowHandler} when consuming a
+ * batch of rows. Where {@link ConsumeRowHandlerDelegate} takes every row
+ * depth-first through the chain of consumers, this delegate goes breadth-first:
+ * every consumer gets to process all the (satisfied) rows of the batch before
+ * the next consumer is invoked. Vectorized consumers (see
+ * {@link AbstractRowProcessingConsumer#isVectorized()}) receive the rows as
+ * {@link ColumnBatch}es, other consumers are invoked row by row.
+ */
+final class ConsumeRowBatchHandlerDelegate {
+
+    /**
+     * A row in the batch, along with its state in the chain.
+     */
+    private static final class Entry {
+
+        final InputRow row;
+        final int distinctCount;
+        final FilterOutcomes outcomes;
+
+        Entry(final InputRow row, final int distinctCount, final FilterOutcomes outcomes) {
+            this.row = row;
+            this.distinctCount = distinctCount;
+            this.outcomes = outcomes;
+        }
+    }
+
+    /**
+     * {@link RowProcessingChain} that collects the rows passed on by a
+     * consumer, to be processed by the next consumer.
+     */
+    private static final class CollectingChain implements RowProcessingChain {
+
+        private final List<Entry> _entries;
+
+        CollectingChain(final List<Entry> entries) {
+            _entries = entries;
+        }
+
+        @Override
+        public void processNext(final InputRow row, final int distinctCount, final FilterOutcomes outcomes) {
+            _entries.add(new Entry(row, distinctCount, outcomes));
+        }
+    }
+
+    private final List<RowProcessingConsumer> _consumers;
+    private final int _maxBatchSize;
+
+    public ConsumeRowBatchHandlerDelegate(final List<RowProcessingConsumer> consumers, final int maxBatchSize) {
+        _consumers = consumers;
+        _maxBatchSize = maxBatchSize;
+    }
+
+    public ConsumeRowResult consume(final List<InputRow> rows, final Supplier<FilterOutcomes> outcomesFactory,
+            final boolean collectResults) {
+        List<Entry> entries = new ArrayList<>(rows.size());
+        for (final InputRow row : rows) {
+            entries.add(new Entry(row, 1, outcomesFactory.get()));
+        }
+
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (entries.isEmpty()) {
+                break;
+            }
+            if (isVectorized(consumer)) {
+                entries = consumeVectorized((AbstractRowProcessingConsumer) consumer, entries);
+            } else {
+                entries = consumePerRow(consumer, entries);
+            }
+        }
+
+        if (!collectResults) {
+            return new ConsumeRowResult(new ArrayList<>(0), new ArrayList<>(0));
+        }
+        final List<InputRow> resultRecords = new ArrayList<>(entries.size());
+        final List<FilterOutcomes> resultOutcomes = new ArrayList<>(entries.size());
+        for (final Entry entry : entries) {
+            resultRecords.add(entry.row);
+            resultOutcomes.add(entry.outcomes);
+        }
+        return new ConsumeRowResult(resultRecords, resultOutcomes);
+    }
+
+    /**
+     * Determines if a consumer can be fed with {@link ColumnBatch}es.
+     *
+     * @param consumer
+     * @return
+     */
+    public static boolean isVectorized(final RowProcessingConsumer consumer) {
+        return consumer instanceof AbstractRowProcessingConsumer
+                && ((AbstractRowProcessingConsumer) consumer).isVectorized();
+    }
+
+    private List<Entry> consumePerRow(final RowProcessingConsumer consumer, final List<Entry> entries) {
+        final List<Entry> nextEntries = new ArrayList<>(entries.size());
+        final CollectingChain chain = new CollectingChain(nextEntries);
+        if (consumer.isConcurrent()) {
+            consumePerRow(consumer, entries, chain);
+        } else {
+            // lock once for the whole batch instead of once per row
+            synchronized (consumer) {
+                consumePerRow(consumer, entries, chain);
+            }
+        }
+        return nextEntries;
+    }
+
+    private void consumePerRow(final RowProcessingConsumer consumer, final List<Entry> entries,
+            final CollectingChain chain) {
+        for (final Entry entry : entries) {
+            if (consumer.satisfiedForConsume(entry.outcomes, entry.row)) {
+                consumer.consume(entry.row, entry.distinctCount, entry.outcomes, chain);
+            } else {
+                // jump to the next step
+                chain.processNext(entry.row, entry.distinctCount, entry.outcomes);
+            }
+        }
+    }
+
+    private List<Entry> consumeVectorized(final AbstractRowProcessingConsumer consumer, final List<Entry> entries) {
+        // the entries passed on, by position, so that the order of the rows is
+        // retained also when some of them are not satisfied for the consumer
+        final Entry[] nextEntries = new Entry[entries.size()];
+
+        final ColumnBatch batch =
+                new ColumnBatch(consumer.getRequiredInput(), Math.min(_maxBatchSize, entries.size()));
+        final int[] positions = new int[batch.getCapacity()];
+
+        for (int i = 0; i < entries.size(); i++) {
+            final Entry entry = entries.get(i);
+            if (consumer.satisfiedForConsume(entry.outcomes, entry.row)) {
+                positions[batch.size()] = i;
+                batch.add(entry.row, entry.distinctCount);
+                if (batch.isFull()) {
+                    flush(consumer, batch, positions, entries, nextEntries);
+                }
+            } else {
+                nextEntries[i] = entry;
+            }
+        }
+        flush(consumer, batch, positions, entries, nextEntries);
+
+        final List<Entry> result = new ArrayList<>(nextEntries.length);
+        for (final Entry entry : nextEntries) {
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private void flush(final AbstractRowProcessingConsumer consumer, final ColumnBatch batch, final int[] positions,
+            final List<Entry> entries, final Entry[] nextEntries) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final FilterOutcomes[] outcomes = new FilterOutcomes[batch.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = entries.get(positions[i]).outcomes;
+        }
+
+        final InputRow[] outputRows;
+        if (consumer.isConcurrent()) {
+            outputRows = consumer.consumeBatch(batch, outcomes);
+        } else {
+            synchronized (consumer) {
+                outputRows = consumer.consumeBatch(batch, outcomes);
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            final InputRow outputRow = outputRows[i];
+            if (outputRow != null) {
+                nextEntries[positions[i]] = new Entry(outputRow, batch.getDistinctCount(i), outcomes[i]);
+            }
+        }
+        batch.clear();
+    }
+}
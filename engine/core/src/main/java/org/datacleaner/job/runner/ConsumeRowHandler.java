@@ -22,12 +22,16 @@ package org.datacleaner.job.runner;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.metamodel.schema.Table;
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.api.VectorizedAnalyzer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.configuration.InjectionManager;
 import org.datacleaner.configuration.InjectionManagerFactory;
@@ -38,6 +42,7 @@ import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskListener;
 import org.datacleaner.job.tasks.Task;
 import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.util.batch.AsyncBatchTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +65,7 @@ public class ConsumeRowHandler {
     private static final Logger logger = LoggerFactory.getLogger(ConsumeRowHandler.class);
     private final List<RowProcessingConsumer> _consumers;
     private final Collection<? extends FilterOutcome> _alwaysSatisfiedOutcomes;
+    private ContinuationTracker _continuationTracker;
 
     /**
      * Builds a {@link ConsumeRowHandler} based on a job, and the configuration
@@ -106,6 +112,24 @@ public class ConsumeRowHandler {
         return _consumers;
     }
 
+    /**
+     * Sets a {@link ContinuationTracker} which allows consumers to park records
+     * as continuations instead of processing them synchronously. Note that the
+     * {@link ConsumeRowResult} returned by {@link #consumeRow(InputRow)} does
+     * not contain any rows in this mode, so the tracker should only be set when
+     * the result is not used, and it must be awaited before the consumers are
+     * closed.
+     *
+     * @param continuationTracker
+     */
+    public void setContinuationTracker(final ContinuationTracker continuationTracker) {
+        _continuationTracker = continuationTracker;
+    }
+
+    public ContinuationTracker getContinuationTracker() {
+        return _continuationTracker;
+    }
+
     /**
      * Gets the output columns produced by all the consumers of this
      * {@link ConsumeRowHandler}.
@@ -140,9 +164,113 @@ public class ConsumeRowHandler {
      * @return
      */
     public ConsumeRowResult consumeRow(final InputRow row) {
+        return consumeRowInternal(row, null);
+    }
+
+    /**
+     * Consumes a {@link InputRow} like {@link #consumeRow(InputRow)}, and
+     * invokes a callback when the row has been fully processed. If a
+     * {@link ContinuationTracker} is set, this may happen after this method
+     * returns, on another thread.
+     *
+     * @param row
+     * @param onProcessed
+     */
+    public void consumeRow(final InputRow row, final Runnable onProcessed) {
+        consumeRowInternal(row, onProcessed);
+    }
+
+    private ConsumeRowResult consumeRowInternal(final InputRow row, final Runnable onProcessed) {
         final FilterOutcomes outcomes = new FilterOutcomesImpl(_alwaysSatisfiedOutcomes);
-        final ConsumeRowHandlerDelegate delegate = new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes);
-        return delegate.consume();
+        if (_continuationTracker == null) {
+            final ConsumeRowResult result = new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes, null).consume();
+            if (onProcessed != null) {
+                onProcessed.run();
+            }
+            return result;
+        }
+
+        final ContinuationTracker rowTracker = _continuationTracker.forRow(onProcessed);
+        try {
+            return new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes, rowTracker).consume();
+        } finally {
+            rowTracker.complete();
+        }
+    }
+
+    /**
+     * Consumes a batch of {@link InputRow}s by applying all transformations
+     * etc. to them. If any of the consumers are vectorized (see
+     * {@link VectorizedAnalyzer} and {@link VectorizedTransformer}) the rows
+     * will be passed through the consumers breadth-first, handing the rows to
+     * the vectorized consumers as {@link ColumnBatch}es. Otherwise this is
+     * equivalent to invoking {@link #consumeRow(InputRow)} for every row.
+     *
+     * @param rows
+     * @return
+     */
+    public ConsumeRowResult consumeRows(final List<InputRow> rows) {
+        if (rows.size() < 2 || !isBatchConsumable()) {
+            final List<InputRow> resultRecords = new ArrayList<>(rows.size());
+            final List<FilterOutcomes> resultOutcomes = new ArrayList<>(rows.size());
+            for (final InputRow row : rows) {
+                final ConsumeRowResult result = consumeRow(row);
+                resultRecords.addAll(result.getRows());
+                resultOutcomes.addAll(result.getOutcomeSinks());
+            }
+            return new ConsumeRowResult(resultRecords, resultOutcomes);
+        }
+
+        final ConsumeRowBatchHandlerDelegate delegate =
+                new ConsumeRowBatchHandlerDelegate(_consumers, ColumnBatch.DEFAULT_CAPACITY);
+        return delegate.consume(rows, () -> new FilterOutcomesImpl(_alwaysSatisfiedOutcomes),
+                _continuationTracker == null);
+    }
+
+    /**
+     * Consumes a batch of {@link InputRow}s like {@link #consumeRows(List)},
+     * and invokes a callback when all the rows have been fully processed. If a
+     * {@link ContinuationTracker} is set, this may happen after this method
+     * returns, on another thread.
+     *
+     * @param rows
+     * @param onProcessed
+     */
+    public void consumeRows(final List<InputRow> rows, final Runnable onProcessed) {
+        if (_continuationTracker == null || rows.isEmpty() || isBatchConsumable()) {
+            consumeRows(rows);
+            onProcessed.run();
+            return;
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(rows.size());
+        final Runnable onRowProcessed = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                onProcessed.run();
+            }
+        };
+        for (final InputRow row : rows) {
+            consumeRowInternal(row, onRowProcessed);
+        }
+    }
+
+    /**
+     * Determines if batches of rows should be consumed breadth-first. This is
+     * only worth it if some consumer is vectorized, and is not done if records
+     * can be parked as continuations, since that requires the depth-first
+     * chain.
+     *
+     * @return
+     */
+    private boolean isBatchConsumable() {
+        boolean vectorized = false;
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (_continuationTracker != null && consumer.getComponent() instanceof AsyncBatchTransformer) {
+                return false;
+            }
+            vectorized = vectorized || ConsumeRowBatchHandlerDelegate.isVectorized(consumer);
+        }
+        return vectorized;
     }
 
     private List<RowProcessingConsumer> extractConsumers(final AnalysisJob analysisJob,
@@ -38,21 +38,23 @@ final class ConsumeRowHandlerDelegate implements RowProcessingChain {
     private final FilterOutcomes _outcomes;
     private final List<InputRow> _resultRecords;
     private final List<FilterOutcomes> _resultOutcomes;
+    private final ContinuationTracker _continuationTracker;
 
     public ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
-            final int consumerIndex, final FilterOutcomes outcomes) {
-        this(consumers, row, consumerIndex, outcomes, new ArrayList<>(1), new ArrayList<>(1));
+            final int consumerIndex, final FilterOutcomes outcomes, final ContinuationTracker continuationTracker) {
+        this(consumers, row, consumerIndex, outcomes, new ArrayList<>(1), new ArrayList<>(1), continuationTracker);
     }
 
     private ConsumeRowHandlerDelegate(final List<RowProcessingConsumer> consumers, final InputRow row,
             final int consumerIndex, final FilterOutcomes outcomes, final List<InputRow> resultRecords,
-            final List<FilterOutcomes> resultOutcomes) {
+            final List<FilterOutcomes> resultOutcomes, final ContinuationTracker continuationTracker) {
         _consumers = consumers;
         _row = row;
         _consumerIndex = consumerIndex;
         _outcomes = outcomes;
         _resultRecords = resultRecords;
         _resultOutcomes = resultOutcomes;
+        _continuationTracker = continuationTracker;
     }
 
     public ConsumeRowResult consume() {
@@ -80,14 +82,25 @@ final class ConsumeRowHandlerDelegate implements RowProcessingChain {
         final int nextIndex = _consumerIndex + 1;
         if (nextIndex >= _consumers.size()) {
             // finished!
+            if (_continuationTracker != null) {
+                // results may arrive concurrently from continuations, and are
+                // not collected in that mode
+                return;
+            }
             _resultRecords.add(row);
             _resultOutcomes.add(outcomes);
             return;
         }
 
         final ConsumeRowHandlerDelegate subDelegate =
-                new ConsumeRowHandlerDelegate(_consumers, row, nextIndex, outcomes, _resultRecords, _resultOutcomes);
+                new ConsumeRowHandlerDelegate(_consumers, row, nextIndex, outcomes, _resultRecords, _resultOutcomes,
+                        _continuationTracker);
         subDelegate.consume();
     }
 
+    @Override
+    public ContinuationTracker getContinuationTracker() {
+        return _continuationTracker;
+    }
+
 }
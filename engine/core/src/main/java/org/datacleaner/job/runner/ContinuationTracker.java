@@ -0,0 +1,196 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.concurrent.TaskRunner;
+
+/**
+ * Keeps track of records whose processing has been parked as a continuation,
+ * eg. while an {@link org.datacleaner.util.batch.AsyncBatchTransformer} waits
+ * for its batch to be executed. A {@link RowProcessingPublisher} uses it to
+ * make sure that all continuations have been resumed (and finished) before its
+ * consumers are closed.
+ *
+ * The tracker of a publisher counts the records that are not yet fully
+ * processed. Every record gets its own tracker (see
+ * {@link #forRow(Runnable)}) which counts the parked continuations of that
+ * record, and which signals the publisher's tracker when the last of them has
+ * finished.
+ */
+public final class ContinuationTracker {
+
+    /**
+     * The maximum number of records that may be pending (ie. not yet fully
+     * processed) before {@link #awaitCapacity(TaskRunner)} blocks.
+     */
+    public static final int MAX_PENDING_ROWS = 1000;
+
+    private static final long AWAIT_MILLIS = 10;
+
+    private final ContinuationTracker _parent;
+    private final TaskRunner _taskRunner;
+    private final Runnable _onComplete;
+    private final AtomicInteger _pendingCount;
+    private final AtomicReference<Throwable> _error = new AtomicReference<>();
+    private final Object _monitor = new Object();
+
+    /**
+     * Creates a tracker for a publisher.
+     *
+     * @param taskRunner
+     *            the {@link TaskRunner} that continuations are resumed on
+     */
+    public ContinuationTracker(final TaskRunner taskRunner) {
+        this(null, taskRunner, null, 0);
+    }
+
+    private ContinuationTracker(final ContinuationTracker parent, final TaskRunner taskRunner,
+            final Runnable onComplete, final int pendingCount) {
+        _parent = parent;
+        _taskRunner = taskRunner;
+        _onComplete = onComplete;
+        _pendingCount = new AtomicInteger(pendingCount);
+    }
+
+    /**
+     * Creates a tracker for a single record. The record counts as pending
+     * until {@link #complete()} has been invoked for the synchronous pass
+     * through the consumers, as well as for every continuation registered with
+     * {@link #begin()}.
+     *
+     * @param onComplete
+     *            invoked when the record has been fully processed, or null
+     * @return
+     */
+    public ContinuationTracker forRow(final Runnable onComplete) {
+        begin();
+        return new ContinuationTracker(this, _taskRunner, onComplete, 1);
+    }
+
+    /**
+     * Registers that a continuation has been parked.
+     */
+    public void begin() {
+        _pendingCount.incrementAndGet();
+    }
+
+    /**
+     * Registers that a parked continuation has finished.
+     */
+    public void complete() {
+        if (_pendingCount.decrementAndGet() == 0) {
+            if (_parent == null) {
+                synchronized (_monitor) {
+                    _monitor.notifyAll();
+                }
+                return;
+            }
+            try {
+                if (_onComplete != null) {
+                    _onComplete.run();
+                }
+            } catch (final RuntimeException e) {
+                fail(e);
+            } finally {
+                _parent.complete();
+            }
+        }
+    }
+
+    /**
+     * Resumes a parked continuation on the {@link TaskRunner}, rather than on
+     * the thread that happened to complete it (eg. a timer thread). If the
+     * task runner cannot take the continuation without blocking, it is run by
+     * the calling thread instead - waiting for the task runner could deadlock
+     * if the calling thread is one of the task runner's own threads.
+     *
+     * @param continuation
+     */
+    public void resume(final Runnable continuation) {
+        final TaskRunnable taskRunnable = new TaskRunnable(continuation::run, null);
+        if (!_taskRunner.tryRun(taskRunnable)) {
+            taskRunnable.run();
+        }
+    }
+
+    /**
+     * Registers an error that occurred while resuming a continuation. Only the
+     * first error is retained.
+     *
+     * @param error
+     */
+    public void fail(final Throwable error) {
+        if (_parent == null) {
+            _error.compareAndSet(null, error);
+        } else {
+            _parent.fail(error);
+        }
+    }
+
+    public Throwable getError() {
+        return _error.get();
+    }
+
+    public int getPendingCount() {
+        return _pendingCount.get();
+    }
+
+    /**
+     * Waits until fewer than {@link #MAX_PENDING_ROWS} records are pending.
+     * Invoked before dispatching more records, so that records with parked
+     * continuations count against the number of records in flight.
+     *
+     * @param taskRunner
+     */
+    public void awaitCapacity(final TaskRunner taskRunner) {
+        awaitPendingCountBelow(MAX_PENDING_ROWS, taskRunner);
+    }
+
+    /**
+     * Waits until all parked continuations have finished, assisting the
+     * {@link TaskRunner} in the meantime since continuations may themselves
+     * depend on queued tasks.
+     *
+     * @param taskRunner
+     */
+    public void awaitCompletion(final TaskRunner taskRunner) {
+        awaitPendingCountBelow(1, taskRunner);
+    }
+
+    private void awaitPendingCountBelow(final int limit, final TaskRunner taskRunner) {
+        while (_pendingCount.get() >= limit) {
+            taskRunner.assistExecution();
+            synchronized (_monitor) {
+                if (_pendingCount.get() >= limit) {
+                    try {
+                        _monitor.wait(AWAIT_MILLIS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -89,6 +89,11 @@ final class ErrorAwareTaskRunnerWrapper implements TaskRunner, ErrorAware {
         return _errorAware.isCancelled();
     }
 
+    @Override
+    public int getRowBatchSize() {
+        return _taskRunner.getRowBatchSize();
+    }
+
     @Override
     public void assistExecution() {
         if (!isErrornous() && !isCancelled()) {
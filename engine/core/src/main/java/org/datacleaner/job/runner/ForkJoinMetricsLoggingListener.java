@@ -0,0 +1,91 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AnalysisListener which logs the work-stealing metrics of a
+ * {@link ForkJoinTaskRunner} when a job has finished. The steal count is
+ * counted from the beginning of the job, but since the task runner may be
+ * shared by concurrent jobs, it is an estimate.
+ */
+final class ForkJoinMetricsLoggingListener extends AnalysisListenerAdaptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinMetricsLoggingListener.class);
+
+    private final ForkJoinTaskRunner _taskRunner;
+    private final AtomicBoolean _logged;
+    private volatile long _initialStealCount;
+
+    public ForkJoinMetricsLoggingListener(final ForkJoinTaskRunner taskRunner) {
+        _taskRunner = taskRunner;
+        _logged = new AtomicBoolean(false);
+        _initialStealCount = taskRunner.getStealCount();
+    }
+
+    /**
+     * @return whether or not the info logging level is enabled. Can be used to
+     *         find out of it is even feasable to add this listener or not.
+     */
+    public static boolean isEnabled() {
+        return logger.isInfoEnabled();
+    }
+
+    @Override
+    public void jobBegin(final AnalysisJob job, final AnalysisJobMetrics metrics) {
+        _initialStealCount = _taskRunner.getStealCount();
+    }
+
+    @Override
+    public void jobSuccess(final AnalysisJob job, final AnalysisJobMetrics metrics) {
+        logMetrics("success");
+    }
+
+    @Override
+    public void errorUnknown(final AnalysisJob job, final Throwable throwable) {
+        logMetrics("failure");
+    }
+
+    /**
+     * Gets the number of tasks stolen by the workers of the task runner since
+     * the job began.
+     *
+     * @return
+     */
+    public long getJobStealCount() {
+        return _taskRunner.getStealCount() - _initialStealCount;
+    }
+
+    private void logMetrics(final String outcome) {
+        if (!_logged.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info("Fork/join task runner metrics at job {}: {} tasks stolen, queue depth {}, "
+                        + "{} of max. {} rows in flight, parallelism {}", outcome, getJobStealCount(),
+                _taskRunner.getQueueDepth(), _taskRunner.getRowsInFlight(), _taskRunner.getMaxRowsInFlight(),
+                _taskRunner.getParallelism());
+    }
+}
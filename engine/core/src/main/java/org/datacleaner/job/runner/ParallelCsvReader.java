@@ -0,0 +1,520 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.csv.CsvConfiguration;
+import org.apache.metamodel.data.AbstractDataSet;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.util.FileResource;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.connection.CsvDatastore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opencsv.CSVParser;
+
+/**
+ * Splits the scan of a local {@link CsvDatastore} file into byte ranges which
+ * are aligned to line boundaries, so that each range can be read and parsed
+ * concurrently.
+ *
+ * A scan is only split if the CSV file is a local file, the encoding represents
+ * line breaks as single bytes, and the query is a plain projection of the
+ * table's columns (no where clause, ordering, grouping or row window).
+ *
+ * If the CSV file may have multiline values (the default of
+ * {@link CsvDatastore}), a line break only ends a record if it is not within a
+ * quoted value. The boundaries of the ranges are then found by scanning the
+ * whole file for quote characters, which is a lot cheaper than parsing it, but
+ * still reads the file once more.
+ */
+final class ParallelCsvReader {
+
+    /**
+     * The default minimum number of bytes in each range. Smaller files are
+     * split into fewer ranges (or not at all).
+     */
+    public static final long DEFAULT_MINIMUM_PARTITION_SIZE = 4 * 1024 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelCsvReader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    private final CsvDatastore _datastore;
+    private final long _minimumPartitionSize;
+
+    public ParallelCsvReader(final CsvDatastore datastore) {
+        this(datastore, DEFAULT_MINIMUM_PARTITION_SIZE);
+    }
+
+    public ParallelCsvReader(final CsvDatastore datastore, final long minimumPartitionSize) {
+        _datastore = datastore;
+        _minimumPartitionSize = Math.max(1, minimumPartitionSize);
+    }
+
+    /**
+     * Creates the partitions of a query.
+     *
+     * @param query
+     * @param partitionCount
+     * @return a list of (at least two) {@link DataSet} suppliers which together
+     *         return the same rows as the original query, or null if the query
+     *         cannot be partitioned
+     */
+    public List<Supplier<DataSet>> createPartitions(final Query query, final int partitionCount) {
+        if (partitionCount < 2) {
+            return null;
+        }
+
+        final CsvConfiguration csvConfiguration = _datastore.getCsvConfiguration();
+        if (csvConfiguration.isMultilineValues() && (!isSingleByte(csvConfiguration.getQuoteChar())
+                || !isSingleByte(csvConfiguration.getEscapeChar()))) {
+            logger.debug("Quote or escape characters of datastore {} are not ASCII, not partitioning file",
+                    _datastore);
+            return null;
+        }
+
+        final File file = getFile();
+        if (file == null) {
+            logger.debug("Datastore {} is not a local file, not partitioning file", _datastore);
+            return null;
+        }
+
+        final Charset charset = getCharset(csvConfiguration.getEncoding());
+        if (charset == null) {
+            logger.debug("Encoding {} does not have single byte line breaks, not partitioning file",
+                    csvConfiguration.getEncoding());
+            return null;
+        }
+
+        if (!isPlainProjection(query)) {
+            logger.debug("Query is not a plain table scan, not partitioning file: {}", query);
+            return null;
+        }
+
+        final List<SelectItem> selectItems = query.getSelectClause().getItems();
+        final int[] columnIndexes = new int[selectItems.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            columnIndexes[i] = selectItems.get(i).getColumn().getColumnNumber();
+        }
+        final int columnCount = query.getFromClause().getItem(0).getTable().getColumnCount();
+
+        final List<Long> boundaries;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            boundaries = getBoundaries(channel, csvConfiguration, charset, partitionCount);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to read CSV file: " + file, e);
+        }
+
+        if (boundaries.size() < 3) {
+            return null;
+        }
+
+        logger.info("Partitioning CSV file {} into {} byte ranges", file, boundaries.size() - 1);
+
+        final DataSetHeader header = new SimpleDataSetHeader(selectItems);
+        final List<Supplier<DataSet>> partitions = new ArrayList<>(boundaries.size() - 1);
+        for (int i = 1; i < boundaries.size(); i++) {
+            final long start = boundaries.get(i - 1);
+            final long end = boundaries.get(i);
+            partitions.add(() -> new RangeDataSet(header, file, start, end, charset, csvConfiguration, columnIndexes,
+                    columnCount));
+        }
+        return partitions;
+    }
+
+    private File getFile() {
+        final Resource resource = _datastore.getResource();
+        if (resource instanceof FileResource) {
+            final File file = ((FileResource) resource).getFile();
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSingleByte(final char c) {
+        return c < 0x80;
+    }
+
+    private static boolean isPlainProjection(final Query query) {
+        if (query.getFirstRow() != null || query.getMaxRows() != null) {
+            return false;
+        }
+        if (!query.getWhereClause().isEmpty() || !query.getOrderByClause().isEmpty()
+                || !query.getGroupByClause().isEmpty() || !query.getHavingClause().isEmpty()
+                || query.getSelectClause().isDistinct() || query.getFromClause().getItemCount() != 1
+                || query.getFromClause().getItem(0).getTable() == null) {
+            return false;
+        }
+        for (final SelectItem selectItem : query.getSelectClause().getItems()) {
+            if (selectItem.getColumn() == null || selectItem.getAggregateFunction() != null
+                    || selectItem.getScalarFunction() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the charset of the file, if line breaks in it are encoded as single
+     * bytes that cannot occur within other characters (such as in UTF-8 and
+     * ISO-8859 encodings).
+     */
+    private static Charset getCharset(final String encoding) {
+        final Charset charset;
+        try {
+            charset = Charset.forName(encoding);
+        } catch (final RuntimeException e) {
+            return null;
+        }
+        final byte[] lineBreakBytes = "\r\n".getBytes(charset);
+        if (!Arrays.equals(new byte[] { CARRIAGE_RETURN, LINE_FEED }, lineBreakBytes)) {
+            return null;
+        }
+        return charset;
+    }
+
+    /**
+     * Gets the offsets of the ranges of the file, starting with the offset of
+     * the first data record and ending with the file size. Every offset (except
+     * the last) is the start of a record.
+     */
+    private List<Long> getBoundaries(final FileChannel channel, final CsvConfiguration csvConfiguration,
+            final Charset charset, final int partitionCount) throws IOException {
+        final long size = channel.size();
+
+        long dataStart = 0;
+        if ("UTF-8".equals(charset.name()) && startsWith(channel, UTF8_BOM)) {
+            dataStart = UTF8_BOM.length;
+        }
+        final RecordScanner scanner = new RecordScanner(channel, size, dataStart, csvConfiguration);
+        final int headerLineNumber = csvConfiguration.getColumnNameLineNumber();
+        for (int i = 0; i < headerLineNumber && dataStart < size; i++) {
+            dataStart = scanner.findNextRecordStart(dataStart);
+        }
+
+        final List<Long> boundaries = new ArrayList<>(partitionCount + 1);
+        boundaries.add(dataStart);
+
+        final long dataSize = size - dataStart;
+        final int ranges = (int) Math.max(1, Math.min(partitionCount, dataSize / _minimumPartitionSize));
+        for (int i = 1; i < ranges; i++) {
+            final long nominalOffset = dataStart + dataSize * i / ranges;
+            final long previous = boundaries.get(boundaries.size() - 1);
+            final long boundary = scanner.findNextRecordStart(Math.max(previous, nominalOffset - 1));
+            if (boundary > previous && boundary < size) {
+                boundaries.add(boundary);
+            }
+        }
+
+        if (dataStart < size) {
+            boundaries.add(size);
+        }
+        return boundaries;
+    }
+
+    private static boolean startsWith(final FileChannel channel, final byte[] prefix) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(prefix.length);
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return Arrays.equals(prefix, buffer.array());
+    }
+
+    /**
+     * Finds the starts of records in a file. Without multiline values every
+     * line is a record, so only the bytes around the requested offsets are
+     * read. With multiline values the file is read sequentially, keeping track
+     * of whether a position is within a quoted value.
+     */
+    private static final class RecordScanner {
+
+        private static final int NO_CHAR = -1;
+
+        private final FileChannel _channel;
+        private final ByteBuffer _buffer;
+        private final long _size;
+        private final boolean _multiline;
+        private final int _quoteChar;
+        private final int _escapeChar;
+        private long _position;
+        private boolean _inQuotes;
+        private boolean _escaped;
+
+        RecordScanner(final FileChannel channel, final long size, final long start,
+                final CsvConfiguration csvConfiguration) {
+            _channel = channel;
+            _size = size;
+            _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            _buffer.limit(0);
+            _multiline = csvConfiguration.isMultilineValues();
+            _quoteChar = toByte(csvConfiguration.getQuoteChar());
+            final int escapeChar = toByte(csvConfiguration.getEscapeChar());
+            _escapeChar = escapeChar == _quoteChar ? NO_CHAR : escapeChar;
+            _position = start;
+        }
+
+        private static int toByte(final char c) {
+            if (c == CsvConfiguration.NOT_A_CHAR) {
+                return NO_CHAR;
+            }
+            return c;
+        }
+
+        /**
+         * Finds the offset right after the first line feed at or after the
+         * given offset which ends a record, or the file size if there is none.
+         * The offsets of subsequent invocations must not decrease.
+         */
+        long findNextRecordStart(final long offset) throws IOException {
+            if (!_multiline || _quoteChar == NO_CHAR) {
+                // every line feed ends a record, so the bytes before the offset need not be read
+                skipTo(offset);
+            }
+            while (_buffer.hasRemaining() || fillBuffer()) {
+                final long bytePosition = _position - _buffer.remaining();
+                final int b = _buffer.get() & 0xFF;
+                if (_escaped) {
+                    _escaped = false;
+                    if (b == _quoteChar || b == _escapeChar) {
+                        continue;
+                    }
+                }
+                if (_multiline) {
+                    if (b == _escapeChar) {
+                        _escaped = true;
+                        continue;
+                    }
+                    if (b == _quoteChar) {
+                        _inQuotes = !_inQuotes;
+                        continue;
+                    }
+                }
+                if (b == LINE_FEED && !_inQuotes && bytePosition >= offset) {
+                    return bytePosition + 1;
+                }
+            }
+            return _size;
+        }
+
+        private void skipTo(final long offset) {
+            if (offset <= _position - _buffer.remaining()) {
+                return;
+            }
+            if (offset < _position) {
+                _buffer.position((int) (offset - (_position - _buffer.limit())));
+            } else {
+                _buffer.limit(0);
+                _position = offset;
+            }
+        }
+
+        private boolean fillBuffer() throws IOException {
+            if (_position >= _size) {
+                return false;
+            }
+            _buffer.clear();
+            final int read = _channel.read(_buffer, _position);
+            _buffer.flip();
+            if (read <= 0) {
+                return false;
+            }
+            _position += read;
+            return true;
+        }
+    }
+
+    /**
+     * {@link DataSet} of the lines in a byte range of a CSV file, read through
+     * a direct buffer from its own {@link FileChannel}.
+     */
+    private static final class RangeDataSet extends AbstractDataSet {
+
+        private final FileChannel _channel;
+        private final ByteBuffer _buffer;
+        private final long _end;
+        private final Charset _charset;
+        private final CSVParser _parser;
+        private final boolean _multiline;
+        private final boolean _failOnInconsistentRowLength;
+        private final int[] _columnIndexes;
+        private final int _columnCount;
+        private long _position;
+        private byte[] _lineBytes;
+        private Row _row;
+
+        RangeDataSet(final DataSetHeader header, final File file, final long start, final long end,
+                final Charset charset, final CsvConfiguration csvConfiguration, final int[] columnIndexes,
+                final int columnCount) {
+            super(header);
+            try {
+                _channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Failed to open CSV file: " + file, e);
+            }
+            _buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            _buffer.limit(0);
+            _position = start;
+            _end = end;
+            _charset = charset;
+            _parser = new CSVParser(csvConfiguration.getSeparatorChar(), csvConfiguration.getQuoteChar(),
+                    csvConfiguration.getEscapeChar());
+            _multiline = csvConfiguration.isMultilineValues();
+            _failOnInconsistentRowLength = csvConfiguration.isFailOnInconsistentRowLength();
+            _columnIndexes = columnIndexes;
+            _columnCount = columnCount;
+            _lineBytes = new byte[256];
+        }
+
+        @Override
+        public boolean next() {
+            String line = readLineOrFail();
+            if (line == null) {
+                _row = null;
+                return false;
+            }
+
+            String[] values;
+            try {
+                if (_multiline) {
+                    // like in opencsv's CSVReader, the values of the lines of a record are combined
+                    values = _parser.parseLineMulti(line);
+                    while (_parser.isPending() && (line = readLineOrFail()) != null) {
+                        final String[] moreValues = _parser.parseLineMulti(line);
+                        final String[] combinedValues = Arrays.copyOf(values, values.length + moreValues.length);
+                        System.arraycopy(moreValues, 0, combinedValues, values.length, moreValues.length);
+                        values = combinedValues;
+                    }
+                } else {
+                    values = _parser.parseLine(line);
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException("Failed to parse CSV line: " + line, e);
+            }
+
+            if (_failOnInconsistentRowLength && values.length != _columnCount) {
+                throw new IllegalStateException(
+                        "Inconsistent row length: Expected " + _columnCount + " values but found " + values.length
+                                + " in line: " + line);
+            }
+
+            final Object[] rowValues = new Object[_columnIndexes.length];
+            for (int i = 0; i < _columnIndexes.length; i++) {
+                final int columnIndex = _columnIndexes[i];
+                if (columnIndex < values.length) {
+                    rowValues[i] = values[columnIndex];
+                }
+            }
+            _row = new DefaultRow(getHeader(), rowValues);
+            return true;
+        }
+
+        private String readLineOrFail() {
+            try {
+                return readLine();
+            } catch (final IOException e) {
+                throw new IllegalStateException("Failed to read CSV file", e);
+            }
+        }
+
+        private String readLine() throws IOException {
+            int length = 0;
+            boolean lineRead = false;
+            while (_buffer.hasRemaining() || fillBuffer()) {
+                lineRead = true;
+                final byte b = _buffer.get();
+                if (b == LINE_FEED) {
+                    break;
+                }
+                if (length == _lineBytes.length) {
+                    _lineBytes = Arrays.copyOf(_lineBytes, length * 2);
+                }
+                _lineBytes[length++] = b;
+            }
+            if (!lineRead) {
+                return null;
+            }
+            if (length > 0 && _lineBytes[length - 1] == CARRIAGE_RETURN) {
+                length--;
+            }
+            return new String(_lineBytes, 0, length, _charset);
+        }
+
+        private boolean fillBuffer() throws IOException {
+            if (_position >= _end) {
+                return false;
+            }
+            _buffer.clear();
+            final long remaining = _end - _position;
+            if (remaining < _buffer.capacity()) {
+                _buffer.limit((int) remaining);
+            }
+            final int read = _channel.read(_buffer, _position);
+            _buffer.flip();
+            if (read <= 0) {
+                return false;
+            }
+            _position += read;
+            return true;
+        }
+
+        @Override
+        public Row getRow() {
+            return _row;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            try {
+                _channel.close();
+            } catch (final IOException e) {
+                logger.warn("Failed to close CSV file channel", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits a source query into a number of key-range partitioned sub-queries,
+ * which can be executed concurrently on separate connections.
+ *
+ * A query is only split if it is executed on a {@link JdbcDatastore} that uses
+ * a connection pool, the queried table has a single numeric or date typed
+ * primary key, and the query has no row window (first row/max rows), ordering
+ * or grouping that would be broken by splitting it.
+ */
+final class ParallelScanPartitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelScanPartitioner.class);
+
+    private final Datastore _datastore;
+    private final DataContext _dataContext;
+
+    public ParallelScanPartitioner(final Datastore datastore, final DataContext dataContext) {
+        _datastore = datastore;
+        _dataContext = dataContext;
+    }
+
+    /**
+     * Creates the partitioned sub-queries of a query.
+     *
+     * @param query
+     * @param partitionCount
+     * @return a list of (at least two) queries which together return the same
+     *         rows as the original query, or null if the query cannot be
+     *         partitioned
+     */
+    public List<Query> createPartitionQueries(final Query query, final int partitionCount) {
+        if (partitionCount < 2) {
+            return null;
+        }
+
+        if (!isPooledJdbcDatastore()) {
+            logger.debug("Datastore {} has no connection pool, not partitioning query", _datastore);
+            return null;
+        }
+
+        if (query.getFirstRow() != null || query.getMaxRows() != null) {
+            // the row window has to be applied to the whole table
+            logger.debug("Query has a row window, not partitioning query: {}", query);
+            return null;
+        }
+
+        if (!query.getOrderByClause().isEmpty() || !query.getGroupByClause().isEmpty()
+                || !query.getHavingClause().isEmpty() || query.getSelectClause().isDistinct()
+                || query.getFromClause().getItemCount() != 1) {
+            logger.debug("Query is not a plain table scan, not partitioning query: {}", query);
+            return null;
+        }
+
+        final Table table = query.getFromClause().getItem(0).getTable();
+        if (table == null) {
+            return null;
+        }
+
+        final Column keyColumn = findKeyColumn(table);
+        if (keyColumn == null) {
+            logger.debug("No single numeric or date primary key in table {}, not partitioning query", table);
+            return null;
+        }
+
+        final List<Object> boundaries = getBoundaries(query, keyColumn, partitionCount);
+        if (boundaries == null || boundaries.isEmpty()) {
+            return null;
+        }
+
+        logger.info("Partitioning query on {} into {} key ranges", keyColumn.getName(), boundaries.size() + 1);
+
+        final SelectItem keyItem = new SelectItem(keyColumn);
+        final List<Query> queries = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            final Query partitionQuery = query.clone();
+            if (i == 0) {
+                // null keys belong to the first partition
+                final FilterItem isNullFilter = new FilterItem(keyItem, OperatorType.EQUALS_TO, null);
+                final FilterItem isLowerThanFilter =
+                        new FilterItem(keyItem, OperatorType.LESS_THAN, boundaries.get(0));
+                partitionQuery.where(new FilterItem(isNullFilter, isLowerThanFilter));
+            } else {
+                partitionQuery.where(keyColumn, OperatorType.GREATER_THAN_OR_EQUAL, boundaries.get(i - 1));
+                if (i < boundaries.size()) {
+                    partitionQuery.where(keyColumn, OperatorType.LESS_THAN, boundaries.get(i));
+                }
+            }
+            queries.add(partitionQuery);
+        }
+        return queries;
+    }
+
+    private boolean isPooledJdbcDatastore() {
+        if (!(_datastore instanceof JdbcDatastore)) {
+            return false;
+        }
+        final JdbcDatastore jdbcDatastore = (JdbcDatastore) _datastore;
+        if (jdbcDatastore.isMultipleConnections()) {
+            return true;
+        }
+        final String jndiUrl = jdbcDatastore.getDatasourceJndiUrl();
+        return jndiUrl != null && !jndiUrl.trim().isEmpty();
+    }
+
+    private Column findKeyColumn(final Table table) {
+        final List<Column> primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys.size() != 1) {
+            return null;
+        }
+        final Column primaryKey = primaryKeys.get(0);
+        final ColumnType type = primaryKey.getType();
+        if (type == null || !(type.isNumber() || type.isTimeBased())) {
+            return null;
+        }
+        return primaryKey;
+    }
+
+    /**
+     * Gets the boundaries of the key ranges, based on the lowest and highest
+     * key matched by the query. Boundaries are strictly increasing, so that no
+     * partition is empty by construction.
+     */
+    private List<Object> getBoundaries(final Query query, final Column keyColumn, final int partitionCount) {
+        final Query minMaxQuery = query.clone();
+        minMaxQuery.getSelectClause().removeItems();
+        minMaxQuery.select(new SelectItem(FunctionType.MIN, keyColumn), new SelectItem(FunctionType.MAX, keyColumn));
+
+        final Object min;
+        final Object max;
+        try (DataSet dataSet = _dataContext.executeQuery(minMaxQuery)) {
+            if (!dataSet.next()) {
+                return null;
+            }
+            final Row row = dataSet.getRow();
+            min = row.getValue(0);
+            max = row.getValue(1);
+        }
+
+        if (min == null || max == null) {
+            return null;
+        }
+
+        final ColumnType type = keyColumn.getType();
+        final double lowest = toDouble(min);
+        final double highest = toDouble(max);
+        final double width = (highest - lowest) / partitionCount;
+        if (Double.isNaN(width) || width <= 0) {
+            return null;
+        }
+
+        final List<Object> boundaries = new ArrayList<>(partitionCount - 1);
+        Object previous = null;
+        for (int i = 1; i < partitionCount; i++) {
+            final double position = lowest + width * i;
+            final Object boundary;
+            if (type.isTimeBased()) {
+                boundary = new Date((long) Math.ceil(position));
+            } else if (isIntegral(type)) {
+                boundary = (long) Math.ceil(position);
+            } else {
+                boundary = position;
+            }
+
+            if (previous == null || compare(previous, boundary) < 0) {
+                boundaries.add(boundary);
+                previous = boundary;
+            }
+        }
+        return boundaries;
+    }
+
+    private static double toDouble(final Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    private static int compare(final Object o1, final Object o2) {
+        return Double.compare(toDouble(o1), toDouble(o2));
+    }
+
+    private static boolean isIntegral(final ColumnType type) {
+        final Class<?> javaType = type.getJavaEquivalentClass();
+        return javaType == Integer.class || javaType == Long.class || javaType == Short.class
+                || javaType == Byte.class;
+    }
+}
@@ -29,4 +29,16 @@ import org.datacleaner.job.FilterOutcomes;
 public interface RowProcessingChain {
 
     void processNext(InputRow row, int distinctCount, FilterOutcomes outcomes);
+
+    /**
+     * Gets the {@link ContinuationTracker} that consumers can register parked
+     * continuations with, or null if the chain must be processed synchronously
+     * (ie. {@link #processNext(InputRow, int, FilterOutcomes)} must be invoked
+     * before the consumer returns).
+     *
+     * @return
+     */
+    default ContinuationTracker getContinuationTracker() {
+        return null;
+    }
 }
@@ -158,4 +158,16 @@ public interface RowProcessingConsumer {
      * @return
      */
     boolean isAllPublishersClosed();
+
+    /**
+     * Closes any additional instances of the component that the consumer has
+     * created internally, eg. for per-thread execution. The component returned
+     * by {@link #getComponent()} is not closed by this method.
+     *
+     * @param success
+     *            whether or not the execution was successful
+     */
+    default void closeComponentCopies(final boolean success) {
+        // by default there are no copies
+    }
 }
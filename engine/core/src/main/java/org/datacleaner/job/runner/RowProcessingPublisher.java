@@ -24,6 +24,7 @@ import java.util.Queue;
 import java.util.Set;
 
 import org.apache.metamodel.query.Query;
+import org.datacleaner.data.RowLayout;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.concurrent.TaskListener;
@@ -54,6 +55,22 @@ public interface RowProcessingPublisher {
 
     void onAllConsumersRegistered();
 
+    /**
+     * Gets the compiled {@link RowLayout} of the virtual columns produced by
+     * this publisher's consumers.
+     *
+     * @return
+     */
+    RowLayout getRowLayout();
+
+    /**
+     * Sets the compiled {@link RowLayout} of this publisher. Invoked by
+     * {@link RowProcessingPublishers} once all consumers are registered.
+     *
+     * @param rowLayout
+     */
+    void setRowLayout(RowLayout rowLayout);
+
     /**
      * Fires the actual row processing. This method assumes that consumers have
      * been initialized and the publisher is ready to start processing.
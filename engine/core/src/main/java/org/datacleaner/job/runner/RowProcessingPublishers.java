@@ -40,6 +40,7 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.Transformer;
 import org.datacleaner.configuration.ContextAwareInjectionManager;
 import org.datacleaner.configuration.InjectionManager;
+import org.datacleaner.data.RowLayout;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.AnalyzerJob;
 import org.datacleaner.job.ComponentJob;
@@ -135,6 +136,7 @@ public final class RowProcessingPublishers {
 
         final Collection<RowProcessingPublisher> publishers = _rowProcessingPublishers.values();
         for (final RowProcessingPublisher publisher : publishers) {
+            publisher.setRowLayout(compileRowLayout(publisher));
             publisher.onAllConsumersRegistered();
         }
 
@@ -143,6 +145,23 @@ public final class RowProcessingPublishers {
         }
     }
 
+    /**
+     * Compiles the {@link RowLayout} of a publisher, assigning a slot to every
+     * virtual column produced by its consumers.
+     *
+     * @param publisher
+     * @return
+     */
+    private RowLayout compileRowLayout(final RowProcessingPublisher publisher) {
+        final List<InputColumn<?>> virtualColumns = new ArrayList<>();
+        for (final RowProcessingConsumer consumer : publisher.getConsumers()) {
+            virtualColumns.addAll(Arrays.asList(consumer.getOutputColumns()));
+        }
+        final RowLayout rowLayout = RowLayout.compile(virtualColumns);
+        logger.debug("Compiled row layout for {}: {}", publisher, rowLayout);
+        return rowLayout;
+    }
+
     private void registerJob(final AnalysisJob job) {
         final SourceColumnFinder sourceColumnFinder = new SourceColumnFinder();
         sourceColumnFinder.addSources(job);
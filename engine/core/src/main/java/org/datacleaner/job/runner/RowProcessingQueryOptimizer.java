@@ -20,16 +20,19 @@
 package org.datacleaner.job.runner;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 import org.apache.metamodel.query.Query;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
 import org.datacleaner.api.QueryOptimizedFilter;
 import org.datacleaner.job.FilterOutcome;
 
 /**
  * Optimizer that will apply possible optimizations coming from
- * {@link QueryOptimizedFilter} instances in the job.
+ * {@link QueryOptimizedFilter} and {@link QueryOptimizedAnalyzer} instances in
+ * the job.
  *
  *
  */
@@ -45,7 +48,9 @@ public interface RowProcessingQueryOptimizer {
     /**
      * Gets the optimized list of {@link RowProcessingConsumer}. This list will
      * consist of the original consumers, except the eliminated ones (see
-     * {@link #getEliminatedConsumers()}).
+     * {@link #getEliminatedConsumers()}) and the aggregated ones (see
+     * {@link #getAggregatedConsumers()}). Must not be invoked before the
+     * consumers are initialized.
      *
      * @return
      */
@@ -66,6 +71,18 @@ public interface RowProcessingQueryOptimizer {
      */
     Collection<? extends FilterOutcome> getOptimizedAvailableOutcomes();
 
+    /**
+     * Gets the {@link RowProcessingConsumer}s of query optimized analyzers,
+     * which should be fed by aggregate queries instead of by the rows of the
+     * optimized query. Must not be invoked before the consumers are
+     * initialized.
+     *
+     * @return
+     */
+    default List<RowProcessingConsumer> getAggregatedConsumers() {
+        return Collections.emptyList();
+    }
+
     /**
      * Determines if the query has been optimized or not.
      *
@@ -30,11 +30,17 @@ import java.util.Set;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.Table;
 import org.datacleaner.api.Filter;
+import org.datacleaner.api.HasOutputDataStreams;
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
 import org.datacleaner.api.QueryOptimizedFilter;
+import org.datacleaner.components.keyrange.KeyRangeFilter;
 import org.datacleaner.components.maxrows.MaxRowsFilter;
 import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
 import org.datacleaner.descriptors.FilterDescriptor;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.ComponentRequirement;
@@ -43,6 +49,7 @@ import org.datacleaner.job.HasComponentRequirement;
 import org.datacleaner.job.HasFilterOutcomes;
 import org.datacleaner.job.InputColumnSinkJob;
 import org.datacleaner.job.InputColumnSourceJob;
+import org.datacleaner.util.SystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,11 +60,12 @@ public class RowProcessingQueryOptimizerImpl implements RowProcessingQueryOptimi
 
     private static final Logger logger = LoggerFactory.getLogger(RowProcessingQueryOptimizerImpl.class);
 
-    private static final Class<?>[] ALWAYS_OPTIMIZABLE = new Class[] { MaxRowsFilter.class };
+    private static final Class<?>[] ALWAYS_OPTIMIZABLE = new Class[] { MaxRowsFilter.class, KeyRangeFilter.class };
     private final Datastore _datastore;
     private final Query _baseQuery;
     private final List<RowProcessingConsumer> _consumers;
     private final Map<FilterConsumer, FilterOutcome> _optimizedFilters;
+    private List<RowProcessingConsumer> _aggregatedConsumers;
 
     public RowProcessingQueryOptimizerImpl(final Datastore datastore, final List<RowProcessingConsumer> consumers,
             final Query baseQuery) {
@@ -110,6 +118,73 @@ public class RowProcessingQueryOptimizerImpl implements RowProcessingQueryOptimi
         }
     }
 
+    private void initAggregatedConsumers() {
+        if (!SystemProperties.getBoolean(SystemProperties.QUERY_ANALYZER_PUSHDOWN, false)) {
+            return;
+        }
+        if (!(_datastore instanceof JdbcDatastore)) {
+            logger.debug("Datastore is not a JDBC datastore, not pushing down analyzers: {}", _datastore);
+            return;
+        }
+
+        final Query optimizedQuery = getOptimizedQuery();
+        if (optimizedQuery.getFirstRow() != null || optimizedQuery.getMaxRows() != null) {
+            // aggregates cannot be limited to a row window
+            logger.debug("Query has a row window, not pushing down analyzers: {}", optimizedQuery);
+            return;
+        }
+        if (optimizedQuery.getFromClause().getItemCount() != 1) {
+            return;
+        }
+        final Table table = optimizedQuery.getFromClause().getItem(0).getTable();
+        if (table == null) {
+            return;
+        }
+
+        final Collection<FilterOutcome> optimizedOutcomes = _optimizedFilters.values();
+        for (final RowProcessingConsumer consumer : _consumers) {
+            if (consumer instanceof AnalyzerConsumer && isAggregatable((AnalyzerConsumer) consumer, table,
+                    optimizedOutcomes)) {
+                logger.info("Pushing down analyzer into aggregate queries: {}", consumer);
+                _aggregatedConsumers.add(consumer);
+            }
+        }
+    }
+
+    private boolean isAggregatable(final AnalyzerConsumer consumer, final Table table,
+            final Collection<FilterOutcome> optimizedOutcomes) {
+        final Object analyzer = consumer.getComponent();
+        if (!(analyzer instanceof QueryOptimizedAnalyzer) || analyzer instanceof HasOutputDataStreams) {
+            return false;
+        }
+        if (!((QueryOptimizedAnalyzer<?>) analyzer).isOptimizable()) {
+            logger.debug("Analyzer is not optimizable in its current configuration: {}", consumer);
+            return false;
+        }
+
+        for (final InputColumn<?> inputColumn : consumer.getRequiredInput()) {
+            final Column column = inputColumn.getPhysicalColumn();
+            if (inputColumn.isVirtualColumn() || column == null || !table.equals(column.getTable())) {
+                logger.debug("InputColumn {} is not a physical column of {}, so analyzer is not aggregatable: {}",
+                        inputColumn, table, consumer);
+                return false;
+            }
+        }
+
+        // the analyzer may only depend on outcomes which the query satisfies
+        final ComponentRequirement componentRequirement = consumer.getComponentJob().getComponentRequirement();
+        if (componentRequirement != null) {
+            for (final FilterOutcome requirement : componentRequirement.getProcessingDependencies()) {
+                if (!optimizedOutcomes.contains(requirement)) {
+                    logger.debug("Requirement {} is not met by the optimized query, so analyzer is not "
+                            + "aggregatable: {}", requirement, consumer);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private boolean isOptimizable(final FilterConsumer filterConsumer) {
         final FilterDescriptor<?, ?> descriptor = filterConsumer.getComponentJob().getDescriptor();
         if (!descriptor.isQueryOptimizable()) {
@@ -249,9 +324,22 @@ public class RowProcessingQueryOptimizerImpl implements RowProcessingQueryOptimi
                 result.remove(filterConsumer);
             }
         }
+        result.removeAll(getAggregatedConsumers());
         return result;
     }
 
+    @Override
+    public synchronized List<RowProcessingConsumer> getAggregatedConsumers() {
+        // determined on first request, since whether an analyzer is
+        // optimizable may depend on its provided properties, which are not
+        // assigned until the consumers are initialized
+        if (_aggregatedConsumers == null) {
+            _aggregatedConsumers = new ArrayList<>();
+            initAggregatedConsumers();
+        }
+        return _aggregatedConsumers;
+    }
+
     @Override
     public Set<? extends RowProcessingConsumer> getEliminatedConsumers() {
         return _optimizedFilters.keySet();
@@ -24,6 +24,12 @@ import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
@@ -35,13 +41,19 @@ import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.CollectionUtils;
 import org.apache.metamodel.util.LazyRef;
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.connection.CsvDatastore;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
 import org.datacleaner.data.MetaModelInputRow;
+import org.datacleaner.data.RowLayout;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.datacleaner.job.concurrent.ForkTaskListener;
 import org.datacleaner.job.concurrent.RunNextTaskTaskListener;
 import org.datacleaner.job.concurrent.TaskListener;
 import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.tasks.ConsumeRowBatchTask;
 import org.datacleaner.job.tasks.ConsumeRowTask;
 import org.datacleaner.job.tasks.RunRowProcessingPublisherTask;
 import org.datacleaner.util.SystemProperties;
@@ -213,34 +225,224 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
                 logger.debug("Final query firstRow={}, maxRows={}", finalQuery.getFirstRow(), finalQuery.getMaxRows());
             }
 
-            // represents the distinct count of rows as well as the number of
-            // tasks to execute
-            int numTasks = 0;
+            try {
+                runAggregateQueries(dataContext, queryOptimizer.getAggregatedConsumers(), finalQuery);
+            } catch (final RuntimeException e) {
+                // reported the same way as errors of the row processing tasks
+                taskListener.onError(null, e);
+                return false;
+            }
+            if (queryOptimizer.getOptimizedConsumers().isEmpty()) {
+                logger.info("All consumers were aggregated, skipping row processing of {}", getTable().getName());
+                return !taskListener.isErrornous();
+            }
+
+            final List<Supplier<DataSet>> partitions = createPartitions(datastore, dataContext, finalQuery);
+
+            final AtomicInteger rowCounter = new AtomicInteger();
+            final int numTasks;
+            if (partitions == null) {
+                numTasks = dispatch(() -> dataContext.executeQuery(finalQuery), idGenerator, consumeRowHandler,
+                        taskListener, analysisListener, rowProcessingMetrics, rowCounter);
+            } else {
+                numTasks = dispatchPartitions(partitions, idGenerator, consumeRowHandler, taskListener,
+                        analysisListener, rowProcessingMetrics, rowCounter);
+            }
+            taskListener.awaitTasks(numTasks);
+        }
 
-            try (DataSet dataSet = dataContext.executeQuery(finalQuery)) {
-                while (dataSet.next()) {
-                    if (taskListener.isErrornous()) {
-                        break;
+        return !taskListener.isErrornous();
+    }
+
+    /**
+     * Runs the aggregate queries of the query optimized analyzers that have
+     * been pushed down, feeding the aggregated rows to the analyzers.
+     */
+    private void runAggregateQueries(final DataContext dataContext,
+            final List<RowProcessingConsumer> aggregatedConsumers, final Query finalQuery) {
+        for (final RowProcessingConsumer consumer : aggregatedConsumers) {
+            final QueryOptimizedAnalyzer<?> analyzer = (QueryOptimizedAnalyzer<?>) consumer.getComponent();
+            final List<Query> aggregateQueries = analyzer.createAggregateQueries(finalQuery.clone());
+            for (int i = 0; i < aggregateQueries.size(); i++) {
+                final Query aggregateQuery = aggregateQueries.get(i);
+                logger.debug("Aggregate query for {}: {}", consumer, aggregateQuery);
+                try (DataSet dataSet = dataContext.executeQuery(aggregateQuery)) {
+                    while (dataSet.next()) {
+                        analyzer.runAggregate(i, dataSet.getRow());
                     }
+                }
+            }
+        }
+    }
 
-                    numTasks++;
+    /**
+     * Creates the partitions that the scan of the source table can be split
+     * into, if parallel scanning is enabled and possible for the datastore.
+     *
+     * @return the {@link DataSet} suppliers of the partitions, or null if the
+     *         scan should not be partitioned
+     */
+    private List<Supplier<DataSet>> createPartitions(final Datastore datastore, final DataContext dataContext,
+            final Query finalQuery) {
+        final int partitionCount = SystemProperties.getInt(SystemProperties.QUERY_PARALLEL_SCAN_PARTITIONS, 1);
+        if (partitionCount < 2) {
+            return null;
+        }
+
+        if (datastore instanceof CsvDatastore) {
+            return new ParallelCsvReader((CsvDatastore) datastore).createPartitions(finalQuery, partitionCount);
+        }
+
+        final List<Query> partitionQueries =
+                new ParallelScanPartitioner(datastore, dataContext).createPartitionQueries(finalQuery, partitionCount);
+        if (partitionQueries == null) {
+            return null;
+        }
+        final List<Supplier<DataSet>> partitions = new ArrayList<>(partitionQueries.size());
+        for (final Query partitionQuery : partitionQueries) {
+            partitions.add(() -> dataContext.executeQuery(partitionQuery));
+        }
+        return partitions;
+    }
+
+    /**
+     * Reads the partitions concurrently, each on a separate thread (and
+     * thereby on a separate connection or file channel), and dispatches their
+     * rows to the shared {@link ConsumeRowHandler}.
+     *
+     * @return the total number of tasks dispatched
+     */
+    private int dispatchPartitions(final List<Supplier<DataSet>> partitions, final RowIdGenerator idGenerator,
+            final ConsumeRowHandler consumeRowHandler, final RowConsumerTaskListener taskListener,
+            final AnalysisListener analysisListener, final RowProcessingMetrics rowProcessingMetrics,
+            final AtomicInteger rowCounter) {
+        final ExecutorService executorService =
+                Executors.newFixedThreadPool(partitions.size(), new DaemonThreadFactory());
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>(partitions.size());
+            for (final Supplier<DataSet> partition : partitions) {
+                futures.add(executorService.submit(
+                        () -> dispatch(partition, idGenerator, consumeRowHandler, taskListener, analysisListener,
+                                rowProcessingMetrics, rowCounter)));
+            }
+
+            int numTasks = 0;
+            for (final Future<Integer> future : futures) {
+                try {
+                    numTasks += future.get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+            return numTasks;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private int dispatch(final Supplier<DataSet> dataSetSupplier, final RowIdGenerator idGenerator,
+            final ConsumeRowHandler consumeRowHandler, final RowConsumerTaskListener taskListener,
+            final AnalysisListener analysisListener, final RowProcessingMetrics rowProcessingMetrics,
+            final AtomicInteger rowCounter) {
+        final int rowBatchSize = getTaskRunner().getRowBatchSize();
+        if (rowBatchSize > 1) {
+            return dispatchRowBatches(dataSetSupplier, idGenerator, consumeRowHandler, taskListener,
+                    analysisListener, rowProcessingMetrics, rowBatchSize, rowCounter);
+        } else {
+            return dispatchRows(dataSetSupplier, idGenerator, consumeRowHandler, taskListener, analysisListener,
+                    rowProcessingMetrics, rowCounter);
+        }
+    }
+
+    /**
+     * Dispatches every row of the data set as a separate
+     * {@link ConsumeRowTask}.
+     *
+     * @return the number of tasks dispatched
+     */
+    private int dispatchRows(final Supplier<DataSet> dataSetSupplier, final RowIdGenerator idGenerator,
+            final ConsumeRowHandler consumeRowHandler, final RowConsumerTaskListener taskListener,
+            final AnalysisListener analysisListener, final RowProcessingMetrics rowProcessingMetrics,
+            final AtomicInteger rowCounter) {
+        // represents the distinct count of rows as well as the number of
+        // tasks to execute
+        int numTasks = 0;
+
+        try (DataSet dataSet = dataSetSupplier.get()) {
+            final RowLayout rowLayout = getRowLayout().withPhysicalColumns(dataSet.getSelectItems());
+            while (dataSet.next()) {
+                if (taskListener.isErrornous()) {
+                    break;
+                }
+
+                awaitContinuationCapacity();
+                numTasks++;
+
+                final Row metaModelRow = dataSet.getRow();
+                final int rowId = idGenerator.nextPhysicalRowId();
+
+                final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow, rowLayout);
+
+                final ConsumeRowTask task =
+                        new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow, analysisListener,
+                                rowCounter.incrementAndGet());
+                getTaskRunner().run(task, taskListener);
+            }
+        }
+        return numTasks;
+    }
 
-                    final Row metaModelRow = dataSet.getRow();
-                    final int rowId = idGenerator.nextPhysicalRowId();
+    /**
+     * Dispatches the rows of the data set in micro-batches of
+     * {@link ConsumeRowBatchTask}s, each containing up to rowBatchSize rows.
+     *
+     * @return the number of tasks dispatched
+     */
+    private int dispatchRowBatches(final Supplier<DataSet> dataSetSupplier, final RowIdGenerator idGenerator,
+            final ConsumeRowHandler consumeRowHandler, final RowConsumerTaskListener taskListener,
+            final AnalysisListener analysisListener, final RowProcessingMetrics rowProcessingMetrics,
+            final int rowBatchSize, final AtomicInteger rowCounter) {
+        int numRows = 0;
+        int numTasks = 0;
+        List<InputRow> batch = new ArrayList<>(rowBatchSize);
+
+        try (DataSet dataSet = dataSetSupplier.get()) {
+            final RowLayout rowLayout = getRowLayout().withPhysicalColumns(dataSet.getSelectItems());
+            while (dataSet.next()) {
+                if (taskListener.isErrornous()) {
+                    break;
+                }
 
-                    final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow);
+                numRows = rowCounter.incrementAndGet();
 
-                    final ConsumeRowTask task =
-                            new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow, analysisListener,
-                                    numTasks);
-                    getTaskRunner().run(task, taskListener);
+                final Row metaModelRow = dataSet.getRow();
+                final int rowId = idGenerator.nextPhysicalRowId();
+                batch.add(new MetaModelInputRow(rowId, metaModelRow, rowLayout));
 
+                if (batch.size() == rowBatchSize) {
+                    awaitContinuationCapacity();
+                    numTasks++;
+                    getTaskRunner().run(new ConsumeRowBatchTask(consumeRowHandler, rowProcessingMetrics, batch,
+                            analysisListener, numRows), taskListener);
+                    batch = new ArrayList<>(rowBatchSize);
                 }
             }
-            taskListener.awaitTasks(numTasks);
         }
 
-        return !taskListener.isErrornous();
+        if (!batch.isEmpty() && !taskListener.isErrornous()) {
+            numTasks++;
+            getTaskRunner().run(
+                    new ConsumeRowBatchTask(consumeRowHandler, rowProcessingMetrics, batch, analysisListener, numRows),
+                    taskListener);
+        }
+        return numTasks;
     }
 
     @Override
@@ -19,20 +19,25 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.datacleaner.api.ColumnBatch;
 import org.datacleaner.api.Concurrent;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Transformer;
+import org.datacleaner.api.VectorizedTransformer;
 import org.datacleaner.data.TransformedInputRow;
 import org.datacleaner.descriptors.ProvidedPropertyDescriptor;
 import org.datacleaner.job.FilterOutcomes;
 import org.datacleaner.job.TransformerJob;
 import org.datacleaner.job.concurrent.ThreadLocalOutputRowCollector;
 import org.datacleaner.job.concurrent.ThreadLocalOutputRowCollector.Listener;
+import org.datacleaner.util.batch.AsyncBatchTransformer;
+import org.datacleaner.util.batch.BatchCallback;
 
 /**
  * {@link RowProcessingConsumer} implementation for {@link Transformer}s.
@@ -99,6 +104,13 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
     @Override
     public void consumeInternal(final InputRow row, final int distinctCount, final FilterOutcomes outcomes,
             final RowProcessingChain chain) {
+        final ContinuationTracker continuationTracker = chain.getContinuationTracker();
+        if (continuationTracker != null && _transformer instanceof AsyncBatchTransformer) {
+            consumeAsync((AsyncBatchTransformer) _transformer, row, distinctCount, outcomes, chain,
+                    continuationTracker);
+            return;
+        }
+
         final InputColumn<?>[] outputColumns = getOutputColumns();
 
         registerListener(_transformer, row, outcomes, chain, outputColumns);
@@ -116,6 +128,136 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
         }
     }
 
+    @Override
+    protected boolean isVectorized() {
+        // rows put to an OutputRowCollector cannot be attributed to a row of
+        // the batch, so such transformers are always invoked row by row
+        return _transformer instanceof VectorizedTransformer && _outputRowCollectorProperties.isEmpty();
+    }
+
+    @Override
+    protected InputRow[] consumeBatch(final ColumnBatch batch, final FilterOutcomes[] outcomes) {
+        final Object[][] outputValues;
+        try {
+            outputValues = ((VectorizedTransformer) _transformer).transform(batch);
+        } catch (final RuntimeException e) {
+            // fall back to transforming the rows one by one, to only fail the
+            // rows that are actually erroneous
+            return consumeBatchPerRow(batch);
+        }
+
+        final InputColumn<?>[] outputColumns = getOutputColumns();
+        final InputRow[] result = new InputRow[batch.size()];
+        for (int i = 0; i < result.length; i++) {
+            final Object[] values = outputValues[i];
+            if (values != null) {
+                final TransformedInputRow resultRow = TransformedInputRow.of(batch.getRow(i));
+                addValuesToRow(resultRow, outputColumns, values);
+                result[i] = resultRow;
+            }
+        }
+        return result;
+    }
+
+    private InputRow[] consumeBatchPerRow(final ColumnBatch batch) {
+        final InputColumn<?>[] outputColumns = getOutputColumns();
+        final InputRow[] result = new InputRow[batch.size()];
+        for (int i = 0; i < result.length; i++) {
+            final InputRow row = batch.getRow(i);
+            try {
+                final Object[] values = _transformer.transform(row);
+                if (values != null) {
+                    final TransformedInputRow resultRow = TransformedInputRow.of(row);
+                    addValuesToRow(resultRow, outputColumns, values);
+                    result[i] = resultRow;
+                }
+            } catch (final RuntimeException e) {
+                handleConsumeError(row, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hands the row over to an {@link AsyncBatchTransformer} and parks the rest
+     * of the chain as a continuation, which is resumed on the task runner once
+     * the row's batch has been completed. This frees the calling worker thread
+     * instead of having it wait for the batch.
+     */
+    private void consumeAsync(final AsyncBatchTransformer transformer, final InputRow row, final int distinctCount,
+            final FilterOutcomes outcomes, final RowProcessingChain chain,
+            final ContinuationTracker continuationTracker) {
+        continuationTracker.begin();
+        transformer.transformAsync(row, new BatchCallback<Collection<Object[]>>() {
+            @Override
+            public void onResult(final Collection<Object[]> outputRows) {
+                continuationTracker.resume(() -> {
+                    try {
+                        processOutputRows(row, distinctCount, outcomes, chain, outputRows);
+                    } catch (final RuntimeException e) {
+                        reportAsyncError(row, e, continuationTracker);
+                    } finally {
+                        continuationTracker.complete();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                continuationTracker.resume(() -> {
+                    try {
+                        if (error instanceof RuntimeException) {
+                            reportAsyncError(row, (RuntimeException) error, continuationTracker);
+                        } else {
+                            reportAsyncError(row, new IllegalStateException(error), continuationTracker);
+                        }
+                    } finally {
+                        continuationTracker.complete();
+                    }
+                });
+            }
+        });
+    }
+
+    private void reportAsyncError(final InputRow row, final RuntimeException error,
+            final ContinuationTracker continuationTracker) {
+        try {
+            handleConsumeError(row, error);
+        } catch (final RuntimeException e) {
+            continuationTracker.fail(e);
+        }
+    }
+
+    private void processOutputRows(final InputRow row, final int distinctCount, final FilterOutcomes outcomes,
+            final RowProcessingChain chain, final Collection<Object[]> outputRows) {
+        if (outputRows == null || outputRows.isEmpty()) {
+            return;
+        }
+
+        final InputColumn<?>[] outputColumns = getOutputColumns();
+
+        if (outputRows.size() == 1) {
+            final TransformedInputRow resultRow = TransformedInputRow.of(row);
+            addValuesToRow(resultRow, outputColumns, outputRows.iterator().next());
+            chain.processNext(resultRow, distinctCount, outcomes);
+            return;
+        }
+
+        // same id and outcome handling as for rows put to an OutputRowCollector
+        int recordNo = 0;
+        for (final Object[] values : outputRows) {
+            recordNo++;
+            final TransformedInputRow resultRow;
+            if (recordNo == 1) {
+                resultRow = TransformedInputRow.of(row);
+            } else {
+                resultRow = new TransformedInputRow(row, getNextVirtualRowId(row, recordNo));
+            }
+            addValuesToRow(resultRow, outputColumns, values);
+            chain.processNext(resultRow, 1, outcomes.clone());
+        }
+    }
+
     private void unregisterListener(final Transformer transformer) {
         for (final ProvidedPropertyDescriptor descriptor : _outputRowCollectorProperties) {
             final OutputRowCollector outputRowCollector = (OutputRowCollector) descriptor.getValue(transformer);
@@ -73,6 +73,7 @@ public class CloseTaskListener implements TaskListener {
 
             // close can occur AFTER completion
             _lifeCycleHelper.close(descriptor, component, _success.get());
+            _consumer.closeComponentCopies(_success.get());
 
             _consumer.getActiveOutputDataStreams().forEach(ActiveOutputDataStream::close);
         }
@@ -0,0 +1,88 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.runner.AnalysisListener;
+import org.datacleaner.job.runner.ConsumeRowHandler;
+import org.datacleaner.job.runner.RowProcessingConsumer;
+import org.datacleaner.job.runner.RowProcessingMetrics;
+
+/**
+ * A {@link Task} that dispatches ("consumes") a micro-batch of records to all
+ * relevant {@link RowProcessingConsumer}s. Compared to {@link ConsumeRowTask}
+ * this task only reports progress once per batch, after all rows of the batch
+ * have been fully processed, and vectorized consumers get to process the rows
+ * of the batch column by column (see
+ * {@link ConsumeRowHandler#consumeRows(List)}).
+ */
+public final class ConsumeRowBatchTask implements Task {
+
+    private final RowProcessingMetrics _rowProcessingMetrics;
+    private final List<InputRow> _rows;
+    private final AnalysisListener _analysisListener;
+    private final ConsumeRowHandler _consumeRowHandler;
+    private final int _lastRowNumber;
+
+    /**
+     *
+     * @param consumeRowHandler
+     * @param rowProcessingMetrics
+     * @param rows
+     * @param analysisListener
+     * @param lastRowNumber
+     *            the row number of the last row in the batch
+     */
+    public ConsumeRowBatchTask(final ConsumeRowHandler consumeRowHandler,
+            final RowProcessingMetrics rowProcessingMetrics, final List<InputRow> rows,
+            final AnalysisListener analysisListener, final int lastRowNumber) {
+        _consumeRowHandler = consumeRowHandler;
+        _rowProcessingMetrics = rowProcessingMetrics;
+        _rows = rows;
+        _analysisListener = analysisListener;
+        _lastRowNumber = lastRowNumber;
+    }
+
+    /**
+     * Gets the number of rows in this batch.
+     *
+     * @return
+     */
+    public int getRowCount() {
+        return _rows.size();
+    }
+
+    @Override
+    public void execute() {
+        if (_rows.isEmpty()) {
+            return;
+        }
+
+        _consumeRowHandler.consumeRows(_rows, this::reportProgress);
+    }
+
+    private void reportProgress() {
+        final InputRow lastRow = _rows.get(_rows.size() - 1);
+        _analysisListener.rowProcessingProgress(_rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob(),
+                _rowProcessingMetrics, lastRow, _lastRowNumber);
+    }
+}
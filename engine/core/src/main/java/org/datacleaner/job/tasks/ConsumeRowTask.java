@@ -48,7 +48,12 @@ public final class ConsumeRowTask implements Task {
 
     @Override
     public void execute() {
-        _consumeRowHandler.consumeRow(_row).getRows();
+        // progress is reported once the row has been fully processed, which
+        // may be later if parts of its processing are parked as continuations
+        _consumeRowHandler.consumeRow(_row, this::reportProgress);
+    }
+
+    private void reportProgress() {
         _analysisListener.rowProcessingProgress(_rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob(),
                 _rowProcessingMetrics, _row, _rowNumber);
     }
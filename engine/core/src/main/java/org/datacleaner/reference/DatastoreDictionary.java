@@ -24,6 +24,7 @@ import java.io.ObjectInputStream;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
@@ -36,6 +37,8 @@ import org.datacleaner.job.NoSuchColumnException;
 import org.datacleaner.job.NoSuchDatastoreException;
 import org.datacleaner.util.ReadObjectBuilder;
 
+import com.google.common.collect.Maps;
+
 /**
  * A dictionary backed by a column in a datastore.
  *
@@ -113,6 +116,23 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
         final DatastoreConnection datastoreConnection = datastore.openConnection();
 
         if (_loadIntoMemory) {
+            final ReferenceDataCache cache = ReferenceDataCache.getDefault();
+            if (cache.isEnabled()) {
+                final MappedReferenceDataIndex index;
+                try {
+                    final String cacheKey = "DatastoreDictionary|" + ReferenceDataCache.getDatastoreKey(datastore)
+                            + "|" + _qualifiedColumnName;
+                    final String version = ReferenceDataCache.getVersion(datastoreConnection,
+                            getColumn(datastoreConnection).getTable());
+                    index = cache.getIndex(cacheKey, version,
+                            () -> Maps.asMap(loadIntoMemory(datastoreConnection).getValueSet(), value -> null),
+                            Function.identity());
+                } finally {
+                    datastoreConnection.close();
+                }
+                return new MappedDictionaryConnection(index, true);
+            }
+
             final SimpleDictionary simpleDictionary = loadIntoMemory(datastoreConnection);
 
             // no need for the connection anymore
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
@@ -111,6 +112,22 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
         final DatastoreConnection datastoreConnection = datastore.openConnection();
 
         if (_loadIntoMemory) {
+            final ReferenceDataCache cache = ReferenceDataCache.getDefault();
+            if (cache.isEnabled()) {
+                final MappedReferenceDataIndex index;
+                try {
+                    final String cacheKey = "DatastoreSynonymCatalog|" + ReferenceDataCache.getDatastoreKey(datastore)
+                            + "|" + _masterTermColumnPath + "|" + Arrays.toString(_synonymColumnPaths);
+                    final String version = ReferenceDataCache.getVersion(datastoreConnection,
+                            getMasterTermColumn(datastoreConnection).getTable());
+                    index = cache.getIndex(cacheKey, version,
+                            () -> loadIntoMemory(datastoreConnection).getSynonymMap(), Function.identity());
+                } finally {
+                    datastoreConnection.close();
+                }
+                return new MappedSynonymCatalogConnection(index, true);
+            }
+
             final SimpleSynonymCatalog simpleSynonymCatalog = loadIntoMemory(datastoreConnection);
 
             // no need for the connection anymore
@@ -31,6 +31,7 @@ final class DatastoreSynonymCatalogConnection implements SynonymCatalogConnectio
 
     private final DatastoreConnection _datastoreConnection;
     private final DatastoreSynonymCatalog _synonymCatalog;
+    private volatile SynonymCatalogConnection _inMemoryConnection;
 
     public DatastoreSynonymCatalogConnection(final DatastoreSynonymCatalog synonymCatalog,
             final DatastoreConnection datastoreConnection) {
@@ -38,10 +39,30 @@ final class DatastoreSynonymCatalogConnection implements SynonymCatalogConnectio
         _datastoreConnection = datastoreConnection;
     }
 
+    /**
+     * Gets a connection to an in-memory copy of the synonym catalog. The copy
+     * is loaded once per connection, so that the matcher used for inline
+     * replacements is not rebuilt for every replacement.
+     *
+     * @return
+     */
+    private SynonymCatalogConnection getInMemoryConnection() {
+        SynonymCatalogConnection connection = _inMemoryConnection;
+        if (connection == null) {
+            synchronized (this) {
+                connection = _inMemoryConnection;
+                if (connection == null) {
+                    connection = _synonymCatalog.loadIntoMemory(_datastoreConnection).openConnection(null);
+                    _inMemoryConnection = connection;
+                }
+            }
+        }
+        return connection;
+    }
+
     @Override
     public Collection<Synonym> getSynonyms() {
-        final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(_datastoreConnection);
-        return simpleSynonymCatalog.openConnection(null).getSynonyms();
+        return getInMemoryConnection().getSynonyms();
     }
 
     @Override
@@ -74,8 +95,7 @@ final class DatastoreSynonymCatalogConnection implements SynonymCatalogConnectio
 
     @Override
     public Replacement replaceInline(final String sentence) {
-        final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(_datastoreConnection);
-        return simpleSynonymCatalog.openConnection(null).replaceInline(sentence);
+        return getInMemoryConnection().replaceInline(sentence);
     }
 
     @Override
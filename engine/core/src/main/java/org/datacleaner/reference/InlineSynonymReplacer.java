@@ -0,0 +1,120 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.datacleaner.reference.SynonymCatalogConnection.Replacement;
+import org.datacleaner.util.StringUtils;
+import org.datacleaner.util.WordSequenceMatcher;
+import org.datacleaner.util.WordSequenceMatcher.Match;
+
+/**
+ * Replaces synonyms with master terms in a sentence. Multi-word synonyms are
+ * found using a {@link WordSequenceMatcher}, and the remaining words are looked
+ * up one at a time.
+ */
+final class InlineSynonymReplacer {
+
+    private final WordSequenceMatcher<String> _multiWordSynonymMatcher;
+    private final Function<String, String> _masterTermLookup;
+
+    /**
+     *
+     * @param multiWordSynonymMatcher
+     *            matcher of multi-word synonyms, with master terms as values
+     * @param masterTermLookup
+     *            function which gets the master term of a single word, or null
+     *            if the word is not a synonym
+     */
+    InlineSynonymReplacer(final WordSequenceMatcher<String> multiWordSynonymMatcher,
+            final Function<String, String> masterTermLookup) {
+        _multiWordSynonymMatcher = multiWordSynonymMatcher;
+        _masterTermLookup = masterTermLookup;
+    }
+
+    public Replacement replaceInline(final String sentence) {
+        final List<String> synonyms = new ArrayList<>();
+        final List<String> masterTerms = new ArrayList<>();
+
+        // multi-word synonyms are replaced first, longest first
+        final List<Match<String>> matches = _multiWordSynonymMatcher.findLongest(sentence);
+        for (final Match<String> match : matches) {
+            synonyms.add(match.getPhrase());
+            masterTerms.add(match.getValue());
+        }
+        matches.sort(Comparator.comparingInt(Match<String>::getStartIndex));
+
+        final StringBuilder sb = new StringBuilder();
+        int index = 0;
+        for (final Match<String> match : matches) {
+            appendSingleWordReplacements(sb, sentence.substring(index, match.getStartIndex()), synonyms,
+                    masterTerms);
+            sb.append(match.getValue());
+            index = match.getEndIndex();
+        }
+        appendSingleWordReplacements(sb, sentence.substring(index), synonyms, masterTerms);
+
+        final String finalSentence = sb.toString();
+        return new Replacement() {
+            @Override
+            public String getReplacedString() {
+                return finalSentence;
+            }
+
+            @Override
+            public List<String> getSynonyms() {
+                return synonyms;
+            }
+
+            @Override
+            public List<String> getMasterTerms() {
+                return masterTerms;
+            }
+        };
+    }
+
+    private void appendSingleWordReplacements(final StringBuilder sb, final String text, final List<String> synonyms,
+            final List<String> masterTerms) {
+        final List<String> tokens = StringUtils.splitOnWordBoundaries(text, true);
+        for (final String token : tokens) {
+            if (StringUtils.isSingleWord(token)) {
+                final String masterTerm = _masterTermLookup.apply(token);
+                if (masterTerm == null) {
+                    // no match, just add it
+                    sb.append(token);
+                } else {
+                    // match - add the master term
+                    if (!masterTerm.equals(token)) {
+                        synonyms.add(token);
+                        masterTerms.add(masterTerm);
+                    }
+                    sb.append(masterTerm);
+                }
+            } else {
+                // it's a delim, just add it
+                sb.append(token);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * {@link DictionaryConnection} based on a {@link MappedReferenceDataIndex} from
+ * the {@link ReferenceDataCache}.
+ */
+final class MappedDictionaryConnection implements DictionaryConnection {
+
+    private final MappedReferenceDataIndex _index;
+    private final boolean _caseSensitive;
+
+    /**
+     *
+     * @param index
+     *            the index of the dictionary values. For case insensitive
+     *            dictionaries, the values must be lower-cased.
+     * @param caseSensitive
+     */
+    MappedDictionaryConnection(final MappedReferenceDataIndex index, final boolean caseSensitive) {
+        _index = index;
+        _caseSensitive = caseSensitive;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value == null) {
+            return false;
+        }
+        if (!_caseSensitive) {
+            value = value.toLowerCase();
+        }
+        return _index.containsKey(value);
+    }
+
+    @Override
+    public Iterator<String> getLengthSortedValues() {
+        final SortedSet<String> values =
+                new TreeSet<>(Comparator.comparingInt(String::length).reversed().thenComparing(String::compareTo));
+        _index.keys().forEachRemaining(values::add);
+        return values.iterator();
+    }
+
+    @Override
+    public Iterator<String> getAllValues() {
+        return _index.keys();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * An immutable, memory-mapped hash index of reference data values, stored in a
+ * file. Used by the {@link ReferenceDataCache} to share dictionaries and
+ * synonym catalogs between jobs without keeping them on the heap.
+ *
+ * The file consists of a header, an open addressing hash table of offsets and
+ * a data region with the entries. Each entry holds a lookup key, an optional
+ * value (eg. a master term) and, if it differs from the lookup key, the
+ * original key (eg. a synonym before lower-casing). The data region is mapped
+ * in chunks, and entries never span two chunks.
+ *
+ * Lookups only use absolute reads on the mapped buffers, so an index can be
+ * used by any number of threads.
+ */
+final class MappedReferenceDataIndex {
+
+    private static final int MAGIC = 0x44435249;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int NO_STRING = -1;
+    private static final int END_OF_CHUNK = -2;
+
+    static final long CHUNK_SIZE = 1L << 30;
+
+    // the hash table is mapped as a single buffer, so it must stay below 2 GB
+    private static final int MAX_SLOTS = 1 << 27;
+
+    private final File _file;
+    private final long _size;
+    private final int _slotMask;
+    private final MappedByteBuffer _slots;
+    private final MappedByteBuffer[] _chunks;
+    private final long _dataLength;
+
+    private MappedReferenceDataIndex(final File file) throws IOException {
+        _file = file;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                FileChannel channel = randomAccessFile.getChannel()) {
+            final MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Not a reference data index: " + file);
+            }
+            _size = header.getLong(8);
+            final int slotCount = (int) header.getLong(16);
+            _dataLength = header.getLong(24);
+            _slotMask = slotCount - 1;
+
+            final long dataStart = HEADER_SIZE + 8L * slotCount;
+            if (channel.size() != dataStart + _dataLength) {
+                throw new IOException("Incomplete reference data index: " + file);
+            }
+
+            _slots = channel.map(MapMode.READ_ONLY, HEADER_SIZE, 8L * slotCount);
+            _chunks = new MappedByteBuffer[(int) ((_dataLength + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            for (int i = 0; i < _chunks.length; i++) {
+                final long chunkStart = i * CHUNK_SIZE;
+                _chunks[i] = channel.map(MapMode.READ_ONLY, dataStart + chunkStart,
+                        Math.min(CHUNK_SIZE, _dataLength - chunkStart));
+            }
+        }
+    }
+
+    /**
+     * Opens an index file previously written using
+     * {@link #write(File, Collection, Function, Function)}.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     *             if the file could not be read or is not a valid index
+     */
+    public static MappedReferenceDataIndex open(final File file) throws IOException {
+        return new MappedReferenceDataIndex(file);
+    }
+
+    /**
+     * Writes an index file.
+     *
+     * @param file
+     *            the file to write
+     * @param keys
+     *            the original keys of the index
+     * @param keyNormalizer
+     *            function which turns an original key into a lookup key, eg.
+     *            by lower-casing it
+     * @param valueFunction
+     *            function which provides the (optional) value of a key
+     * @throws IOException
+     */
+    public static void write(final File file, final Collection<String> keys,
+            final Function<String, String> keyNormalizer, final Function<String, String> valueFunction)
+            throws IOException {
+        final long minimumSlots = Math.max(16L, 2L * keys.size());
+        if (minimumSlots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Too many values for a reference data index: " + keys.size());
+        }
+        final int slotCount = Integer.highestOneBit((int) minimumSlots - 1) << 1;
+        final long dataStart = HEADER_SIZE + 8L * slotCount;
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                FileChannel channel = randomAccessFile.getChannel()) {
+            randomAccessFile.setLength(dataStart);
+            final MappedByteBuffer slots = channel.map(MapMode.READ_WRITE, HEADER_SIZE, 8L * slotCount);
+            final int slotMask = slotCount - 1;
+
+            final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            channel.position(dataStart);
+            long offset = 0;
+            long size = 0;
+
+            for (final String originalKey : keys) {
+                final String key = keyNormalizer.apply(originalKey);
+                final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                final byte[] valueBytes = toBytes(valueFunction.apply(originalKey));
+                final byte[] originalKeyBytes =
+                        key.equals(originalKey) ? null : originalKey.getBytes(StandardCharsets.UTF_8);
+
+                final int entryLength = 12 + keyBytes.length + length(valueBytes) + length(originalKeyBytes);
+                if (entryLength > buffer.capacity()) {
+                    throw new IllegalArgumentException("Reference data value too long: " + originalKey);
+                }
+
+                // entries may not span two chunks
+                final long remainingInChunk = CHUNK_SIZE - (offset % CHUNK_SIZE);
+                if (entryLength > remainingInChunk) {
+                    final int padding = (int) remainingInChunk;
+                    flushIfFull(channel, buffer, padding);
+                    if (padding >= 4) {
+                        buffer.putInt(END_OF_CHUNK);
+                        buffer.put(new byte[padding - 4]);
+                    } else {
+                        buffer.put(new byte[padding]);
+                    }
+                    offset += padding;
+                }
+
+                flushIfFull(channel, buffer, entryLength);
+                putString(buffer, keyBytes);
+                putString(buffer, valueBytes);
+                putString(buffer, originalKeyBytes);
+
+                int slot = hash(keyBytes) & slotMask;
+                while (slots.getLong(slot * 8) != 0) {
+                    slot = (slot + 1) & slotMask;
+                }
+                slots.putLong(slot * 8, offset + 1);
+
+                offset += entryLength;
+                size++;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            slots.force();
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(size).putLong(slotCount).putLong(offset);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    private static void flushIfFull(final FileChannel channel, final ByteBuffer buffer, final int requiredBytes)
+            throws IOException {
+        if (buffer.remaining() < requiredBytes) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static byte[] toBytes(final String str) {
+        return str == null ? null : str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(final byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NO_STRING);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static int hash(final byte[] bytes) {
+        int hash = 0x811c9dc5;
+        for (final byte b : bytes) {
+            hash = (hash ^ b) * 0x01000193;
+        }
+        // spread the bits, since the hash is masked to a power of two
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the file that this index is mapped from
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * @return the number of entries in the index
+     */
+    public long size() {
+        return _size;
+    }
+
+    public boolean containsKey(final String key) {
+        return findEntry(key) != -1;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key
+     *            the lookup (normalized) key
+     * @return the value, or null if the key does not exist or has no value
+     */
+    public String get(final String key) {
+        final long offset = findEntry(key);
+        if (offset == -1) {
+            return null;
+        }
+        final ByteBuffer chunk = _chunks[(int) (offset / CHUNK_SIZE)];
+        final int position = (int) (offset % CHUNK_SIZE);
+        final int keyLength = chunk.getInt(position);
+        return readString(chunk, position + 4 + keyLength);
+    }
+
+    private long findEntry(final String key) {
+        if (key == null || _size == 0) {
+            return -1;
+        }
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(keyBytes) & _slotMask;
+        while (true) {
+            final long slotValue = _slots.getLong(slot * 8);
+            if (slotValue == 0) {
+                return -1;
+            }
+            final long offset = slotValue - 1;
+            if (keyEquals(offset, keyBytes)) {
+                return offset;
+            }
+            slot = (slot + 1) & _slotMask;
+        }
+    }
+
+    private boolean keyEquals(final long offset, final byte[] keyBytes) {
+        final ByteBuffer chunk = _chunks[(int) (offset / CHUNK_SIZE)];
+        final int position = (int) (offset % CHUNK_SIZE);
+        if (chunk.getInt(position) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (chunk.get(position + 4 + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(final ByteBuffer chunk, final int position) {
+        final int length = chunk.getInt(position);
+        if (length == NO_STRING) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = chunk.get(position + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int stringLength(final ByteBuffer chunk, final int position) {
+        final int length = chunk.getInt(position);
+        return length == NO_STRING ? 4 : 4 + length;
+    }
+
+    /**
+     * Iterates all entries of the index, in the order they were written.
+     *
+     * @return an iterator of entries of original keys and their values
+     */
+    public Iterator<Entry<String, String>> entries() {
+        return new Iterator<Entry<String, String>>() {
+
+            private int _chunkIndex = 0;
+            private int _position = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (_chunkIndex < _chunks.length) {
+                    final ByteBuffer chunk = _chunks[_chunkIndex];
+                    if (chunk.limit() - _position >= 4 && chunk.getInt(_position) != END_OF_CHUNK) {
+                        return true;
+                    }
+                    _chunkIndex++;
+                    _position = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final ByteBuffer chunk = _chunks[_chunkIndex];
+                final int keyPosition = _position;
+                final int valuePosition = keyPosition + stringLength(chunk, keyPosition);
+                final int originalKeyPosition = valuePosition + stringLength(chunk, valuePosition);
+                _position = originalKeyPosition + stringLength(chunk, originalKeyPosition);
+
+                final String value = readString(chunk, valuePosition);
+                final String originalKey = readString(chunk, originalKeyPosition);
+                if (originalKey == null) {
+                    return new SimpleImmutableEntry<>(readString(chunk, keyPosition), value);
+                }
+                return new SimpleImmutableEntry<>(originalKey, value);
+            }
+        };
+    }
+
+    /**
+     * Iterates the original keys of the index, in the order they were written.
+     *
+     * @return
+     */
+    public Iterator<String> keys() {
+        final Iterator<Entry<String, String>> entries = entries();
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return entries.next().getKey();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "MappedReferenceDataIndex[file=" + _file + ",size=" + _size + "]";
+    }
+}
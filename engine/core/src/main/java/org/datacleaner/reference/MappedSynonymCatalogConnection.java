@@ -0,0 +1,122 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.datacleaner.util.StringUtils;
+import org.datacleaner.util.WordSequenceMatcher;
+
+/**
+ * {@link SynonymCatalogConnection} based on a {@link MappedReferenceDataIndex}
+ * from the {@link ReferenceDataCache}, mapping synonyms to master terms.
+ */
+final class MappedSynonymCatalogConnection implements SynonymCatalogConnection {
+
+    private final MappedReferenceDataIndex _index;
+    private final boolean _caseSensitive;
+    private volatile InlineSynonymReplacer _inlineSynonymReplacer;
+
+    /**
+     *
+     * @param index
+     *            the index of synonyms and their master terms. For case
+     *            insensitive catalogs, the lookup keys must be lower-cased.
+     * @param caseSensitive
+     */
+    MappedSynonymCatalogConnection(final MappedReferenceDataIndex index, final boolean caseSensitive) {
+        _index = index;
+        _caseSensitive = caseSensitive;
+    }
+
+    @Override
+    public Collection<Synonym> getSynonyms() {
+        final Map<String, Synonym> synonyms = new TreeMap<>();
+        final Iterator<Entry<String, String>> entries = _index.entries();
+        while (entries.hasNext()) {
+            final Entry<String, String> synonymEntry = entries.next();
+            final String masterTerm = synonymEntry.getValue();
+
+            MutableSynonym synonym = (MutableSynonym) synonyms.get(masterTerm);
+            if (synonym == null) {
+                synonym = new MutableSynonym(masterTerm);
+                synonyms.put(masterTerm, synonym);
+            }
+
+            synonym.addSynonym(synonymEntry.getKey());
+        }
+        return synonyms.values();
+    }
+
+    @Override
+    public String getMasterTerm(final String term) {
+        if (term == null) {
+            return null;
+        }
+        return _index.get(normalize(term));
+    }
+
+    private String normalize(final String term) {
+        return _caseSensitive ? term : term.toLowerCase();
+    }
+
+    @Override
+    public Replacement replaceInline(final String sentence) {
+        return getInlineSynonymReplacer().replaceInline(sentence);
+    }
+
+    /**
+     * Gets the replacer for inline replacements. The matcher of multi-word
+     * synonyms is built on first use, since it requires a scan of the index.
+     *
+     * @return
+     */
+    private InlineSynonymReplacer getInlineSynonymReplacer() {
+        InlineSynonymReplacer replacer = _inlineSynonymReplacer;
+        if (replacer == null) {
+            synchronized (this) {
+                replacer = _inlineSynonymReplacer;
+                if (replacer == null) {
+                    final Map<String, String> multiWordSynonyms = new HashMap<>();
+                    final Iterator<Entry<String, String>> entries = _index.entries();
+                    while (entries.hasNext()) {
+                        final Entry<String, String> entry = entries.next();
+                        if (!StringUtils.isSingleWord(entry.getKey())) {
+                            multiWordSynonyms.put(normalize(entry.getKey()), entry.getValue());
+                        }
+                    }
+                    replacer = new InlineSynonymReplacer(
+                            new WordSequenceMatcher<>(multiWordSynonyms, _caseSensitive), this::getMasterTerm);
+                    _inlineSynonymReplacer = replacer;
+                }
+            }
+        }
+        return replacer;
+    }
+
+    @Override
+    public void close() {
+    }
+}
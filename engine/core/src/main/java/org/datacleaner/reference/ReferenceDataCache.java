@@ -0,0 +1,490 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.connection.ResourceDatastore;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of memory-mapped reference data indices, shared by all jobs and
+ * components running in the same JVM.
+ *
+ * Dictionaries and synonym catalogs which would otherwise be loaded into memory
+ * for every connection are written once to an index file in the cache
+ * directory and mapped into memory from there. An index is identified by a key
+ * (describing the reference data) and a version (eg. the modification time of
+ * a file). When the version of a key changes, the index is rebuilt. When the
+ * total size of the index files exceeds the size budget, the least recently
+ * used indices are evicted.
+ *
+ * The default cache is configured using the
+ * {@link SystemProperties#REFERENCE_DATA_CACHE_SIZE} and
+ * {@link SystemProperties#REFERENCE_DATA_CACHE_DIRECTORY} properties, and is
+ * disabled unless a size budget is set.
+ *
+ * Since the cache directory may be shared by several processes, each cache
+ * keeps its index files in a subdirectory of its own, which is locked while
+ * the cache is in use. Subdirectories that are no longer locked, because the
+ * process that created them has terminated, are deleted when a cache is
+ * created.
+ */
+public final class ReferenceDataCache {
+
+    private static final class CacheEntry {
+        private final String _version;
+        private final MappedReferenceDataIndex _index;
+        private final long _sizeInBytes;
+
+        private CacheEntry(final String version, final MappedReferenceDataIndex index) {
+            _version = version;
+            _index = index;
+            _sizeInBytes = index.getFile().length();
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private static final String FILE_SUFFIX = ".dcidx";
+    private static final String INSTANCE_DIRECTORY_PREFIX = "cache-";
+    private static final String LOCK_FILE_NAME = ".lock";
+    private static final long DEFAULT_TABLE_TTL_SECONDS = 300;
+
+    private static volatile ReferenceDataCache defaultInstance;
+
+    private final File _directory;
+    private final File _instanceDirectory;
+    // holds the lock of the instance directory for the lifetime of the cache
+    private final FileChannel _lockChannel;
+    private final long _maxSizeInBytes;
+    private final Map<String, CacheEntry> _entries;
+    private final ConcurrentMap<String, Object> _buildLocks;
+    private long _sizeInBytes;
+
+    /**
+     *
+     * @param directory
+     *            the directory to keep index files in. The directory may be
+     *            shared with the caches of other processes.
+     * @param maxSizeInBytes
+     *            the size budget of the cache, or 0 to disable the cache
+     */
+    public ReferenceDataCache(final File directory, final long maxSizeInBytes) {
+        _directory = directory;
+        _maxSizeInBytes = maxSizeInBytes;
+        _entries = new LinkedHashMap<>(16, 0.75f, true);
+        _buildLocks = new ConcurrentHashMap<>();
+        _sizeInBytes = 0;
+
+        if (isEnabled()) {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IllegalStateException("Could not create reference data cache directory: " + directory);
+            }
+            deleteAbandonedInstanceDirectories(directory);
+            try {
+                _instanceDirectory =
+                        Files.createTempDirectory(directory.toPath(), INSTANCE_DIRECTORY_PREFIX).toFile();
+                _lockChannel = lock(new File(_instanceDirectory, LOCK_FILE_NAME));
+            } catch (final IOException e) {
+                throw new IllegalStateException("Could not create reference data cache directory in: " + directory,
+                        e);
+            }
+            if (_lockChannel == null) {
+                throw new IllegalStateException("Could not lock reference data cache directory: "
+                        + _instanceDirectory);
+            }
+        } else {
+            _instanceDirectory = null;
+            _lockChannel = null;
+        }
+    }
+
+    /**
+     * Deletes the subdirectories of caches whose process has terminated, ie.
+     * which are not locked anymore.
+     *
+     * @param directory
+     */
+    private static void deleteAbandonedInstanceDirectories(final File directory) {
+        final File[] instanceDirectories =
+                directory.listFiles(file -> file.isDirectory() && file.getName().startsWith(INSTANCE_DIRECTORY_PREFIX));
+        if (instanceDirectories == null) {
+            return;
+        }
+        for (final File instanceDirectory : instanceDirectories) {
+            final File lockFile = new File(instanceDirectory, LOCK_FILE_NAME);
+            final FileChannel lockChannel;
+            try {
+                lockChannel = lock(lockFile);
+            } catch (final IOException e) {
+                logger.debug("Could not lock reference data cache directory, skipping it: {}", instanceDirectory, e);
+                continue;
+            }
+            if (lockChannel == null) {
+                // in use by another cache
+                continue;
+            }
+            try {
+                final File[] files = instanceDirectory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+                if (files != null) {
+                    for (final File file : files) {
+                        deleteFile(file);
+                    }
+                }
+            } finally {
+                closeQuietly(lockChannel);
+            }
+            deleteFile(lockFile);
+            deleteFile(instanceDirectory);
+            logger.info("Deleted abandoned reference data cache directory: {}", instanceDirectory);
+        }
+    }
+
+    /**
+     * Acquires an exclusive lock of a file, which is held until the returned
+     * channel is closed (or the process terminates).
+     *
+     * @param lockFile
+     * @return the channel holding the lock, or null if the file is locked
+     *         already
+     * @throws IOException
+     */
+    private static FileChannel lock(final File lockFile) throws IOException {
+        final FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        } catch (final OverlappingFileLockException e) {
+            // locked by a cache in this JVM
+        } catch (final IOException | RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        closeQuietly(channel);
+        return null;
+    }
+
+    private static void closeQuietly(final FileChannel channel) {
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            logger.debug("Could not close lock file channel", e);
+        }
+    }
+
+    /**
+     * Gets the default, JVM-wide cache instance.
+     *
+     * @return
+     */
+    public static ReferenceDataCache getDefault() {
+        ReferenceDataCache instance = defaultInstance;
+        if (instance == null) {
+            synchronized (ReferenceDataCache.class) {
+                instance = defaultInstance;
+                if (instance == null) {
+                    final long maxSize = SystemProperties.getLong(SystemProperties.REFERENCE_DATA_CACHE_SIZE, 0);
+                    final String directory = SystemProperties.getString(
+                            SystemProperties.REFERENCE_DATA_CACHE_DIRECTORY,
+                            new File(System.getProperty("java.io.tmpdir"), "datacleaner-referencedata").getPath());
+                    instance = new ReferenceDataCache(new File(directory), maxSize);
+                    defaultInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a version string for reference data stored in a
+     * {@link Resource}, based on the modification time and size of the
+     * resource.
+     *
+     * @param resource
+     * @return
+     */
+    public static String getVersion(final Resource resource) {
+        return resource.getLastModified() + "-" + resource.getSize();
+    }
+
+    /**
+     * Creates a version string for reference data stored in a table of a
+     * datastore. For resource based datastores the version is based on the
+     * resource.
+     *
+     * Other datastores do not tell when a table was modified, so the version
+     * is based on the number of records in the table, and additionally expires
+     * after the time to live set by the
+     * {@link SystemProperties#REFERENCE_DATA_CACHE_TABLE_TTL} property, so that
+     * modifications which do not change the number of records are picked up
+     * eventually.
+     *
+     * @param datastoreConnection
+     * @param table
+     * @return
+     */
+    public static String getVersion(final DatastoreConnection datastoreConnection, final Table table) {
+        final Datastore datastore = datastoreConnection.getDatastore();
+        if (datastore instanceof ResourceDatastore) {
+            final Resource resource = ((ResourceDatastore) datastore).getResource();
+            if (resource != null) {
+                return getVersion(resource);
+            }
+        }
+
+        final DataContext dataContext = datastoreConnection.getDataContext();
+        Object count = 0;
+        try (DataSet dataSet = dataContext.query().from(table).selectCount().execute()) {
+            if (dataSet.next()) {
+                count = dataSet.getRow().getValue(0);
+            }
+        }
+        final long ttlSeconds =
+                SystemProperties.getLong(SystemProperties.REFERENCE_DATA_CACHE_TABLE_TTL, DEFAULT_TABLE_TTL_SECONDS);
+        return getTableVersion(count, ttlSeconds, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a version string for a table with a number of records, which
+     * changes every time a time to live period has passed.
+     *
+     * @param count
+     * @param ttlSeconds
+     *            the time to live, or 0 for no expiry
+     * @param currentTimeMillis
+     * @return
+     */
+    static String getTableVersion(final Object count, final long ttlSeconds, final long currentTimeMillis) {
+        if (ttlSeconds <= 0) {
+            return "count-" + count;
+        }
+        return "count-" + count + "-period-" + currentTimeMillis / (ttlSeconds * 1000);
+    }
+
+    /**
+     * Creates a string identifying a datastore, for use in cache keys. Since
+     * datastore names are not necessarily unique (eg. across tenants), the
+     * location of the data is included where it is known.
+     *
+     * @param datastore
+     * @return
+     */
+    public static String getDatastoreKey(final Datastore datastore) {
+        final StringBuilder sb = new StringBuilder(datastore.getName());
+        if (datastore instanceof ResourceDatastore) {
+            final Resource resource = ((ResourceDatastore) datastore).getResource();
+            if (resource != null) {
+                sb.append('|').append(resource.getQualifiedPath());
+            }
+        } else if (datastore instanceof JdbcDatastore) {
+            final JdbcDatastore jdbcDatastore = (JdbcDatastore) datastore;
+            sb.append('|').append(jdbcDatastore.getJdbcUrl()).append('|').append(jdbcDatastore.getDatasourceJndiUrl())
+                    .append('|').append(jdbcDatastore.getUsername());
+        }
+        return sb.toString();
+    }
+
+    public boolean isEnabled() {
+        return _maxSizeInBytes > 0;
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    /**
+     * @return the subdirectory of {@link #getDirectory()} that this cache keeps
+     *         its index files in, or null if the cache is disabled
+     */
+    public File getInstanceDirectory() {
+        return _instanceDirectory;
+    }
+
+    public long getMaxSizeInBytes() {
+        return _maxSizeInBytes;
+    }
+
+    /**
+     * @return the total size of the index files currently in the cache
+     */
+    public synchronized long getSizeInBytes() {
+        return _sizeInBytes;
+    }
+
+    /**
+     * @return the number of indices currently in the cache
+     */
+    public synchronized int getIndexCount() {
+        return _entries.size();
+    }
+
+    /**
+     * Gets a cached index of reference data, building it if it is not cached
+     * or if its version has changed.
+     *
+     * @param key
+     *            the key identifying the reference data
+     * @param version
+     *            the current version of the reference data
+     * @param loader
+     *            loads the entries of the reference data (keys and optional
+     *            values), if the index needs to be built
+     * @param keyNormalizer
+     *            turns keys into lookup keys, eg. by lower-casing them
+     * @return
+     */
+    MappedReferenceDataIndex getIndex(final String key, final String version,
+            final Supplier<Map<String, String>> loader, final Function<String, String> keyNormalizer) {
+        final MappedReferenceDataIndex cachedIndex = getCachedIndex(key, version);
+        if (cachedIndex != null) {
+            return cachedIndex;
+        }
+
+        // only one thread builds the index of a particular key. The lock is
+        // removed once the index is built, so that the locks of keys that are
+        // no longer used do not pile up. A thread that is already waiting for
+        // the removed lock will find the built index.
+        final Object buildLock = _buildLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (buildLock) {
+            try {
+                final MappedReferenceDataIndex builtIndex = getCachedIndex(key, version);
+                if (builtIndex != null) {
+                    return builtIndex;
+                }
+                return buildIndex(key, version, loader, keyNormalizer);
+            } finally {
+                _buildLocks.remove(key, buildLock);
+            }
+        }
+    }
+
+    private MappedReferenceDataIndex buildIndex(final String key, final String version,
+            final Supplier<Map<String, String>> loader, final Function<String, String> keyNormalizer) {
+        final long start = System.currentTimeMillis();
+        final Map<String, String> entries = loader.get();
+        final MappedReferenceDataIndex index;
+        try {
+            final File file = File.createTempFile("referencedata", FILE_SUFFIX, _instanceDirectory);
+            try {
+                MappedReferenceDataIndex.write(file, entries.keySet(), keyNormalizer, entries::get);
+                index = MappedReferenceDataIndex.open(file);
+            } catch (final IOException | RuntimeException e) {
+                deleteFile(file);
+                throw e;
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to build reference data index for " + key, e);
+        }
+        logger.info("Built reference data index for {} with {} entries in {} ms", key, index.size(),
+                System.currentTimeMillis() - start);
+
+        putIndex(key, new CacheEntry(version, index));
+        return index;
+    }
+
+    /**
+     * @return the number of keys whose index is currently being built
+     */
+    int getBuildLockCount() {
+        return _buildLocks.size();
+    }
+
+    private synchronized MappedReferenceDataIndex getCachedIndex(final String key, final String version) {
+        final CacheEntry entry = _entries.get(key);
+        if (entry != null && entry._version.equals(version)) {
+            return entry._index;
+        }
+        return null;
+    }
+
+    private synchronized void putIndex(final String key, final CacheEntry entry) {
+        final CacheEntry previousEntry = _entries.put(key, entry);
+        if (previousEntry != null) {
+            removeEntry(previousEntry);
+        }
+        _sizeInBytes += entry._sizeInBytes;
+
+        // evict the least recently used indices, but always keep the new one
+        final Iterator<CacheEntry> it = _entries.values().iterator();
+        while (_sizeInBytes > _maxSizeInBytes && it.hasNext()) {
+            final CacheEntry eldestEntry = it.next();
+            if (eldestEntry != entry) {
+                it.remove();
+                removeEntry(eldestEntry);
+                logger.info("Evicted reference data index {} from cache", eldestEntry._index);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry's file. Connections which already use the index keep
+     * their mapping of the file.
+     *
+     * @param entry
+     */
+    private void removeEntry(final CacheEntry entry) {
+        _sizeInBytes -= entry._sizeInBytes;
+        deleteFile(entry._index.getFile());
+    }
+
+    /**
+     * Removes all indices from the cache.
+     */
+    public synchronized void clear() {
+        final List<CacheEntry> entries = new ArrayList<>(_entries.values());
+        _entries.clear();
+        for (final CacheEntry entry : entries) {
+            removeEntry(entry);
+        }
+    }
+
+    private static void deleteFile(final File file) {
+        if (!file.delete() && file.exists()) {
+            logger.warn("Could not delete reference data index file: {}", file);
+            file.deleteOnExit();
+        }
+    }
+}
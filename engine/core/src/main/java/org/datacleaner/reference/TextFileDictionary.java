@@ -26,6 +26,7 @@ import java.lang.reflect.Field;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
@@ -36,6 +37,8 @@ import org.datacleaner.util.convert.ResourceConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
+
 /**
  * Dictionary based on a simple text file containing the values of the
  * dictionary. Each line of the file will be treated as a value within the
@@ -87,8 +90,24 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
     public DictionaryConnection openConnection(final DataCleanerConfiguration configuration) {
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
-        final Set<String> values = resource.read(in -> {
-            final Set<String> values1 = new HashSet<>();
+
+        final ReferenceDataCache cache = ReferenceDataCache.getDefault();
+        if (cache.isEnabled()) {
+            final String cacheKey = "TextFileDictionary|" + resource.getQualifiedPath() + "|" + getEncoding() + "|"
+                    + _caseSensitive;
+            final MappedReferenceDataIndex index =
+                    cache.getIndex(cacheKey, ReferenceDataCache.getVersion(resource),
+                            () -> Maps.asMap(readValues(resource), value -> null), Function.identity());
+            return new MappedDictionaryConnection(index, _caseSensitive);
+        }
+
+        final SimpleDictionary simpleDictionary = new SimpleDictionary(getName(), readValues(resource), _caseSensitive);
+        return simpleDictionary.openConnection(configuration);
+    }
+
+    private Set<String> readValues(final Resource resource) {
+        return resource.read(in -> {
+            final Set<String> values = new HashSet<>();
             final BufferedReader reader = FileHelper.getBufferedReader(in, getEncoding());
             try {
                 String line = reader.readLine();
@@ -96,7 +115,7 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
                     if (!_caseSensitive) {
                         line = line.toLowerCase();
                     }
-                    values1.add(line);
+                    values.add(line);
                     line = reader.readLine();
                 }
             } catch (final IOException e) {
@@ -104,11 +123,8 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
             } finally {
                 FileHelper.safeClose(reader);
             }
-            return values1;
+            return values;
         });
-
-        final SimpleDictionary simpleDictionary = new SimpleDictionary(getName(), values, _caseSensitive);
-        return simpleDictionary.openConnection(configuration);
     }
 
     @Override
@@ -26,6 +26,7 @@ import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Resource;
@@ -75,7 +76,23 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
 
-        final Map<String, String> synonyms = resource.read(in -> {
+        final ReferenceDataCache cache = ReferenceDataCache.getDefault();
+        if (cache.isEnabled()) {
+            final String cacheKey = "TextFileSynonymCatalog|" + resource.getQualifiedPath() + "|" + _encoding + "|"
+                    + _caseSensitive;
+            final Function<String, String> keyNormalizer = _caseSensitive ? Function.identity() : String::toLowerCase;
+            final MappedReferenceDataIndex index =
+                    cache.getIndex(cacheKey, ReferenceDataCache.getVersion(resource), () -> readSynonyms(resource),
+                            keyNormalizer);
+            return new MappedSynonymCatalogConnection(index, _caseSensitive);
+        }
+
+        final Map<String, String> synonyms = readSynonyms(resource);
+        return new SimpleSynonymCatalog(getName(), synonyms, _caseSensitive).openConnection(configuration);
+    }
+
+    private Map<String, String> readSynonyms(final Resource resource) {
+        return resource.read(in -> {
             final Map<String, String> synonyms1 = new HashMap<>();
 
             final CSVParser parser = new CSVParser(',', '"', '\\');
@@ -106,8 +123,6 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
 
             return synonyms1;
         });
-
-        return new SimpleSynonymCatalog(getName(), synonyms, _caseSensitive).openConnection(configuration);
     }
 
     private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
@@ -19,6 +19,99 @@
  */
 package org.datacleaner.storage;
 
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+
+/**
+ * Abstract implementation of {@link RowAnnotationFactory} for factories that
+ * keep a sample of the annotated rows. Row counts are kept lock-free in the
+ * annotations created by the factory, and rows annotated with a distinct
+ * count are handed to the sampling logic once, rather than once per count.
+ *
+ * Annotations that were not created by the factory (eg. a
+ * {@link RowAnnotationImpl} created by a result reducer) are supported as
+ * well.
+ */
 public abstract class AbstractRowAnnotationSampler implements RowAnnotationFactory {
 
+    @Override
+    public final RowAnnotation createAnnotation() {
+        return new SampledRowAnnotation();
+    }
+
+    @Override
+    public final void annotate(final InputRow row, final RowAnnotation annotation) {
+        annotate(row, 1, annotation);
+    }
+
+    @Override
+    public final void annotate(final InputRow row, final int distinctCount, final RowAnnotation annotation) {
+        incrementRowCount(annotation, distinctCount);
+        sample(row, distinctCount, annotation);
+    }
+
+    @Override
+    public void resetAnnotation(final RowAnnotation annotation) {
+        resetRowCount(annotation);
+        resetSamples(annotation);
+    }
+
+    @Override
+    public void transferAnnotations(final RowAnnotation from, final RowAnnotation to) {
+        incrementRowCount(to, from.getRowCount());
+        resetRowCount(from);
+        transferSamples(from, to);
+    }
+
+    @Override
+    public boolean hasSampleRows(final RowAnnotation annotation) {
+        final List<InputRow> sampleRows = getSampleRows(annotation);
+        return sampleRows != null && !sampleRows.isEmpty();
+    }
+
+    /**
+     * Offers a row to the sample of an annotation.
+     *
+     * @param row
+     * @param distinctCount
+     *            the number of times the row occurs
+     * @param annotation
+     */
+    protected abstract void sample(InputRow row, int distinctCount, RowAnnotation annotation);
+
+    /**
+     * Discards the sample of an annotation.
+     *
+     * @param annotation
+     */
+    protected abstract void resetSamples(RowAnnotation annotation);
+
+    /**
+     * Moves the sample of an annotation to another annotation.
+     *
+     * @param from
+     * @param to
+     */
+    protected abstract void transferSamples(RowAnnotation from, RowAnnotation to);
+
+    private static void incrementRowCount(final RowAnnotation annotation, final int increment) {
+        if (annotation instanceof SampledRowAnnotation) {
+            ((SampledRowAnnotation) annotation).incrementRowCount(increment);
+        } else if (annotation instanceof RowAnnotationImpl) {
+            ((RowAnnotationImpl) annotation).incrementRowCount(increment);
+        } else {
+            throw new IllegalArgumentException("Unsupported annotation type: " + annotation);
+        }
+    }
+
+    private static void resetRowCount(final RowAnnotation annotation) {
+        if (annotation instanceof SampledRowAnnotation) {
+            ((SampledRowAnnotation) annotation).resetRowCount();
+        } else if (annotation instanceof RowAnnotationImpl) {
+            ((RowAnnotationImpl) annotation).resetRowCount();
+        } else {
+            throw new IllegalArgumentException("Unsupported annotation type: " + annotation);
+        }
+    }
 }
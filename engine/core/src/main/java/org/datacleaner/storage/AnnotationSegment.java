@@ -0,0 +1,201 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only, memory-mapped file holding the encoded sample rows of a
+ * single {@link RowAnnotation}. The mapping is grown (by remapping the file
+ * with twice the size) as records are appended. Records are never modified once
+ * written, so readers can work on a snapshot of the segment without locking.
+ */
+final class AnnotationSegment {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnnotationSegment.class);
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final File _file;
+    private MappedByteBuffer _buffer;
+    // the start offset of every record, followed by the end offset of the last
+    private int[] _offsets;
+    private int _rowCount;
+    private boolean _deleted;
+
+    public AnnotationSegment(final File file) {
+        _file = file;
+        _offsets = new int[16];
+        _rowCount = 0;
+        _deleted = false;
+    }
+
+    public synchronized int getRowCount() {
+        return _rowCount;
+    }
+
+    /**
+     * Appends an encoded record to the segment.
+     *
+     * @param record
+     * @param maxRows
+     *            the maximum number of records in the segment
+     * @return whether or not the record was appended
+     */
+    public synchronized boolean append(final byte[] record, final int maxRows) {
+        if (_deleted || _rowCount >= maxRows) {
+            return false;
+        }
+
+        final int start = _offsets[_rowCount];
+        final long end = (long) start + record.length;
+        if (!ensureCapacity(end)) {
+            logger.warn("Sample segment {} is full, discarding sample row", _file);
+            return false;
+        }
+
+        final ByteBuffer target = _buffer.duplicate();
+        target.position(start);
+        target.put(record);
+
+        if (_rowCount + 2 > _offsets.length) {
+            _offsets = Arrays.copyOf(_offsets, _offsets.length * 2);
+        }
+        _rowCount++;
+        _offsets[_rowCount] = (int) end;
+        return true;
+    }
+
+    private boolean ensureCapacity(final long required) {
+        final long capacity = _buffer == null ? 0 : _buffer.capacity();
+        if (required <= capacity) {
+            return true;
+        }
+        if (required > MAX_CAPACITY) {
+            return false;
+        }
+
+        long newCapacity = Math.max(INITIAL_CAPACITY, capacity);
+        while (newCapacity < required) {
+            newCapacity *= 2;
+        }
+        newCapacity = Math.min(newCapacity, MAX_CAPACITY);
+
+        // the mapping stays valid after the file is closed, so no file
+        // handles are held by the segment
+        try (RandomAccessFile file = new RandomAccessFile(_file, "rw")) {
+            file.setLength(newCapacity);
+            _buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to map sample segment: " + _file, e);
+        }
+        return true;
+    }
+
+    /**
+     * Gets a copy of a single encoded record.
+     *
+     * @param index
+     * @return
+     */
+    public synchronized byte[] getRecord(final int index) {
+        return readRecord(_buffer, _offsets, index);
+    }
+
+    /**
+     * Gets a view of the records currently in the segment, decoding them on
+     * access.
+     *
+     * @param decoder
+     * @return
+     */
+    public synchronized <E> List<E> getRecords(final Function<byte[], E> decoder) {
+        if (_rowCount == 0) {
+            return Collections.emptyList();
+        }
+        return new RecordList<>(_buffer, Arrays.copyOf(_offsets, _rowCount + 1), _rowCount, decoder);
+    }
+
+    /**
+     * Deletes the segment's file. No more records can be appended afterwards,
+     * but views already handed out remain readable.
+     */
+    public synchronized void delete() {
+        _deleted = true;
+        _buffer = null;
+        _rowCount = 0;
+        if (_file.exists() && !_file.delete()) {
+            logger.debug("Unable to delete sample segment (may still be mapped): {}", _file);
+            _file.deleteOnExit();
+        }
+    }
+
+    private static byte[] readRecord(final ByteBuffer buffer, final int[] offsets, final int index) {
+        final int start = offsets[index];
+        final byte[] record = new byte[offsets[index + 1] - start];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(start);
+        source.get(record);
+        return record;
+    }
+
+    private static final class RecordList<E> extends AbstractList<E> implements RandomAccess {
+
+        private final ByteBuffer _buffer;
+        private final int[] _offsets;
+        private final int _size;
+        private final Function<byte[], E> _decoder;
+
+        RecordList(final ByteBuffer buffer, final int[] offsets, final int size, final Function<byte[], E> decoder) {
+            _buffer = buffer;
+            _offsets = offsets;
+            _size = size;
+            _decoder = decoder;
+        }
+
+        @Override
+        public E get(final int index) {
+            if (index < 0 || index >= _size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+            }
+            return _decoder.apply(readRecord(_buffer, _offsets, index));
+        }
+
+        @Override
+        public int size() {
+            return _size;
+        }
+    }
+}
@@ -152,6 +152,17 @@ public final class InMemoryRowAnnotationFactory2 extends AbstractRowAnnotationFa
         _storage.remove(from);
     }
 
+    /**
+     * Puts a collection of sample rows, without incrementing the row count of
+     * the annotation. Used when converting other factories to in-memory ones.
+     *
+     * @param annotation
+     * @param sampleRows
+     */
+    void putSampleRows(final RowAnnotation annotation, final List<InputRow> sampleRows) {
+        _storage.put(annotation, sampleRows);
+    }
+
     @Override
     public boolean hasSampleRows(final RowAnnotation annotation) {
         return _storage.containsKey(annotation);
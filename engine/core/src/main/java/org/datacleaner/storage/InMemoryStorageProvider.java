@@ -40,6 +40,7 @@ public final class InMemoryStorageProvider implements StorageProvider {
 
     private final int _maxSampleSets;
     private final int _maxSampleRecords;
+    private final boolean _reservoirSampling;
 
     public InMemoryStorageProvider() {
         this(DEFAULT_MAX_SAMPLE_SETS, DEFAULT_MAX_SAMPLE_RECORDS);
@@ -50,8 +51,18 @@ public final class InMemoryStorageProvider implements StorageProvider {
     }
 
     public InMemoryStorageProvider(final int maxSampleSets, final int maxSampleRecords) {
+        this(maxSampleSets, maxSampleRecords, false);
+    }
+
+    public InMemoryStorageProvider(final int maxSampleSets, final int maxSampleRecords,
+            final boolean reservoirSampling) {
         _maxSampleSets = Math.max(0, maxSampleSets);
         _maxSampleRecords = Math.max(0, maxSampleRecords);
+        _reservoirSampling = reservoirSampling;
+    }
+
+    public boolean isReservoirSampling() {
+        return _reservoirSampling;
     }
 
     @Override
@@ -71,6 +82,9 @@ public final class InMemoryStorageProvider implements StorageProvider {
 
     @Override
     public RowAnnotationFactory createRowAnnotationFactory() {
+        if (_reservoirSampling) {
+            return RowAnnotations.getSamplingFactory(_maxSampleSets, _maxSampleRecords);
+        }
         return RowAnnotations.getInMemoryFactory(_maxSampleSets, _maxSampleRecords);
     }
 }
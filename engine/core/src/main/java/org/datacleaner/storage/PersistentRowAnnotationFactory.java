@@ -0,0 +1,216 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MutableInputColumn;
+
+/**
+ * Disk-backed implementation of {@link RowAnnotationFactory}. Instead of
+ * keeping the sample rows on the heap, only the (non-hidden) columns of the
+ * sample rows are encoded and appended to a memory-mapped segment file per
+ * annotation. This keeps memory usage bounded and allows for much larger
+ * sample sets than {@link InMemoryRowAnnotationFactory2}.
+ *
+ * When serialized (eg. as part of an analysis result) the factory is replaced
+ * by an {@link InMemoryRowAnnotationFactory2} holding the sample rows.
+ */
+public final class PersistentRowAnnotationFactory extends AbstractRowAnnotationFactory2
+        implements RowAnnotationFactory, Serializable {
+
+    public static final int DEFAULT_MAX_SAMPLE_SETS = 5000;
+    public static final int DEFAULT_MAX_SAMPLE_RECORDS = 5000;
+
+    private static final long serialVersionUID = 1L;
+
+    private final File _directory;
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+    private final ConcurrentHashMap<RowAnnotation, AnnotationSegment> _segments;
+    private final List<List<InputColumn<?>>> _layouts;
+    private final ConcurrentHashMap<List<InputColumn<?>>, Integer> _layoutIds;
+
+    public PersistentRowAnnotationFactory(final File directory) {
+        this(directory, DEFAULT_MAX_SAMPLE_SETS, DEFAULT_MAX_SAMPLE_RECORDS);
+    }
+
+    /**
+     *
+     * @param directory
+     *            the directory to store segment files in
+     * @param maxSampleSets
+     *            the maximum number of sample record collections to keep
+     * @param maxSampleRecords
+     *            the maximum number of records to keep in each collection
+     */
+    public PersistentRowAnnotationFactory(final File directory, final int maxSampleSets,
+            final int maxSampleRecords) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create directory: " + directory);
+        }
+        _directory = directory;
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _maxSampleRecords = Math.max(0, maxSampleRecords);
+        _segments = new ConcurrentHashMap<>();
+        _layouts = new CopyOnWriteArrayList<>();
+        _layoutIds = new ConcurrentHashMap<>();
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    private AnnotationSegment getSegment(final RowAnnotation annotation) {
+        AnnotationSegment segment = _segments.get(annotation);
+        if (segment == null) {
+            if (_segments.size() >= _maxSampleSets) {
+                return null;
+            }
+            segment = new AnnotationSegment(createSegmentFile());
+            final AnnotationSegment existingSegment = _segments.putIfAbsent(annotation, segment);
+            if (existingSegment != null) {
+                segment = existingSegment;
+            }
+        }
+        return segment;
+    }
+
+    private File createSegmentFile() {
+        try {
+            final File file = File.createTempFile("annotation_", ".segment", _directory);
+            file.deleteOnExit();
+            return file;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not create sample segment file in directory: " + _directory, e);
+        }
+    }
+
+    @Override
+    public void annotate(final InputRow row, final RowAnnotation annotation) {
+        super.annotate(row, annotation);
+
+        final AnnotationSegment segment = getSegment(annotation);
+        if (segment == null || segment.getRowCount() >= _maxSampleRecords) {
+            // avoid encoding rows that will be discarded anyway
+            return;
+        }
+        segment.append(encode(row), _maxSampleRecords);
+    }
+
+    private byte[] encode(final InputRow row) {
+        final List<InputColumn<?>> inputColumns = row.getInputColumns();
+        final List<InputColumn<?>> columns = new ArrayList<>(inputColumns.size());
+        for (final InputColumn<?> column : inputColumns) {
+            if (column instanceof MutableInputColumn && ((MutableInputColumn<?>) column).isHidden()) {
+                continue;
+            }
+            columns.add(column);
+        }
+        return SampleRowCodec.encode(row.getId(), getLayoutId(columns), row.getValues(columns));
+    }
+
+    private int getLayoutId(final List<InputColumn<?>> columns) {
+        final Integer layoutId = _layoutIds.get(columns);
+        if (layoutId != null) {
+            return layoutId;
+        }
+        synchronized (_layouts) {
+            return _layoutIds.computeIfAbsent(columns, key -> {
+                _layouts.add(Collections.unmodifiableList(key));
+                return _layouts.size() - 1;
+            });
+        }
+    }
+
+    private InputRow decode(final byte[] record) {
+        return SampleRowCodec.decode(record, _layouts);
+    }
+
+    @Override
+    public void resetAnnotation(final RowAnnotation annotation) {
+        super.resetAnnotation(annotation);
+
+        final AnnotationSegment segment = _segments.remove(annotation);
+        if (segment != null) {
+            segment.delete();
+        }
+    }
+
+    @Override
+    public List<InputRow> getSampleRows(final RowAnnotation annotation) {
+        final AnnotationSegment segment = _segments.get(annotation);
+        if (segment == null) {
+            return Collections.emptyList();
+        }
+        return segment.getRecords(this::decode);
+    }
+
+    @Override
+    public void transferAnnotations(final RowAnnotation from, final RowAnnotation to) {
+        super.transferAnnotations(from, to);
+
+        final AnnotationSegment fromSegment = _segments.remove(from);
+        if (fromSegment == null) {
+            return;
+        }
+
+        final int rowCount = fromSegment.getRowCount();
+        final AnnotationSegment toSegment = rowCount == 0 ? null : getSegment(to);
+        if (toSegment != null) {
+            // records are copied as-is, without decoding them
+            for (int i = 0; i < rowCount; i++) {
+                if (!toSegment.append(fromSegment.getRecord(i), _maxSampleRecords)) {
+                    break;
+                }
+            }
+        }
+        fromSegment.delete();
+    }
+
+    @Override
+    public boolean hasSampleRows(final RowAnnotation annotation) {
+        final AnnotationSegment segment = _segments.get(annotation);
+        return segment != null && segment.getRowCount() > 0;
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        final InMemoryRowAnnotationFactory2 replacement =
+                new InMemoryRowAnnotationFactory2(_maxSampleSets, _maxSampleRecords);
+        for (final Entry<RowAnnotation, AnnotationSegment> entry : _segments.entrySet()) {
+            final List<InputRow> sampleRows = entry.getValue().getRecords(this::decode);
+            if (!sampleRows.isEmpty()) {
+                replacement.putSampleRows(entry.getKey(), new ArrayList<>(sampleRows));
+            }
+        }
+        return replacement;
+    }
+}
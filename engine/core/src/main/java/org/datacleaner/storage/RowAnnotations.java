@@ -19,6 +19,8 @@
  */
 package org.datacleaner.storage;
 
+import java.io.File;
+
 public class RowAnnotations {
 
     public static RowAnnotationFactory getDefaultFactory() {
@@ -32,4 +34,21 @@ public class RowAnnotations {
     public static RowAnnotationFactory getInMemoryFactory(final int maxSampleSets, final int maxSampledRecords) {
         return new InMemoryRowAnnotationFactory2(maxSampleSets, maxSampledRecords);
     }
+
+    public static RowAnnotationFactory getSamplingFactory() {
+        return getSamplingFactory(500, 500);
+    }
+
+    public static RowAnnotationFactory getSamplingFactory(final int maxSampleSets, final int maxSampledRecords) {
+        return new SamplingRowAnnotationFactory(maxSampleSets, maxSampledRecords);
+    }
+
+    public static RowAnnotationFactory getPersistentFactory(final File directory) {
+        return new PersistentRowAnnotationFactory(directory);
+    }
+
+    public static RowAnnotationFactory getPersistentFactory(final File directory, final int maxSampleSets,
+            final int maxSampledRecords) {
+        return new PersistentRowAnnotationFactory(directory, maxSampleSets, maxSampledRecords);
+    }
 }
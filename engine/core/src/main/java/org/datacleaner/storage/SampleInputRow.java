@@ -0,0 +1,86 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.data.AbstractInputRow;
+
+/**
+ * Compact {@link org.datacleaner.api.InputRow} implementation for sample rows
+ * read back from an {@link AnnotationSegment}. Only the (projected) columns of
+ * the original row and their values are retained.
+ */
+final class SampleInputRow extends AbstractInputRow {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long _id;
+    private final List<InputColumn<?>> _columns;
+    private final Object[] _values;
+
+    public SampleInputRow(final long id, final List<InputColumn<?>> columns, final Object[] values) {
+        _id = id;
+        _columns = columns;
+        _values = values;
+    }
+
+    @Override
+    public long getId() {
+        return _id;
+    }
+
+    @Override
+    public List<InputColumn<?>> getInputColumns() {
+        return _columns;
+    }
+
+    @Override
+    public boolean containsInputColumn(final InputColumn<?> inputColumn) {
+        return indexOf(inputColumn) != -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected <E> E getValueInternal(final InputColumn<E> column) {
+        final int index = indexOf(column);
+        if (index == -1) {
+            return null;
+        }
+        return (E) _values[index];
+    }
+
+    private int indexOf(final InputColumn<?> column) {
+        final int size = _columns.size();
+        for (int i = 0; i < size; i++) {
+            if (_columns.get(i) == column) {
+                return i;
+            }
+        }
+        return _columns.indexOf(column);
+    }
+
+    @Override
+    public String toString() {
+        return "SampleInputRow[id=" + _id + ",values=" + Arrays.toString(_values) + "]";
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.util.ChangeAwareObjectInputStream;
+
+/**
+ * Binary encoding of sample rows, as stored in {@link AnnotationSegment}s. A
+ * record consists of the row id, the id of the row's column layout and the
+ * values of the row. Common value types are written with a type tag and their
+ * primitive representation, while other values fall back to Java
+ * serialization (or their string representation if not serializable).
+ */
+final class SampleRowCodec {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_SHORT = 6;
+    private static final byte TYPE_BYTE = 7;
+    private static final byte TYPE_BOOLEAN = 8;
+    private static final byte TYPE_CHARACTER = 9;
+    private static final byte TYPE_DATE = 10;
+    private static final byte TYPE_BIG_DECIMAL = 11;
+    private static final byte TYPE_BIG_INTEGER = 12;
+    private static final byte TYPE_SERIALIZED = 13;
+
+    private SampleRowCodec() {
+        // prevent instantiation
+    }
+
+    public static byte[] encode(final long rowId, final int layoutId, final List<Object> values) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(rowId);
+            out.writeInt(layoutId);
+            out.writeInt(values.size());
+            for (final Object value : values) {
+                writeValue(out, value);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to encode sample row " + rowId, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SampleInputRow decode(final byte[] record, final List<List<InputColumn<?>>> layouts) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            final long rowId = in.readLong();
+            final int layoutId = in.readInt();
+            final Object[] values = new Object[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(in);
+            }
+            return new SampleInputRow(rowId, layouts.get(layoutId), values);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to decode sample row", e);
+        }
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value.getClass() == Date.class) {
+            // subclasses (eg. java.sql.Timestamp) carry more state
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof Serializable) {
+            out.writeByte(TYPE_SERIALIZED);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_FLOAT:
+            return in.readFloat();
+        case TYPE_SHORT:
+            return in.readShort();
+        case TYPE_BYTE:
+            return in.readByte();
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_CHARACTER:
+            return in.readChar();
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        case TYPE_BIG_DECIMAL:
+            return new BigDecimal(readString(in));
+        case TYPE_BIG_INTEGER:
+            return new BigInteger(readString(in));
+        case TYPE_SERIALIZED:
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream objectIn = new ChangeAwareObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return objectIn.readObject();
+            } catch (final ClassNotFoundException e) {
+                throw new IllegalStateException("Failed to deserialize sample value", e);
+            }
+        default:
+            throw new IllegalStateException("Unknown value type in sample row: " + type);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        // not using writeUTF(...) since it is limited to 64K bytes
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
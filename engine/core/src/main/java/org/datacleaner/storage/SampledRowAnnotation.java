@@ -0,0 +1,55 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ObjectStreamException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link RowAnnotation} created by {@link AbstractRowAnnotationSampler}s. The
+ * row count is kept in a {@link LongAdder} so that annotating rows from many
+ * threads does not contend on a single counter.
+ *
+ * When serialized the annotation is replaced by a {@link RowAnnotationImpl}
+ * with the same row count.
+ */
+final class SampledRowAnnotation implements RowAnnotation {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LongAdder _counter = new LongAdder();
+
+    public void incrementRowCount(final int increment) {
+        _counter.add(increment);
+    }
+
+    public void resetRowCount() {
+        _counter.reset();
+    }
+
+    @Override
+    public int getRowCount() {
+        return (int) Math.min(Integer.MAX_VALUE, _counter.sum());
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new RowAnnotationImpl(getRowCount());
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.datacleaner.api.InputRow;
+
+/**
+ * {@link RowAnnotationFactory} which keeps a uniform random sample of the
+ * annotated rows, rather than the first N rows as in
+ * {@link InMemoryRowAnnotationFactory2}.
+ *
+ * Every annotation has a fixed number of reservoirs (stripes), sized from the
+ * number of processors. An annotating thread claims a reservoir that no other
+ * thread is writing to, so threads rarely wait on each other, and reservoirs are
+ * reused by the threads of later tasks. The reservoirs are merged into a single
+ * sample, weighted by the number of rows each of them has seen, when the sample
+ * rows are requested.
+ *
+ * Note that while a job is running the factory can hold up to
+ * maxSampleRecords rows per annotation for each stripe.
+ */
+public final class SamplingRowAnnotationFactory extends AbstractRowAnnotationSampler implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    private final transient ConcurrentHashMap<RowAnnotation, AnnotationSamples> _samples;
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+
+    public SamplingRowAnnotationFactory(final int maxSampleSets, final int maxSampleRecords) {
+        _samples = new ConcurrentHashMap<>();
+        _maxSampleSets = maxSampleSets;
+        _maxSampleRecords = maxSampleRecords;
+    }
+
+    @Override
+    protected void sample(final InputRow row, final int distinctCount, final RowAnnotation annotation) {
+        if (distinctCount <= 0) {
+            return;
+        }
+        final AnnotationSamples samples = getOrCreateSamples(annotation);
+        if (samples != null) {
+            final Reservoir reservoir = samples.acquireReservoir();
+            try {
+                reservoir.add(row, distinctCount);
+            } finally {
+                reservoir._lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Determines the number of stripes: the smallest power of two that is at
+     * least twice the number of processors.
+     */
+    static int stripeCount(final int processors) {
+        return Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1;
+    }
+
+    /**
+     * Gets the number of reservoirs that have been created for an annotation.
+     */
+    int getReservoirCount(final RowAnnotation annotation) {
+        final AnnotationSamples samples = _samples.get(annotation);
+        return samples == null ? 0 : samples.getReservoirCount();
+    }
+
+    @Override
+    protected void resetSamples(final RowAnnotation annotation) {
+        _samples.remove(annotation);
+    }
+
+    @Override
+    protected void transferSamples(final RowAnnotation from, final RowAnnotation to) {
+        final AnnotationSamples fromSamples = _samples.remove(from);
+        if (fromSamples == null) {
+            return;
+        }
+        final List<WeightedSample> weightedSamples = fromSamples.getWeightedSamples();
+        if (weightedSamples.isEmpty()) {
+            return;
+        }
+        final AnnotationSamples toSamples = getOrCreateSamples(to);
+        if (toSamples != null) {
+            toSamples.addTransferred(merge(weightedSamples, from));
+        }
+    }
+
+    @Override
+    public List<InputRow> getSampleRows(final RowAnnotation annotation) {
+        final AnnotationSamples samples = _samples.get(annotation);
+        if (samples == null) {
+            return Collections.emptyList();
+        }
+        return merge(samples.getWeightedSamples(), annotation).getRows();
+    }
+
+    @Override
+    public boolean hasSampleRows(final RowAnnotation annotation) {
+        final AnnotationSamples samples = _samples.get(annotation);
+        return samples != null && !samples.getWeightedSamples().isEmpty();
+    }
+
+    private AnnotationSamples getOrCreateSamples(final RowAnnotation annotation) {
+        final AnnotationSamples samples = _samples.get(annotation);
+        if (samples != null) {
+            return samples;
+        }
+        if (_maxSampleRecords <= 0 || _samples.size() >= _maxSampleSets) {
+            return null;
+        }
+        return _samples.computeIfAbsent(annotation, key -> new AnnotationSamples(_maxSampleRecords));
+    }
+
+    /**
+     * Merges a number of weighted samples into a single sample of at most
+     * maxSampleRecords rows, using weighted random sampling (Efraimidis and
+     * Spirakis) where every row of a sample represents seen/size rows. The
+     * random seed is derived from the annotation and the number of rows seen,
+     * so that repeatedly merging unchanged samples yields the same rows.
+     */
+    private WeightedSample merge(final List<WeightedSample> weightedSamples, final RowAnnotation annotation) {
+        if (weightedSamples.size() == 1) {
+            return weightedSamples.get(0);
+        }
+
+        long seen = 0;
+        int size = 0;
+        for (final WeightedSample weightedSample : weightedSamples) {
+            seen += weightedSample.getSeen();
+            size += weightedSample.getRows().size();
+        }
+
+        final List<InputRow> rows = new ArrayList<>(Math.min(size, _maxSampleRecords));
+        if (size <= _maxSampleRecords) {
+            for (final WeightedSample weightedSample : weightedSamples) {
+                rows.addAll(weightedSample.getRows());
+            }
+            return new WeightedSample(rows, seen);
+        }
+
+        final Random random = new Random(System.identityHashCode(annotation) * 31L + seen);
+        final List<Entry<Double, InputRow>> keyedRows = new ArrayList<>(size);
+        for (final WeightedSample weightedSample : weightedSamples) {
+            final List<InputRow> sampleRows = weightedSample.getRows();
+            final double weight = (double) weightedSample.getSeen() / sampleRows.size();
+            for (final InputRow row : sampleRows) {
+                final double key = Math.log(1d - random.nextDouble()) / weight;
+                keyedRows.add(new SimpleImmutableEntry<>(key, row));
+            }
+        }
+        keyedRows.sort((o1, o2) -> Double.compare(o2.getKey(), o1.getKey()));
+        for (int i = 0; i < _maxSampleRecords; i++) {
+            rows.add(keyedRows.get(i).getValue());
+        }
+        return new WeightedSample(rows, seen);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        final InMemoryRowAnnotationFactory2 replacement =
+                new InMemoryRowAnnotationFactory2(_maxSampleSets, _maxSampleRecords);
+        for (final Entry<RowAnnotation, AnnotationSamples> entry : _samples.entrySet()) {
+            final List<WeightedSample> weightedSamples = entry.getValue().getWeightedSamples();
+            if (!weightedSamples.isEmpty()) {
+                final List<InputRow> sampleRows = merge(weightedSamples, entry.getKey()).getRows();
+                replacement.putSampleRows(entry.getKey(), new ArrayList<>(sampleRows));
+            }
+        }
+        return replacement;
+    }
+
+    /**
+     * The samples of a single annotation: a bounded number of reservoirs plus
+     * the (merged) samples transferred from other annotations.
+     */
+    private static final class AnnotationSamples {
+
+        private final AtomicReferenceArray<Reservoir> _reservoirs;
+        private final int _capacity;
+        private WeightedSample _transferred;
+
+        public AnnotationSamples(final int capacity) {
+            _reservoirs = new AtomicReferenceArray<>(STRIPES);
+            _capacity = capacity;
+        }
+
+        /**
+         * Claims a reservoir for the current thread, preferably one that no
+         * other thread is writing to. The caller must unlock the reservoir's
+         * lock when done.
+         */
+        public Reservoir acquireReservoir() {
+            final int home = (int) (Thread.currentThread().getId() * 0x9E3779B9L >>> 16) & (STRIPES - 1);
+            for (int i = 0; i < STRIPES; i++) {
+                final Reservoir reservoir = getReservoir((home + i) & (STRIPES - 1));
+                if (reservoir._lock.tryLock()) {
+                    return reservoir;
+                }
+            }
+            final Reservoir reservoir = getReservoir(home);
+            reservoir._lock.lock();
+            return reservoir;
+        }
+
+        private Reservoir getReservoir(final int index) {
+            final Reservoir reservoir = _reservoirs.get(index);
+            if (reservoir != null) {
+                return reservoir;
+            }
+            _reservoirs.compareAndSet(index, null, new Reservoir(_capacity));
+            return _reservoirs.get(index);
+        }
+
+        public int getReservoirCount() {
+            int count = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                if (_reservoirs.get(i) != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public synchronized void addTransferred(final WeightedSample weightedSample) {
+            if (_transferred == null) {
+                _transferred = weightedSample;
+            } else {
+                _transferred = _transferred.combine(weightedSample, _capacity);
+            }
+        }
+
+        public List<WeightedSample> getWeightedSamples() {
+            final List<WeightedSample> result = new ArrayList<>(STRIPES + 1);
+            for (int i = 0; i < STRIPES; i++) {
+                final Reservoir reservoir = _reservoirs.get(i);
+                if (reservoir != null) {
+                    final WeightedSample weightedSample = reservoir.snapshot();
+                    if (weightedSample != null) {
+                        result.add(weightedSample);
+                    }
+                }
+            }
+            synchronized (this) {
+                if (_transferred != null) {
+                    result.add(_transferred);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A sample of rows along with the number of rows it was drawn from.
+     */
+    private static final class WeightedSample {
+
+        private final List<InputRow> _rows;
+        private final long _seen;
+
+        public WeightedSample(final List<InputRow> rows, final long seen) {
+            _rows = rows;
+            _seen = seen;
+        }
+
+        public List<InputRow> getRows() {
+            return _rows;
+        }
+
+        public long getSeen() {
+            return _seen;
+        }
+
+        /**
+         * Combines two samples by drawing each row of the result from either
+         * sample with a probability proportional to the number of rows that
+         * sample was drawn from.
+         */
+        public WeightedSample combine(final WeightedSample other, final int capacity) {
+            final long seen = _seen + other._seen;
+            final List<InputRow> rows = new ArrayList<>(capacity);
+            final List<InputRow> left = new ArrayList<>(_rows);
+            final List<InputRow> right = new ArrayList<>(other._rows);
+            final Random random = ThreadLocalRandom.current();
+            Collections.shuffle(left, random);
+            Collections.shuffle(right, random);
+            long leftRemaining = _seen;
+            long rightRemaining = other._seen;
+            while (rows.size() < capacity && (!left.isEmpty() || !right.isEmpty())) {
+                final boolean pickLeft;
+                if (left.isEmpty()) {
+                    pickLeft = false;
+                } else if (right.isEmpty()) {
+                    pickLeft = true;
+                } else {
+                    pickLeft = random.nextDouble() * (leftRemaining + rightRemaining) < leftRemaining;
+                }
+                if (pickLeft) {
+                    leftRemaining -= _seen / _rows.size();
+                    rows.add(left.remove(left.size() - 1));
+                } else {
+                    rightRemaining -= other._seen / other._rows.size();
+                    rows.add(right.remove(right.size() - 1));
+                }
+            }
+            return new WeightedSample(rows, seen);
+        }
+    }
+
+    /**
+     * Reservoir of sample rows which is written by one thread at a time, the
+     * one holding its lock, and may be read by any thread. Uses Li's "Algorithm
+     * L", which computes how many rows to skip before the next replacement, so
+     * that a row with a distinct count of N is offered in constant time rather
+     * than N times. The rows array grows as needed, up to the capacity.
+     *
+     * The writing thread publishes its updates by writing the volatile seen
+     * count, which readers read before copying the rows.
+     */
+    private static final class Reservoir {
+
+        private static final int INITIAL_SIZE = 16;
+
+        private final ReentrantLock _lock;
+        private final int _capacity;
+        private InputRow[] _rows;
+        private volatile long _seen;
+        private double _weight;
+        private long _nextReplacement;
+
+        public Reservoir(final int capacity) {
+            _lock = new ReentrantLock();
+            _capacity = capacity;
+            _rows = new InputRow[Math.min(capacity, INITIAL_SIZE)];
+        }
+
+        public void add(final InputRow row, final int count) {
+            final int capacity = _capacity;
+            long seen = _seen;
+            final long end = seen + count;
+            while (seen < capacity && seen < end) {
+                if (seen == _rows.length) {
+                    _rows = Arrays.copyOf(_rows, (int) Math.min(capacity, seen * 2));
+                }
+                _rows[(int) seen] = row;
+                seen++;
+            }
+
+            if (seen == capacity && _nextReplacement == 0) {
+                _weight = nextWeight(1d, capacity);
+                _nextReplacement = capacity + nextSkip();
+            }
+
+            while (_nextReplacement != 0 && _nextReplacement < end) {
+                _rows[ThreadLocalRandom.current().nextInt(capacity)] = row;
+                _weight = nextWeight(_weight, capacity);
+                _nextReplacement += nextSkip() + 1;
+            }
+
+            _seen = end;
+        }
+
+        public WeightedSample snapshot() {
+            final long seen = _seen;
+            if (seen == 0) {
+                return null;
+            }
+            final int size = (int) Math.min(seen, _capacity);
+            return new WeightedSample(Arrays.asList(Arrays.copyOf(_rows, size)), seen);
+        }
+
+        private static double nextWeight(final double weight, final int capacity) {
+            return weight * Math.exp(Math.log(1d - ThreadLocalRandom.current().nextDouble()) / capacity);
+        }
+
+        private long nextSkip() {
+            final double skip = Math.floor(
+                    Math.log(1d - ThreadLocalRandom.current().nextDouble()) / Math.log(1d - _weight));
+            if (skip >= Integer.MAX_VALUE || Double.isNaN(skip)) {
+                return Integer.MAX_VALUE;
+            }
+            return (long) skip;
+        }
+    }
+}
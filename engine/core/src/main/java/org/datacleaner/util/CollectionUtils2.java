@@ -32,6 +32,7 @@ import org.apache.metamodel.util.CollectionUtils;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 
 /**
  * Additional (to {@link CollectionUtils} utility methods for common collection
@@ -135,6 +136,21 @@ public final class CollectionUtils2 {
                 .expireAfterAccess(expiryDurationSeconds, TimeUnit.SECONDS).build();
     }
 
+    /**
+     * Creates a Google Guava cache which is bounded by the total weight of its
+     * entries instead of by the number of entries.
+     *
+     * @param maximumWeight
+     * @param expiryDurationSeconds
+     * @param weigher
+     * @return
+     */
+    public static <K, V> Cache<K, V> createCache(final long maximumWeight, final long expiryDurationSeconds,
+            final Weigher<? super K, ? super V> weigher) {
+        return CacheBuilder.newBuilder().maximumWeight(maximumWeight).<K, V> weigher(weigher)
+                .expireAfterAccess(expiryDurationSeconds, TimeUnit.SECONDS).build();
+    }
+
     public static Object toArray(final List<?> list, final Class<?> componentType) {
         final int size = list.size();
         final Object result = Array.newInstance(componentType, size);
@@ -0,0 +1,113 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Date;
+
+import org.apache.metamodel.schema.ColumnType;
+
+/**
+ * Normalizes values into keys which are equal when the values would be equal
+ * in a comparison with a column in the database, eg. so that a string "42" or
+ * a decimal 42.0 matches the integer 42 of a numeric column. Used when values
+ * of a column are matched client-side, in hash based sets or indexes.
+ *
+ * Integral numbers are normalized to {@link Long}s and other numbers to
+ * {@link BigDecimal}s without trailing zeros.
+ */
+public final class ColumnValueKeys {
+
+    private ColumnValueKeys() {
+        // prevent instantiation
+    }
+
+    /**
+     * Normalizes a value into the key that represents it.
+     *
+     * @param columnType
+     *            the type of the column that the value is compared with, or
+     *            null if unknown
+     * @param value
+     * @return the normalized key, or null if the value can never match a value
+     *         of the column (null values never do)
+     */
+    public static Object toKey(final ColumnType columnType, final Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (columnType != null) {
+            if (columnType.isNumber()) {
+                return toNumberKey(value);
+            }
+            if (columnType.isLiteral()) {
+                return value.toString();
+            }
+        }
+        if (value instanceof Number) {
+            return toNumberKey(value);
+        }
+        if (value instanceof Date) {
+            // java.sql.Timestamp is not symmetrically equal to java.util.Date
+            return Instant.ofEpochMilli(((Date) value).getTime());
+        }
+        return value;
+    }
+
+    private static Object toNumberKey(final Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger) {
+            final BigInteger bigInteger = (BigInteger) value;
+            if (bigInteger.bitLength() < 64) {
+                return bigInteger.longValue();
+            }
+            return new BigDecimal(bigInteger);
+        }
+
+        final BigDecimal decimal;
+        if (value instanceof BigDecimal) {
+            decimal = (BigDecimal) value;
+        } else {
+            try {
+                decimal = new BigDecimal(value.toString().trim());
+            } catch (final NumberFormatException e) {
+                // not a number (or NaN/Infinity), will never match
+                return null;
+            }
+        }
+
+        if (decimal.signum() == 0) {
+            return 0L;
+        }
+        final BigDecimal stripped = decimal.stripTrailingZeros();
+        if (stripped.scale() <= 0 && stripped.precision() - stripped.scale() <= 19) {
+            try {
+                return stripped.longValueExact();
+            } catch (final ArithmeticException e) {
+                // out of range for a long
+            }
+        }
+        return stripped;
+    }
+}
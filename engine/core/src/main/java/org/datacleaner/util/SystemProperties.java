@@ -130,6 +130,63 @@ public class SystemProperties {
      */
     public static final String QUERY_SELECTCLAUSE_OPTIMIZE = "datacleaner.query.selectclause.optimize";
 
+    /**
+     * Determines the number of partitions that source table scans should be
+     * split into. If set to a number greater than 1, queries on pooled JDBC
+     * datastores with a numeric or date primary key are split into key ranges
+     * which are read concurrently on separate connections, and local CSV files
+     * without multiline values are split into byte ranges which are parsed
+     * concurrently.
+     */
+    public static final String QUERY_PARALLEL_SCAN_PARTITIONS = "datacleaner.query.parallelscan.partitions";
+
+    /**
+     * Determines if query optimized analyzers on JDBC datastores may be pushed
+     * down into aggregate queries. If set to "true", such analyzers will not
+     * record any drill-down information (annotated rows) when they are pushed
+     * down.
+     */
+    public static final String QUERY_ANALYZER_PUSHDOWN = "datacleaner.query.analyzer.pushdown";
+
+    /**
+     * Determines if analyzers which are not marked as concurrent, but which
+     * are distributable, should be executed with one instance per worker
+     * thread. If set to "true", the partial results of the instances are merged
+     * using the analyzer's result reducer when the job finishes.
+     */
+    public static final String ANALYZER_PER_THREAD_INSTANCES = "datacleaner.analyzer.perthread";
+
+    /**
+     * Determines if row processing may park records as continuations while
+     * asynchronous batch transformers wait for their batches to be executed.
+     * If set to "true", the worker threads are freed up in the meantime, and
+     * the rest of a record's processing is resumed on the task runner when its
+     * batch completes. Otherwise batch transformers block the worker thread.
+     */
+    public static final String ROW_PROCESSING_ASYNC_CONTINUATIONS = "datacleaner.rowprocessing.async.continuations";
+
+    /**
+     * Determines the size budget (in bytes) of the shared cache of
+     * memory-mapped reference data indices. If set to a positive number,
+     * dictionaries and synonym catalogs that are loaded into memory are instead
+     * indexed once in the cache directory and shared between jobs.
+     */
+    public static final String REFERENCE_DATA_CACHE_SIZE = "datacleaner.referencedata.cache.size";
+
+    /**
+     * Determines the directory of the shared reference data cache. Defaults to
+     * a "datacleaner-referencedata" directory in the temp directory. Each
+     * process keeps its index files in a subdirectory of its own.
+     */
+    public static final String REFERENCE_DATA_CACHE_DIRECTORY = "datacleaner.referencedata.cache.dir";
+
+    /**
+     * Determines the number of seconds that a cached reference data index of a
+     * database table is used before it is rebuilt, since changes to the table
+     * cannot be detected in general. Defaults to 300 seconds.
+     */
+    public static final String REFERENCE_DATA_CACHE_TABLE_TTL = "datacleaner.referencedata.cache.table.ttl";
+
     /**
      * Gets a system property string, or a replacement value if the property is
      * null or blank.
@@ -24,15 +24,33 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.metamodel.util.Action;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Provides a buffering mechanism that enables writing rows periodically instead
  * of instantly.
+ *
+ * By default the buffer is flushed on the thread that fills it up. If a number
+ * of flush threads is given, full buffers are instead handed over to
+ * background threads, while the buffer is refilled (double buffering). At most
+ * one flush per flush thread is in progress at any time - when all flush
+ * threads are busy, the threads filling the buffer will wait. When a background
+ * flush fails, flushes that have not started yet are skipped and the error is
+ * rethrown on every subsequent call to {@link #addToBuffer(Object[])} or
+ * {@link #flushBuffer()}. The flush threads are stopped by {@link #close()}.
  */
 public class WriteBuffer {
 
@@ -41,14 +59,60 @@ public class WriteBuffer {
     private final BlockingQueue<Object[]> _buffer;
     private final Action<Iterable<Object[]>> _flushAction;
     private final AtomicInteger _batchNumber;
+    private final int _flushThreads;
+    private final ThreadPoolExecutor _flushExecutor;
+    private final Semaphore _flushPermits;
+    private final AtomicReference<RuntimeException> _flushError;
+    private volatile boolean _closed;
+
+    private final LongAdder _flushCount;
+    private final LongAdder _flushedRowCount;
+    private final LongAdder _flushNanos;
+    private final AtomicLong _maxFlushNanos;
+    private final AtomicLong _firstFlushStart;
+    private final AtomicLong _lastFlushEnd;
 
     public WriteBuffer(final int bufferSize, final Action<Iterable<Object[]>> flushAction) {
+        this(bufferSize, flushAction, 0);
+    }
+
+    /**
+     *
+     * @param bufferSize
+     * @param flushAction
+     * @param flushThreads
+     *            the number of background threads to flush the buffer with, or
+     *            0 to flush on the thread that fills up the buffer
+     */
+    public WriteBuffer(final int bufferSize, final Action<Iterable<Object[]>> flushAction, final int flushThreads) {
         if (bufferSize <= 0) {
             throw new IllegalArgumentException("Buffer size must be a positive integer");
         }
+        if (flushThreads < 0) {
+            throw new IllegalArgumentException("Flush threads cannot be negative");
+        }
         _batchNumber = new AtomicInteger();
         _buffer = new ArrayBlockingQueue<>(bufferSize);
         _flushAction = flushAction;
+        _flushThreads = flushThreads;
+        _flushError = new AtomicReference<>();
+        if (flushThreads == 0) {
+            _flushExecutor = null;
+            _flushPermits = null;
+        } else {
+            _flushExecutor = new ThreadPoolExecutor(flushThreads, flushThreads, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DaemonThreadFactory());
+            _flushExecutor.allowCoreThreadTimeOut(true);
+            _flushPermits = new Semaphore(flushThreads);
+        }
+
+        _flushCount = new LongAdder();
+        _flushedRowCount = new LongAdder();
+        _flushNanos = new LongAdder();
+        _maxFlushNanos = new AtomicLong();
+        // System.nanoTime() may be negative, so use MIN_VALUE for "not set"
+        _firstFlushStart = new AtomicLong(Long.MIN_VALUE);
+        _lastFlushEnd = new AtomicLong(Long.MIN_VALUE);
     }
 
     protected Queue<Object[]> getBuffer() {
@@ -56,15 +120,47 @@ public class WriteBuffer {
     }
 
     public final void addToBuffer(final Object[] rowData) {
+        rethrowFlushError();
         while (!_buffer.offer(rowData)) {
-            flushBuffer();
+            flush(false);
         }
     }
 
+    /**
+     * Flushes the buffer. When flushing in the background, this method waits
+     * for all flushes to finish.
+     */
     public final void flushBuffer() {
+        flush(true);
+    }
+
+    private void flush(final boolean awaitCompletion) {
+        final List<Object[]> copy = drainBuffer();
+
+        if (_flushExecutor == null) {
+            if (copy != null) {
+                runFlush(copy);
+            }
+            return;
+        }
+
+        if (copy != null) {
+            submitFlush(copy);
+            rethrowFlushError();
+        }
+
+        if (awaitCompletion) {
+            // all permits are available once no flush is in progress
+            acquirePermits(_flushThreads);
+            _flushPermits.release(_flushThreads);
+            rethrowFlushError();
+        }
+    }
+
+    private List<Object[]> drainBuffer() {
         final int flushSize = _buffer.size();
         if (flushSize == 0) {
-            return;
+            return null;
         }
 
         logger.info("Flushing {} rows in write buffer", flushSize);
@@ -75,19 +171,140 @@ public class WriteBuffer {
         if (copy.isEmpty()) {
             // this can happen when there's a race going on for flushing the
             // buffer concurrently.
-            return;
+            return null;
         }
+        return copy;
+    }
 
+    private void submitFlush(final List<Object[]> rows) {
+        acquirePermits(1);
+        try {
+            _flushExecutor.execute(() -> {
+                try {
+                    if (_flushError.get() != null || _closed) {
+                        logger.info("Skipping write batch of {} rows after failure or close", rows.size());
+                        return;
+                    }
+                    runFlush(rows);
+                } catch (final RuntimeException e) {
+                    logger.error("Write batch failed", e);
+                    _flushError.compareAndSet(null, e);
+                } finally {
+                    _flushPermits.release();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            _flushPermits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermits(final int permits) {
+        try {
+            _flushPermits.acquire(permits);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write batches to finish", e);
+        }
+    }
+
+    private void rethrowFlushError() {
+        final RuntimeException e = _flushError.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the flush threads, if any. Flushes that have not started yet are
+     * skipped, so {@link #flushBuffer()} should be invoked before closing to
+     * write all rows.
+     */
+    public void close() {
+        _closed = true;
+        if (_flushExecutor != null) {
+            _flushExecutor.shutdown();
+        }
+    }
+
+    private void runFlush(final List<Object[]> rows) {
+        final long startNanos = System.nanoTime();
+        _firstFlushStart.compareAndSet(Long.MIN_VALUE, startNanos);
         try {
             final int batchNo = _batchNumber.incrementAndGet();
             logger.info("Write batch no. {} starting", batchNo);
-            _flushAction.run(copy);
+            _flushAction.run(rows);
+            _flushedRowCount.add(rows.size());
             logger.info("Write batch no. {} finished", batchNo);
         } catch (final Exception e) {
             if (e instanceof RuntimeException) {
                 throw (RuntimeException) e;
             }
             throw new IllegalStateException(e);
+        } finally {
+            final long endNanos = System.nanoTime();
+            final long elapsedNanos = endNanos - startNanos;
+            _flushCount.increment();
+            _flushNanos.add(elapsedNanos);
+            _maxFlushNanos.accumulateAndGet(elapsedNanos, Math::max);
+            _lastFlushEnd.accumulateAndGet(endNanos, Math::max);
+        }
+    }
+
+    /**
+     * Gets the number of flushes (write batches) executed so far.
+     *
+     * @return
+     */
+    public int getFlushCount() {
+        return _flushCount.intValue();
+    }
+
+    /**
+     * Gets the number of rows flushed successfully so far.
+     *
+     * @return
+     */
+    public long getFlushedRowCount() {
+        return _flushedRowCount.sum();
+    }
+
+    /**
+     * Gets the average duration of a flush, in milliseconds.
+     *
+     * @return
+     */
+    public double getAverageFlushMillis() {
+        final long flushCount = _flushCount.sum();
+        if (flushCount == 0) {
+            return 0d;
+        }
+        return _flushNanos.sum() / 1000000d / flushCount;
+    }
+
+    /**
+     * Gets the duration of the slowest flush, in milliseconds.
+     *
+     * @return
+     */
+    public double getMaxFlushMillis() {
+        return _maxFlushNanos.get() / 1000000d;
+    }
+
+    /**
+     * Gets the number of rows flushed per second, measured from the start of
+     * the first flush to the end of the last flush.
+     *
+     * @return
+     */
+    public double getRowsPerSecond() {
+        if (_flushCount.sum() == 0) {
+            return 0d;
+        }
+        final long elapsedNanos = _lastFlushEnd.get() - _firstFlushStart.get();
+        if (elapsedNanos <= 0) {
+            return 0d;
         }
+        return _flushedRowCount.sum() * 1000000000d / elapsedNanos;
     }
 }
@@ -0,0 +1,55 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.batch;
+
+import java.util.Collection;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.api.Transformer;
+
+/**
+ * A {@link Transformer} which can hand over a record without blocking the
+ * calling thread. The record is parked in a batch and the callback is invoked
+ * with the output rows once the batch has been processed.
+ *
+ * The engine uses this interface to continue the processing of the record on
+ * the thread which completes the batch, rather than keeping a worker thread
+ * waiting for it.
+ */
+public interface AsyncBatchTransformer extends Transformer {
+
+    /**
+     * Submits a record for batch transformation.
+     *
+     * @param inputRow
+     *            the record to transform
+     * @param callback
+     *            the callback which receives the output rows of the record
+     *            (possibly empty)
+     */
+    void transformAsync(InputRow inputRow, BatchCallback<Collection<Object[]>> callback);
+
+    /**
+     * Gets the metrics of the underlying batch buffer.
+     *
+     * @return
+     */
+    BatchTransformationMetrics getBatchMetrics();
+}
@@ -0,0 +1,35 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.batch;
+
+/**
+ * Callback which receives the output of a single element that was submitted
+ * asynchronously to a {@link BatchTransformationBuffer}. Exactly one of the
+ * methods is invoked, on the thread that completed the batch.
+ *
+ * @param <O>
+ *            the output type
+ */
+public interface BatchCallback<O> {
+
+    void onResult(O output);
+
+    void onError(Throwable error);
+}
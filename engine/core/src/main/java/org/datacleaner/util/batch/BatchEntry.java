@@ -19,34 +19,59 @@
  */
 package org.datacleaner.util.batch;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 final class BatchEntry<I, O> {
 
+    private static final Logger logger = LoggerFactory.getLogger(BatchEntry.class);
+
     private final I _input;
-    private final CountDownLatch _countDownLatch;
-    private volatile O _output;
+    private final BatchCallback<O> _callback;
+    private final BatchTransformationMetrics _metrics;
+    private final long _submitNanos;
+    private final AtomicBoolean _completed;
 
-    public BatchEntry(final I input) {
+    public BatchEntry(final I input, final BatchCallback<O> callback, final BatchTransformationMetrics metrics) {
         _input = input;
-        _countDownLatch = new CountDownLatch(1);
+        _callback = callback;
+        _metrics = metrics;
+        _submitNanos = System.nanoTime();
+        _completed = new AtomicBoolean(false);
     }
 
     public I getInput() {
         return _input;
     }
 
-    public O getOuput() {
-        return _output;
+    public boolean isCompleted() {
+        return _completed.get();
     }
 
     public void setOutput(final O output) {
-        _output = output;
-        _countDownLatch.countDown();
+        if (!_completed.compareAndSet(false, true)) {
+            logger.warn("Output already set for batch entry, ignoring: {}", output);
+            return;
+        }
+        _metrics.recordLatency(System.nanoTime() - _submitNanos);
+        try {
+            _callback.onResult(output);
+        } catch (final RuntimeException e) {
+            // the callback must not break the delivery to the rest of the batch
+            logger.error("Batch callback failed for input: {}", _input, e);
+        }
     }
 
-    public boolean await(final long waitMillis) throws InterruptedException {
-        return _countDownLatch.await(waitMillis, TimeUnit.MILLISECONDS);
+    public void setError(final Throwable error) {
+        if (!_completed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            _callback.onError(error);
+        } catch (final RuntimeException e) {
+            logger.error("Batch callback failed for input: {}", _input, e);
+        }
     }
 }
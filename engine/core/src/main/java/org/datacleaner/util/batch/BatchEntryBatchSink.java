@@ -23,9 +23,9 @@ import java.util.List;
 
 final class BatchEntryBatchSink<O> implements BatchSink<O> {
 
-    private final List<BatchEntry<?, O>> _entries;
+    private final List<? extends BatchEntry<?, O>> _entries;
 
-    public BatchEntryBatchSink(final List<BatchEntry<?, O>> entries) {
+    public BatchEntryBatchSink(final List<? extends BatchEntry<?, O>> entries) {
         _entries = entries;
     }
 
@@ -28,13 +28,12 @@ import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Provided;
-import org.datacleaner.api.Transformer;
 
 /**
  * Added by jakub on 20.10.15
  */
 public abstract class BatchRowCollectingTransformer
-        implements Transformer, BatchTransformation<InputRow, Collection<Object[]>> {
+        implements AsyncBatchTransformer, BatchTransformation<InputRow, Collection<Object[]>> {
 
     private final BatchTransformationBuffer<InputRow, Collection<Object[]>> _batchTransformationBuffer;
     @Provided
@@ -83,4 +82,14 @@ public abstract class BatchRowCollectingTransformer
         return null;
     }
 
+    @Override
+    public final void transformAsync(final InputRow inputRow,
+            final BatchCallback<Collection<Object[]>> callback) {
+        _batchTransformationBuffer.transformAsync(inputRow, callback);
+    }
+
+    @Override
+    public final BatchTransformationMetrics getBatchMetrics() {
+        return _batchTransformationBuffer.getMetrics();
+    }
 }
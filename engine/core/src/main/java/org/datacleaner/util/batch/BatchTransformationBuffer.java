@@ -21,10 +21,9 @@ package org.datacleaner.util.batch;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -38,6 +37,14 @@ import org.slf4j.LoggerFactory;
  * while preserving the one-by-one transformation interface of
  * {@link Transformer}.
  *
+ * Elements are submitted with {@link #transformAsync(Object, BatchCallback)},
+ * which never blocks the calling thread. A batch is executed when it reaches
+ * the max batch size (by the thread that filled it up) or when its flush
+ * interval expires (by the buffer's scheduler thread), whichever comes first.
+ * The flush interval thereby acts as a latency deadline for the first element
+ * of every batch. {@link #transform(Object)} is the blocking variant of the
+ * same operation.
+ *
  * @param <I>
  *            the input type
  * @param <O>
@@ -45,21 +52,65 @@ import org.slf4j.LoggerFactory;
  */
 public class BatchTransformationBuffer<I, O> {
 
+    /**
+     * Callback used by {@link #transform(Object)} to wait for the output.
+     */
+    private static final class BlockingBatchCallback<O> implements BatchCallback<O> {
+
+        private final CountDownLatch _countDownLatch = new CountDownLatch(1);
+        private volatile O _output;
+        private volatile Throwable _error;
+
+        @Override
+        public void onResult(final O output) {
+            _output = output;
+            _countDownLatch.countDown();
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            _error = error;
+            _countDownLatch.countDown();
+        }
+
+        public O await() {
+            try {
+                _countDownLatch.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            final Throwable error = _error;
+            if (error != null) {
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                throw new IllegalStateException(error);
+            }
+            return _output;
+        }
+    }
+
     // default 1 second interval of flushing
     public static final int DEFAULT_FLUSH_INTERVAL = 1000;
     // default max 20 items in buffer
     public static final int DEFAULT_MAX_BATCH_SIZE = 20;
     private static final Logger logger = LoggerFactory.getLogger(BatchTransformationBuffer.class);
-    private static final long[] AWAIT_TIMES = { 20, 50, 100, 100, 200 };
 
     private final BatchTransformation<I, O> _transformation;
-    private final BlockingQueue<BatchEntry<I, O>> _queue;
     private final AtomicInteger _batchNo;
     private final int _maxBatchSize;
-    private final ScheduledExecutorService _threadPool;
+    private final ScheduledThreadPoolExecutor _threadPool;
     private final int _flushInterval;
+    private final BatchTransformationMetrics _metrics;
+    private final Object _lock = new Object();
 
-    private Throwable exception;
+    // guarded by _lock
+    private List<BatchEntry<I, O>> _pendingEntries;
+    private long _pendingGeneration;
+    private ScheduledFuture<?> _pendingDeadline;
+
+    private volatile Throwable exception;
 
     public BatchTransformationBuffer(final BatchTransformation<I, O> transformation) {
         this(transformation, DEFAULT_MAX_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
@@ -70,64 +121,71 @@ public class BatchTransformationBuffer<I, O> {
         _transformation = transformation;
         _flushInterval = flushIntervalMillis;
         _maxBatchSize = maxBatchSize;
-        _queue = new ArrayBlockingQueue<>(maxBatchSize);
         _batchNo = new AtomicInteger();
-        _threadPool = Executors.newScheduledThreadPool(1);
+        _metrics = new BatchTransformationMetrics(maxBatchSize);
+        _pendingEntries = new ArrayList<>(maxBatchSize);
+        _threadPool = new ScheduledThreadPoolExecutor(1);
+        _threadPool.setRemoveOnCancelPolicy(true);
     }
 
     public void start() {
         logger.info("start()");
-        _threadPool.scheduleAtFixedRate(createFlushCommand(), _flushInterval, _flushInterval, TimeUnit.MILLISECONDS);
-    }
-
-    private Runnable createFlushCommand() {
-        return () -> {
-            try {
-                do {
-                    flushBuffer(true);
-                } while (!_queue.isEmpty());
-            } catch (final Throwable t) {
-                logger.warn("Cannot flush buffer", t);
-                exception = t;
-                shutdown();
-            }
-        };
     }
 
     public int getBatchCount() {
         return _batchNo.get();
     }
 
-    public void flushBuffer() {
-        flushBuffer(false);
+    public BatchTransformationMetrics getMetrics() {
+        return _metrics;
     }
 
-    private void flushBuffer(final boolean scheduled) {
-        if (_queue.isEmpty()) {
-            // do nothing when queue is empty
-            return;
-        }
-        if (!scheduled) {
-            if (_queue.size() < _maxBatchSize) {
-                logger.debug("Batch ignored, flush operation not scheduled and queue is not full");
+    /**
+     * Executes the currently pending elements right away, on the calling
+     * thread, without waiting for the batch to fill up or its flush interval to
+     * expire.
+     */
+    public void flushBuffer() {
+        final List<BatchEntry<I, O>> entries;
+        synchronized (_lock) {
+            if (_pendingEntries.isEmpty()) {
+                // do nothing when queue is empty
                 return;
             }
+            entries = takePendingEntries();
         }
+        executeBatch(entries, false);
+    }
 
-        final List<BatchEntry<?, O>> entries = new ArrayList<>(_maxBatchSize);
-
-        final int batchSize = _queue.drainTo(entries);
+    private void flushDeadline(final long generation) {
+        final List<BatchEntry<I, O>> entries;
+        synchronized (_lock) {
+            if (generation != _pendingGeneration || _pendingEntries.isEmpty()) {
+                // the batch has already been flushed by another thread
+                return;
+            }
+            entries = takePendingEntries();
+        }
+        executeBatch(entries, true);
+    }
 
-        if (batchSize == 0) {
-            logger.debug("Batch ignored, no elements left in queue");
-            // it may happen that multiple threads try to flush at the same
-            // time - in this case we want to stop them here.
-            return;
+    private List<BatchEntry<I, O>> takePendingEntries() {
+        assert Thread.holdsLock(_lock);
+        final List<BatchEntry<I, O>> entries = _pendingEntries;
+        _pendingEntries = new ArrayList<>(_maxBatchSize);
+        _pendingGeneration++;
+        if (_pendingDeadline != null) {
+            _pendingDeadline.cancel(false);
+            _pendingDeadline = null;
         }
+        return entries;
+    }
 
+    private void executeBatch(final List<BatchEntry<I, O>> entries, final boolean deadline) {
+        final int batchSize = entries.size();
         final int batchNumber = _batchNo.incrementAndGet();
 
-        logger.info("Batch #{} - Preparing {} entries, scheduled={}", batchNumber, batchSize, scheduled);
+        logger.info("Batch #{} - Preparing {} entries, deadline={}", batchNumber, batchSize, deadline);
 
         final Object[] input = new Object[batchSize];
         for (int i = 0; i < batchSize; i++) {
@@ -137,62 +195,92 @@ public class BatchTransformationBuffer<I, O> {
         final BatchSource<I> source = new ArrayBatchSource<>(input);
         final BatchEntryBatchSink<O> sink = new BatchEntryBatchSink<>(entries);
 
-        _transformation.map(source, sink);
+        _metrics.recordBatch(batchSize, deadline);
 
-        logger.info("Batch #{} - Finished", batchNumber, batchSize);
+        try {
+            _transformation.map(source, sink);
+        } catch (final Throwable t) {
+            logger.warn("Batch #{} - Failed", batchNumber, t);
+            if (exception == null) {
+                exception = t;
+            }
+            for (final BatchEntry<I, O> entry : entries) {
+                entry.setError(t);
+            }
+            return;
+        }
+
+        for (final BatchEntry<I, O> entry : entries) {
+            if (!entry.isCompleted()) {
+                logger.warn("Batch #{} - No output set for input: {}", batchNumber, entry.getInput());
+                entry.setOutput(null);
+            }
+        }
+
+        logger.info("Batch #{} - Finished", batchNumber);
     }
 
     public void shutdown() {
-        logger.info("shutdown()");
-        _threadPool.shutdown();
+        logger.info("shutdown() - {}", _metrics);
+        final List<BatchEntry<I, O>> entries;
+        synchronized (_lock) {
+            _threadPool.shutdown();
+            entries = takePendingEntries();
+        }
+        for (final BatchEntry<I, O> entry : entries) {
+            entry.setError(new PreviousErrorsExistException("Transformer closed"));
+        }
     }
 
-    public O transform(final I input) {
-        final BatchEntry<I, O> entry = new BatchEntry<>(input);
+    /**
+     * Submits an element for transformation without blocking. The callback is
+     * invoked once the batch that the element ends up in has been executed.
+     *
+     * @param input
+     * @param callback
+     */
+    public void transformAsync(final I input, final BatchCallback<O> callback) {
+        final BatchEntry<I, O> entry = new BatchEntry<>(input, callback, _metrics);
 
-        while (!_queue.offer(entry)) {
-            flushBuffer();
+        final Throwable previousError = exception;
+        if (previousError != null) {
+            entry.setError(previousError);
+            return;
         }
 
-        int attemptIndex = 0;
-        while (true) {
-            rethrowException();
-            if (_threadPool.isShutdown()) {
-                // Re-check the exception from background thread - it is preferred
-                rethrowException();
-                throw new PreviousErrorsExistException("Transformer closed");
-            }
-            final long waitTime = (attemptIndex < AWAIT_TIMES.length
-                    ? AWAIT_TIMES[attemptIndex]
-                    : AWAIT_TIMES[AWAIT_TIMES.length - 1]);
-
-            try {
-                final boolean finished = entry.await(waitTime);
-                if (finished) {
-                    return entry.getOuput();
-                }
-
-                flushBuffer();
-                attemptIndex++;
-            } catch (final Exception e) {
-                if (exception == null) {
-                    exception = e;
+        final boolean closed;
+        List<BatchEntry<I, O>> fullBatch = null;
+        synchronized (_lock) {
+            closed = _threadPool.isShutdown();
+            if (!closed) {
+                _pendingEntries.add(entry);
+                if (_pendingEntries.size() >= _maxBatchSize) {
+                    fullBatch = takePendingEntries();
+                } else if (_pendingEntries.size() == 1) {
+                    final long generation = _pendingGeneration;
+                    _pendingDeadline = _threadPool
+                            .schedule(() -> flushDeadline(generation), _flushInterval, TimeUnit.MILLISECONDS);
                 }
-                if (e instanceof RuntimeException) {
-                    throw (RuntimeException) e;
-                }
-                throw new IllegalStateException(e);
             }
         }
-    }
 
-    /** Re-throws the exception from background thread */
-    private void rethrowException() {
-        if (exception != null) {
-            if (exception instanceof RuntimeException) {
-                throw (RuntimeException) exception;
-            }
-            throw new RuntimeException(exception);
+        if (closed) {
+            entry.setError(new PreviousErrorsExistException("Transformer closed"));
+        } else if (fullBatch != null) {
+            executeBatch(fullBatch, false);
         }
     }
+
+    /**
+     * Transforms an element, blocking the calling thread until the batch that
+     * the element ends up in has been executed.
+     *
+     * @param input
+     * @return
+     */
+    public O transform(final I input) {
+        final BlockingBatchCallback<O> callback = new BlockingBatchCallback<>();
+        transformAsync(input, callback);
+        return callback.await();
+    }
 }
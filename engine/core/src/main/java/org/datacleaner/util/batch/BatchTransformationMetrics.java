@@ -0,0 +1,157 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.batch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a {@link BatchTransformationBuffer}: how many batches were
+ * executed, how full they were and how long the elements waited for their
+ * output.
+ *
+ * Latencies are recorded in a histogram with power-of-two microsecond buckets,
+ * so percentiles are approximate (the upper bound of the bucket is reported).
+ */
+public final class BatchTransformationMetrics {
+
+    private static final int LATENCY_BUCKETS = 48;
+
+    private final int _maxBatchSize;
+    private final LongAdder _batchCount;
+    private final LongAdder _elementCount;
+    private final LongAdder _sizeFlushCount;
+    private final LongAdder _deadlineFlushCount;
+    private final AtomicLongArray _latencyHistogram;
+
+    public BatchTransformationMetrics(final int maxBatchSize) {
+        _maxBatchSize = maxBatchSize;
+        _batchCount = new LongAdder();
+        _elementCount = new LongAdder();
+        _sizeFlushCount = new LongAdder();
+        _deadlineFlushCount = new LongAdder();
+        _latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
+    }
+
+    void recordBatch(final int batchSize, final boolean deadline) {
+        _batchCount.increment();
+        _elementCount.add(batchSize);
+        if (deadline) {
+            _deadlineFlushCount.increment();
+        } else {
+            _sizeFlushCount.increment();
+        }
+    }
+
+    void recordLatency(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+        final int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        _latencyHistogram.incrementAndGet(bucket);
+    }
+
+    public long getBatchCount() {
+        return _batchCount.sum();
+    }
+
+    public long getElementCount() {
+        return _elementCount.sum();
+    }
+
+    /**
+     * Gets the number of batches that were flushed because they reached the max
+     * batch size.
+     *
+     * @return
+     */
+    public long getSizeFlushCount() {
+        return _sizeFlushCount.sum();
+    }
+
+    /**
+     * Gets the number of batches that were flushed because their flush
+     * interval (latency deadline) expired before they were full.
+     *
+     * @return
+     */
+    public long getDeadlineFlushCount() {
+        return _deadlineFlushCount.sum();
+    }
+
+    public double getAverageBatchSize() {
+        final long batchCount = getBatchCount();
+        if (batchCount == 0) {
+            return 0d;
+        }
+        return (double) getElementCount() / batchCount;
+    }
+
+    /**
+     * Gets the average fill ratio of the executed batches, ie. the average batch
+     * size relative to the max batch size.
+     *
+     * @return a number between 0 and 1
+     */
+    public double getFillRatio() {
+        return getAverageBatchSize() / _maxBatchSize;
+    }
+
+    /**
+     * Gets an approximate latency percentile, measured from the time an element
+     * was submitted until its output was delivered.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency in milliseconds
+     */
+    public double getLatencyPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, got: " + percentile);
+        }
+        long total = 0;
+        final long[] counts = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            counts[i] = _latencyHistogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0d;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100d * total));
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                final long upperBoundMicros = i == 0 ? 0 : 1L << i;
+                return upperBoundMicros / 1000d;
+            }
+        }
+        return (1L << (LATENCY_BUCKETS - 1)) / 1000d;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchTransformationMetrics[batches=" + getBatchCount() + ",elements=" + getElementCount()
+                + ",sizeFlushes=" + getSizeFlushCount() + ",deadlineFlushes=" + getDeadlineFlushCount()
+                + ",fillRatio=" + String.format("%.2f", getFillRatio()) + ",p50=" + getLatencyPercentile(50)
+                + "ms,p99=" + getLatencyPercentile(99) + "ms]";
+    }
+}
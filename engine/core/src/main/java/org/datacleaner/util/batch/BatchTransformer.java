@@ -19,6 +19,9 @@
  */
 package org.datacleaner.util.batch;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.datacleaner.api.Close;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputRow;
@@ -27,7 +30,7 @@ import org.datacleaner.api.Transformer;
 /**
  * An abstract {@link Transformer} that supports batch/chunked operations.
  */
-public abstract class BatchTransformer implements Transformer, BatchTransformation<InputRow, Object[]> {
+public abstract class BatchTransformer implements AsyncBatchTransformer, BatchTransformation<InputRow, Object[]> {
 
     private final BatchTransformationBuffer<InputRow, Object[]> _batchTransformationBuffer;
 
@@ -69,4 +72,28 @@ public abstract class BatchTransformer implements Transformer, BatchTransformati
         return _batchTransformationBuffer.transform(inputRow);
     }
 
+    @Override
+    public final void transformAsync(final InputRow inputRow,
+            final BatchCallback<Collection<Object[]>> callback) {
+        _batchTransformationBuffer.transformAsync(inputRow, new BatchCallback<Object[]>() {
+            @Override
+            public void onResult(final Object[] output) {
+                if (output == null) {
+                    callback.onResult(Collections.emptyList());
+                } else {
+                    callback.onResult(Collections.singletonList(output));
+                }
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public final BatchTransformationMetrics getBatchMetrics() {
+        return _batchTransformationBuffer.getMetrics();
+    }
 }
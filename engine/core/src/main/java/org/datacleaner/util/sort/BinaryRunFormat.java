@@ -0,0 +1,253 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Abstract {@link RunFormat} for compact binary run files. Each entry is
+ * written as the encoded row followed by its count as a varint. The files are
+ * read and written through buffered {@link FileChannel}s.
+ *
+ * Subclasses define how a row is encoded using the primitives of
+ * {@link Output} and {@link Input}.
+ *
+ * @param <R>
+ *            the row type
+ */
+public abstract class BinaryRunFormat<R> implements RunFormat<R> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Buffered output to a run file.
+     */
+    public static final class Output implements Closeable {
+
+        private final FileChannel _channel;
+        private final ByteBuffer _buffer;
+
+        private Output(final FileChannel channel) {
+            _channel = channel;
+            _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        /**
+         * Writes a non-negative int as a varint of 1-5 bytes.
+         *
+         * @param value
+         * @throws IOException
+         */
+        public void writeVarInt(final int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Writes a long as an unsigned varint of 1-10 bytes.
+         *
+         * @param value
+         * @throws IOException
+         */
+        public void writeVarLong(final long value) throws IOException {
+            if (_buffer.remaining() < 10) {
+                flush();
+            }
+            long remainder = value;
+            while ((remainder & ~0x7FL) != 0) {
+                _buffer.put((byte) ((remainder & 0x7F) | 0x80));
+                remainder >>>= 7;
+            }
+            _buffer.put((byte) remainder);
+        }
+
+        public void writeBytes(final byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!_buffer.hasRemaining()) {
+                    flush();
+                }
+                final int length = Math.min(_buffer.remaining(), bytes.length - offset);
+                _buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void flush() throws IOException {
+            _buffer.flip();
+            while (_buffer.hasRemaining()) {
+                _channel.write(_buffer);
+            }
+            _buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                _channel.close();
+            }
+        }
+    }
+
+    /**
+     * Buffered input from a run file.
+     */
+    public static final class Input implements Closeable {
+
+        private final FileChannel _channel;
+        private final ByteBuffer _buffer;
+
+        private Input(final FileChannel channel) {
+            _channel = channel;
+            _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            // start out with an empty buffer
+            _buffer.flip();
+        }
+
+        /**
+         * Determines if there are more bytes to read.
+         *
+         * @return
+         * @throws IOException
+         */
+        public boolean hasMore() throws IOException {
+            return _buffer.hasRemaining() || fill();
+        }
+
+        public int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        public long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed varint in run file");
+        }
+
+        public byte[] readBytes(final int length) throws IOException {
+            final byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                if (!_buffer.hasRemaining() && !fill()) {
+                    throw new EOFException();
+                }
+                final int chunk = Math.min(_buffer.remaining(), length - offset);
+                _buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return bytes;
+        }
+
+        private byte readByte() throws IOException {
+            if (!_buffer.hasRemaining() && !fill()) {
+                throw new EOFException();
+            }
+            return _buffer.get();
+        }
+
+        private boolean fill() throws IOException {
+            _buffer.compact();
+            try {
+                int read;
+                do {
+                    read = _channel.read(_buffer);
+                } while (read == 0 && _buffer.hasRemaining());
+            } finally {
+                _buffer.flip();
+            }
+            return _buffer.hasRemaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _channel.close();
+        }
+    }
+
+    protected abstract void writeRow(Output output, R row) throws IOException;
+
+    protected abstract R readRow(Input input) throws IOException;
+
+    @Override
+    public RunWriter<R> createWriter(final File file) throws IOException {
+        final Output output = new Output(FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+        return new RunWriter<R>() {
+            @Override
+            public void write(final R row, final int count) throws IOException {
+                writeRow(output, row);
+                output.writeVarInt(count);
+            }
+
+            @Override
+            public void close() throws IOException {
+                output.close();
+            }
+        };
+    }
+
+    @Override
+    public RunReader<R> createReader(final File file) throws IOException {
+        final Input input = new Input(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        return new RunReader<R>() {
+            private R _row;
+            private int _count;
+
+            @Override
+            public boolean next() throws IOException {
+                if (!input.hasMore()) {
+                    _row = null;
+                    return false;
+                }
+                _row = readRow(input);
+                _count = input.readVarInt();
+                return true;
+            }
+
+            @Override
+            public R getRow() {
+                return _row;
+            }
+
+            @Override
+            public int getCount() {
+                return _count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                input.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.IOException;
+
+/**
+ * {@link RunFormat} for {@link Long} rows, written as zigzag encoded varints so
+ * that small negative numbers stay small too.
+ */
+public class LongRunFormat extends BinaryRunFormat<Long> {
+
+    @Override
+    protected void writeRow(final Output output, final Long row) throws IOException {
+        final long value = row.longValue();
+        output.writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    @Override
+    protected Long readRow(final Input input) throws IOException {
+        final long encoded = input.readVarLong();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Defines how the sorted runs of a {@link SortMerger} are written to and read
+ * from temporary files.
+ *
+ * @param <R>
+ *            the row type
+ */
+public interface RunFormat<R> {
+
+    /**
+     * Writes the rows of a single run, in sorted order.
+     *
+     * @param <R>
+     *            the row type
+     */
+    interface RunWriter<R> extends Closeable {
+
+        void write(R row, int count) throws IOException;
+    }
+
+    /**
+     * Reads the rows of a single run, in the order they were written.
+     *
+     * @param <R>
+     *            the row type
+     */
+    interface RunReader<R> extends Closeable {
+
+        /**
+         * Advances to the next row of the run.
+         *
+         * @return true if a row was read, false if the end of the run has been
+         *         reached
+         * @throws IOException
+         */
+        boolean next() throws IOException;
+
+        R getRow();
+
+        int getCount();
+    }
+
+    RunWriter<R> createWriter(File file) throws IOException;
+
+    RunReader<R> createReader(File file) throws IOException;
+}
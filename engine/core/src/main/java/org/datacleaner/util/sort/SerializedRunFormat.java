@@ -0,0 +1,98 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * {@link RunFormat} that uses java serialization, which works for any
+ * {@link Serializable} row type. For {@link String} and {@link Long} rows,
+ * prefer the more compact {@link StringRunFormat} and {@link LongRunFormat}.
+ *
+ * @param <R>
+ *            the row type
+ */
+public class SerializedRunFormat<R extends Serializable> implements RunFormat<R> {
+
+    @Override
+    public RunWriter<R> createWriter(final File file) throws IOException {
+        final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        return new RunWriter<R>() {
+            @Override
+            public void write(final R row, final int count) throws IOException {
+                oos.writeObject(row);
+                oos.writeInt(count);
+            }
+
+            @Override
+            public void close() throws IOException {
+                oos.close();
+            }
+        };
+    }
+
+    @Override
+    public RunReader<R> createReader(final File file) throws IOException {
+        final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+        return new RunReader<R>() {
+            private R _row;
+            private int _count;
+
+            @Override
+            public boolean next() throws IOException {
+                try {
+                    @SuppressWarnings("unchecked") final R row = (R) ois.readObject();
+                    _row = row;
+                    _count = ois.readInt();
+                    return true;
+                } catch (final EOFException e) {
+                    _row = null;
+                    return false;
+                } catch (final ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public R getRow() {
+                return _row;
+            }
+
+            @Override
+            public int getCount() {
+                return _count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                ois.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.util.ImmutableEntry;
+import org.datacleaner.util.sort.RunFormat.RunReader;
+
+/**
+ * Iterator that merges a number of sorted runs using a heap, yielding each
+ * distinct row once in sorted order along with the sum of its counts in all
+ * runs. Each step costs O(log k) comparisons for k runs.
+ *
+ * The iterator must be closed after use to release the underlying runs.
+ *
+ * @param <R>
+ *            the row type
+ */
+public class SortMergeIterator<R> implements Iterator<Entry<R, Integer>>, Closeable {
+
+    private final Comparator<? super R> _comparator;
+    private final List<? extends RunReader<R>> _readers;
+    private final PriorityQueue<RunReader<R>> _queue;
+
+    public SortMergeIterator(final List<? extends RunReader<R>> readers, final Comparator<? super R> comparator)
+            throws IOException {
+        _comparator = comparator;
+        _readers = readers;
+        _queue = new PriorityQueue<>(Math.max(1, readers.size()),
+                (reader1, reader2) -> comparator.compare(reader1.getRow(), reader2.getRow()));
+        for (final RunReader<R> reader : readers) {
+            if (reader.next()) {
+                _queue.add(reader);
+            } else {
+                FileHelper.safeClose(reader);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !_queue.isEmpty();
+    }
+
+    @Override
+    public Entry<R, Integer> next() {
+        final RunReader<R> reader = _queue.poll();
+        if (reader == null) {
+            throw new NoSuchElementException();
+        }
+
+        final R row = reader.getRow();
+        int count = reader.getCount();
+        advance(reader);
+
+        // sum up the counts of the same row in other runs
+        while (!_queue.isEmpty() && _comparator.compare(_queue.peek().getRow(), row) == 0) {
+            final RunReader<R> other = _queue.poll();
+            count += other.getCount();
+            advance(other);
+        }
+
+        return new ImmutableEntry<>(row, count);
+    }
+
+    private void advance(final RunReader<R> reader) {
+        try {
+            if (reader.next()) {
+                _queue.add(reader);
+            } else {
+                FileHelper.safeClose(reader);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        _queue.clear();
+        for (final RunReader<R> reader : _readers) {
+            FileHelper.safeClose(reader);
+        }
+    }
+}
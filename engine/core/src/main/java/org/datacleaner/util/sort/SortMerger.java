@@ -0,0 +1,442 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.util.sort.RunFormat.RunReader;
+import org.datacleaner.util.sort.RunFormat.RunWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorter and deduplicator that counts rows in a bounded in-memory buffer and
+ * spills the buffer as sorted runs to temporary files when it is full. The runs
+ * are merged when {@link #merge(RowHandler)} or {@link #mergeIterator()} is
+ * invoked, yielding each distinct row and its total count in sorted order.
+ *
+ * Rows may be appended concurrently. Appending does not lock; only swapping a
+ * full buffer for an empty one does, and the full buffer is spilled outside of
+ * the lock, so other threads keep appending meanwhile.
+ *
+ * Runs are merged using a heap. If there are more runs than the merge fan-in,
+ * groups of runs are first merged into intermediate runs, optionally in
+ * parallel, so that the number of files open at a time stays bounded.
+ *
+ * @param <R>
+ *            the row type, HAS to be serializable
+ */
+public class SortMerger<R extends Serializable> {
+
+    /**
+     * Callback for rows that come out of a merge.
+     *
+     * @param <R>
+     *            the row type
+     */
+    @FunctionalInterface
+    public interface RowHandler<R> {
+
+        void handleRow(R row, int count) throws IOException;
+    }
+
+    public static final int DEFAULT_MERGE_FAN_IN = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger(SortMerger.class);
+
+    /**
+     * Size of the "records in memory" buffer
+     */
+    private final int _bufferSize;
+
+    /**
+     * Comparator for row sorting
+     */
+    private final Comparator<? super R> _comparator;
+
+    /**
+     * Format of the temporary files
+     */
+    private final RunFormat<R> _runFormat;
+
+    /**
+     * List of temporary files containing values
+     */
+    private final List<File> _tempFiles;
+
+    /**
+     * Buffer containing sorted rows in memory
+     */
+    private volatile RowBuffer<R> _buffer;
+    private final AtomicInteger _nullCount;
+
+    private int _mergeFanIn = DEFAULT_MERGE_FAN_IN;
+    private boolean _parallelMerge = false;
+
+    public SortMerger(final Comparator<? super R> comparator) {
+        this(50000, comparator);
+    }
+
+    public SortMerger(final int bufferSize, final Comparator<? super R> comparator) {
+        this(bufferSize, comparator, new SerializedRunFormat<>());
+    }
+
+    public SortMerger(final int bufferSize, final Comparator<? super R> comparator, final RunFormat<R> runFormat) {
+        _bufferSize = bufferSize;
+        _tempFiles = new ArrayList<>();
+        _buffer = new RowBuffer<>(comparator);
+        _comparator = comparator;
+        _runFormat = runFormat;
+        _nullCount = new AtomicInteger();
+    }
+
+    public void append(final R line) {
+        append(line, 1);
+    }
+
+    public void append(final R line, final int frequency) {
+        if (line == null) {
+            // special handling of null
+            _nullCount.addAndGet(frequency);
+        } else {
+            while (true) {
+                final RowBuffer<R> buffer = _buffer;
+                if (buffer.append(line, frequency, _bufferSize)) {
+                    return;
+                }
+                swapBuffer(buffer);
+            }
+        }
+    }
+
+    public int getNullCount() {
+        return _nullCount.get();
+    }
+
+    public int getBufferSize() {
+        return _bufferSize;
+    }
+
+    public int getMergeFanIn() {
+        return _mergeFanIn;
+    }
+
+    /**
+     * Sets the max number of runs to merge at a time.
+     *
+     * @param mergeFanIn
+     */
+    public void setMergeFanIn(final int mergeFanIn) {
+        if (mergeFanIn < 2) {
+            throw new IllegalArgumentException("Merge fan-in must be at least 2, was: " + mergeFanIn);
+        }
+        _mergeFanIn = mergeFanIn;
+    }
+
+    public boolean isParallelMerge() {
+        return _parallelMerge;
+    }
+
+    /**
+     * Sets whether groups of runs should be merged in parallel when there are
+     * more runs than the merge fan-in.
+     *
+     * @param parallelMerge
+     */
+    public void setParallelMerge(final boolean parallelMerge) {
+        _parallelMerge = parallelMerge;
+    }
+
+    /**
+     * Gets the number of sorted runs that are currently spilled to disk.
+     *
+     * @return
+     */
+    public synchronized int getTempFileCount() {
+        return _tempFiles.size();
+    }
+
+    /**
+     * Replaces the buffer with an empty one and spills it, unless another thread
+     * has already done so.
+     *
+     * @param buffer
+     */
+    private void swapBuffer(final RowBuffer<R> buffer) {
+        synchronized (this) {
+            if (_buffer != buffer) {
+                return;
+            }
+            buffer._swapped = true;
+            _buffer = new RowBuffer<>(_comparator);
+        }
+        spill(buffer);
+    }
+
+    private void spill(final RowBuffer<R> buffer) {
+        logger.debug("spill()");
+        buffer.awaitAppends();
+        try {
+            final File file = createTempFile();
+            logger.info("Writing {} rows to temporary file: {}", buffer._rows.size(), file);
+
+            try (RunWriter<R> writer = _runFormat.createWriter(file)) {
+                for (final Entry<R, Integer> entry : buffer._rows.entrySet()) {
+                    writer.write(entry.getKey(), entry.getValue());
+                }
+            }
+            synchronized (this) {
+                _tempFiles.add(file);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected File createTempFile() throws IOException {
+        final File file = File.createTempFile("sort_merge", ".dat");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Merges the buffered and spilled rows, handing every distinct (non-null)
+     * row to the handler in sorted order along with its total count. Null rows
+     * are not handed to the handler, see {@link #getNullCount()}.
+     *
+     * Merging does not discard any rows, so it may be invoked more than once.
+     * Rows that are appended while merging are not necessarily included.
+     *
+     * @param rowHandler
+     * @return the number of distinct rows handed to the handler
+     */
+    public int merge(final RowHandler<? super R> rowHandler) {
+        try (SortMergeIterator<R> iterator = mergeIterator()) {
+            int rowCount = 0;
+            while (iterator.hasNext()) {
+                final Entry<R, Integer> entry = iterator.next();
+                rowHandler.handleRow(entry.getKey(), entry.getValue());
+                rowCount++;
+            }
+            return rowCount;
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates an iterator over the merged (non-null) rows in sorted order,
+     * which allows consuming the result without writing it anywhere first.
+     * The iterator must be closed after use.
+     *
+     * Merging does not discard any rows, so it may be invoked more than once.
+     * Rows that are appended while merging are not necessarily included.
+     *
+     * @return
+     */
+    public synchronized SortMergeIterator<R> mergeIterator() {
+        try {
+            final RowBuffer<R> buffer = _buffer;
+            if (_tempFiles.isEmpty()) {
+                logger.info("No temp files created yet, merging buffer directly");
+                final RunReader<R> bufferReader = new IteratorRunReader<>(buffer._rows.entrySet().iterator());
+                return new SortMergeIterator<>(Collections.singletonList(bufferReader), _comparator);
+            }
+
+            if (!buffer._rows.isEmpty()) {
+                swapBuffer(buffer);
+            }
+
+            reduceRuns();
+
+            final List<RunReader<R>> readers = createReaders(_tempFiles);
+            return new SortMergeIterator<>(readers, _comparator);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Merges groups of runs into intermediate runs until no more than
+     * {@link #getMergeFanIn()} runs are left.
+     */
+    private void reduceRuns() {
+        while (_tempFiles.size() > _mergeFanIn) {
+            final List<List<File>> groups = new ArrayList<>();
+            for (int i = 0; i < _tempFiles.size(); i += _mergeFanIn) {
+                groups.add(_tempFiles.subList(i, Math.min(i + _mergeFanIn, _tempFiles.size())));
+            }
+            logger.info("Merging {} temporary files in {} groups", _tempFiles.size(), groups.size());
+
+            final Stream<List<File>> stream = _parallelMerge ? groups.parallelStream() : groups.stream();
+            final List<File> mergedFiles = stream.map(this::mergeRuns).collect(Collectors.toList());
+
+            for (final File file : _tempFiles) {
+                if (!file.delete()) {
+                    logger.debug("Could not delete merged temporary file: {}", file);
+                }
+            }
+            _tempFiles.clear();
+            _tempFiles.addAll(mergedFiles);
+        }
+    }
+
+    private File mergeRuns(final List<File> files) {
+        try {
+            final File mergedFile = createTempFile();
+            try (SortMergeIterator<R> iterator = new SortMergeIterator<>(createReaders(files), _comparator);
+                    RunWriter<R> writer = _runFormat.createWriter(mergedFile)) {
+                while (iterator.hasNext()) {
+                    final Entry<R, Integer> entry = iterator.next();
+                    writer.write(entry.getKey(), entry.getValue());
+                }
+            }
+            return mergedFile;
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<RunReader<R>> createReaders(final List<File> files) throws IOException {
+        final List<RunReader<R>> readers = new ArrayList<>(files.size());
+        try {
+            for (final File file : files) {
+                readers.add(_runFormat.createReader(file));
+            }
+        } catch (final IOException e) {
+            for (final RunReader<R> reader : readers) {
+                FileHelper.safeClose(reader);
+            }
+            throw e;
+        }
+        return readers;
+    }
+
+    /**
+     * In-memory buffer of sorted rows that can be appended to concurrently.
+     */
+    private static final class RowBuffer<R> {
+
+        private final ConcurrentSkipListMap<R, Integer> _rows;
+
+        /**
+         * Number of distinct rows, which may be overestimated slightly when
+         * threads append the same new row at the same time
+         */
+        private final AtomicInteger _size;
+
+        /**
+         * Number of appends in progress, which have to finish before the buffer
+         * is spilled
+         */
+        private final AtomicInteger _appends;
+
+        private volatile boolean _swapped;
+
+        private RowBuffer(final Comparator<? super R> comparator) {
+            _rows = new ConcurrentSkipListMap<>(comparator);
+            _size = new AtomicInteger();
+            _appends = new AtomicInteger();
+        }
+
+        /**
+         * Appends a row to the buffer.
+         *
+         * @return false if the buffer is full or has been swapped out, in which
+         *         case the row was not appended
+         */
+        private boolean append(final R row, final int frequency, final int bufferSize) {
+            _appends.incrementAndGet();
+            try {
+                // checked after announcing the append, so that spilling waits for it
+                if (_swapped) {
+                    return false;
+                }
+                if (_rows.computeIfPresent(row, (key, count) -> count + frequency) != null) {
+                    return true;
+                }
+                if (_size.incrementAndGet() > bufferSize) {
+                    return false;
+                }
+                _rows.merge(row, frequency, Integer::sum);
+                return true;
+            } finally {
+                _appends.decrementAndGet();
+            }
+        }
+
+        private void awaitAppends() {
+            while (_appends.get() != 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * {@link RunReader} for the in-memory buffer.
+     */
+    private static final class IteratorRunReader<R> implements RunReader<R> {
+
+        private final Iterator<Entry<R, Integer>> _iterator;
+        private Entry<R, Integer> _entry;
+
+        private IteratorRunReader(final Iterator<Entry<R, Integer>> iterator) {
+            _iterator = iterator;
+        }
+
+        @Override
+        public boolean next() {
+            if (_iterator.hasNext()) {
+                _entry = _iterator.next();
+                return true;
+            }
+            _entry = null;
+            return false;
+        }
+
+        @Override
+        public R getRow() {
+            return _entry.getKey();
+        }
+
+        @Override
+        public int getCount() {
+            return _entry.getValue();
+        }
+
+        @Override
+        public void close() {
+            _entry = null;
+        }
+    }
+}
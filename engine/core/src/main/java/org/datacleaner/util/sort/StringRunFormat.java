@@ -0,0 +1,42 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link RunFormat} for {@link String} rows, written as length-prefixed UTF-8.
+ */
+public class StringRunFormat extends BinaryRunFormat<String> {
+
+    @Override
+    protected void writeRow(final Output output, final String row) throws IOException {
+        final byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+        output.writeVarInt(bytes.length);
+        output.writeBytes(bytes);
+    }
+
+    @Override
+    protected String readRow(final Input input) throws IOException {
+        final int length = input.readVarInt();
+        return new String(input.readBytes(length), StandardCharsets.UTF_8);
+    }
+}
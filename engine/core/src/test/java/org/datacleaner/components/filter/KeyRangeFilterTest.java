@@ -0,0 +1,122 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.filter;
+
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.schema.MutableTable;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.components.keyrange.KeyRangeFilter;
+import org.datacleaner.components.keyrange.KeyRangeFilter.Category;
+import org.datacleaner.data.MetaModelInputColumn;
+import org.datacleaner.data.MockInputRow;
+
+import junit.framework.TestCase;
+
+public class KeyRangeFilterTest extends TestCase {
+
+    private MutableTable _table;
+    private InputColumn<Number> _keyColumn;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _table = new MutableTable("tab");
+        final MutableColumn column = new MutableColumn("id", ColumnType.INTEGER, _table, 0, true);
+        _table.addColumn(column);
+        _keyColumn = (InputColumn<Number>) (InputColumn<?>) new MetaModelInputColumn(column);
+    }
+
+    public void testCategorizeBoundedRange() throws Exception {
+        final KeyRangeFilter filter = new KeyRangeFilter(_keyColumn, 10L, 20L);
+
+        assertEquals(Category.INVALID, categorize(filter, null));
+        assertEquals(Category.INVALID, categorize(filter, 9));
+        assertEquals(Category.VALID, categorize(filter, 10));
+        assertEquals(Category.VALID, categorize(filter, 15));
+        assertEquals(Category.VALID, categorize(filter, 19));
+        assertEquals(Category.INVALID, categorize(filter, 20));
+    }
+
+    public void testCategorizeUnboundedRange() throws Exception {
+        final KeyRangeFilter belowFilter = new KeyRangeFilter(_keyColumn, null, 20L);
+        assertEquals(Category.VALID, categorize(belowFilter, null));
+        assertEquals(Category.VALID, categorize(belowFilter, Long.MIN_VALUE));
+        assertEquals(Category.INVALID, categorize(belowFilter, 20));
+
+        final KeyRangeFilter aboveFilter = new KeyRangeFilter(_keyColumn, 10L, null);
+        assertEquals(Category.INVALID, categorize(aboveFilter, null));
+        assertEquals(Category.INVALID, categorize(aboveFilter, 9));
+        assertEquals(Category.VALID, categorize(aboveFilter, 10));
+        assertEquals(Category.VALID, categorize(aboveFilter, Long.MAX_VALUE));
+    }
+
+    public void testOptimizeBoundedRange() throws Exception {
+        final KeyRangeFilter filter = new KeyRangeFilter(_keyColumn, 10L, 20L);
+        assertEquals("SELECT tab.id FROM tab WHERE tab.id >= 10 AND tab.id < 20", optimize(filter));
+    }
+
+    public void testOptimizeRangeWithoutHighestKey() throws Exception {
+        final KeyRangeFilter filter = new KeyRangeFilter(_keyColumn, 10L, null);
+        assertEquals("SELECT tab.id FROM tab WHERE tab.id >= 10", optimize(filter));
+    }
+
+    public void testOptimizeRangeWithoutLowestKey() throws Exception {
+        // records without a key belong to the range which is unbounded below
+        final KeyRangeFilter filter = new KeyRangeFilter(_keyColumn, null, 20L);
+        assertEquals("SELECT tab.id FROM tab WHERE (tab.id IS NULL OR tab.id < 20)", optimize(filter));
+    }
+
+    public void testOnlyValidCategoryIsOptimizable() throws Exception {
+        final KeyRangeFilter filter = new KeyRangeFilter(_keyColumn, 10L, 20L);
+        assertTrue(filter.isOptimizable(Category.VALID));
+        assertFalse(filter.isOptimizable(Category.INVALID));
+
+        try {
+            filter.optimizeQuery(new Query(), Category.INVALID);
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertEquals("Can only optimize the VALID key range category", e.getMessage());
+        }
+    }
+
+    public void testValidate() throws Exception {
+        new KeyRangeFilter(_keyColumn, 10L, 11L).validate();
+        new KeyRangeFilter(_keyColumn, null, null).validate();
+
+        try {
+            new KeyRangeFilter(_keyColumn, 10L, 10L).validate();
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertEquals("Lowest key must be less than the highest key", e.getMessage());
+        }
+    }
+
+    private Category categorize(final KeyRangeFilter filter, final Number key) {
+        return filter.categorize(new MockInputRow().put(_keyColumn, key));
+    }
+
+    private String optimize(final KeyRangeFilter filter) {
+        final Query query = new Query().from(_table).select(_table.getColumnByName("id"));
+        return filter.optimizeQuery(query, Category.VALID).toSql();
+    }
+}
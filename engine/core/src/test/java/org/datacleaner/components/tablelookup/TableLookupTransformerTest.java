@@ -21,19 +21,27 @@ package org.datacleaner.components.tablelookup;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
+import org.apache.metamodel.pojo.ArrayTableDataProvider;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.SimpleTableDef;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.components.tablelookup.TableLookupTransformer.JoinSemantic;
+import org.datacleaner.components.tablelookup.TableLookupTransformer.LookupMode;
 import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.PojoDatastore;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.TransformerDescriptor;
 import org.datacleaner.job.AbstractOutputRowCollector;
+import org.datacleaner.result.CategorizationResult;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
+import org.datacleaner.util.batch.BatchCallback;
 
 import junit.framework.TestCase;
 
@@ -67,6 +75,7 @@ public class TableLookupTransformerTest extends TestCase {
         final TableLookupTransformer t = new TableLookupTransformer();
         t._annotationFactory = annotationFactory;
         t._cached = annotationFactory.createAnnotation();
+        t._notCached = annotationFactory.createAnnotation();
         t._matches = annotationFactory.createAnnotation();
         t._misses = annotationFactory.createAnnotation();
         return t;
@@ -210,6 +219,151 @@ public class TableLookupTransformerTest extends TestCase {
         trans.close();
     }
 
+    public void testCacheHitsAndMisses() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.init();
+
+        assertEquals("[John Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "john.doe@company.com"))));
+        assertEquals("[John Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "john.doe@company.com"))));
+        assertEquals("[null]", Arrays.toString(trans.transform(new MockInputRow().put(col1, "foo bar"))));
+
+        final CategorizationResult result = trans.getResult();
+        assertEquals("[Match, Miss, Cached, Not cached]", result.getCategoryNames().toString());
+        assertEquals(1, result.getCategoryCount("Cached"));
+        assertEquals(2, result.getCategoryCount("Not cached"));
+
+        trans.close();
+    }
+
+    public void testPreloadedLookups() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+        trans.lookupMode = LookupMode.PRELOADED;
+
+        trans.init();
+
+        assertEquals("[Jane Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+        assertEquals("[null]", Arrays.toString(trans.transform(new MockInputRow().put(col1, "foo bar"))));
+
+        final CategorizationResult result = trans.getResult();
+        assertEquals(1, result.getCategoryCount("Match"));
+        assertEquals(1, result.getCategoryCount("Miss"));
+        assertEquals(2, result.getCategoryCount("Cached"));
+        assertEquals(0, result.getCategoryCount("Not cached"));
+
+        trans.close();
+    }
+
+    public void testPreloadFallbackWhenTableIsTooLarge() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+        trans.lookupMode = LookupMode.PRELOADED;
+        trans.preloadMaxRows = 2;
+
+        trans.init();
+
+        assertEquals("[Jane Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+        assertEquals(1, trans.getResult().getCategoryCount("Not cached"));
+
+        trans.close();
+    }
+
+    public void testPreloadedLookupOfNullIsMiss() throws Exception {
+        final List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { "no code", null });
+        rows.add(new Object[] { "forty two", 42 });
+
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new PojoDatastore("my ds", new ArrayTableDataProvider(
+                new SimpleTableDef("codes", new String[] { "name", "code" },
+                        new ColumnType[] { ColumnType.VARCHAR, ColumnType.INTEGER }), rows));
+        trans.tableName = "codes";
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "code" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my code col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+        trans.lookupMode = LookupMode.PRELOADED;
+        trans.cacheLookups = false;
+
+        trans.init();
+
+        // like in a query, null does not equal null
+        assertEquals("[null]", Arrays.toString(trans.transform(new MockInputRow().put(col1, null))));
+        assertEquals("[forty two]", Arrays.toString(trans.transform(new MockInputRow().put(col1, "42.0"))));
+
+        final CategorizationResult result = trans.getResult();
+        assertEquals("[Match, Miss, Cached, Not cached]", result.getCategoryNames().toString());
+        assertEquals(1, result.getCategoryCount("Miss"));
+        assertEquals(2, result.getCategoryCount("Cached"));
+        assertEquals(0, result.getCategoryCount("Not cached"));
+
+        trans.close();
+    }
+
+    public void testBatchedLookups() throws Exception {
+        final TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.joinSemantic = JoinSemantic.LEFT_JOIN;
+        trans.conditionColumns = new String[] { "email" };
+        final InputColumn<String> col1 = new MockInputColumn<>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+        trans.lookupMode = LookupMode.BATCHED;
+        trans.batchSize = 3;
+
+        trans.init();
+
+        final List<String> result = new ArrayList<>();
+        final BatchCallback<Collection<Object[]>> callback = new BatchCallback<Collection<Object[]>>() {
+            @Override
+            public void onResult(final Collection<Object[]> output) {
+                final StringBuilder sb = new StringBuilder();
+                for (final Object[] values : output) {
+                    sb.append(Arrays.toString(values));
+                }
+                result.add(sb.toString());
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                fail(error.getMessage());
+            }
+        };
+
+        trans.transformAsync(new MockInputRow().put(col1, "jane.doe@company.com"), callback);
+        trans.transformAsync(new MockInputRow().put(col1, "foo bar"), callback);
+        assertEquals(0, result.size());
+
+        // the third lookup fills up the batch, which executes one query
+        trans.transformAsync(new MockInputRow().put(col1, "john.doe@company.com"), callback);
+        assertEquals("[[Jane Doe][Jane doe], [null], [John Doe]]", result.toString());
+        assertEquals(1, trans.getBatchMetrics().getBatchCount());
+
+        // cached lookups do not go into a batch
+        trans.transformAsync(new MockInputRow().put(col1, "john.doe@company.com"), callback);
+        assertEquals("[John Doe]", result.get(3));
+
+        trans.close();
+    }
+
     public void testIsDistributable() throws Exception {
         final TransformerDescriptor<TableLookupTransformer> descriptor =
                 Descriptors.ofTransformer(TableLookupTransformer.class);
@@ -19,6 +19,9 @@
  */
 package org.datacleaner.data;
 
+import java.util.Arrays;
+
+import org.apache.commons.lang.SerializationUtils;
 import org.apache.metamodel.data.DataSetHeader;
 import org.apache.metamodel.data.DefaultRow;
 import org.apache.metamodel.data.SimpleDataSetHeader;
@@ -91,4 +94,54 @@ public class TransformedInputRowTest extends TestCase {
         assertNull(row1.getValue(inputColumn3));
         assertEquals("w", row2.getValue(inputColumn3));
     }
+
+    public void testGetValueWithRowLayout() throws Exception {
+        final Column col1 = new MutableColumn("foo");
+        final InputColumn<?> physicalColumn = new MetaModelInputColumn(col1);
+        final InputColumn<String> inputColumn1 = new MockInputColumn<>("foo", String.class);
+        final InputColumn<String> inputColumn2 = new MockInputColumn<>("bar", String.class);
+        final InputColumn<String> inputColumn3 = new MockInputColumn<>("baz", String.class);
+
+        final DataSetHeader header = new SimpleDataSetHeader(new SelectItem[] { new SelectItem(col1) });
+        final RowLayout rowLayout = RowLayout.compile(Arrays.asList(inputColumn1, inputColumn2))
+                .withPhysicalColumns(header.getSelectItems());
+        assertEquals(0, rowLayout.getPhysicalSlot(physicalColumn));
+        assertEquals(1, rowLayout.getVirtualSlot(inputColumn2));
+        assertEquals(-1, rowLayout.getVirtualSlot(inputColumn3));
+
+        final MetaModelInputRow physicalRow =
+                new MetaModelInputRow(0, new DefaultRow(header, new Object[] { 1234 }), rowLayout);
+        assertTrue(physicalRow.containsInputColumn(physicalColumn));
+        assertEquals(1234, physicalRow.getValue(physicalColumn));
+
+        final TransformedInputRow row1 = new TransformedInputRow(physicalRow, 1);
+        row1.addValue(inputColumn1, "f");
+        row1.addValue(inputColumn2, null);
+        row1.addValue(inputColumn3, "b");
+
+        assertEquals(1234, row1.getValue(physicalColumn));
+        assertEquals("f", row1.getValue(inputColumn1));
+        assertNull(row1.getValue(inputColumn2));
+        assertTrue(row1.containsInputColumn(inputColumn2));
+        assertEquals("b", row1.getValue(inputColumn3));
+        assertEquals("[MockInputColumn[name=foo], MockInputColumn[name=bar], MockInputColumn[name=baz]]",
+                row1.getTransformedInputColumns().toString());
+
+        // values of the delegate are visible through a row with empty slots
+        final TransformedInputRow row2 = new TransformedInputRow(row1, 2);
+        assertFalse(row2.getTransformedInputColumns().contains(inputColumn1));
+        assertEquals("f", row2.getValue(inputColumn1));
+        row2.addValue(inputColumn1, "w");
+        assertEquals("w", row2.getValue(inputColumn1));
+        assertEquals("f", row1.getValue(inputColumn1));
+
+        // the slot values survive serialization, without the layout
+        final TransformedInputRow deserialized =
+                (TransformedInputRow) SerializationUtils.deserialize(SerializationUtils.serialize(row2));
+        assertEquals(2, deserialized.getId());
+        assertEquals(1, deserialized.getTransformedInputColumns().size());
+        final InputColumn<?> deserializedColumn = deserialized.getTransformedInputColumns().iterator().next();
+        assertEquals("w", deserialized.getValue(deserializedColumn));
+        assertEquals(1234, deserialized.getValue(new MetaModelInputColumn(col1)));
+    }
 }
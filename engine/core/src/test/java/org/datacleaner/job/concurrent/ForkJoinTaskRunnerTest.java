@@ -0,0 +1,238 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.job.tasks.ConsumeRowTask;
+import org.datacleaner.job.tasks.Task;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.test.TestHelper;
+
+import junit.framework.TestCase;
+
+public class ForkJoinTaskRunnerTest extends TestCase {
+
+    public void testDefaults() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner();
+        try {
+            assertEquals(Runtime.getRuntime().availableProcessors(), taskRunner.getParallelism());
+            assertEquals(ForkJoinTaskRunner.getDefaultMaxRowsInFlight(taskRunner.getParallelism()),
+                    taskRunner.getMaxRowsInFlight());
+            assertEquals(0, taskRunner.getRowsInFlight());
+            assertEquals(1, taskRunner.getRowBatchSize());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testRunManyTasks() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(4, 10);
+        try {
+            final int numTasks = 10000;
+            final AtomicInteger executed = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(numTasks);
+            final Task task = () -> executed.incrementAndGet();
+            final TaskListener listener = new TaskListener() {
+                @Override
+                public void onBegin(final Task task) {
+                }
+
+                @Override
+                public void onComplete(final Task task) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(final Task task, final Throwable throwable) {
+                    latch.countDown();
+                }
+            };
+
+            for (int i = 0; i < numTasks; i++) {
+                taskRunner.run(task, listener);
+            }
+
+            while (latch.getCount() > 0) {
+                taskRunner.assistExecution();
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(numTasks, executed.get());
+            assertTrue(taskRunner.getStealCount() >= 0);
+            assertTrue(taskRunner.getQueueDepth() >= 0);
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testRowTasksAreBoundedByRowsInFlight() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(2, 5);
+        try {
+            final int numTasks = 50;
+            final AtomicInteger submitted = new AtomicInteger();
+            final AtomicInteger maxRowsInFlight = new AtomicInteger();
+            final CountDownLatch gate = new CountDownLatch(1);
+            final CountDownLatch finished = new CountDownLatch(numTasks);
+            final TaskListener listener = new TaskListener() {
+                @Override
+                public void onBegin(final Task task) {
+                    maxRowsInFlight.accumulateAndGet(taskRunner.getRowsInFlight(), Math::max);
+                    try {
+                        gate.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void onComplete(final Task task) {
+                    finished.countDown();
+                }
+
+                @Override
+                public void onError(final Task task, final Throwable throwable) {
+                    // the tasks have no row handler, so they will fail
+                    finished.countDown();
+                }
+            };
+
+            final Thread submitter = new Thread(() -> {
+                for (int i = 0; i < numTasks; i++) {
+                    taskRunner.run(new ConsumeRowTask(null, null, null, null, i), listener);
+                    submitted.incrementAndGet();
+                }
+            });
+            submitter.start();
+
+            // the submitter blocks when 5 rows are in flight
+            Thread.sleep(200);
+            assertEquals(5, submitted.get());
+            assertEquals(5, taskRunner.getRowsInFlight());
+
+            gate.countDown();
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            submitter.join();
+
+            assertEquals(numTasks, submitted.get());
+            assertTrue("Max rows in flight was " + maxRowsInFlight.get(), maxRowsInFlight.get() <= 5);
+
+            // the listener is notified before the row is released, so wait
+            // for the workers to finish the last tasks
+            assertTrue(taskRunner.getForkJoinPool().awaitQuiescence(10, TimeUnit.SECONDS));
+            assertEquals(0, taskRunner.getRowsInFlight());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testRunJobWithParallelismOne() throws Throwable {
+        final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+        final List<Integer> expected = runJob(datastore, new SingleThreadedTaskRunner());
+
+        // two publishers (one per table) compete for a single worker, and
+        // the few rows in flight make the publishers wait for their rows
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(1, 10);
+        try {
+            assertEquals(expected, runJob(datastore, taskRunner));
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private List<Integer> runJob(final Datastore datastore, final TaskRunner taskRunner) throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(taskRunner))
+                .withDatastores(datastore);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("PUBLIC.ORDERFACT.ORDERNUMBER", "PUBLIC.CUSTOMERS.CUSTOMERNUMBER");
+            jobBuilder.addAnalyzer(MockAnalyzer.class).addInputColumn(jobBuilder.getSourceColumns().get(0));
+            jobBuilder.addAnalyzer(MockAnalyzer.class).addInputColumn(jobBuilder.getSourceColumns().get(1));
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await(60, TimeUnit.SECONDS);
+        assertTrue("Job did not finish, possibly deadlocked", resultFuture.isDone());
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<Integer> rowCounts = new ArrayList<>();
+        for (final AnalyzerResult result : resultFuture.getResults()) {
+            rowCounts.add(((ListResult<?>) result).getValues().size());
+        }
+        Collections.sort(rowCounts);
+        return rowCounts;
+    }
+
+    public void testRowsInFlightLimiter() throws Exception {
+        final RowsInFlightLimiter limiter = new RowsInFlightLimiter(5);
+        assertEquals(0, limiter.getPermits(() -> {
+        }));
+
+        limiter.acquire(3);
+        assertEquals(3, limiter.getRowsInFlight());
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Thread thread = new Thread(() -> {
+            limiter.acquire(5);
+            acquired.countDown();
+        });
+        thread.start();
+
+        // cannot acquire before the 3 rows are released
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        limiter.release(3);
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        assertEquals(5, limiter.getRowsInFlight());
+
+        limiter.release(5);
+        assertEquals(0, limiter.getRowsInFlight());
+    }
+
+    public void testInvalidMaxRowsInFlight() throws Exception {
+        try {
+            new RowsInFlightLimiter(0);
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("Max rows in flight must be a positive number, was: 0", e.getMessage());
+        }
+    }
+}
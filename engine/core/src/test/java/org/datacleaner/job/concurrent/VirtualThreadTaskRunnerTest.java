@@ -0,0 +1,72 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.datacleaner.job.tasks.Task;
+
+import junit.framework.TestCase;
+
+public class VirtualThreadTaskRunnerTest extends TestCase {
+
+    public void testRunBlockingTasks() throws Exception {
+        final VirtualThreadTaskRunner taskRunner = new VirtualThreadTaskRunner(200);
+        try {
+            assertEquals(200, taskRunner.getMaxRowsInFlight());
+
+            final int numTasks = 500;
+            final AtomicInteger executed = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(numTasks);
+            final Task task = () -> {
+                // simulate a blocking I/O call
+                Thread.sleep(10);
+                executed.incrementAndGet();
+            };
+            final TaskListener listener = new TaskListener() {
+                @Override
+                public void onBegin(final Task task) {
+                }
+
+                @Override
+                public void onComplete(final Task task) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(final Task task, final Throwable throwable) {
+                    latch.countDown();
+                }
+            };
+
+            for (int i = 0; i < numTasks; i++) {
+                taskRunner.run(task, listener);
+            }
+
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertEquals(numTasks, executed.get());
+            assertEquals(0, taskRunner.getRowsInFlight());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+}
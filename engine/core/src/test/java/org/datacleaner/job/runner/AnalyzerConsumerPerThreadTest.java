@@ -0,0 +1,168 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResultReducer;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.Distributed;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.test.TestEnvironment;
+import org.datacleaner.test.TestHelper;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class AnalyzerConsumerPerThreadTest extends TestCase {
+
+    public static class CountResultReducer implements AnalyzerResultReducer<NumberResult> {
+        @Override
+        public NumberResult reduce(final Collection<? extends NumberResult> results) {
+            int sum = 0;
+            for (final NumberResult result : results) {
+                sum += result.getNumber().intValue();
+            }
+            return new NumberResult(sum);
+        }
+    }
+
+    /**
+     * A deliberately non-thread-safe analyzer which counts rows
+     */
+    @Named("Non-concurrent row counter")
+    @Distributed(reducer = CountResultReducer.class)
+    public static class NonConcurrentRowCounter implements Analyzer<NumberResult> {
+
+        static final Set<NonConcurrentRowCounter> INSTANCES = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Released when a second instance runs, which holds back the first
+         * instance so that other threads get to process rows too
+         */
+        static CountDownLatch secondInstanceRunning = new CountDownLatch(1);
+
+        @Configured
+        InputColumn<?>[] columns;
+
+        private int _count = 0;
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            if (INSTANCES.add(this) && INSTANCES.size() > 1) {
+                secondInstanceRunning.countDown();
+            }
+            try {
+                secondInstanceRunning.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            _count += distinctCount;
+        }
+
+        @Override
+        public NumberResult getResult() {
+            return new NumberResult(_count);
+        }
+    }
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        NonConcurrentRowCounter.INSTANCES.clear();
+        NonConcurrentRowCounter.secondInstanceRunning = new CountDownLatch(1);
+        System.setProperty(SystemProperties.ANALYZER_PER_THREAD_INSTANCES, "true");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ANALYZER_PER_THREAD_INSTANCES);
+    }
+
+    public void testPerThreadInstancesAreReduced() throws Throwable {
+        final NumberResult result = runJob();
+        final int instanceCount = NonConcurrentRowCounter.INSTANCES.size();
+        assertTrue("Instance count was: " + instanceCount,
+                instanceCount > 1 && instanceCount <= TestEnvironment.THREAD_COUNT + 1);
+
+        int sum = 0;
+        for (final NonConcurrentRowCounter instance : NonConcurrentRowCounter.INSTANCES) {
+            assertTrue(instance._count > 0);
+            sum += instance._count;
+        }
+        assertEquals(sum, result.getNumber().intValue());
+
+        // the reduced result equals the result of a single instance
+        System.clearProperty(SystemProperties.ANALYZER_PER_THREAD_INSTANCES);
+        NonConcurrentRowCounter.INSTANCES.clear();
+        final NumberResult singleInstanceResult = runJob();
+        assertEquals(1, NonConcurrentRowCounter.INSTANCES.size());
+        assertEquals(singleInstanceResult.getNumber().intValue(), result.getNumber().intValue());
+        assertEquals(2996, result.getNumber().intValue());
+    }
+
+    public void testNotAppliedWithoutSystemProperty() throws Throwable {
+        System.clearProperty(SystemProperties.ANALYZER_PER_THREAD_INSTANCES);
+        // a single instance must not wait for a second one
+        NonConcurrentRowCounter.secondInstanceRunning.countDown();
+
+        final NumberResult result = runJob();
+        assertEquals(2996, result.getNumber().intValue());
+        assertEquals(1, NonConcurrentRowCounter.INSTANCES.size());
+    }
+
+    private NumberResult runJob() throws Throwable {
+        final DataCleanerConfiguration configuration =
+                new DataCleanerConfigurationImpl().withEnvironment(TestEnvironment.getEnvironment())
+                        .withDatastores(datastore);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("PUBLIC.ORDERFACT.ORDERNUMBER");
+            jobBuilder.addAnalyzer(NonConcurrentRowCounter.class).addInputColumns(jobBuilder.getSourceColumns());
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        return (NumberResult) resultFuture.getResults().get(0);
+    }
+}
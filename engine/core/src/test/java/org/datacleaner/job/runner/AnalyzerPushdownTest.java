@@ -0,0 +1,157 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.Query;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.api.QueryOptimizedAnalyzer;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.test.TestEnvironment;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class AnalyzerPushdownTest extends TestCase {
+
+    /**
+     * Counts rows, either by consuming them or by a COUNT(*) query
+     */
+    @Named("Pushdown row counter")
+    public static class PushdownRowCounter implements QueryOptimizedAnalyzer<NumberResult> {
+
+        static final AtomicInteger RUN_INVOCATIONS = new AtomicInteger();
+        static volatile boolean failAggregate;
+
+        @Configured
+        InputColumn<?>[] columns;
+
+        private final AtomicInteger _count = new AtomicInteger();
+
+        @Override
+        public void run(final InputRow row, final int distinctCount) {
+            RUN_INVOCATIONS.incrementAndGet();
+            _count.addAndGet(distinctCount);
+        }
+
+        @Override
+        public boolean isOptimizable() {
+            return true;
+        }
+
+        @Override
+        public List<Query> createAggregateQueries(final Query baseQuery) {
+            final Query query = baseQuery.clone();
+            query.getSelectClause().removeItems();
+            query.selectCount();
+            return Collections.singletonList(query);
+        }
+
+        @Override
+        public void runAggregate(final int queryIndex, final Row row) {
+            if (failAggregate) {
+                throw new IllegalStateException("aggregate failed");
+            }
+            _count.addAndGet(((Number) row.getValue(0)).intValue());
+        }
+
+        @Override
+        public NumberResult getResult() {
+            return new NumberResult(_count.get());
+        }
+    }
+
+    private final Datastore datastore =
+            new JdbcDatastore("orderdb", "jdbc:hsqldb:res:orderdb;readonly=true", "org.hsqldb.jdbcDriver", "SA", "",
+                    true);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        PushdownRowCounter.RUN_INVOCATIONS.set(0);
+        PushdownRowCounter.failAggregate = false;
+        System.setProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN, "true");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN);
+    }
+
+    public void testAnalyzerIsPushedDown() throws Throwable {
+        assertEquals(2996, runJob());
+        assertEquals(0, PushdownRowCounter.RUN_INVOCATIONS.get());
+    }
+
+    public void testNotPushedDownWithoutSystemProperty() throws Throwable {
+        System.clearProperty(SystemProperties.QUERY_ANALYZER_PUSHDOWN);
+
+        assertEquals(2996, runJob());
+        assertEquals(2996, PushdownRowCounter.RUN_INVOCATIONS.get());
+    }
+
+    public void testAggregateErrorFailsJob() throws Throwable {
+        PushdownRowCounter.failAggregate = true;
+        try {
+            runJob();
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertEquals("aggregate failed", e.getMessage());
+        }
+    }
+
+    private int runJob() throws Throwable {
+        final DataCleanerConfiguration configuration =
+                new DataCleanerConfigurationImpl().withEnvironment(TestEnvironment.getEnvironment())
+                        .withDatastores(datastore);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("PUBLIC.ORDERFACT.ORDERNUMBER");
+            jobBuilder.addAnalyzer(PushdownRowCounter.class).addInputColumns(jobBuilder.getSourceColumns());
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final NumberResult result = (NumberResult) resultFuture.getResults().get(0);
+        return result.getNumber().intValue();
+    }
+}
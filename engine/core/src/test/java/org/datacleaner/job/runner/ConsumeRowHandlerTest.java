@@ -27,6 +27,7 @@ import org.apache.metamodel.pojo.TableDataProvider;
 import org.apache.metamodel.util.SimpleTableDef;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.components.convert.ConvertToNumberTransformer;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
 import org.datacleaner.connection.PojoDatastore;
@@ -166,4 +167,43 @@ public class ConsumeRowHandlerTest extends TestCase {
         final List<InputColumn<?>> outputColumns = outputRow.getInputColumns();
         assertEquals(6, outputColumns.size());
     }
+
+    public void testConsumeRowsWithVectorizedTransformer() throws Exception {
+        final TransformerComponentBuilder<ConvertToNumberTransformer> tr1 =
+                ajb.addTransformer(ConvertToNumberTransformer.class);
+        tr1.addInputColumn(ageColumn);
+
+        final TransformerComponentBuilder<MockTransformer> tr2 = ajb.addTransformer(MockTransformer.class);
+        tr2.addInputColumn(tr1.getOutputColumns().get(0));
+
+        final AnalyzerComponentBuilder<MockAnalyzer> analyzer = ajb.addAnalyzer(MockAnalyzer.class);
+        analyzer.addInputColumns(sourceColumns);
+
+        final AnalysisJob job = ajb.toAnalysisJob(true);
+
+        final Configuration configuration = new Configuration();
+        configuration.includeAnalyzers = false;
+
+        final ConsumeRowHandler handler = new ConsumeRowHandler(job, _configuration, configuration);
+
+        final List<InputRow> inputRows = new ArrayList<>();
+        inputRows.add(new MockInputRow(1).put(nameColumn, "Kasper").put(ageColumn, "33"));
+        inputRows.add(new MockInputRow(2).put(nameColumn, "Vera").put(ageColumn, null));
+        inputRows.add(new MockInputRow(3).put(nameColumn, "Tomasz").put(ageColumn, "foo"));
+
+        final List<InputRow> result = handler.consumeRows(inputRows).getRows();
+        assertEquals(3, result.size());
+
+        for (int i = 0; i < inputRows.size(); i++) {
+            final InputRow expectedRow = handler.consumeRow(inputRows.get(i)).getRows().get(0);
+            final InputRow outputRow = result.get(i);
+            assertEquals(expectedRow.getId(), outputRow.getId());
+            assertEquals(expectedRow.toString(), outputRow.toString());
+        }
+
+        assertEquals("TransformedInputRow[values={"
+                + "TransformedInputColumn[id=trans-0001-0002,name=age (as number)]=33, "
+                + "TransformedInputColumn[id=trans-0003-0004,name=mock output]=mocked: 33}," + "delegate="
+                + inputRows.get(0) + "]", result.get(0).toString());
+    }
 }
@@ -0,0 +1,122 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+
+import junit.framework.TestCase;
+
+public class ContinuationTrackerTest extends TestCase {
+
+    public void testRowCompletesAfterItsContinuations() throws Exception {
+        final ContinuationTracker tracker = new ContinuationTracker(new SingleThreadedTaskRunner());
+        final AtomicInteger processed = new AtomicInteger();
+
+        final ContinuationTracker rowTracker = tracker.forRow(processed::incrementAndGet);
+        assertEquals(1, tracker.getPendingCount());
+
+        rowTracker.begin();
+        rowTracker.begin();
+        // the synchronous pass of the row
+        rowTracker.complete();
+        assertEquals(0, processed.get());
+        assertEquals(1, tracker.getPendingCount());
+
+        rowTracker.complete();
+        assertEquals(0, processed.get());
+        rowTracker.complete();
+        assertEquals(1, processed.get());
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    public void testContinuationsAreResumedOnTaskRunner() throws Exception {
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(2);
+        try {
+            final ContinuationTracker tracker = new ContinuationTracker(taskRunner);
+            final ContinuationTracker rowTracker = tracker.forRow(null);
+            final AtomicReference<Thread> resumingThread = new AtomicReference<>();
+
+            rowTracker.begin();
+            final Thread timerThread = new Thread(() -> rowTracker.resume(() -> {
+                resumingThread.set(Thread.currentThread());
+                rowTracker.complete();
+            }));
+            timerThread.start();
+            timerThread.join();
+            rowTracker.complete();
+
+            tracker.awaitCompletion(taskRunner);
+            assertEquals(0, tracker.getPendingCount());
+            assertNotNull(resumingThread.get());
+            assertNotSame(timerThread, resumingThread.get());
+            assertNotSame(Thread.currentThread(), resumingThread.get());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testResumeFromWorkerThreadWhenQueueIsFull() throws Exception {
+        // a single worker thread and room for a single queued task
+        final MultiThreadedTaskRunner taskRunner = new MultiThreadedTaskRunner(1, 1, 1);
+        try {
+            final ContinuationTracker tracker = new ContinuationTracker(taskRunner);
+            final ContinuationTracker rowTracker = tracker.forRow(null);
+            final CountDownLatch resumed = new CountDownLatch(1);
+            final CountDownLatch queuedTaskRun = new CountDownLatch(1);
+
+            rowTracker.begin();
+            taskRunner.run(() -> {
+                // fills the queue, since the only worker thread is busy here
+                taskRunner.run(queuedTaskRun::countDown, null);
+                rowTracker.resume(() -> {
+                    resumed.countDown();
+                    rowTracker.complete();
+                });
+            }, null);
+
+            assertTrue(resumed.await(10, TimeUnit.SECONDS));
+            assertTrue(queuedTaskRun.await(10, TimeUnit.SECONDS));
+            rowTracker.complete();
+
+            tracker.awaitCompletion(taskRunner);
+            assertEquals(0, tracker.getPendingCount());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testErrorWhenRowCompletes() throws Exception {
+        final ContinuationTracker tracker = new ContinuationTracker(new SingleThreadedTaskRunner());
+        final ContinuationTracker rowTracker = tracker.forRow(() -> {
+            throw new IllegalStateException("foo");
+        });
+
+        rowTracker.complete();
+
+        assertEquals(0, tracker.getPendingCount());
+        assertEquals("foo", tracker.getError().getMessage());
+    }
+}
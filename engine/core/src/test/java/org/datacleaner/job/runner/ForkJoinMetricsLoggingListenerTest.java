@@ -0,0 +1,78 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
+import org.datacleaner.job.concurrent.TaskListener;
+import org.datacleaner.job.tasks.Task;
+
+import junit.framework.TestCase;
+
+public class ForkJoinMetricsLoggingListenerTest extends TestCase {
+
+    public void testStealCountIsCountedFromJobBegin() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(4);
+        try {
+            runTasks(taskRunner, 10000);
+
+            final ForkJoinMetricsLoggingListener listener = new ForkJoinMetricsLoggingListener(taskRunner);
+            listener.jobBegin(null, null);
+            assertEquals(0, listener.getJobStealCount());
+
+            runTasks(taskRunner, 10000);
+            assertTrue(listener.getJobStealCount() >= 0);
+            assertTrue(listener.getJobStealCount() <= taskRunner.getStealCount());
+
+            listener.jobSuccess(null, null);
+            listener.errorUnknown(null, new IllegalStateException("only logged once"));
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private void runTasks(final ForkJoinTaskRunner taskRunner, final int numTasks) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(numTasks);
+        final Task task = () -> {
+        };
+        final TaskListener listener = new TaskListener() {
+            @Override
+            public void onBegin(final Task task) {
+            }
+
+            @Override
+            public void onComplete(final Task task) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(final Task task, final Throwable throwable) {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < numTasks; i++) {
+            taskRunner.run(task, listener);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(taskRunner.getForkJoinPool().awaitQuiescence(10, TimeUnit.SECONDS));
+    }
+}
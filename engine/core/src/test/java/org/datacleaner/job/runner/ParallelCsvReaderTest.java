@@ -0,0 +1,163 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.DatastoreConnection;
+
+import junit.framework.TestCase;
+
+public class ParallelCsvReaderTest extends TestCase {
+
+    private File file;
+    private File multilineFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = new File("target/parallel_csv_reader_test.csv");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write("id,name,comment\n");
+            for (int i = 1; i <= 1000; i++) {
+                final String lineEnding = i % 3 == 0 ? "\r\n" : "\n";
+                writer.write(i + ",name " + i + ",\"comma, and more " + i + "\"" + lineEnding);
+            }
+        }
+
+        // quoted line breaks, which must not be taken for the end of a record
+        multilineFile = new File("target/parallel_csv_reader_test_multiline.csv");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(multilineFile), StandardCharsets.UTF_8)) {
+            writer.write("id,name,comment\n");
+            for (int i = 1; i <= 1000; i++) {
+                final String comment;
+                if (i % 5 == 0) {
+                    comment = "\"first line " + i + "\n\"\"quoted\"\" second line\n\nfourth line\"";
+                } else if (i % 7 == 0) {
+                    comment = "\"escaped \\\" quote, not ending the value\nnext line " + i + "\"";
+                } else {
+                    comment = "\"comma, and more " + i + "\"";
+                }
+                writer.write(i + ",name " + i + "," + comment + "\n");
+            }
+        }
+    }
+
+    public void testPartitionsReturnSameRows() throws Exception {
+        final CsvDatastore datastore =
+                new CsvDatastore("csv", null, file.getPath(), '"', ',', '\\', "UTF-8", true, false, 1);
+        assertFalse(datastore.getCsvConfiguration().isMultilineValues());
+
+        final List<String> rows = assertPartitionsReturnSameRows(datastore);
+        assertEquals("[1, name 1, comma, and more 1]", rows.get(0));
+    }
+
+    public void testPartitionsReturnSameRowsWithMultilineValues() throws Exception {
+        final CsvDatastore datastore = new CsvDatastore("csv", multilineFile.getPath());
+        assertTrue(datastore.getCsvConfiguration().isMultilineValues());
+
+        final List<String> rows = assertPartitionsReturnSameRows(datastore);
+        assertEquals("[5, name 5, first line 5\n\"quoted\" second line\n\nfourth line]", rows.get(4));
+        assertEquals("[7, name 7, escaped \" quote, not ending the value\nnext line 7]", rows.get(6));
+    }
+
+    private List<String> assertPartitionsReturnSameRows(final CsvDatastore datastore) throws Exception {
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+
+            final List<String> expected = readRows(() -> dataContext.executeQuery(query));
+            assertEquals(1000, expected.size());
+
+            final List<Supplier<DataSet>> partitions =
+                    new ParallelCsvReader(datastore, 1024).createPartitions(query, 4);
+            assertNotNull(partitions);
+            assertEquals(4, partitions.size());
+
+            final List<String> actual = new ArrayList<>();
+            for (final Supplier<DataSet> partition : partitions) {
+                final List<String> rows = readRows(partition);
+                assertFalse(rows.isEmpty());
+                actual.addAll(rows);
+            }
+            assertEquals(expected, actual);
+            return actual;
+        }
+    }
+
+    public void testNoPartitioningOfSmallFile() throws Exception {
+        final CsvDatastore datastore = new CsvDatastore("csv", file.getPath());
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+
+            assertNull(new ParallelCsvReader(datastore).createPartitions(query, 4));
+        }
+    }
+
+    public void testNoPartitioningWithNonAsciiQuoteChar() throws Exception {
+        final CsvDatastore datastore =
+                new CsvDatastore("csv", null, file.getPath(), '\u00ab', ',', '\\', "UTF-8", true, true, 1);
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+
+            assertNull(new ParallelCsvReader(datastore, 1024).createPartitions(query, 4));
+        }
+    }
+
+    public void testNoPartitioningWithRowWindow() throws Exception {
+        final CsvDatastore datastore = new CsvDatastore("csv", file.getPath());
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getDefaultSchema().getTable(0);
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+            query.setMaxRows(10);
+
+            assertNull(new ParallelCsvReader(datastore, 1024).createPartitions(query, 4));
+        }
+    }
+
+    private List<String> readRows(final Supplier<DataSet> dataSetSupplier) {
+        final List<String> rows = new ArrayList<>();
+        try (DataSet dataSet = dataSetSupplier.get()) {
+            while (dataSet.next()) {
+                rows.add(Arrays.toString(dataSet.getRow().getValues()));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.JdbcDatastore;
+
+import junit.framework.TestCase;
+
+public class ParallelScanPartitionerTest extends TestCase {
+
+    private static final String URL = "jdbc:hsqldb:res:orderdb;readonly=true";
+    private static final String DRIVER = "org.hsqldb.jdbcDriver";
+
+    public void testPartitionTableScan() throws Exception {
+        final JdbcDatastore datastore = new JdbcDatastore("orderdb", URL, DRIVER, "SA", "", true);
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getTableByQualifiedLabel("PUBLIC.ORDERS");
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+
+            final List<Query> queries = new ParallelScanPartitioner(datastore, dataContext)
+                    .createPartitionQueries(query, 4);
+            assertNotNull(queries);
+            assertEquals(4, queries.size());
+
+            final int expectedCount = count(dataContext, query);
+            assertTrue(expectedCount > 0);
+
+            int partitionedCount = 0;
+            for (final Query partitionQuery : queries) {
+                final int partitionCount = count(dataContext, partitionQuery);
+                assertTrue("Empty partition: " + partitionQuery, partitionCount > 0);
+                partitionedCount += partitionCount;
+            }
+            assertEquals(expectedCount, partitionedCount);
+        }
+    }
+
+    public void testNoPartitioningWithRowWindow() throws Exception {
+        final JdbcDatastore datastore = new JdbcDatastore("orderdb", URL, DRIVER, "SA", "", true);
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getTableByQualifiedLabel("PUBLIC.ORDERS");
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+            query.setMaxRows(10);
+
+            assertNull(new ParallelScanPartitioner(datastore, dataContext).createPartitionQueries(query, 4));
+        }
+    }
+
+    public void testNoPartitioningWithoutConnectionPool() throws Exception {
+        final JdbcDatastore datastore = new JdbcDatastore("orderdb", URL, DRIVER, "SA", "", false);
+        try (DatastoreConnection connection = datastore.openConnection()) {
+            final DataContext dataContext = connection.getDataContext();
+            final Table table = dataContext.getTableByQualifiedLabel("PUBLIC.ORDERS");
+            final Query query = dataContext.query().from(table).selectAll().toQuery();
+
+            assertNull(new ParallelScanPartitioner(datastore, dataContext).createPartitionQueries(query, 4));
+        }
+    }
+
+    private int count(final DataContext dataContext, final Query query) {
+        int count = 0;
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
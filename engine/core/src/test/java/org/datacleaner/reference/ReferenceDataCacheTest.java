@@ -0,0 +1,207 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import junit.framework.TestCase;
+
+public class ReferenceDataCacheTest extends TestCase {
+
+    private final File directory = new File("target/ReferenceDataCacheTest");
+
+    private static Map<String, String> createSynonyms() {
+        final Map<String, String> synonyms = new LinkedHashMap<>();
+        synonyms.put("DNK", "DNK");
+        synonyms.put("Denmark", "DNK");
+        synonyms.put("Danmark", "DNK");
+        synonyms.put("NLD", "NLD");
+        synonyms.put("The netherlands", "NLD");
+        return synonyms;
+    }
+
+    public void testIndexRoundTrip() throws Exception {
+        directory.mkdirs();
+        final File file = new File(directory, "roundtrip.dcidx");
+        final Map<String, String> synonyms = createSynonyms();
+        MappedReferenceDataIndex.write(file, synonyms.keySet(), String::toLowerCase, synonyms::get);
+
+        final MappedReferenceDataIndex index = MappedReferenceDataIndex.open(file);
+        assertEquals(5, index.size());
+        assertEquals("DNK", index.get("denmark"));
+        assertEquals("NLD", index.get("the netherlands"));
+        assertNull(index.get("Denmark"));
+        assertTrue(index.containsKey("dnk"));
+        assertFalse(index.containsKey("holland"));
+
+        final Iterator<String> keys = index.keys();
+        assertEquals("DNK", keys.next());
+        assertEquals("Denmark", keys.next());
+        assertEquals("Danmark", keys.next());
+        assertEquals("NLD", keys.next());
+        assertEquals("The netherlands", keys.next());
+        assertFalse(keys.hasNext());
+    }
+
+    public void testReuseAndRebuildOnNewVersion() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache(directory, 1024 * 1024);
+        final AtomicInteger loadCount = new AtomicInteger();
+        final Function<String, MappedReferenceDataIndex> getIndex = version -> cache.getIndex("key", version, () -> {
+            loadCount.incrementAndGet();
+            return createSynonyms();
+        }, Function.identity());
+
+        final MappedReferenceDataIndex index1 = getIndex.apply("v1");
+        assertSame(index1, getIndex.apply("v1"));
+        assertEquals(1, loadCount.get());
+        assertEquals(1, cache.getIndexCount());
+
+        final MappedReferenceDataIndex index2 = getIndex.apply("v2");
+        assertNotSame(index1, index2);
+        assertEquals(2, loadCount.get());
+        assertEquals(1, cache.getIndexCount());
+        assertFalse(index1.getFile().exists());
+
+        // the replaced index remains usable by those who already have it
+        assertEquals("DNK", index1.get("Denmark"));
+
+        cache.clear();
+        assertEquals(0, cache.getSizeInBytes());
+        assertFalse(index2.getFile().exists());
+    }
+
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        final MappedReferenceDataIndex probe = new ReferenceDataCache(directory, Long.MAX_VALUE).getIndex("probe",
+                "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+        final long indexSize = probe.getFile().length();
+
+        final ReferenceDataCache cache = new ReferenceDataCache(directory, indexSize * 2);
+        final MappedReferenceDataIndex indexA =
+                cache.getIndex("a", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+        final MappedReferenceDataIndex indexB =
+                cache.getIndex("b", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+
+        // touch "a" so that "b" becomes the least recently used
+        assertSame(indexA, cache.getIndex("a", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity()));
+
+        cache.getIndex("c", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+        assertEquals(2, cache.getIndexCount());
+        assertTrue(indexA.getFile().exists());
+        assertFalse(indexB.getFile().exists());
+        assertTrue(cache.getSizeInBytes() <= indexSize * 2);
+        cache.clear();
+    }
+
+    public void testBuildLocksAreRemoved() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache(directory, 1024 * 1024);
+        cache.getIndex("a", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+        cache.getIndex("b", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+        assertEquals(2, cache.getIndexCount());
+        assertEquals(0, cache.getBuildLockCount());
+        cache.clear();
+    }
+
+    public void testTableVersionExpires() throws Exception {
+        assertEquals("count-42", ReferenceDataCache.getTableVersion(42, 0, 1000000));
+        assertEquals(ReferenceDataCache.getTableVersion(42, 300, 0),
+                ReferenceDataCache.getTableVersion(42, 300, 299999));
+        assertFalse(ReferenceDataCache.getTableVersion(42, 300, 0)
+                .equals(ReferenceDataCache.getTableVersion(42, 300, 300000)));
+        assertFalse(ReferenceDataCache.getTableVersion(42, 300, 0)
+                .equals(ReferenceDataCache.getTableVersion(43, 300, 0)));
+    }
+
+    public void testOnlyAbandonedInstanceDirectoriesAreDeleted() throws Exception {
+        final File abandonedDirectory = new File(directory, "cache-abandoned");
+        abandonedDirectory.mkdirs();
+        final File abandonedFile = new File(abandonedDirectory, "referencedata.dcidx");
+        assertTrue(abandonedFile.createNewFile());
+        assertTrue(new File(abandonedDirectory, ".lock").createNewFile());
+
+        final ReferenceDataCache cache1 = new ReferenceDataCache(directory, 1024 * 1024);
+        assertFalse(abandonedDirectory.exists());
+        final MappedReferenceDataIndex index =
+                cache1.getIndex("a", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+        assertEquals(cache1.getInstanceDirectory(), index.getFile().getParentFile());
+
+        // the directory of a cache in use is left alone
+        final ReferenceDataCache cache2 = new ReferenceDataCache(directory, 1024 * 1024);
+        assertFalse(cache1.getInstanceDirectory().equals(cache2.getInstanceDirectory()));
+        assertTrue(index.getFile().exists());
+        cache1.clear();
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        assertFalse(new ReferenceDataCache(directory, 0).isEnabled());
+    }
+
+    public void testMappedDictionaryConnection() throws Exception {
+        final Map<String, String> values = new HashMap<>();
+        for (final String value : Arrays.asList("foo", "foo bar", "baz")) {
+            values.put(value, null);
+        }
+        final ReferenceDataCache cache = new ReferenceDataCache(directory, 1024 * 1024);
+        final MappedReferenceDataIndex index = cache.getIndex("dictionary", "v1", () -> values, Function.identity());
+
+        final DictionaryConnection connection = new MappedDictionaryConnection(index, false);
+        assertTrue(connection.containsValue("FOO"));
+        assertFalse(connection.containsValue("bar"));
+        assertFalse(connection.containsValue(null));
+
+        final Iterator<String> lengthSortedValues = connection.getLengthSortedValues();
+        assertEquals("foo bar", lengthSortedValues.next());
+        assertEquals("baz", lengthSortedValues.next());
+        assertEquals("foo", lengthSortedValues.next());
+        assertFalse(lengthSortedValues.hasNext());
+        cache.clear();
+    }
+
+    public void testMappedSynonymCatalogConnection() throws Exception {
+        final ReferenceDataCache cache = new ReferenceDataCache(directory, 1024 * 1024);
+        final MappedReferenceDataIndex index =
+                cache.getIndex("synonyms", "v1", ReferenceDataCacheTest::createSynonyms, Function.identity());
+
+        final SynonymCatalogConnection connection = new MappedSynonymCatalogConnection(index, true);
+        assertEquals("DNK", connection.getMasterTerm("Danmark"));
+        assertNull(connection.getMasterTerm("Holland"));
+
+        final SynonymCatalogConnection.Replacement replacement =
+                connection.replaceInline("The netherlands, Denmark, Holland");
+        assertEquals("NLD, DNK, Holland", replacement.getReplacedString());
+        assertEquals("[The netherlands, Denmark]", replacement.getSynonyms().toString());
+        assertEquals("[NLD, DNK]", replacement.getMasterTerms().toString());
+
+        final Collection<Synonym> synonyms = connection.getSynonyms();
+        assertEquals(2, synonyms.size());
+        final Synonym synonym = synonyms.iterator().next();
+        assertEquals("DNK", synonym.getMasterTerm());
+        assertEquals("[DNK, Danmark, Denmark]", new TreeSet<>(synonym.getSynonyms()).toString());
+        cache.clear();
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+
+import junit.framework.TestCase;
+
+public class PersistentRowAnnotationFactoryTest extends TestCase {
+
+    private static class NonSerializableValue {
+
+        @Override
+        public String toString() {
+            return "not serializable";
+        }
+    }
+
+    private final File directory = new File("target/PersistentRowAnnotationFactoryTest");
+
+    private final MockInputColumn<String> stringColumn = new MockInputColumn<>("str", String.class);
+    private final MockInputColumn<Object> objectColumn = new MockInputColumn<>("obj", Object.class);
+
+    public void testRunningOutOfStorage() throws Exception {
+        final PersistentRowAnnotationFactory f = new PersistentRowAnnotationFactory(directory, 2, 5);
+
+        final AtomicInteger idCounter = new AtomicInteger();
+
+        final RowAnnotation a1 = f.createAnnotation();
+        assertFalse(f.hasSampleRows(a1));
+        for (int i = 0; i < 3; i++) {
+            f.annotate(new MockInputRow(idCounter.incrementAndGet()).put(stringColumn, "foo"), a1);
+        }
+        assertTrue(f.hasSampleRows(a1));
+        assertEquals(3, f.getSampleRows(a1).size());
+        for (int i = 0; i < 3; i++) {
+            f.annotate(new MockInputRow(idCounter.incrementAndGet()).put(stringColumn, "foo"), a1);
+        }
+        assertEquals(5, f.getSampleRows(a1).size());
+        assertEquals(6, a1.getRowCount());
+
+        final RowAnnotation a2 = f.createAnnotation();
+        f.annotate(new MockInputRow(idCounter.incrementAndGet()).put(stringColumn, "bar"), 3, a2);
+        assertEquals(3, f.getSampleRows(a2).size());
+
+        final RowAnnotation a3 = f.createAnnotation();
+        f.annotate(new MockInputRow(idCounter.incrementAndGet()).put(stringColumn, "baz"), a3);
+        assertFalse(f.hasSampleRows(a3));
+        assertEquals(0, f.getSampleRows(a3).size());
+        assertEquals(1, a3.getRowCount());
+    }
+
+    public void testSampleRowValues() throws Exception {
+        final PersistentRowAnnotationFactory f = new PersistentRowAnnotationFactory(directory);
+        final RowAnnotation annotation = f.createAnnotation();
+
+        final Object[] values = { null, "hello world", 42, 42L, 4.2d, true, new Date(1000), new BigDecimal("1.23"),
+                new NonSerializableValue() };
+        for (int i = 0; i < values.length; i++) {
+            f.annotate(new MockInputRow(i).put(stringColumn, "row" + i).put(objectColumn, values[i]), annotation);
+        }
+
+        final List<InputRow> sampleRows = f.getSampleRows(annotation);
+        assertEquals(values.length, sampleRows.size());
+        for (int i = 0; i < values.length - 1; i++) {
+            final InputRow row = sampleRows.get(i);
+            assertEquals(i, row.getId());
+            assertEquals("row" + i, row.getValue(stringColumn));
+            assertEquals(values[i], row.getValue(objectColumn));
+            assertEquals(2, row.getInputColumns().size());
+        }
+        assertEquals("not serializable", sampleRows.get(values.length - 1).getValue(objectColumn));
+    }
+
+    public void testTransferAndResetAnnotations() throws Exception {
+        final PersistentRowAnnotationFactory f = new PersistentRowAnnotationFactory(directory, 10, 3);
+        final RowAnnotation from = f.createAnnotation();
+        final RowAnnotation to = f.createAnnotation();
+
+        f.annotate(new MockInputRow(1).put(stringColumn, "a"), to);
+        f.annotate(new MockInputRow(2).put(stringColumn, "b"), from);
+        f.annotate(new MockInputRow(3).put(stringColumn, "c"), from);
+        f.annotate(new MockInputRow(4).put(stringColumn, "d"), from);
+
+        f.transferAnnotations(from, to);
+        assertEquals(0, from.getRowCount());
+        assertEquals(4, to.getRowCount());
+        assertFalse(f.hasSampleRows(from));
+
+        final List<InputRow> sampleRows = f.getSampleRows(to);
+        assertEquals(3, sampleRows.size());
+        assertEquals("a", sampleRows.get(0).getValue(stringColumn));
+        assertEquals("c", sampleRows.get(2).getValue(stringColumn));
+
+        f.resetAnnotation(to);
+        assertEquals(0, to.getRowCount());
+        assertFalse(f.hasSampleRows(to));
+
+        // rows handed out before the reset remain readable
+        assertEquals("b", sampleRows.get(1).getValue(stringColumn));
+    }
+
+    public void testSerializeAsInMemoryFactory() throws Exception {
+        final PersistentRowAnnotationFactory f = new PersistentRowAnnotationFactory(directory);
+        final RowAnnotation annotation = f.createAnnotation();
+        f.annotate(new MockInputRow(1).put(stringColumn, "foo"), annotation);
+        f.annotate(new MockInputRow(2).put(stringColumn, "bar"), annotation);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Object[] { annotation, f });
+        }
+
+        final Object[] deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (Object[]) in.readObject();
+        }
+
+        final RowAnnotation deserializedAnnotation = (RowAnnotation) deserialized[0];
+        final RowAnnotationFactory deserializedFactory = (RowAnnotationFactory) deserialized[1];
+        assertEquals(InMemoryRowAnnotationFactory2.class, deserializedFactory.getClass());
+        assertEquals(2, deserializedAnnotation.getRowCount());
+
+        final List<InputRow> sampleRows = deserializedFactory.getSampleRows(deserializedAnnotation);
+        assertEquals(2, sampleRows.size());
+        assertEquals(2, sampleRows.get(1).getId());
+        assertEquals("bar", sampleRows.get(1).getValues(sampleRows.get(1).getInputColumns()).get(0));
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputRow;
+
+import junit.framework.TestCase;
+
+public class SamplingRowAnnotationFactoryTest extends TestCase {
+
+    public void testSampleIsNotFirstRows() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(10, 100);
+        final RowAnnotation annotation = f.createAnnotation();
+        assertFalse(f.hasSampleRows(annotation));
+
+        for (int i = 0; i < 10000; i++) {
+            f.annotate(new MockInputRow(i), annotation);
+        }
+        assertEquals(10000, annotation.getRowCount());
+
+        final List<InputRow> sampleRows = f.getSampleRows(annotation);
+        assertEquals(100, sampleRows.size());
+
+        long idSum = 0;
+        for (final InputRow row : sampleRows) {
+            idSum += row.getId();
+        }
+        final long averageId = idSum / sampleRows.size();
+        assertTrue("Unexpected average id: " + averageId, averageId > 3000 && averageId < 7000);
+    }
+
+    public void testDistinctCount() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(10, 5);
+        final RowAnnotation annotation = f.createAnnotation();
+
+        f.annotate(new MockInputRow(1), 3, annotation);
+        assertEquals(3, annotation.getRowCount());
+        assertEquals(3, f.getSampleRows(annotation).size());
+
+        f.annotate(new MockInputRow(2), 1000000, annotation);
+        assertEquals(1000003, annotation.getRowCount());
+        assertEquals(5, f.getSampleRows(annotation).size());
+    }
+
+    public void testAnnotateFromMultipleThreads() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(10, 100);
+        final RowAnnotation annotation = f.createAnnotation();
+
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int threadNumber = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    f.annotate(new MockInputRow(threadNumber), annotation);
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20000, annotation.getRowCount());
+        final List<InputRow> sampleRows = f.getSampleRows(annotation);
+        assertEquals(100, sampleRows.size());
+        assertEquals(sampleRows, f.getSampleRows(annotation));
+    }
+
+    public void testReservoirsBoundedWithShortLivedThreads() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(10, 100);
+        final RowAnnotation annotation = f.createAnnotation();
+
+        for (int i = 0; i < 200; i++) {
+            final int threadNumber = i;
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10; j++) {
+                    f.annotate(new MockInputRow(threadNumber * 10 + j), annotation);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+
+        final int stripes = SamplingRowAnnotationFactory.stripeCount(Runtime.getRuntime().availableProcessors());
+        final int reservoirCount = f.getReservoirCount(annotation);
+        assertTrue("Unexpected reservoir count: " + reservoirCount, reservoirCount > 0 && reservoirCount <= stripes);
+
+        assertEquals(2000, annotation.getRowCount());
+        assertEquals(100, f.getSampleRows(annotation).size());
+    }
+
+    public void testTransferAndResetAnnotations() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(10, 5);
+        final RowAnnotation a1 = f.createAnnotation();
+        final RowAnnotation a2 = new RowAnnotationImpl();
+
+        f.annotate(new MockInputRow(1), 2, a1);
+        f.annotate(new MockInputRow(2), 2, a2);
+        f.transferAnnotations(a1, a2);
+
+        assertEquals(0, a1.getRowCount());
+        assertFalse(f.hasSampleRows(a1));
+        assertEquals(4, a2.getRowCount());
+        assertEquals(4, f.getSampleRows(a2).size());
+
+        f.resetAnnotation(a2);
+        assertEquals(0, a2.getRowCount());
+        assertFalse(f.hasSampleRows(a2));
+    }
+
+    public void testMaxSampleSets() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(1, 5);
+        final RowAnnotation a1 = f.createAnnotation();
+        final RowAnnotation a2 = f.createAnnotation();
+
+        f.annotate(new MockInputRow(1), a1);
+        f.annotate(new MockInputRow(2), a2);
+
+        assertTrue(f.hasSampleRows(a1));
+        assertFalse(f.hasSampleRows(a2));
+        assertEquals(1, a2.getRowCount());
+    }
+
+    public void testSerializeAndDeserialize() throws Exception {
+        final SamplingRowAnnotationFactory f = new SamplingRowAnnotationFactory(10, 5);
+        final RowAnnotation annotation = f.createAnnotation();
+        for (int i = 0; i < 20; i++) {
+            f.annotate(new MockInputRow(i), annotation);
+        }
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(new Object[] { f, annotation });
+        }
+
+        final Object[] deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            deserialized = (Object[]) in.readObject();
+        }
+
+        final RowAnnotationFactory deserializedFactory = (RowAnnotationFactory) deserialized[0];
+        final RowAnnotation deserializedAnnotation = (RowAnnotation) deserialized[1];
+        assertEquals(InMemoryRowAnnotationFactory2.class, deserializedFactory.getClass());
+        assertEquals(20, deserializedAnnotation.getRowCount());
+        assertEquals(5, deserializedFactory.getSampleRows(deserializedAnnotation).size());
+    }
+}
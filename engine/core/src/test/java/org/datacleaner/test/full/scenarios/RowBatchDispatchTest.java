@@ -0,0 +1,173 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.test.full.scenarios;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.test.TestEnvironment;
+import org.datacleaner.test.TestHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the per-row and the micro-batched row dispatching of the
+ * {@link MultiThreadedTaskRunner}. Besides verifying that every batch size
+ * processes the same rows, the throughput of each batch size is measured and
+ * logged, so that the effect of batching can be compared between runs.
+ */
+public class RowBatchDispatchTest extends TestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowBatchDispatchTest.class);
+
+    private static final int MEASURED_ITERATIONS = 5;
+
+    private final Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
+
+    public void testSameRowsProcessedInBothModes() throws Throwable {
+        final MultiThreadedTaskRunner perRowTaskRunner = new MultiThreadedTaskRunner(TestEnvironment.THREAD_COUNT);
+        final MultiThreadedTaskRunner batchingTaskRunner =
+                new MultiThreadedTaskRunner(TestEnvironment.THREAD_COUNT, 128);
+        try {
+            assertEquals(1, perRowTaskRunner.getRowBatchSize());
+            assertEquals(128, batchingTaskRunner.getRowBatchSize());
+
+            final List<InputRow> perRowResult = runJob(perRowTaskRunner);
+            final List<InputRow> batchedResult = runJob(batchingTaskRunner);
+
+            assertEquals(2996, perRowResult.size());
+            assertEquals(toSortedValues(perRowResult), toSortedValues(batchedResult));
+        } finally {
+            perRowTaskRunner.shutdown();
+            batchingTaskRunner.shutdown();
+        }
+    }
+
+    public void testInvalidRowBatchSize() throws Exception {
+        try {
+            new MultiThreadedTaskRunner(TestEnvironment.THREAD_COUNT, 0);
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("Row batch size must be a positive number, was: 0", e.getMessage());
+        }
+    }
+
+    public void testSameRowsProcessedWithAllRowBatchSizes() throws Throwable {
+        final MultiThreadedTaskRunner perRowTaskRunner = new MultiThreadedTaskRunner(TestEnvironment.THREAD_COUNT);
+        final List<String> expectedValues;
+        try {
+            expectedValues = toSortedValues(runJob(perRowTaskRunner));
+            logThroughput(perRowTaskRunner);
+        } finally {
+            perRowTaskRunner.shutdown();
+        }
+
+        // batch sizes that do and do not divide the row count, and one larger than the row count
+        final int[] rowBatchSizes = { 16, 128, 1000, 4096 };
+        for (final int rowBatchSize : rowBatchSizes) {
+            final MultiThreadedTaskRunner taskRunner =
+                    new MultiThreadedTaskRunner(TestEnvironment.THREAD_COUNT, rowBatchSize);
+            try {
+                final List<InputRow> rows = runJob(taskRunner);
+
+                final Set<Long> rowIds = new HashSet<>();
+                for (final InputRow row : rows) {
+                    assertTrue("Row processed twice with batch size " + rowBatchSize + ": " + row,
+                            rowIds.add(row.getId()));
+                }
+                assertEquals("Batch size " + rowBatchSize, expectedValues, toSortedValues(rows));
+
+                logThroughput(taskRunner);
+            } finally {
+                taskRunner.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Measures the throughput of a (warmed up) task runner over a number of
+     * job runs. Every run must process all rows, so that a faster run cannot
+     * be the result of skipped rows.
+     */
+    private void logThroughput(final MultiThreadedTaskRunner taskRunner) throws Throwable {
+        final long before = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            final int rowCount = runJob(taskRunner).size();
+            assertEquals(2996, rowCount);
+            rows += rowCount;
+        }
+        final long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before));
+        logger.info("Row batch size {}: {} rows in {} ms ({} rows/s)", taskRunner.getRowBatchSize(), rows, millis,
+                rows * 1000L / millis);
+    }
+
+    private List<InputRow> runJob(final TaskRunner taskRunner) throws Throwable {
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(taskRunner))
+                .withDatastores(datastore);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("PUBLIC.ORDERFACT.ORDERNUMBER", "PUBLIC.ORDERFACT.STATUS");
+            jobBuilder.addAnalyzer(MockAnalyzer.class).addInputColumns(jobBuilder.getSourceColumns());
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        @SuppressWarnings("unchecked") final ListResult<InputRow> result =
+                (ListResult<InputRow>) resultFuture.getResults().get(0);
+        return result.getValues();
+    }
+
+    private static List<String> toSortedValues(final List<InputRow> rows) {
+        final List<String> values = new ArrayList<>(rows.size());
+        for (final InputRow row : rows) {
+            values.add(row.getValues(row.getInputColumns()).toString());
+        }
+        Collections.sort(values);
+        return values;
+    }
+}
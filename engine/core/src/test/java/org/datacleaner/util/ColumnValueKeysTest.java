@@ -0,0 +1,54 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.apache.metamodel.schema.ColumnType;
+
+import junit.framework.TestCase;
+
+public class ColumnValueKeysTest extends TestCase {
+
+    public void testNumberKeys() throws Exception {
+        assertEquals(42L, ColumnValueKeys.toKey(ColumnType.INTEGER, 42));
+        assertEquals(42L, ColumnValueKeys.toKey(ColumnType.INTEGER, "42"));
+        assertEquals(42L, ColumnValueKeys.toKey(ColumnType.DECIMAL, new BigDecimal("42.00")));
+        assertEquals(0L, ColumnValueKeys.toKey(ColumnType.DECIMAL, new BigDecimal("0.000")));
+        assertEquals(new BigDecimal("4.2"), ColumnValueKeys.toKey(ColumnType.DOUBLE, 4.20));
+        assertEquals(new BigDecimal(BigInteger.ONE.shiftLeft(70)),
+                ColumnValueKeys.toKey(ColumnType.BIGINT, BigInteger.ONE.shiftLeft(70)));
+        assertEquals(42L, ColumnValueKeys.toKey(null, 42.0));
+
+        assertNull(ColumnValueKeys.toKey(ColumnType.INTEGER, "foo"));
+        assertNull(ColumnValueKeys.toKey(ColumnType.INTEGER, null));
+    }
+
+    public void testOtherKeys() throws Exception {
+        assertEquals("42", ColumnValueKeys.toKey(ColumnType.VARCHAR, 42));
+        assertEquals(ColumnValueKeys.toKey(ColumnType.TIMESTAMP, new Date(1000)),
+                ColumnValueKeys.toKey(ColumnType.TIMESTAMP, new Timestamp(1000)));
+        assertEquals(Boolean.TRUE, ColumnValueKeys.toKey(ColumnType.BOOLEAN, true));
+        assertNull(ColumnValueKeys.toKey(ColumnType.VARCHAR, null));
+    }
+}
@@ -19,6 +19,10 @@
  */
 package org.datacleaner.util;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
@@ -47,4 +51,121 @@ public class WriteBufferTest extends TestCase {
         assertEquals(1, buffer.getBuffer().size());
         assertEquals(5, counter.get());
     }
+
+    public void testBackgroundFlush() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final Set<String> flushThreadNames = Collections.synchronizedSet(new HashSet<>());
+        final String callerThreadName = Thread.currentThread().getName();
+
+        final WriteBuffer buffer = new WriteBuffer(5, rows -> {
+            flushThreadNames.add(Thread.currentThread().getName());
+            for (@SuppressWarnings("unused") final Object[] row : rows) {
+                counter.incrementAndGet();
+            }
+        }, 2);
+
+        for (int i = 0; i < 23; i++) {
+            buffer.addToBuffer(new Object[0]);
+        }
+        buffer.flushBuffer();
+
+        assertEquals(0, buffer.getBuffer().size());
+        assertEquals(23, counter.get());
+        assertEquals(5, buffer.getFlushCount());
+        assertEquals(23, buffer.getFlushedRowCount());
+        assertFalse(flushThreadNames.contains(callerThreadName));
+        assertTrue(buffer.getMaxFlushMillis() >= buffer.getAverageFlushMillis());
+    }
+
+    public void testFailedFlushRowsAreNotCounted() throws Exception {
+        final AtomicInteger flushes = new AtomicInteger();
+        final WriteBuffer buffer = new WriteBuffer(2, rows -> {
+            if (flushes.incrementAndGet() == 2) {
+                throw new IllegalArgumentException("foo");
+            }
+        });
+
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+        try {
+            buffer.addToBuffer(new Object[0]);
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("foo", e.getMessage());
+        }
+
+        assertEquals(2, buffer.getFlushCount());
+        assertEquals(2, buffer.getFlushedRowCount());
+    }
+
+    public void testBackgroundFlushErrorIsRethrown() throws Exception {
+        final WriteBuffer buffer = new WriteBuffer(2, rows -> {
+            throw new IllegalArgumentException("foo");
+        }, 1);
+
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+
+        try {
+            buffer.flushBuffer();
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("foo", e.getMessage());
+        }
+    }
+
+    public void testBackgroundFlushErrorStopsWriting() throws Exception {
+        final AtomicInteger flushCount = new AtomicInteger();
+        final WriteBuffer buffer = new WriteBuffer(2, rows -> {
+            flushCount.incrementAndGet();
+            throw new IllegalArgumentException("foo");
+        }, 1);
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                buffer.addToBuffer(new Object[0]);
+            }
+            buffer.flushBuffer();
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("foo", e.getMessage());
+        }
+
+        // the error is not cleared by rethrowing it
+        try {
+            buffer.flushBuffer();
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("foo", e.getMessage());
+        }
+        buffer.close();
+        assertEquals(1, flushCount.get());
+    }
+
+    public void testClose() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final WriteBuffer buffer = new WriteBuffer(2, rows -> {
+            for (@SuppressWarnings("unused") final Object[] row : rows) {
+                counter.incrementAndGet();
+            }
+        }, 2);
+        for (int i = 0; i < 5; i++) {
+            buffer.addToBuffer(new Object[0]);
+        }
+        buffer.flushBuffer();
+        buffer.close();
+        assertEquals(5, counter.get());
+
+        buffer.addToBuffer(new Object[0]);
+        buffer.addToBuffer(new Object[0]);
+        try {
+            buffer.addToBuffer(new Object[0]);
+            fail("Exception expected");
+        } catch (final RejectedExecutionException e) {
+            // expected, the flush threads are stopped
+        }
+    }
 }
@@ -19,6 +19,14 @@
  */
 package org.datacleaner.util.batch;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.datacleaner.job.concurrent.PreviousErrorsExistException;
+
 import junit.framework.TestCase;
 
 public class BatchTransformationBufferTest extends TestCase {
@@ -50,6 +58,114 @@ public class BatchTransformationBufferTest extends TestCase {
         }
     }
 
+    public void testAsyncFlushBySizeAndDeadline() throws Exception {
+        final BatchTransformation<Integer, String> batchTransformation = (source, sink) -> {
+            for (int i = 0; i < source.size(); i++) {
+                sink.setOutput(i, source.getInput(i) + "bar");
+            }
+        };
+
+        final BatchTransformationBuffer<Integer, String> buffer =
+                new BatchTransformationBuffer<>(batchTransformation, 10, 100);
+        buffer.start();
+        try {
+            final Map<Integer, String> results = new ConcurrentHashMap<>();
+            final CountDownLatch latch = new CountDownLatch(25);
+            for (int i = 0; i < 25; i++) {
+                final int index = i;
+                buffer.transformAsync(index, new BatchCallback<String>() {
+                    @Override
+                    public void onResult(final String output) {
+                        results.put(index, output);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onError(final Throwable error) {
+                        fail("Unexpected error: " + error);
+                    }
+                });
+            }
+
+            // two full batches are executed right away by the submitting thread
+            assertEquals(20, results.size());
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 25; i++) {
+                assertEquals(i + "bar", results.get(i));
+            }
+
+            final BatchTransformationMetrics metrics = buffer.getMetrics();
+            assertEquals(3, metrics.getBatchCount());
+            assertEquals(25, metrics.getElementCount());
+            assertEquals(2, metrics.getSizeFlushCount());
+            assertEquals(1, metrics.getDeadlineFlushCount());
+            assertEquals(25d / 30d, metrics.getFillRatio(), 0.0001);
+            assertTrue(metrics.getLatencyPercentile(50) <= metrics.getLatencyPercentile(100));
+            assertTrue(metrics.getLatencyPercentile(100) >= 50);
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    public void testAsyncErrors() throws Exception {
+        final BatchTransformation<Integer, String> batchTransformation = (source, sink) -> {
+            throw new IllegalStateException("foo");
+        };
+
+        final BatchTransformationBuffer<Integer, String> buffer =
+                new BatchTransformationBuffer<>(batchTransformation, 2, 100);
+        buffer.start();
+
+        final AtomicReference<Throwable> error1 = new AtomicReference<>();
+        final AtomicReference<Throwable> error2 = new AtomicReference<>();
+        buffer.transformAsync(1, createErrorCapturingCallback(error1));
+        buffer.transformAsync(2, createErrorCapturingCallback(error2));
+
+        assertEquals("foo", error1.get().getMessage());
+        assertEquals("foo", error2.get().getMessage());
+
+        try {
+            buffer.transform(3);
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertEquals("foo", e.getMessage());
+        }
+
+        buffer.shutdown();
+    }
+
+    public void testAsyncAfterShutdown() throws Exception {
+        final BatchTransformationBuffer<Integer, String> buffer =
+                new BatchTransformationBuffer<>((source, sink) -> fail("Not expected to be invoked"), 10, 10000);
+        buffer.start();
+
+        final AtomicReference<Throwable> pendingError = new AtomicReference<>();
+        buffer.transformAsync(1, createErrorCapturingCallback(pendingError));
+        assertNull(pendingError.get());
+
+        buffer.shutdown();
+        assertTrue(pendingError.get() instanceof PreviousErrorsExistException);
+
+        final AtomicReference<Throwable> closedError = new AtomicReference<>();
+        buffer.transformAsync(2, createErrorCapturingCallback(closedError));
+        assertTrue(closedError.get() instanceof PreviousErrorsExistException);
+    }
+
+    private BatchCallback<String> createErrorCapturingCallback(final AtomicReference<Throwable> errorReference) {
+        return new BatchCallback<String>() {
+            @Override
+            public void onResult(final String output) {
+                fail("Unexpected result: " + output);
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                errorReference.set(error);
+            }
+        };
+    }
+
     public void testScenario1() throws Exception {
         runScenario(1, 10, 200);
     }
@@ -0,0 +1,167 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.datacleaner.util.sort.RunFormat.RunReader;
+import org.datacleaner.util.sort.RunFormat.RunWriter;
+
+import junit.framework.TestCase;
+
+public class SortMergerTest extends TestCase {
+
+    public void testStringRunFormatRoundTrip() throws Exception {
+        final String longString = new String(new char[100000]).replace('\0', 'x');
+        final List<String> rows = Arrays.asList("", "a", "\u00e6\u00f8\u00e5", "\u6f22\u5b57", longString);
+
+        final File file = File.createTempFile("SortMergerTest", ".dat");
+        file.deleteOnExit();
+
+        final StringRunFormat format = new StringRunFormat();
+        try (RunWriter<String> writer = format.createWriter(file)) {
+            for (int i = 0; i < rows.size(); i++) {
+                writer.write(rows.get(i), i * 1000 + 1);
+            }
+        }
+
+        try (RunReader<String> reader = format.createReader(file)) {
+            for (int i = 0; i < rows.size(); i++) {
+                assertTrue(reader.next());
+                assertEquals(rows.get(i), reader.getRow());
+                assertEquals(i * 1000 + 1, reader.getCount());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    public void testLongRunFormatRoundTrip() throws Exception {
+        final List<Long> rows = Arrays.asList(Long.MIN_VALUE, -1L, 0L, 1L, 127L, 128L, Long.MAX_VALUE);
+
+        final File file = File.createTempFile("SortMergerTest", ".dat");
+        file.deleteOnExit();
+
+        final LongRunFormat format = new LongRunFormat();
+        try (RunWriter<Long> writer = format.createWriter(file)) {
+            for (final Long row : rows) {
+                writer.write(row, Integer.MAX_VALUE);
+            }
+        }
+
+        try (RunReader<Long> reader = format.createReader(file)) {
+            for (final Long row : rows) {
+                assertTrue(reader.next());
+                assertEquals(row, reader.getRow());
+                assertEquals(Integer.MAX_VALUE, reader.getCount());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    public void testMultiPassMerge() throws Exception {
+        runMergeTest(new SortMerger<>(7, Comparator.<String> naturalOrder(), new StringRunFormat()), false);
+        runMergeTest(new SortMerger<>(7, Comparator.<String> naturalOrder(), new StringRunFormat()), true);
+        runMergeTest(new SortMerger<>(7, Comparator.<String> naturalOrder()), true);
+    }
+
+    public void testMergeBufferOnly() throws Exception {
+        final SortMerger<String> merger = new SortMerger<String>(10, Comparator.naturalOrder()) {
+            @Override
+            protected File createTempFile() {
+                throw new IllegalStateException("This test is not supposed to require temp files!");
+            }
+        };
+        merger.append("b");
+        merger.append("a");
+        merger.append(null);
+        merger.append("b", 2);
+
+        final StringBuilder sb = new StringBuilder();
+        assertEquals(2, merger.merge((row, count) -> sb.append(row).append(',').append(count).append(';')));
+        assertEquals("a,1;b,3;", sb.toString());
+        assertEquals(1, merger.getNullCount());
+    }
+
+    public void testConcurrentAppend() throws Exception {
+        final SortMerger<String> merger = new SortMerger<>(50, Comparator.<String> naturalOrder(),
+                new StringRunFormat());
+        final int threadCount = 8;
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    merger.append("value" + (i % 1000));
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(merger.getTempFileCount() > 0);
+
+        final TreeMap<String, Integer> merged = new TreeMap<>();
+        assertEquals(1000, merger.merge(merged::put));
+        for (final Integer count : merged.values()) {
+            assertEquals(5 * threadCount, count.intValue());
+        }
+    }
+
+    public void testInvalidMergeFanIn() throws Exception {
+        try {
+            new SortMerger<String>(Comparator.naturalOrder()).setMergeFanIn(1);
+            fail("Exception expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("Merge fan-in must be at least 2, was: 1", e.getMessage());
+        }
+    }
+
+    private void runMergeTest(final SortMerger<String> merger, final boolean parallelMerge) throws Exception {
+        merger.setMergeFanIn(3);
+        merger.setParallelMerge(parallelMerge);
+
+        final TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 500; i++) {
+            final String value = "value" + (i * 31 % 97);
+            merger.append(value);
+            expected.merge(value, 1, Integer::sum);
+        }
+        assertTrue(merger.getTempFileCount() > 3);
+
+        for (int pass = 0; pass < 2; pass++) {
+            try (SortMergeIterator<String> iterator = merger.mergeIterator()) {
+                for (final Entry<String, Integer> expectedEntry : expected.entrySet()) {
+                    assertTrue(iterator.hasNext());
+                    final Entry<String, Integer> entry = iterator.next();
+                    assertEquals(expectedEntry.getKey(), entry.getKey());
+                    assertEquals(expectedEntry.getValue(), entry.getValue());
+                }
+                assertFalse(iterator.hasNext());
+            }
+            // the runs have been merged down to the fan-in
+            assertTrue(merger.getTempFileCount() <= 3);
+        }
+    }
+}
@@ -60,14 +60,33 @@ public final class BerkeleyDbStorageProvider implements StorageProvider {
     private File _targetDir;
     private Environment _environment;
     private boolean _deleteOnExit = false;
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
 
     public BerkeleyDbStorageProvider(final File parentDirectory) {
+        this(parentDirectory, PersistentRowAnnotationFactory.DEFAULT_MAX_SAMPLE_SETS,
+                PersistentRowAnnotationFactory.DEFAULT_MAX_SAMPLE_RECORDS);
+    }
+
+    /**
+     *
+     * @param parentDirectory
+     * @param maxSampleSets
+     *            the maximum number of sample record collections to keep in
+     *            the row annotation factories of this storage provider
+     * @param maxSampleRecords
+     *            the maximum number of records to keep in each collection
+     */
+    public BerkeleyDbStorageProvider(final File parentDirectory, final int maxSampleSets,
+            final int maxSampleRecords) {
         if (!parentDirectory.exists()) {
             if (!parentDirectory.mkdirs()) {
                 throw new IllegalArgumentException("Could not create directory: " + parentDirectory);
             }
         }
         _parentDirectory = parentDirectory;
+        _maxSampleSets = maxSampleSets;
+        _maxSampleRecords = maxSampleRecords;
     }
 
     public File getParentDirectory() {
@@ -260,7 +279,7 @@ public final class BerkeleyDbStorageProvider implements StorageProvider {
 
     @Override
     public RowAnnotationFactory createRowAnnotationFactory() {
-        // TODO: Create a persistent RowAnnotationFactory
-        return new InMemoryRowAnnotationFactory2();
+        final File directory = new File(getTargetDir(), "annotations_" + UUID.randomUUID().toString());
+        return RowAnnotations.getPersistentFactory(directory, _maxSampleSets, _maxSampleRecords);
     }
 }
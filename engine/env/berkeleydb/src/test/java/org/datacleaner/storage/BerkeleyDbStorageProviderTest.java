@@ -20,6 +20,11 @@
 package org.datacleaner.storage;
 
 import java.io.File;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
 
 import junit.framework.TestCase;
 
@@ -74,6 +79,24 @@ public class BerkeleyDbStorageProviderTest extends TestCase {
         set.finalize();
     }
 
+    public void testCreateRowAnnotationFactory() throws Throwable {
+        final RowAnnotationFactory annotationFactory = sp.createRowAnnotationFactory();
+        assertTrue(annotationFactory instanceof PersistentRowAnnotationFactory);
+
+        final RowAnnotation annotation = annotationFactory.createAnnotation();
+        final MockInputColumn<String> column = new MockInputColumn<>("name", String.class);
+        annotationFactory.annotate(new MockInputRow(1).put(column, "hello"), 1, annotation);
+        annotationFactory.annotate(new MockInputRow(2).put(column, "world"), 1, annotation);
+
+        assertEquals(2, annotation.getRowCount());
+        final List<InputRow> sampleRows = annotationFactory.getSampleRows(annotation);
+        assertEquals(2, sampleRows.size());
+        assertEquals("world", sampleRows.get(1).getValue(column));
+
+        final File directory = ((PersistentRowAnnotationFactory) annotationFactory).getDirectory();
+        assertTrue(directory.getAbsolutePath().startsWith(sp.getParentDirectory().getAbsolutePath()));
+    }
+
     public void testCleanDirectory() throws Throwable {
         final BerkeleyDbSet<String> set = sp.createSet(String.class);
         set.add("hello");
@@ -26,7 +26,9 @@ import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.SharedExecutorService;
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.cluster.KeyRangeJobDivisionManager.KeyRange;
 import org.datacleaner.cluster.virtual.VirtualClusterManager;
+import org.datacleaner.components.keyrange.KeyRangeFilter;
 import org.datacleaner.components.maxrows.MaxRowsFilter;
 import org.datacleaner.components.maxrows.MaxRowsFilter.Category;
 import org.datacleaner.configuration.DataCleanerConfiguration;
@@ -157,13 +159,30 @@ public final class DistributedAnalysisRunner implements AnalysisRunner {
             } else {
                 final JobDivisionManager jobDivisionManager = _clusterManager.getJobDivisionManager();
                 final int chunks = jobDivisionManager.calculateDivisionCount(job, expectedRows);
-                final int rowsPerChunk = (expectedRows + 1) / chunks;
 
-                logger.info(
-                        "Expected rows was {}. A total number of {} slave jobs will be built, each of approx. {} rows.",
-                        expectedRows, chunks, rowsPerChunk);
+                final List<KeyRange> keyRanges;
+                if (jobDivisionManager instanceof KeyRangeJobDivisionManager) {
+                    keyRanges = ((KeyRangeJobDivisionManager) jobDivisionManager).calculateKeyRanges(job, chunks);
+                } else {
+                    keyRanges = null;
+                }
+
+                final List<AnalysisResultFuture> results;
+                if (keyRanges == null) {
+                    final int rowsPerChunk = (expectedRows + 1) / chunks;
+
+                    logger.info("Expected rows was {}. A total number of {} slave jobs will be built, "
+                            + "each of approx. {} rows.", expectedRows, chunks, rowsPerChunk);
 
-                final List<AnalysisResultFuture> results = dispatchJobs(job, chunks, rowsPerChunk, publisher);
+                    results = dispatchJobs(job, chunks, rowsPerChunk, publisher);
+                } else {
+                    final Column keyColumn = ((KeyRangeJobDivisionManager) jobDivisionManager).findKeyColumn(job);
+
+                    logger.info("Expected rows was {}. A total number of {} slave jobs will be built, "
+                            + "each processing a range of {}.", expectedRows, keyRanges.size(), keyColumn.getName());
+
+                    results = dispatchKeyRangeJobs(job, keyColumn, keyRanges);
+                }
                 final DistributedAnalysisResultReducer reducer =
                         new DistributedAnalysisResultReducer(job, lifeCycleHelper, publisher, _analysisListener);
                 resultFuture = new DistributedAnalysisResultFuture(results, reducer);
@@ -212,24 +231,93 @@ public final class DistributedAnalysisRunner implements AnalysisRunner {
             }
 
             final AnalysisJob slaveJob = buildSlaveJob(job, i, firstRow, maxRows);
-            final DistributedJobContext context = new DistributedJobContextImpl(_configuration, job, i, chunks);
-
-            try {
-                logger.info("Dispatching slave job {} of {}", i + 1, chunks);
-                final AnalysisResultFuture slaveResultFuture = _clusterManager.dispatchJob(slaveJob, context);
-                results.add(slaveResultFuture);
-            } catch (final Exception e) {
-                _analysisListener.errorUnknown(job, e);
-                // exceptions due to dispatching jobs are added as the first of
-                // the job's errors, and the rest of the execution is aborted.
-                final AnalysisResultFuture errorResult = new FailedAnalysisResultFuture(e);
-                results.add(0, errorResult);
+            if (!dispatchSlaveJob(job, slaveJob, i, chunks, results)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Dispatches a slave job for each key range. Each slave job only reads the
+     * records of its own key range, since the range is pushed into the source
+     * query.
+     *
+     * @param job
+     * @param keyColumn
+     * @param keyRanges
+     * @return
+     */
+    public List<AnalysisResultFuture> dispatchKeyRangeJobs(final AnalysisJob job, final Column keyColumn,
+            final List<KeyRange> keyRanges) {
+        final List<AnalysisResultFuture> results = new ArrayList<>();
+        final int chunks = keyRanges.size();
+        for (int i = 0; i < chunks; i++) {
+            final AnalysisJob slaveJob = buildKeyRangeSlaveJob(job, i, keyColumn, keyRanges.get(i));
+            if (!dispatchSlaveJob(job, slaveJob, i, chunks, results)) {
                 break;
             }
         }
         return results;
     }
 
+    private boolean dispatchSlaveJob(final AnalysisJob job, final AnalysisJob slaveJob, final int slaveJobIndex,
+            final int chunks, final List<AnalysisResultFuture> results) {
+        final DistributedJobContext context = new DistributedJobContextImpl(_configuration, job, slaveJobIndex, chunks);
+
+        try {
+            logger.info("Dispatching slave job {} of {}", slaveJobIndex + 1, chunks);
+            final AnalysisResultFuture slaveResultFuture = _clusterManager.dispatchJob(slaveJob, context);
+            results.add(slaveResultFuture);
+            return true;
+        } catch (final Exception e) {
+            _analysisListener.errorUnknown(job, e);
+            // exceptions due to dispatching jobs are added as the first of
+            // the job's errors, and the rest of the execution is aborted.
+            final AnalysisResultFuture errorResult = new FailedAnalysisResultFuture(e);
+            results.add(0, errorResult);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a slave job by copying the original job and adding a
+     * {@link KeyRangeFilter} as a default requirement.
+     *
+     * @param job
+     * @param slaveJobIndex
+     * @param keyColumn
+     * @param keyRange
+     * @return
+     */
+    private AnalysisJob buildKeyRangeSlaveJob(final AnalysisJob job, final int slaveJobIndex, final Column keyColumn,
+            final KeyRange keyRange) {
+        logger.info("Building slave job {} with {}", slaveJobIndex + 1, keyRange);
+
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(_configuration, job)) {
+            InputColumn<?> sourceColumn = jobBuilder.getSourceColumnByName(keyColumn.getName());
+            if (sourceColumn == null) {
+                jobBuilder.addSourceColumn(keyColumn);
+                sourceColumn = jobBuilder.getSourceColumnByName(keyColumn.getName());
+            }
+
+            final FilterComponentBuilder<KeyRangeFilter, KeyRangeFilter.Category> keyRangeFilter =
+                    jobBuilder.addFilter(KeyRangeFilter.class);
+            @SuppressWarnings("unchecked") final InputColumn<Number> numberColumn =
+                    (InputColumn<Number>) sourceColumn;
+            keyRangeFilter.getComponentInstance().setKeyColumn(numberColumn);
+            keyRangeFilter.getComponentInstance().setLowestKey(keyRange.getLowestKey());
+            keyRangeFilter.getComponentInstance().setHighestKey(keyRange.getHighestKey());
+
+            jobBuilder.setDefaultRequirement(keyRangeFilter, KeyRangeFilter.Category.VALID);
+
+            // in assertion/test mode do an early validation
+            assert jobBuilder.isConfigured(true);
+
+            return jobBuilder.toAnalysisJob();
+        }
+    }
+
     /**
      * Creates a slave job by copying the original job and adding a
      * {@link MaxRowsFilter} as a default requirement.
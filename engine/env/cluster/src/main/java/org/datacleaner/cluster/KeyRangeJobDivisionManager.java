@@ -0,0 +1,331 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.job.AnalysisJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link JobDivisionManager} which divides a job into slave jobs that each
+ * process a disjoint range of the source table's primary key. Unlike the
+ * row-offset based division (which makes every slave sort and skip its way
+ * through the table) the key ranges are pushed into the source query as a
+ * WHERE clause, so that each slave only reads its own part of the table.
+ *
+ * Key ranges can only be built for tables with a single, integral primary key
+ * in datastores that prefer query optimization (ie. databases). For other jobs
+ * {@link #calculateKeyRanges(AnalysisJob, int)} returns null and the
+ * {@link DistributedAnalysisRunner} falls back to row-offset based division.
+ */
+public class KeyRangeJobDivisionManager implements JobDivisionManager {
+
+    /**
+     * Strategies for determining the boundaries of the key ranges.
+     */
+    public enum BoundaryStrategy {
+
+        /**
+         * Divides the interval between the lowest and highest key into
+         * equal-width ranges. Requires a single query, but ranges will be
+         * unevenly filled if the keys are not evenly distributed.
+         */
+        MIN_MAX,
+
+        /**
+         * Uses the key at every n'th position (in key order) as boundary. Gives
+         * evenly filled ranges, at the cost of one query per boundary.
+         */
+        QUANTILES
+    }
+
+    /**
+     * A half-open range of keys. Null bounds represent an unbounded range.
+     */
+    public static final class KeyRange {
+
+        private final Long _lowestKey;
+        private final Long _highestKey;
+
+        public KeyRange(final Long lowestKey, final Long highestKey) {
+            _lowestKey = lowestKey;
+            _highestKey = highestKey;
+        }
+
+        /**
+         * @return the lowest key (inclusive), or null if unbounded
+         */
+        public Long getLowestKey() {
+            return _lowestKey;
+        }
+
+        /**
+         * @return the highest key (exclusive), or null if unbounded
+         */
+        public Long getHighestKey() {
+            return _highestKey;
+        }
+
+        @Override
+        public String toString() {
+            return "KeyRange[" + _lowestKey + "," + _highestKey + "]";
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyRangeJobDivisionManager.class);
+
+    private final JobDivisionManager _divisionCountManager;
+    private final BoundaryStrategy _boundaryStrategy;
+
+    public KeyRangeJobDivisionManager(final int divisionCount) {
+        this(new FixedDivisionsCountJobDivisionManager(divisionCount), BoundaryStrategy.MIN_MAX);
+    }
+
+    /**
+     * Creates a {@link KeyRangeJobDivisionManager}
+     *
+     * @param divisionCountManager
+     *            a {@link JobDivisionManager} which determines the (preferred)
+     *            number of divisions
+     * @param boundaryStrategy
+     *            the strategy for determining key range boundaries
+     */
+    public KeyRangeJobDivisionManager(final JobDivisionManager divisionCountManager,
+            final BoundaryStrategy boundaryStrategy) {
+        if (divisionCountManager == null) {
+            throw new IllegalArgumentException("Division count manager cannot be null");
+        }
+        if (boundaryStrategy == null) {
+            throw new IllegalArgumentException("Boundary strategy cannot be null");
+        }
+        _divisionCountManager = divisionCountManager;
+        _boundaryStrategy = boundaryStrategy;
+    }
+
+    @Override
+    public int calculateDivisionCount(final AnalysisJob masterJob, final int expectedRows) {
+        return _divisionCountManager.calculateDivisionCount(masterJob, expectedRows);
+    }
+
+    /**
+     * Finds the column to partition the job's source table by.
+     *
+     * @param masterJob
+     * @return the key column, or null if the job cannot be partitioned by key
+     */
+    public Column findKeyColumn(final AnalysisJob masterJob) {
+        final Datastore datastore = masterJob.getDatastore();
+        if (!datastore.getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+            logger.info("Datastore {} does not prefer query optimization, not partitioning by key", datastore);
+            return null;
+        }
+
+        final Table table = getSourceTable(masterJob);
+        if (table == null) {
+            return null;
+        }
+
+        final List<Column> primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys.size() != 1) {
+            logger.info("Found {} primary keys in table {}, cannot partition by key", primaryKeys.size(),
+                    table.getName());
+            return null;
+        }
+
+        final Column primaryKey = primaryKeys.get(0);
+        if (!isIntegral(primaryKey.getType())) {
+            logger.info("Primary key {} is not an integral number, cannot partition by key", primaryKey);
+            return null;
+        }
+        return primaryKey;
+    }
+
+    /**
+     * Calculates the key ranges to divide a job into.
+     *
+     * @param masterJob
+     * @param divisionCount
+     *            the preferred number of divisions. Fewer ranges may be
+     *            returned, eg. if there are fewer distinct keys.
+     * @return the key ranges, covering all possible keys, or null if the job
+     *         cannot be partitioned by key
+     */
+    public List<KeyRange> calculateKeyRanges(final AnalysisJob masterJob, final int divisionCount) {
+        final Column keyColumn = findKeyColumn(masterJob);
+        if (keyColumn == null) {
+            return null;
+        }
+
+        try (DatastoreConnection con = masterJob.getDatastore().openConnection()) {
+            final DataContext dataContext = con.getDataContext();
+
+            final List<Long> boundaries;
+            switch (_boundaryStrategy) {
+            case MIN_MAX:
+                boundaries = getMinMaxBoundaries(dataContext, keyColumn, divisionCount);
+                break;
+            case QUANTILES:
+                boundaries = getQuantileBoundaries(dataContext, keyColumn, divisionCount);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported boundary strategy: " + _boundaryStrategy);
+            }
+
+            if (boundaries == null) {
+                return null;
+            }
+            return createKeyRanges(boundaries);
+        }
+    }
+
+    private List<Long> getMinMaxBoundaries(final DataContext dataContext, final Column keyColumn,
+            final int divisionCount) {
+        final Query query = new Query().from(keyColumn.getTable())
+                .select(new SelectItem(FunctionType.MIN, keyColumn), new SelectItem(FunctionType.MAX, keyColumn));
+
+        final Number min;
+        final Number max;
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            if (!dataSet.next()) {
+                return null;
+            }
+            final Row row = dataSet.getRow();
+            min = (Number) row.getValue(0);
+            max = (Number) row.getValue(1);
+        }
+
+        if (min == null || max == null) {
+            // no non-null keys
+            return null;
+        }
+
+        final long lowest = min.longValue();
+        final long highest = max.longValue();
+
+        // use floating point arithmetic for the width to avoid overflow
+        final double width = ((double) highest - lowest + 1) / divisionCount;
+
+        final List<Long> boundaries = new ArrayList<>();
+        for (int i = 1; i < divisionCount; i++) {
+            final long boundary = lowest + (long) Math.ceil(width * i);
+            addBoundary(boundaries, boundary);
+        }
+        return boundaries;
+    }
+
+    private List<Long> getQuantileBoundaries(final DataContext dataContext, final Column keyColumn,
+            final int divisionCount) {
+        final Query countQuery = new Query().from(keyColumn.getTable()).selectCount()
+                .where(keyColumn, OperatorType.DIFFERENT_FROM, null);
+        final long count;
+        try (DataSet dataSet = dataContext.executeQuery(countQuery)) {
+            if (!dataSet.next()) {
+                return null;
+            }
+            count = ((Number) dataSet.getRow().getValue(0)).longValue();
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        final List<Long> boundaries = new ArrayList<>();
+        for (int i = 1; i < divisionCount; i++) {
+            final long position = count * i / divisionCount;
+            if (position >= Integer.MAX_VALUE) {
+                // the query API only supports integer offsets
+                return null;
+            }
+
+            final Query query = new Query().from(keyColumn.getTable()).select(keyColumn)
+                    .where(keyColumn, OperatorType.DIFFERENT_FROM, null)
+                    .orderBy(keyColumn);
+            query.setFirstRow((int) position + 1);
+            query.setMaxRows(1);
+
+            try (DataSet dataSet = dataContext.executeQuery(query)) {
+                if (dataSet.next()) {
+                    final Number key = (Number) dataSet.getRow().getValue(0);
+                    addBoundary(boundaries, key.longValue());
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    private void addBoundary(final List<Long> boundaries, final long boundary) {
+        // boundaries must be strictly increasing, otherwise there would be
+        // empty ranges
+        if (boundaries.isEmpty() || boundaries.get(boundaries.size() - 1).longValue() < boundary) {
+            boundaries.add(boundary);
+        }
+    }
+
+    private List<KeyRange> createKeyRanges(final List<Long> boundaries) {
+        if (boundaries.isEmpty()) {
+            return Collections.singletonList(new KeyRange(null, null));
+        }
+
+        final List<KeyRange> keyRanges = new ArrayList<>(boundaries.size() + 1);
+        Long previous = null;
+        for (final Long boundary : boundaries) {
+            keyRanges.add(new KeyRange(previous, boundary));
+            previous = boundary;
+        }
+        keyRanges.add(new KeyRange(previous, null));
+        return keyRanges;
+    }
+
+    private Table getSourceTable(final AnalysisJob masterJob) {
+        for (final InputColumn<?> sourceColumn : masterJob.getSourceColumns()) {
+            final Column physicalColumn = sourceColumn.getPhysicalColumn();
+            if (physicalColumn != null) {
+                return physicalColumn.getTable();
+            }
+        }
+        return null;
+    }
+
+    private boolean isIntegral(final ColumnType columnType) {
+        if (columnType == null) {
+            return false;
+        }
+        final Class<?> javaType = columnType.getJavaEquivalentClass();
+        return javaType == Integer.class || javaType == Long.class || javaType == Short.class
+                || javaType == Byte.class;
+    }
+}
@@ -21,10 +21,20 @@ package org.datacleaner.cluster;
 
 import java.util.List;
 
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Schema;
+import org.apache.metamodel.schema.Table;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.beans.NumberAnalyzer;
+import org.datacleaner.beans.NumberAnalyzerResult;
+import org.datacleaner.cluster.KeyRangeJobDivisionManager.BoundaryStrategy;
+import org.datacleaner.cluster.KeyRangeJobDivisionManager.KeyRange;
 import org.datacleaner.cluster.virtual.VirtualClusterManager;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
 import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.connection.UpdateableDatastoreConnection;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.job.builder.AnalyzerComponentBuilder;
@@ -65,6 +75,85 @@ public class DistributedAnalysisRunnerTest extends TestCase {
         ClusterTestHelper.runConcatAndInsertJob(configuration, new VirtualClusterManager(configuration, 4));
     }
 
+    public void testKeyRangeScenario() throws Throwable {
+        final JdbcDatastore datastore =
+                new JdbcDatastore("keyrange", "jdbc:h2:mem:" + getName(), "org.h2.Driver", "SA", "", true);
+        try (UpdateableDatastoreConnection con = datastore.openConnection()) {
+            con.getUpdateableDataContext().executeUpdate(callback -> {
+                final Schema schema = callback.getDataContext().getDefaultSchema();
+                final Table table = callback.createTable(schema, "keyed").withColumn("id").ofType(ColumnType.INTEGER)
+                        .asPrimaryKey().withColumn("name").ofType(ColumnType.VARCHAR).execute();
+                for (int i = 1; i <= 100; i++) {
+                    callback.insertInto(table).value("id", i).value("name", "name" + i).execute();
+                }
+            });
+        }
+
+        final DataCleanerConfiguration baseConfiguration = ClusterTestHelper.createConfiguration(getName(), true);
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl().withDatastores(datastore)
+                .withEnvironment(baseConfiguration.getEnvironment());
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("keyed.id", "keyed.name");
+            final AnalyzerComponentBuilder<NumberAnalyzer> numberAnalyzer =
+                    jobBuilder.addAnalyzer(NumberAnalyzer.class);
+            numberAnalyzer.addInputColumns(jobBuilder.getAvailableInputColumns(Number.class));
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        for (final BoundaryStrategy boundaryStrategy : BoundaryStrategy.values()) {
+            final KeyRangeJobDivisionManager divisionManager =
+                    new KeyRangeJobDivisionManager(new FixedDivisionsCountJobDivisionManager(4), boundaryStrategy);
+
+            final List<KeyRange> keyRanges = divisionManager.calculateKeyRanges(job, 4);
+            assertEquals(4, keyRanges.size());
+            assertEquals("[KeyRange[null,26], KeyRange[26,51], KeyRange[51,76], KeyRange[76,null]]",
+                    keyRanges.toString());
+
+            final DistributedAnalysisRunner runner =
+                    new DistributedAnalysisRunner(configuration, new VirtualClusterManager(configuration, 4) {
+                        @Override
+                        public JobDivisionManager getJobDivisionManager() {
+                            return divisionManager;
+                        }
+                    });
+
+            final AnalysisResultFuture resultFuture = runner.run(job);
+            resultFuture.await();
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+
+            final NumberAnalyzerResult result = (NumberAnalyzerResult) resultFuture.getResults().get(0);
+            final InputColumn<? extends Number> column = result.getColumns()[0];
+            assertEquals(100, result.getRowCount(column));
+            assertEquals(5050, result.getSum(column).intValue());
+        }
+    }
+
+    public void testKeyRangeFallbackWithoutPrimaryKey() throws Throwable {
+        final DataCleanerConfiguration configuration = ClusterTestHelper.createConfiguration(getName(), true);
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore("orderdb");
+            jobBuilder.addSourceColumns("CUSTOMERS.CUSTOMERNUMBER");
+            job = jobBuilder.toAnalysisJob(false);
+        }
+
+        // the CUSTOMERS table has no primary key
+        assertNull(new KeyRangeJobDivisionManager(4).calculateKeyRanges(job, 4));
+
+        ClusterTestHelper.runBasicAnalyzersJob(configuration, new VirtualClusterManager(configuration, 4) {
+            @Override
+            public JobDivisionManager getJobDivisionManager() {
+                return new KeyRangeJobDivisionManager(4);
+            }
+        });
+    }
+
     public void testRunCompletenessAnalyzer() throws Throwable {
         final DataCleanerConfiguration configuration = ClusterTestHelper.createConfiguration(getName(), true);
 
@@ -21,18 +21,12 @@ package org.datacleaner.spark;
 
 import java.net.URI;
 import java.util.Arrays;
-import java.util.Map;
 import java.util.ServiceLoader;
 
-import org.apache.commons.lang.SerializationException;
 import org.apache.metamodel.util.Resource;
 import org.apache.spark.SparkConf;
 import org.apache.spark.api.java.JavaSparkContext;
-import org.datacleaner.api.AnalyzerResult;
-import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.runner.AnalysisResultFuture;
-import org.datacleaner.result.AnalysisResult;
-import org.datacleaner.result.save.AnalysisResultSaveHandler;
 import org.datacleaner.spark.utils.ResultFilePathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,32 +35,6 @@ public class Main {
 
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
-    private static void saveResult(final AnalysisResultFuture result, final Resource resultResource) {
-        final AnalysisResultSaveHandler analysisResultSaveHandler =
-                new AnalysisResultSaveHandler(result, resultResource);
-        try {
-            analysisResultSaveHandler.saveOrThrow();
-        } catch (final SerializationException e) {
-            // attempt to save what we can - and then rethrow
-            final AnalysisResult safeAnalysisResult = analysisResultSaveHandler.createSafeAnalysisResult();
-            if (safeAnalysisResult == null) {
-                logger.error("Serialization of result failed without any safe result elements to persist");
-            } else {
-                final Map<ComponentJob, AnalyzerResult> unsafeResultElements =
-                        analysisResultSaveHandler.getUnsafeResultElements();
-                logger.error("Serialization of result failed with the following unsafe elements: {}",
-                        unsafeResultElements);
-                logger.warn("Partial AnalysisResult will be persisted to filename '{}'",
-                        resultResource.getQualifiedPath());
-
-                analysisResultSaveHandler.saveWithoutUnsafeResultElements();
-            }
-
-            // rethrow the exception regardless
-            throw e;
-        }
-    }
-
     public static void main(final String[] args) throws Exception {
         if (args.length < 2) {
             throw new IllegalArgumentException("The number of arguments is incorrect. Usage:\n"
@@ -74,7 +42,7 @@ public class Main {
                     + "Got: " + Arrays.toString(args));
         }
 
-        final SparkConf conf = new SparkConf().setAppName("DataCleaner-spark");
+        final SparkConf conf = SparkKryoRegistrator.configure(new SparkConf().setAppName("DataCleaner-spark"));
         final JavaSparkContext sparkContext = new JavaSparkContext(conf);
 
         final URI confXmlPath = URI.create(args[0]);
@@ -99,15 +67,13 @@ public class Main {
 
         final SparkAnalysisRunner sparkAnalysisRunner = new SparkAnalysisRunner(sparkContext, sparkJobContext);
         try {
-            final AnalysisResultFuture result = sparkAnalysisRunner.run();
-
-            result.await();
-
             if (sparkJobContext.isResultEnabled()) {
                 final Resource resultResource = ResultFilePathUtils.getResultResource(sparkContext, sparkJobContext);
                 logger.info("DataCleaner result will be written to: {}", resultResource);
-                saveResult(result, resultResource);
+                sparkAnalysisRunner.runAndSaveResult(resultResource);
             } else {
+                final AnalysisResultFuture result = sparkAnalysisRunner.run();
+                result.await();
                 logger.info("DataCleaner result will not be written - disabled");
             }
         } finally {
@@ -0,0 +1,80 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.util.ChangeAwareObjectInputStream;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo {@link Serializer} for {@link NamedAnalyzerResult}s, used when partial
+ * results are shuffled and aggregated.
+ *
+ * {@link AnalyzerResult}s rely on Java serialization semantics (custom
+ * readObject/readResolve methods, renamed classes etc.), so the result itself
+ * is Java serialized, but deflated. Results are typically dominated by
+ * repetitive value and class name strings, which compress very well.
+ */
+public class NamedAnalyzerResultSerializer extends Serializer<NamedAnalyzerResult> {
+
+    public NamedAnalyzerResultSerializer() {
+        super(false, true);
+    }
+
+    @Override
+    public void write(final Kryo kryo, final Output output, final NamedAnalyzerResult namedAnalyzerResult) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeObject(namedAnalyzerResult.getAnalyzerResult());
+        } catch (final IOException e) {
+            throw new IllegalStateException(
+                    "Failed to serialize result with key '" + namedAnalyzerResult.getName() + "'", e);
+        }
+
+        output.writeString(namedAnalyzerResult.getName());
+        output.writeInt(bytes.size(), true);
+        output.writeBytes(bytes.toByteArray());
+    }
+
+    @Override
+    public NamedAnalyzerResult read(final Kryo kryo, final Input input, final Class<NamedAnalyzerResult> type) {
+        final String name = input.readString();
+        final byte[] bytes = input.readBytes(input.readInt(true));
+
+        try (ChangeAwareObjectInputStream in = new ChangeAwareObjectInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            in.addClassLoader(kryo.getClassLoader());
+            return new NamedAnalyzerResult(name, (AnalyzerResult) in.readObject());
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to deserialize result with key '" + name + "'", e);
+        }
+    }
+}
@@ -19,32 +19,30 @@
  */
 package org.datacleaner.spark;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.metamodel.csv.CsvConfiguration;
-import org.apache.metamodel.fixedwidth.FixedWidthConfiguration;
+import org.apache.metamodel.util.HdfsResource;
 import org.apache.metamodel.util.Resource;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.datacleaner.api.AnalyzerResult;
 import org.datacleaner.api.InputRow;
-import org.datacleaner.connection.CsvDatastore;
 import org.datacleaner.connection.Datastore;
-import org.datacleaner.connection.FixedWidthDatastore;
-import org.datacleaner.connection.JsonDatastore;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.runner.AnalysisResultFuture;
 import org.datacleaner.job.runner.AnalysisRunner;
+import org.datacleaner.spark.functions.AddNamedAnalyzerResultFunction;
 import org.datacleaner.spark.functions.AnalyzerResultReduceFunction;
-import org.datacleaner.spark.functions.CsvParserFunction;
-import org.datacleaner.spark.functions.ExtractAnalyzerResultFunction;
-import org.datacleaner.spark.functions.FixedWidthParserFunction;
-import org.datacleaner.spark.functions.JsonParserFunction;
+import org.datacleaner.spark.functions.MergeNamedAnalyzerResultsFunction;
 import org.datacleaner.spark.functions.RowProcessingFunction;
+import org.datacleaner.spark.functions.SaveAnalysisResultFunction;
 import org.datacleaner.spark.functions.TuplesToTuplesFunction;
-import org.datacleaner.spark.functions.ValuesToInputRowFunction;
+import org.datacleaner.util.HadoopResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +52,8 @@ public class SparkAnalysisRunner implements AnalysisRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(SparkAnalysisRunner.class);
 
+    private static final int RESULT_AGGREGATION_DEPTH = 2;
+
     private final SparkJobContext _sparkJobContext;
     private final JavaSparkContext _sparkContext;
 
@@ -87,57 +87,28 @@ public class SparkAnalysisRunner implements AnalysisRunner {
 
     public AnalysisResultFuture run() {
         _sparkJobContext.triggerOnJobStart();
-        final AnalysisJob analysisJob = _sparkJobContext.getAnalysisJob();
-        final Datastore datastore = analysisJob.getDatastore();
-
-        final JavaRDD<InputRow> inputRowsRDD = openSourceDatastore(datastore);
-
-        final JavaPairRDD<String, NamedAnalyzerResult> namedAnalyzerResultsRDD;
-        if (_sparkJobContext.getAnalysisJobBuilder().isDistributable()) {
-            logger.info("Running the job in distributed mode");
-
-            // TODO: We have yet to get more experience with this setting - do a
-            // benchmark of what works best, true or false.
-            final boolean preservePartitions = true;
-
-            final JavaRDD<Tuple2<String, NamedAnalyzerResult>> processedTuplesRdd = inputRowsRDD
-                    .mapPartitionsWithIndex(new RowProcessingFunction(_sparkJobContext), preservePartitions);
 
-            if (_sparkJobContext.isResultEnabled()) {
-                final JavaPairRDD<String, NamedAnalyzerResult> partialNamedAnalyzerResultsRDD =
-                        processedTuplesRdd.mapPartitionsToPair(new TuplesToTuplesFunction<>(), preservePartitions);
-
-                namedAnalyzerResultsRDD =
-                        partialNamedAnalyzerResultsRDD.reduceByKey(new AnalyzerResultReduceFunction(_sparkJobContext));
-            } else {
-                // call count() to block and wait for RDD to be fully processed
-                processedTuplesRdd.count();
-                namedAnalyzerResultsRDD = null;
-            }
-        } else {
-            logger.warn("Running the job in non-distributed mode");
-            final JavaRDD<InputRow> coalescedInputRowsRDD = inputRowsRDD.coalesce(1);
-            namedAnalyzerResultsRDD =
-                    coalescedInputRowsRDD.mapPartitionsToPair(new RowProcessingFunction(_sparkJobContext));
-
-            if (!_sparkJobContext.isResultEnabled()) {
-                // call count() to block and wait for RDD to be fully processed
-                namedAnalyzerResultsRDD.count();
-            }
-        }
+        final JavaPairRDD<String, NamedAnalyzerResult> partialResultsRDD = processInputRows();
 
         if (!_sparkJobContext.isResultEnabled()) {
+            // call count() to block and wait for RDD to be fully processed
+            partialResultsRDD.count();
             final List<Tuple2<String, AnalyzerResult>> results = Collections.emptyList();
             return new SparkAnalysisResultFuture(results, _sparkJobContext);
         }
 
-        assert namedAnalyzerResultsRDD != null;
-        final JavaPairRDD<String, AnalyzerResult> finalAnalyzerResultsRDD =
-                namedAnalyzerResultsRDD.mapValues(new ExtractAnalyzerResultFunction());
+        // reduce the partial results on the executors in multiple levels, so
+        // that the driver only receives (and reduces) a few pre-aggregated maps
+        final Map<String, NamedAnalyzerResult> reducedResults = partialResultsRDD.treeAggregate(
+                new HashMap<String, NamedAnalyzerResult>(), new AddNamedAnalyzerResultFunction(_sparkJobContext),
+                new MergeNamedAnalyzerResultsFunction(_sparkJobContext), RESULT_AGGREGATION_DEPTH);
 
-        // log analyzer results
-        final List<Tuple2<String, AnalyzerResult>> results = finalAnalyzerResultsRDD.collect();
+        final List<Tuple2<String, AnalyzerResult>> results = new ArrayList<>(reducedResults.size());
+        for (final NamedAnalyzerResult namedAnalyzerResult : reducedResults.values()) {
+            results.add(new Tuple2<>(namedAnalyzerResult.getName(), namedAnalyzerResult.getAnalyzerResult()));
+        }
 
+        // log analyzer results
         logger.info("Finished! Number of AnalyzerResult objects: {}", results.size());
         for (final Tuple2<String, AnalyzerResult> analyzerResultTuple : results) {
             final String key = analyzerResultTuple._1;
@@ -149,70 +120,67 @@ public class SparkAnalysisRunner implements AnalysisRunner {
         return new SparkAnalysisResultFuture(results, _sparkJobContext);
     }
 
-    private JavaRDD<InputRow> openSourceDatastore(final Datastore datastore) {
-        if (datastore instanceof CsvDatastore) {
-            final CsvDatastore csvDatastore = (CsvDatastore) datastore;
-            final Resource resource = csvDatastore.getResource();
-            assert resource != null;
-            final String datastorePath = resource.getQualifiedPath();
+    /**
+     * Runs the job and saves the analysis result directly from an executor,
+     * without transferring the analyzer results to the driver. Use this when
+     * the result file is the only thing needed from the job.
+     *
+     * @param resultResource
+     *            the resource to save the result to
+     */
+    public void runAndSaveResult(final Resource resultResource) {
+        _sparkJobContext.triggerOnJobStart();
 
-            final CsvConfiguration csvConfiguration = csvDatastore.getCsvConfiguration();
+        final JavaPairRDD<String, NamedAnalyzerResult> partialResultsRDD = processInputRows();
 
-            final JavaRDD<String> rawInput;
-            if (_minPartitions != null) {
-                rawInput = _sparkContext.textFile(datastorePath, _minPartitions);
-            } else {
-                rawInput = _sparkContext.textFile(datastorePath);
-            }
-            final JavaRDD<Object[]> parsedInput = rawInput.map(new CsvParserFunction(csvConfiguration));
+        final JavaPairRDD<String, NamedAnalyzerResult> reducedResultsRDD;
+        if (partialResultsRDD.getNumPartitions() == 1) {
+            reducedResultsRDD = partialResultsRDD;
+        } else {
+            // combine per partition and then reduce all keys into a single
+            // partition, where the result file is written
+            reducedResultsRDD = partialResultsRDD.reduceByKey(new AnalyzerResultReduceFunction(_sparkJobContext), 1);
+        }
 
-            JavaPairRDD<Object[], Long> zipWithIndex = parsedInput.zipWithIndex();
+        // the Hadoop configuration of a HadoopResource is not serializable,
+        // it is resolved again on the executor
+        final Resource serializableResultResource;
+        if (resultResource instanceof HadoopResource) {
+            serializableResultResource = new HdfsResource(resultResource.getQualifiedPath());
+        } else {
+            serializableResultResource = resultResource;
+        }
 
-            if (csvConfiguration.getColumnNameLineNumber() != CsvConfiguration.NO_COLUMN_NAME_LINE) {
-                zipWithIndex =
-                        zipWithIndex.filter(new SkipHeaderLineFunction(csvConfiguration.getColumnNameLineNumber()));
-            }
+        final List<String> savedPaths = reducedResultsRDD
+                .mapPartitions(new SaveAnalysisResultFunction(_sparkJobContext, serializableResultResource))
+                .collect();
+        logger.info("Finished! Result saved to: {}", savedPaths);
 
-            return zipWithIndex.map(new ValuesToInputRowFunction(_sparkJobContext));
-        } else if (datastore instanceof JsonDatastore) {
-            final JsonDatastore jsonDatastore = (JsonDatastore) datastore;
-            final String datastorePath = jsonDatastore.getResource().getQualifiedPath();
-            final JavaRDD<String> rawInput;
-            if (_minPartitions != null) {
-                rawInput = _sparkContext.textFile(datastorePath, _minPartitions);
-            } else {
-                rawInput = _sparkContext.textFile(datastorePath);
-            }
+        _sparkJobContext.triggerOnJobEnd();
+    }
 
-            final JavaRDD<Object[]> parsedInput = rawInput.map(new JsonParserFunction(jsonDatastore));
-            final JavaPairRDD<Object[], Long> zipWithIndex = parsedInput.zipWithIndex();
-            return zipWithIndex.map(new ValuesToInputRowFunction(_sparkJobContext));
-        } else if (datastore instanceof FixedWidthDatastore) {
+    private JavaPairRDD<String, NamedAnalyzerResult> processInputRows() {
+        final AnalysisJob analysisJob = _sparkJobContext.getAnalysisJob();
+        final Datastore datastore = analysisJob.getDatastore();
 
-            final FixedWidthDatastore fixedWidthDatastore = (FixedWidthDatastore) datastore;
+        final JavaRDD<InputRow> inputRowsRDD =
+                new SparkDatastoreReader(_sparkContext, _sparkJobContext, _minPartitions).read(datastore);
 
-            final Resource resource = fixedWidthDatastore.getResource();
-            final String datastorePath = resource.getQualifiedPath();
-            final FixedWidthConfiguration fixedWidthConfiguration = fixedWidthDatastore.getConfiguration();
-            final JavaRDD<String> rawInput;
-            if (_minPartitions != null) {
-                rawInput = _sparkContext.textFile(datastorePath, _minPartitions);
-            } else {
-                rawInput = _sparkContext.textFile(datastorePath);
-            }
-
-            final JavaRDD<Object[]> parsedInput = rawInput.map(new FixedWidthParserFunction(fixedWidthConfiguration));
+        if (_sparkJobContext.getAnalysisJobBuilder().isDistributable()) {
+            logger.info("Running the job in distributed mode");
 
-            JavaPairRDD<Object[], Long> zipWithIndex = parsedInput.zipWithIndex();
+            // TODO: We have yet to get more experience with this setting - do a
+            // benchmark of what works best, true or false.
+            final boolean preservePartitions = true;
 
-            if (fixedWidthConfiguration.getColumnNameLineNumber() != FixedWidthConfiguration.NO_COLUMN_NAME_LINE) {
-                zipWithIndex = zipWithIndex
-                        .filter(new SkipHeaderLineFunction(fixedWidthConfiguration.getColumnNameLineNumber()));
-            }
+            final JavaRDD<Tuple2<String, NamedAnalyzerResult>> processedTuplesRdd = inputRowsRDD
+                    .mapPartitionsWithIndex(new RowProcessingFunction(_sparkJobContext), preservePartitions);
 
-            return zipWithIndex.map(new ValuesToInputRowFunction(_sparkJobContext));
+            return processedTuplesRdd.mapPartitionsToPair(new TuplesToTuplesFunction<>(), preservePartitions);
+        } else {
+            logger.warn("Running the job in non-distributed mode");
+            final JavaRDD<InputRow> coalescedInputRowsRDD = inputRowsRDD.coalesce(1);
+            return coalescedInputRowsRDD.mapPartitionsToPair(new RowProcessingFunction(_sparkJobContext));
         }
-
-        throw new UnsupportedOperationException("Unsupported datastore type or configuration: " + datastore);
     }
 }
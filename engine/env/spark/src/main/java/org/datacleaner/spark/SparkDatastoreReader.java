@@ -0,0 +1,240 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.metamodel.csv.CsvConfiguration;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.fixedwidth.FixedWidthConfiguration;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Table;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.FixedWidthDatastore;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.connection.JsonDatastore;
+import org.datacleaner.spark.functions.CsvParserFunction;
+import org.datacleaner.spark.functions.DataFrameRowToInputRowFunction;
+import org.datacleaner.spark.functions.FixedWidthParserFunction;
+import org.datacleaner.spark.functions.PartitionOffsetIdFunction;
+import org.datacleaner.spark.functions.ValuesToInputRowFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scala.Tuple2;
+
+/**
+ * Reads the source datastore of a job into an RDD of {@link InputRow}s.
+ *
+ * Sources which Spark SQL can read are read as DataFrames, selecting only the
+ * job's source columns so that column pruning can be pushed down into the
+ * source. This includes JSON files and JDBC databases, which are read in
+ * partitions by their numeric primary key. Any other DataFrame (eg. from
+ * Parquet or ORC files) can be turned into input rows with
+ * {@link #toInputRows(Dataset)}.
+ *
+ * CSV and fixed width files are parsed line by line with the same parsers as
+ * the rest of DataCleaner, to retain their exact value semantics.
+ *
+ * In both cases row IDs are assigned per partition, without an extra pass over
+ * the data.
+ */
+public class SparkDatastoreReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparkDatastoreReader.class);
+
+    private final JavaSparkContext _sparkContext;
+    private final SparkJobContext _sparkJobContext;
+    private final Integer _minPartitions;
+
+    public SparkDatastoreReader(final JavaSparkContext sparkContext, final SparkJobContext sparkJobContext,
+            final Integer minPartitions) {
+        _sparkContext = sparkContext;
+        _sparkJobContext = sparkJobContext;
+        _minPartitions = minPartitions;
+    }
+
+    public JavaRDD<InputRow> read(final Datastore datastore) {
+        if (datastore instanceof CsvDatastore) {
+            final CsvDatastore csvDatastore = (CsvDatastore) datastore;
+            final CsvConfiguration csvConfiguration = csvDatastore.getCsvConfiguration();
+
+            final JavaRDD<String> rawInput = readLines(csvDatastore.getResource().getQualifiedPath());
+            final JavaRDD<Object[]> parsedInput = rawInput.map(new CsvParserFunction(csvConfiguration));
+            return toInputRows(parsedInput, csvConfiguration.getColumnNameLineNumber());
+        } else if (datastore instanceof JsonDatastore) {
+            final JsonDatastore jsonDatastore = (JsonDatastore) datastore;
+            return toInputRows(readJson(jsonDatastore.getResource().getQualifiedPath()));
+        } else if (datastore instanceof FixedWidthDatastore) {
+            final FixedWidthDatastore fixedWidthDatastore = (FixedWidthDatastore) datastore;
+            final FixedWidthConfiguration fixedWidthConfiguration = fixedWidthDatastore.getConfiguration();
+
+            final JavaRDD<String> rawInput = readLines(fixedWidthDatastore.getResource().getQualifiedPath());
+            final JavaRDD<Object[]> parsedInput = rawInput.map(new FixedWidthParserFunction(fixedWidthConfiguration));
+            return toInputRows(parsedInput, fixedWidthConfiguration.getColumnNameLineNumber());
+        } else if (datastore instanceof JdbcDatastore && ((JdbcDatastore) datastore).getJdbcUrl() != null) {
+            return toInputRows(readJdbc((JdbcDatastore) datastore));
+        }
+
+        throw new UnsupportedOperationException("Unsupported datastore type or configuration: " + datastore);
+    }
+
+    /**
+     * Turns a DataFrame of the job's source table into input rows. The
+     * DataFrame's columns are matched to the job's source columns by name.
+     *
+     * @param dataFrame
+     * @return
+     */
+    public JavaRDD<InputRow> toInputRows(final Dataset<Row> dataFrame) {
+        final List<InputColumn<?>> sourceColumns = getSourceColumns();
+        final Column[] selection = new Column[sourceColumns.size() + 1];
+        for (int i = 0; i < sourceColumns.size(); i++) {
+            selection[i] = functions.col(quote(sourceColumns.get(i).getPhysicalColumn().getName()));
+        }
+        selection[sourceColumns.size()] = functions.monotonically_increasing_id();
+
+        JavaRDD<Row> rows = dataFrame.select(selection).toJavaRDD();
+        if (_minPartitions != null && rows.getNumPartitions() < _minPartitions) {
+            rows = rows.repartition(_minPartitions);
+        }
+        return rows.map(new DataFrameRowToInputRowFunction(_sparkJobContext));
+    }
+
+    private JavaRDD<InputRow> toInputRows(final JavaRDD<Object[]> parsedInput, final int columnNameLineNumber) {
+        JavaRDD<Tuple2<Object[], Long>> rowsWithIds =
+                parsedInput.mapPartitionsWithIndex(new PartitionOffsetIdFunction<Object[]>(), true);
+
+        // the header is in the first partition, where IDs equal line offsets
+        if (columnNameLineNumber != CsvConfiguration.NO_COLUMN_NAME_LINE) {
+            rowsWithIds = rowsWithIds.filter(new SkipHeaderLineFunction(columnNameLineNumber));
+        }
+
+        return rowsWithIds.map(new ValuesToInputRowFunction(_sparkJobContext));
+    }
+
+    private JavaRDD<String> readLines(final String path) {
+        if (_minPartitions != null) {
+            return _sparkContext.textFile(path, _minPartitions);
+        }
+        return _sparkContext.textFile(path);
+    }
+
+    private Dataset<Row> readJson(final String path) {
+        // read all values as strings, like the line based JSON parser did
+        final List<InputColumn<?>> sourceColumns = getSourceColumns();
+        final StructField[] fields = new StructField[sourceColumns.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = DataTypes.createStructField(sourceColumns.get(i).getPhysicalColumn().getName(),
+                    DataTypes.StringType, true);
+        }
+        return getSparkSession().read().schema(DataTypes.createStructType(fields)).json(path);
+    }
+
+    private Dataset<Row> readJdbc(final JdbcDatastore datastore) {
+        final Properties properties = new Properties();
+        if (datastore.getUsername() != null) {
+            properties.setProperty("user", datastore.getUsername());
+        }
+        if (datastore.getPassword() != null) {
+            properties.setProperty("password", datastore.getPassword());
+        }
+        if (datastore.getDriverClass() != null) {
+            properties.setProperty("driver", datastore.getDriverClass());
+        }
+
+        final Table table = getSourceColumns().get(0).getPhysicalColumn().getTable();
+        final String tableName;
+        if (table.getSchema() == null || table.getSchema().getName() == null) {
+            tableName = table.getName();
+        } else {
+            tableName = table.getSchema().getName() + "." + table.getName();
+        }
+
+        final int numPartitions = _minPartitions == null ? _sparkContext.defaultParallelism() : _minPartitions;
+        final org.apache.metamodel.schema.Column partitionColumn = getPartitionColumn(table);
+        if (numPartitions > 1 && partitionColumn != null) {
+            final Query query = new Query().from(table).select(new SelectItem(FunctionType.MIN, partitionColumn))
+                    .select(new SelectItem(FunctionType.MAX, partitionColumn));
+            try (DatastoreConnection con = datastore.openConnection();
+                    DataSet dataSet = con.getDataContext().executeQuery(query)) {
+                if (dataSet.next()) {
+                    final Number min = (Number) dataSet.getRow().getValue(0);
+                    final Number max = (Number) dataSet.getRow().getValue(1);
+                    if (min != null && max != null) {
+                        logger.info("Reading {} in {} partitions by {} in range [{},{}]", tableName, numPartitions,
+                                partitionColumn.getName(), min, max);
+                        return getSparkSession().read().jdbc(datastore.getJdbcUrl(), tableName,
+                                partitionColumn.getName(), min.longValue(), max.longValue() + 1, numPartitions,
+                                properties);
+                    }
+                }
+            }
+        }
+
+        logger.info("Reading {} in a single partition", tableName);
+        return getSparkSession().read().jdbc(datastore.getJdbcUrl(), tableName, properties);
+    }
+
+    /**
+     * Gets a column that a JDBC read can be partitioned by - a single numeric
+     * primary key.
+     */
+    private static org.apache.metamodel.schema.Column getPartitionColumn(final Table table) {
+        final List<org.apache.metamodel.schema.Column> primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys.size() != 1) {
+            return null;
+        }
+        final org.apache.metamodel.schema.Column primaryKey = primaryKeys.get(0);
+        if (primaryKey.getType() == null || !primaryKey.getType().isNumber()) {
+            return null;
+        }
+        return primaryKey;
+    }
+
+    private List<InputColumn<?>> getSourceColumns() {
+        return _sparkJobContext.getAnalysisJob().getSourceColumns();
+    }
+
+    private SparkSession getSparkSession() {
+        // reuses the already running SparkContext
+        return SparkSession.builder().getOrCreate();
+    }
+
+    private static String quote(final String columnName) {
+        return "`" + columnName.replace("`", "``") + "`";
+    }
+}
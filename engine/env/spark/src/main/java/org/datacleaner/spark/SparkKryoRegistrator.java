@@ -0,0 +1,63 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark;
+
+import java.util.HashMap;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoRegistrator;
+import org.apache.spark.serializer.KryoSerializer;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.InputRow;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+
+/**
+ * {@link KryoRegistrator} for the types that DataCleaner shuffles and collects
+ * in Spark.
+ */
+public class SparkKryoRegistrator implements KryoRegistrator {
+
+    /**
+     * Configures a {@link SparkConf} to use Kryo serialization with this
+     * registrator, unless a serializer or registrator has already been
+     * configured.
+     *
+     * @param sparkConf
+     * @return
+     */
+    public static SparkConf configure(final SparkConf sparkConf) {
+        sparkConf.setIfMissing("spark.serializer", KryoSerializer.class.getName());
+        sparkConf.setIfMissing("spark.kryo.registrator", SparkKryoRegistrator.class.getName());
+        return sparkConf;
+    }
+
+    @Override
+    public void registerClasses(final Kryo kryo) {
+        kryo.register(NamedAnalyzerResult.class, new NamedAnalyzerResultSerializer());
+        kryo.register(HashMap.class);
+
+        // input rows reference the job's columns and tables, and results may
+        // depend on custom Java serialization - keep that for these types
+        kryo.addDefaultSerializer(InputRow.class, JavaSerializer.class);
+        kryo.addDefaultSerializer(AnalyzerResult.class, JavaSerializer.class);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark.functions;
+
+import java.util.Map;
+
+import org.apache.spark.api.java.function.Function2;
+import org.datacleaner.spark.NamedAnalyzerResult;
+import org.datacleaner.spark.SparkJobContext;
+
+import scala.Tuple2;
+
+/**
+ * Sequence operation of the tree aggregation of analyzer results. Adds a
+ * partial result to the map of results aggregated so far, reducing it with any
+ * previous result of the same component.
+ */
+public final class AddNamedAnalyzerResultFunction implements Function2<Map<String, NamedAnalyzerResult>,
+        Tuple2<String, NamedAnalyzerResult>, Map<String, NamedAnalyzerResult>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AnalyzerResultReduceFunction _reduceFunction;
+
+    public AddNamedAnalyzerResultFunction(final SparkJobContext sparkJobContext) {
+        _reduceFunction = new AnalyzerResultReduceFunction(sparkJobContext);
+    }
+
+    @Override
+    public Map<String, NamedAnalyzerResult> call(final Map<String, NamedAnalyzerResult> results,
+            final Tuple2<String, NamedAnalyzerResult> tuple) throws Exception {
+        final NamedAnalyzerResult previousResult = results.get(tuple._1);
+        if (previousResult == null) {
+            results.put(tuple._1, tuple._2);
+        } else {
+            results.put(tuple._1, _reduceFunction.call(previousResult, tuple._2));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark.functions;
+
+import java.util.List;
+
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Row;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.spark.SparkJobContext;
+
+/**
+ * Mapper function that turns the rows of a Spark SQL DataFrame into
+ * {@link InputRow}s.
+ *
+ * The DataFrame is expected to contain the job's source columns, in the order
+ * of {@link org.datacleaner.job.AnalysisJob#getSourceColumns()}, followed by a
+ * row ID column.
+ */
+public class DataFrameRowToInputRowFunction implements Function<Row, InputRow> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SparkJobContext _sparkJobContext;
+
+    public DataFrameRowToInputRowFunction(final SparkJobContext sparkJobContext) {
+        _sparkJobContext = sparkJobContext;
+    }
+
+    @Override
+    public InputRow call(final Row row) throws Exception {
+        final List<InputColumn<?>> sourceColumns = _sparkJobContext.getAnalysisJob().getSourceColumns();
+        final long rowId = row.getLong(sourceColumns.size());
+
+        final MockInputRow inputRow = new MockInputRow(rowId);
+        for (int i = 0; i < sourceColumns.size(); i++) {
+            inputRow.put(sourceColumns.get(i), row.get(i));
+        }
+        return inputRow;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark.functions;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.spark.api.java.function.Function2;
+import org.datacleaner.spark.NamedAnalyzerResult;
+import org.datacleaner.spark.SparkJobContext;
+
+/**
+ * Combine operation of the tree aggregation of analyzer results. Merges two
+ * maps of aggregated results, reducing the results of components that are
+ * present in both.
+ */
+public final class MergeNamedAnalyzerResultsFunction implements Function2<Map<String, NamedAnalyzerResult>,
+        Map<String, NamedAnalyzerResult>, Map<String, NamedAnalyzerResult>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AnalyzerResultReduceFunction _reduceFunction;
+
+    public MergeNamedAnalyzerResultsFunction(final SparkJobContext sparkJobContext) {
+        _reduceFunction = new AnalyzerResultReduceFunction(sparkJobContext);
+    }
+
+    @Override
+    public Map<String, NamedAnalyzerResult> call(final Map<String, NamedAnalyzerResult> results1,
+            final Map<String, NamedAnalyzerResult> results2) throws Exception {
+        for (final Entry<String, NamedAnalyzerResult> entry : results2.entrySet()) {
+            final NamedAnalyzerResult previousResult = results1.get(entry.getKey());
+            if (previousResult == null) {
+                results1.put(entry.getKey(), entry.getValue());
+            } else {
+                results1.put(entry.getKey(), _reduceFunction.call(previousResult, entry.getValue()));
+            }
+        }
+        return results1;
+    }
+}
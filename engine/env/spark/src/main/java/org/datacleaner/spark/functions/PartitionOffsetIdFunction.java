@@ -0,0 +1,69 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark.functions;
+
+import java.util.Iterator;
+
+import org.apache.spark.api.java.function.Function2;
+
+import scala.Tuple2;
+
+/**
+ * Partition function that pairs every element with a row ID, made up of the
+ * index of the partition and the offset of the element within the partition.
+ *
+ * Unlike zipWithIndex(), this does not require an extra pass over the data to
+ * count the elements of every partition up front. The IDs are unique and
+ * increasing, but not consecutive across partitions - just like the IDs of
+ * Spark SQL's monotonically_increasing_id() function.
+ *
+ * @param <T>
+ *            the element type
+ */
+public final class PartitionOffsetIdFunction<T> implements Function2<Integer, Iterator<T>, Iterator<Tuple2<T, Long>>> {
+
+    private static final long serialVersionUID = 1L;
+
+    // same layout as monotonically_increasing_id(): partition index in the
+    // upper 31 bits, offset within the partition in the lower 33 bits
+    private static final int PARTITION_INDEX_SHIFT = 33;
+
+    private static long createRowId(final int partitionIndex, final long offset) {
+        return ((long) partitionIndex << PARTITION_INDEX_SHIFT) + offset;
+    }
+
+    @Override
+    public Iterator<Tuple2<T, Long>> call(final Integer partitionIndex, final Iterator<T> iterator) {
+        return new Iterator<Tuple2<T, Long>>() {
+            private long _offset = 0;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Tuple2<T, Long> next() {
+                final T element = iterator.next();
+                return new Tuple2<>(element, createRowId(partitionIndex, _offset++));
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark.functions;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.metamodel.util.Resource;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.SimpleAnalysisResult;
+import org.datacleaner.spark.NamedAnalyzerResult;
+import org.datacleaner.spark.SparkJobContext;
+import org.datacleaner.spark.utils.AnalysisResultSaveUtils;
+import org.datacleaner.spark.utils.HdfsHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import scala.Tuple2;
+
+/**
+ * Partition function which saves the final (fully reduced) analyzer results of
+ * a job as an {@link org.datacleaner.result.AnalysisResult} file, directly from
+ * the executor. Must be applied to a single partition containing all results.
+ *
+ * Returns the path of the saved result file.
+ */
+public final class SaveAnalysisResultFunction
+        implements FlatMapFunction<Iterator<Tuple2<String, NamedAnalyzerResult>>, String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(SaveAnalysisResultFunction.class);
+
+    private final SparkJobContext _sparkJobContext;
+    private final Resource _resultResource;
+
+    public SaveAnalysisResultFunction(final SparkJobContext sparkJobContext, final Resource resultResource) {
+        _sparkJobContext = sparkJobContext;
+        _resultResource = resultResource;
+    }
+
+    @Override
+    public Iterator<String> call(final Iterator<Tuple2<String, NamedAnalyzerResult>> tuples) throws Exception {
+        final Map<ComponentJob, AnalyzerResult> resultMap = new LinkedHashMap<>();
+        while (tuples.hasNext()) {
+            final Tuple2<String, NamedAnalyzerResult> tuple = tuples.next();
+            resultMap.put(_sparkJobContext.getComponentByKey(tuple._1), tuple._2.getAnalyzerResult());
+        }
+
+        final Resource resultResource = HdfsHelper.createHelper().getResourceToUse(_resultResource);
+        logger.info("Saving {} AnalyzerResult objects to: {}", resultMap.size(), resultResource);
+
+        AnalysisResultSaveUtils.saveResult(new SimpleAnalysisResult(resultMap), resultResource);
+
+        return Collections.singletonList(resultResource.getQualifiedPath()).iterator();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark.utils;
+
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.AnalysisResultSaveHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AnalysisResultSaveUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisResultSaveUtils.class);
+
+    /**
+     * Saves an {@link AnalysisResult} to a {@link Resource}. If some of the
+     * result elements cannot be serialized, the rest of the result is saved
+     * and the {@link SerializationException} is rethrown.
+     *
+     * @param result
+     * @param resultResource
+     */
+    public static void saveResult(final AnalysisResult result, final Resource resultResource) {
+        final AnalysisResultSaveHandler analysisResultSaveHandler =
+                new AnalysisResultSaveHandler(result, resultResource);
+        try {
+            analysisResultSaveHandler.saveOrThrow();
+        } catch (final SerializationException e) {
+            // attempt to save what we can - and then rethrow
+            final AnalysisResult safeAnalysisResult = analysisResultSaveHandler.createSafeAnalysisResult();
+            if (safeAnalysisResult == null) {
+                logger.error("Serialization of result failed without any safe result elements to persist");
+            } else {
+                final Map<ComponentJob, AnalyzerResult> unsafeResultElements =
+                        analysisResultSaveHandler.getUnsafeResultElements();
+                logger.error("Serialization of result failed with the following unsafe elements: {}",
+                        unsafeResultElements);
+                logger.warn("Partial AnalysisResult will be persisted to filename '{}'",
+                        resultResource.getQualifiedPath());
+
+                analysisResultSaveHandler.saveWithoutUnsafeResultElements();
+            }
+
+            // rethrow the exception regardless
+            throw e;
+        }
+    }
+}
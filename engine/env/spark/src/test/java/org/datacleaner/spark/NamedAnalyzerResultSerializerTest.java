@@ -0,0 +1,58 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoSerializer;
+import org.apache.spark.serializer.SerializerInstance;
+import org.datacleaner.result.NumberResult;
+import org.junit.Test;
+
+import scala.reflect.ClassTag$;
+
+public class NamedAnalyzerResultSerializerTest {
+
+    @Test
+    public void testRoundTripWithRegistrator() throws Exception {
+        final SparkConf sparkConf = SparkKryoRegistrator.configure(new SparkConf());
+        assertEquals(KryoSerializer.class.getName(), sparkConf.get("spark.serializer"));
+
+        final SerializerInstance serializer = new KryoSerializer(sparkConf).newInstance();
+
+        final Map<String, NamedAnalyzerResult> results = new HashMap<>();
+        results.put("foo", new NamedAnalyzerResult("foo", new NumberResult(42)));
+        results.put("bar", new NamedAnalyzerResult("bar", new NumberResult(1.5)));
+
+        final ByteBuffer bytes = serializer.serialize(results, ClassTag$.MODULE$.apply(Map.class));
+        @SuppressWarnings("unchecked") final Map<String, NamedAnalyzerResult> deserialized =
+                serializer.deserialize(bytes, ClassTag$.MODULE$.apply(Map.class));
+
+        assertEquals(2, deserialized.size());
+        assertEquals("foo", deserialized.get("foo").getName());
+        assertEquals(42, ((NumberResult) deserialized.get("foo").getAnalyzerResult()).getNumber());
+        assertEquals(1.5, ((NumberResult) deserialized.get("bar").getAnalyzerResult()).getNumber());
+    }
+}
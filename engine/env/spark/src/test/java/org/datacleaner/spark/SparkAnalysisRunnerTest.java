@@ -22,6 +22,7 @@ package org.datacleaner.spark;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -43,8 +44,10 @@ import org.datacleaner.beans.valuematch.ValueMatchAnalyzerResult;
 import org.datacleaner.beans.writers.WriteDataResult;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.result.AnalysisResult;
 import org.datacleaner.result.ReducedSingleValueDistributionResult;
 import org.datacleaner.result.ValueCountingAnalyzerResult;
+import org.datacleaner.util.ChangeAwareObjectInputStream;
 import org.datacleaner.util.SystemProperties;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -116,6 +119,37 @@ public class SparkAnalysisRunnerTest {
         assertEquals(7, upperCaseChars);
     }
 
+    @Test
+    public void testSaveResultFromExecutorWithKryo() throws Exception {
+        final File resultFile = new File("target/vanilla-job-executor.analysis.result.dat");
+        if (resultFile.exists()) {
+            assertTrue(resultFile.delete());
+        }
+
+        final SparkConf sparkConf =
+                SparkKryoRegistrator.configure(new SparkConf().setMaster("local").setAppName("DCTest - " + getName()));
+        try (JavaSparkContext sparkContext = new JavaSparkContext(sparkConf)) {
+            final SparkJobContext sparkJobContext =
+                    new SparkJobContext(URI.create("src/test/resources/conf_local.xml"),
+                            URI.create("src/test/resources/vanilla-job.analysis.xml"), null, sparkContext);
+
+            final SparkAnalysisRunner sparkAnalysisRunner =
+                    new SparkAnalysisRunner(sparkContext, sparkJobContext, MIN_PARTITIONS_MULTIPLE);
+            sparkAnalysisRunner.runAndSaveResult(new FileResource(resultFile));
+        }
+
+        assertTrue(resultFile.exists());
+
+        final AnalysisResult analysisResult;
+        try (ChangeAwareObjectInputStream in = new ChangeAwareObjectInputStream(new FileInputStream(resultFile))) {
+            analysisResult = (AnalysisResult) in.readObject();
+        }
+        assertEquals(2, analysisResult.getResults().size());
+
+        final StringAnalyzerResult stringAnalyzerResult = analysisResult.getResults(StringAnalyzerResult.class).get(0);
+        assertEquals(7, stringAnalyzerResult.getRowCount(stringAnalyzerResult.getColumns()[0]));
+    }
+
     @Test
     public void testFixedWidthJobScenario() throws Exception {
         final AnalysisResultFuture result =
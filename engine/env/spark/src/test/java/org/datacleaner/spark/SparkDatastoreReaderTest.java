@@ -0,0 +1,95 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.spark;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.util.SystemProperties;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SparkDatastoreReaderTest {
+
+    @BeforeClass
+    public static void init() {
+        // use local filesystem as default during tests
+        System.setProperty(SystemProperties.DEFAULT_RESOURCE_SCHEME, "file");
+    }
+
+    @Test
+    public void testReadCsvSkipsHeaderWithUniqueRowIds() throws Exception {
+        final List<InputRow> rows = read("src/test/resources/vanilla-job.analysis.xml", 3);
+        assertEquals(7, rows.size());
+        assertUniqueIds(rows);
+
+        for (final InputRow row : rows) {
+            assertFalse(row.getValues(row.getInputColumns()).contains("company"));
+        }
+    }
+
+    @Test
+    public void testReadJsonAsDataFrame() throws Exception {
+        final List<InputRow> rows = read("src/test/resources/json-job.analysis.xml", null);
+        assertEquals(6, rows.size());
+        assertUniqueIds(rows);
+
+        final Set<Object> eyeColors = new HashSet<>();
+        for (final InputRow row : rows) {
+            eyeColors.addAll(row.getValues(row.getInputColumns()));
+        }
+        assertTrue(eyeColors.toString(), eyeColors.contains("brown"));
+    }
+
+    @Test
+    public void testReadFixedWidth() throws Exception {
+        final List<InputRow> rows = read("src/test/resources/fixed-width-job.analysis.xml", 2);
+        assertFalse(rows.isEmpty());
+        assertUniqueIds(rows);
+    }
+
+    private static void assertUniqueIds(final List<InputRow> rows) {
+        final Set<Long> ids = new HashSet<>();
+        for (final InputRow row : rows) {
+            assertTrue("Duplicate row id: " + row.getId(), ids.add(row.getId()));
+        }
+    }
+
+    private static List<InputRow> read(final String analysisJobXmlPath, final Integer minPartitions)
+            throws Exception {
+        final SparkConf sparkConf = new SparkConf().setMaster("local").setAppName("DCTest - SparkDatastoreReader");
+        try (JavaSparkContext sparkContext = new JavaSparkContext(sparkConf)) {
+            final SparkJobContext sparkJobContext =
+                    new SparkJobContext(URI.create("src/test/resources/conf_local.xml"),
+                            URI.create(analysisJobXmlPath), null, sparkContext);
+            final SparkDatastoreReader reader = new SparkDatastoreReader(sparkContext, sparkJobContext, minPartitions);
+            final JavaRDD<InputRow> inputRows = reader.read(sparkJobContext.getAnalysisJob().getDatastore());
+            return inputRows.collect();
+        }
+    }
+}
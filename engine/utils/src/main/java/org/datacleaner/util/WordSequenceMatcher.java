@@ -0,0 +1,270 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+
+/**
+ * Finds occurrences of many (multi-word) phrases in a string in a single pass.
+ *
+ * Both phrases and searched strings are split into tokens on word boundaries
+ * (see {@link StringUtils#splitOnWordBoundaries(String, boolean)}), and an
+ * Aho-Corasick automaton is built over the token sequences of the phrases. A
+ * phrase thereby matches only whole words, like a <code>\bphrase\b</code>
+ * regular expression would, but the cost of a search depends on the length of
+ * the searched string rather than on the number of phrases.
+ *
+ * Instances are immutable and safe to use by multiple threads.
+ *
+ * @param <V>
+ *            the type of value associated with each phrase
+ */
+public final class WordSequenceMatcher<V> {
+
+    /**
+     * Represents an occurrence of a phrase in a searched string.
+     *
+     * @param <V>
+     */
+    public static final class Match<V> {
+
+        private final String _phrase;
+        private final V _value;
+        private final int _startIndex;
+        private final int _endIndex;
+
+        private Match(final String phrase, final V value, final int startIndex, final int endIndex) {
+            _phrase = phrase;
+            _value = value;
+            _startIndex = startIndex;
+            _endIndex = endIndex;
+        }
+
+        /**
+         * @return the phrase that was matched, as it was added to the matcher
+         */
+        public String getPhrase() {
+            return _phrase;
+        }
+
+        public V getValue() {
+            return _value;
+        }
+
+        /**
+         * @return the index of the first character of the match in the
+         *         searched string
+         */
+        public int getStartIndex() {
+            return _startIndex;
+        }
+
+        /**
+         * @return the index after the last character of the match in the
+         *         searched string
+         */
+        public int getEndIndex() {
+            return _endIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "Match[" + _phrase + "," + _startIndex + "-" + _endIndex + "]";
+        }
+    }
+
+    private static final class Node<V> {
+        private final Map<String, Node<V>> _children = new HashMap<>(4);
+        private final int _depth;
+        private Node<V> _failure;
+        private Node<V> _output;
+        private String _phrase;
+        private V _value;
+
+        private Node(final int depth) {
+            _depth = depth;
+        }
+    }
+
+    /**
+     * Orders matches by length of the phrase (longest first), then by phrase
+     * and then by position in the searched string.
+     */
+    private static final Comparator<Match<?>> LONGEST_FIRST_COMPARATOR =
+            Comparator.<Match<?>> comparingInt(match -> match.getPhrase().length()).reversed()
+                    .thenComparing(Match::getPhrase).thenComparingInt(Match::getStartIndex);
+
+    private final Node<V> _root;
+    private final boolean _caseSensitive;
+    private final int _size;
+
+    /**
+     * Creates a matcher for a map of phrases and their associated values. If
+     * two phrases are equal (ignoring case if the matcher is case
+     * insensitive), the first phrase in the map's iteration order is used.
+     *
+     * @param phrases
+     * @param caseSensitive
+     */
+    public WordSequenceMatcher(final Map<String, V> phrases, final boolean caseSensitive) {
+        _caseSensitive = caseSensitive;
+        _root = new Node<>(0);
+
+        int size = 0;
+        for (final Entry<String, V> entry : phrases.entrySet()) {
+            final String phrase = entry.getKey();
+            if (phrase == null || phrase.isEmpty()) {
+                continue;
+            }
+            Node<V> node = _root;
+            for (final String token : StringUtils.splitOnWordBoundaries(phrase, true)) {
+                final int depth = node._depth + 1;
+                node = node._children.computeIfAbsent(normalize(token), key -> new Node<>(depth));
+            }
+            if (node._phrase == null) {
+                node._phrase = phrase;
+                node._value = entry.getValue();
+                size++;
+            }
+        }
+        _size = size;
+
+        buildFailureLinks();
+    }
+
+    private void buildFailureLinks() {
+        final Queue<Node<V>> queue = new ArrayDeque<>();
+        for (final Node<V> child : _root._children.values()) {
+            child._failure = _root;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            final Node<V> node = queue.poll();
+            for (final Entry<String, Node<V>> entry : node._children.entrySet()) {
+                final String token = entry.getKey();
+                final Node<V> child = entry.getValue();
+
+                Node<V> failure = node._failure;
+                while (failure != _root && !failure._children.containsKey(token)) {
+                    failure = failure._failure;
+                }
+                final Node<V> failureChild = failure._children.get(token);
+                child._failure = failureChild == null ? _root : failureChild;
+                child._output = child._failure._phrase == null ? child._failure._output : child._failure;
+
+                queue.add(child);
+            }
+        }
+    }
+
+    private String normalize(final String token) {
+        return _caseSensitive ? token : token.toLowerCase();
+    }
+
+    /**
+     * @return the number of distinct phrases in this matcher
+     */
+    public int size() {
+        return _size;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Finds all occurrences of the phrases in a string, including overlapping
+     * ones.
+     *
+     * @param value
+     * @return the matches, ordered by their end position
+     */
+    public List<Match<V>> findAll(final String value) {
+        final List<Match<V>> result = new ArrayList<>();
+        if (value == null || value.isEmpty() || _size == 0) {
+            return result;
+        }
+
+        final List<String> tokens = StringUtils.splitOnWordBoundaries(value, true);
+        final int[] tokenStarts = new int[tokens.size() + 1];
+        for (int i = 0; i < tokens.size(); i++) {
+            tokenStarts[i + 1] = tokenStarts[i] + tokens.get(i).length();
+        }
+
+        Node<V> node = _root;
+        for (int i = 0; i < tokens.size(); i++) {
+            final String token = normalize(tokens.get(i));
+            while (node != _root && !node._children.containsKey(token)) {
+                node = node._failure;
+            }
+            final Node<V> next = node._children.get(token);
+            node = next == null ? _root : next;
+
+            for (Node<V> output = node._phrase == null ? node._output : node; output != null;
+                    output = output._output) {
+                final int startToken = i + 1 - output._depth;
+                result.add(new Match<>(output._phrase, output._value, tokenStarts[startToken], tokenStarts[i + 1]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds non-overlapping occurrences of the phrases in a string. Longer
+     * phrases take precedence over shorter ones, which gives the same result
+     * as searching and removing the phrases one at a time, longest first.
+     *
+     * @param value
+     * @return the matches, ordered by length of the phrase (longest first), then
+     *         by phrase and then by position in the string
+     */
+    public List<Match<V>> findLongest(final String value) {
+        final List<Match<V>> matches = findAll(value);
+        if (matches.size() < 2) {
+            return matches;
+        }
+
+        matches.sort(LONGEST_FIRST_COMPARATOR);
+
+        final boolean[] taken = new boolean[value.length()];
+        final List<Match<V>> result = new ArrayList<>(matches.size());
+        for (final Match<V> match : matches) {
+            boolean overlaps = false;
+            for (int i = match.getStartIndex(); i < match.getEndIndex() && !overlaps; i++) {
+                overlaps = taken[i];
+            }
+            if (!overlaps) {
+                for (int i = match.getStartIndex(); i < match.getEndIndex(); i++) {
+                    taken[i] = true;
+                }
+                result.add(match);
+            }
+        }
+        return result;
+    }
+}
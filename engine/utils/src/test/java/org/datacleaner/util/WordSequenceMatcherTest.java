@@ -0,0 +1,79 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Free Software Foundation, Inc.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.datacleaner.util.WordSequenceMatcher.Match;
+
+import junit.framework.TestCase;
+
+public class WordSequenceMatcherTest extends TestCase {
+
+    private static WordSequenceMatcher<String> createMatcher(final boolean caseSensitive, final String... phrases) {
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (final String phrase : phrases) {
+            map.put(phrase, phrase.toUpperCase());
+        }
+        return new WordSequenceMatcher<>(map, caseSensitive);
+    }
+
+    public void testFindAllMatchesWholeWordsOnly() throws Exception {
+        final WordSequenceMatcher<String> matcher = createMatcher(true, "new york", "york city", "ork");
+        assertEquals(3, matcher.size());
+
+        final List<Match<String>> matches = matcher.findAll("I love new york city, not newyork");
+        assertEquals("[Match[new york,7-15], Match[york city,11-20]]", matches.toString());
+        assertEquals("NEW YORK", matches.get(0).getValue());
+    }
+
+    public void testFindLongestPrefersLongerPhrases() throws Exception {
+        final WordSequenceMatcher<String> matcher =
+                createMatcher(true, "assistant to", "assistant to the", "the lead", "junior");
+
+        final List<Match<String>> matches = matcher.findLongest("assistant to the lead junior");
+        assertEquals("[Match[assistant to the,0-16], Match[junior,22-28]]", matches.toString());
+    }
+
+    public void testCaseInsensitive() throws Exception {
+        final WordSequenceMatcher<String> matcher = createMatcher(false, "The Netherlands");
+
+        assertEquals("[Match[The Netherlands,4-19]]", matcher.findAll("see THE NETHERLANDS.").toString());
+        assertEquals("[]", createMatcher(true, "The Netherlands").findAll("see THE NETHERLANDS.").toString());
+    }
+
+    public void testFailureLinks() throws Exception {
+        final WordSequenceMatcher<String> matcher = createMatcher(true, "a b c d", "b c", "c d e");
+
+        assertEquals("[Match[b c,2-5], Match[c d e,8-13]]", matcher.findAll("a b c x c d e").toString());
+        assertEquals("[Match[c d e,8-13], Match[b c,2-5]]", matcher.findLongest("a b c x c d e").toString());
+        assertEquals("[Match[a b c d,0-7]]", matcher.findLongest("a b c d e").toString());
+    }
+
+    public void testEmptyInput() throws Exception {
+        final WordSequenceMatcher<String> matcher = createMatcher(true, "foo bar");
+
+        assertTrue(matcher.findAll(null).isEmpty());
+        assertTrue(matcher.findAll("").isEmpty());
+        assertTrue(createMatcher(true).isEmpty());
+    }
+}
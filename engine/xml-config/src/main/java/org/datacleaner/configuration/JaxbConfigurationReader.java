@@ -79,6 +79,7 @@ import org.datacleaner.configuration.jaxb.ElasticSearchDatastoreType.TableDef.Fi
 import org.datacleaner.configuration.jaxb.ExcelDatastoreType;
 import org.datacleaner.configuration.jaxb.FixedWidthDatastoreType;
 import org.datacleaner.configuration.jaxb.FixedWidthDatastoreType.WidthSpecification;
+import org.datacleaner.configuration.jaxb.ForkjoinTaskrunnerType;
 import org.datacleaner.configuration.jaxb.HadoopClusterType;
 import org.datacleaner.configuration.jaxb.HbaseDatastoreType;
 import org.datacleaner.configuration.jaxb.HbaseDatastoreType.TableDef.Column;
@@ -111,6 +112,7 @@ import org.datacleaner.configuration.jaxb.TextFileDictionaryType;
 import org.datacleaner.configuration.jaxb.TextFileSynonymCatalogType;
 import org.datacleaner.configuration.jaxb.ValueListDictionaryType;
 import org.datacleaner.configuration.jaxb.ValueListSynonymCatalogType;
+import org.datacleaner.configuration.jaxb.VirtualthreadsTaskrunnerType;
 import org.datacleaner.configuration.jaxb.XmlDatastoreType;
 import org.datacleaner.configuration.jaxb.XmlDatastoreType.TableDef;
 import org.datacleaner.connection.AccessDatastore;
@@ -146,9 +148,11 @@ import org.datacleaner.descriptors.CompositeDescriptorProvider;
 import org.datacleaner.descriptors.ConfiguredPropertyDescriptor;
 import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.Descriptors;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.reference.DatastoreDictionary;
 import org.datacleaner.reference.DatastoreSynonymCatalog;
@@ -503,7 +507,8 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
         if (inMemoryStorageProvider != null) {
             final int maxRowsThreshold = inMemoryStorageProvider.getMaxRowsThreshold();
             final int maxSetsThreshold = inMemoryStorageProvider.getMaxSetsThreshold();
-            return new InMemoryStorageProvider(maxSetsThreshold, maxRowsThreshold);
+            final boolean reservoirSampling = inMemoryStorageProvider.isReservoirSampling();
+            return new InMemoryStorageProvider(maxSetsThreshold, maxRowsThreshold, reservoirSampling);
         }
 
         final CustomElementType customStorageProvider = storageProviderType.getCustomStorageProvider();
@@ -514,7 +519,10 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
         final BerkeleyDbStorageProviderType berkeleyDbStorageProvider = storageProviderType.getBerkeleyDb();
         if (berkeleyDbStorageProvider != null) {
             final File parentDirectory = new File(_interceptor.getTemporaryStorageDirectory());
-            final BerkeleyDbStorageProvider storageProvider = new BerkeleyDbStorageProvider(parentDirectory);
+            final int maxRowsThreshold = berkeleyDbStorageProvider.getMaxRowsThreshold();
+            final int maxSetsThreshold = berkeleyDbStorageProvider.getMaxSetsThreshold();
+            final BerkeleyDbStorageProvider storageProvider =
+                    new BerkeleyDbStorageProvider(parentDirectory, maxSetsThreshold, maxRowsThreshold);
             final Boolean cleanDirectoryOnStartup = berkeleyDbStorageProvider.isCleanDirectoryOnStartup();
             if (cleanDirectoryOnStartup != null && cleanDirectoryOnStartup) {
                 storageProvider.cleanDirectory();
@@ -1527,6 +1535,8 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             final DataCleanerConfiguration temporaryConfiguration) {
         final SinglethreadedTaskrunnerType singlethreadedTaskrunner = configuration.getSinglethreadedTaskrunner();
         final MultithreadedTaskrunnerType multithreadedTaskrunner = configuration.getMultithreadedTaskrunner();
+        final ForkjoinTaskrunnerType forkjoinTaskrunner = configuration.getForkjoinTaskrunner();
+        final VirtualthreadsTaskrunnerType virtualthreadsTaskrunner = configuration.getVirtualthreadsTaskrunner();
         final CustomElementType customTaskrunner = configuration.getCustomTaskrunner();
 
         if (singlethreadedTaskrunner != null) {
@@ -1534,11 +1544,35 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             environment.setTaskRunner(taskRunner);
         } else if (multithreadedTaskrunner != null) {
             final Short maxThreads = multithreadedTaskrunner.getMaxThreads();
+            final Integer rowBatchSize = multithreadedTaskrunner.getRowBatchSize();
+            final int numThreads =
+                    maxThreads == null ? MultiThreadedTaskRunner.DEFAULT_NUM_THREADS : maxThreads.intValue();
             final TaskRunner taskRunner;
-            if (maxThreads != null) {
-                taskRunner = new MultiThreadedTaskRunner(maxThreads.intValue());
+            if (rowBatchSize != null) {
+                taskRunner = new MultiThreadedTaskRunner(numThreads, rowBatchSize.intValue());
             } else {
-                taskRunner = new MultiThreadedTaskRunner();
+                taskRunner = new MultiThreadedTaskRunner(numThreads);
+            }
+            environment.setTaskRunner(taskRunner);
+        } else if (forkjoinTaskrunner != null) {
+            final Integer parallelismValue = forkjoinTaskrunner.getParallelism();
+            final Integer maxRowsInFlight = forkjoinTaskrunner.getMaxRowsInFlight();
+            final int parallelism =
+                    parallelismValue == null ? ForkJoinTaskRunner.getDefaultParallelism() : parallelismValue.intValue();
+            final TaskRunner taskRunner;
+            if (maxRowsInFlight != null) {
+                taskRunner = new ForkJoinTaskRunner(parallelism, maxRowsInFlight.intValue());
+            } else {
+                taskRunner = new ForkJoinTaskRunner(parallelism);
+            }
+            environment.setTaskRunner(taskRunner);
+        } else if (virtualthreadsTaskrunner != null) {
+            final Integer maxRowsInFlight = virtualthreadsTaskrunner.getMaxRowsInFlight();
+            final TaskRunner taskRunner;
+            if (maxRowsInFlight != null) {
+                taskRunner = new VirtualThreadTaskRunner(maxRowsInFlight.intValue());
+            } else {
+                taskRunner = new VirtualThreadTaskRunner();
             }
             environment.setTaskRunner(taskRunner);
         } else if (customTaskrunner != null) {
@@ -19,7 +19,9 @@
  */
 package org.datacleaner.configuration;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -59,7 +61,10 @@ import org.datacleaner.descriptors.CompositeDescriptorProvider;
 import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.RendererBeanDescriptor;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.concurrent.VirtualThreadTaskRunner;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.reference.DatastoreDictionary;
 import org.datacleaner.reference.DatastoreSynonymCatalog;
@@ -79,7 +84,9 @@ import org.datacleaner.storage.BerkeleyDbStorageProvider;
 import org.datacleaner.storage.CombinedStorageProvider;
 import org.datacleaner.storage.InMemoryRowAnnotationFactory2;
 import org.datacleaner.storage.InMemoryStorageProvider;
+import org.datacleaner.storage.PersistentRowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotationFactory;
+import org.datacleaner.storage.SamplingRowAnnotationFactory;
 import org.datacleaner.storage.StorageProvider;
 import org.junit.Assert;
 
@@ -209,6 +216,38 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertTrue(configuration.getEnvironment().getTaskRunner() instanceof SingleThreadedTaskRunner);
     }
 
+    public void testVirtualThreadsTaskRunner() throws Exception {
+        final TaskRunner defaultTaskRunner = readTaskRunner("<virtualthreads-taskrunner />");
+        final TaskRunner limitedTaskRunner = readTaskRunner("<virtualthreads-taskrunner max-rows-in-flight=\"50\" />");
+        try {
+            assertEquals(VirtualThreadTaskRunner.DEFAULT_MAX_ROWS_IN_FLIGHT,
+                    ((VirtualThreadTaskRunner) defaultTaskRunner).getMaxRowsInFlight());
+            assertEquals(50, ((VirtualThreadTaskRunner) limitedTaskRunner).getMaxRowsInFlight());
+        } finally {
+            defaultTaskRunner.shutdown();
+            limitedTaskRunner.shutdown();
+        }
+    }
+
+    public void testForkJoinTaskRunner() throws Exception {
+        final TaskRunner taskRunner =
+                readTaskRunner("<forkjoin-taskrunner parallelism=\"3\" max-rows-in-flight=\"40\" />");
+        try {
+            assertEquals(3, ((ForkJoinTaskRunner) taskRunner).getParallelism());
+            assertEquals(40, ((ForkJoinTaskRunner) taskRunner).getMaxRowsInFlight());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private TaskRunner readTaskRunner(final String taskRunnerElement) {
+        final String xml = "<configuration xmlns=\"http://eobjects.org/analyzerbeans/configuration/1.0\">"
+                + "<datastore-catalog />" + taskRunnerElement + "</configuration>";
+        final DataCleanerConfiguration configuration =
+                reader.create(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        return configuration.getEnvironment().getTaskRunner();
+    }
+
     public void testCombinedStorage() throws Exception {
         final DataCleanerConfiguration configuration =
                 reader.create(new File("src/test/resources/example-configuration-combined-storage.xml"));
@@ -225,6 +264,32 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertEquals(InMemoryRowAnnotationFactory2.class, rowAnnotationFactory.getClass());
     }
 
+    public void testPersistentRowAnnotationStorage() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-persistent-annotations.xml"));
+        final StorageProvider storageProvider = configuration.getEnvironment().getStorageProvider();
+
+        final CombinedStorageProvider csp = (CombinedStorageProvider) storageProvider;
+        assertEquals(InMemoryStorageProvider.class, csp.getCollectionsStorageProvider().getClass());
+        assertEquals(BerkeleyDbStorageProvider.class, csp.getRowAnnotationsStorageProvider().getClass());
+
+        final RowAnnotationFactory rowAnnotationFactory =
+                csp.getRowAnnotationsStorageProvider().createRowAnnotationFactory();
+        assertEquals(PersistentRowAnnotationFactory.class, rowAnnotationFactory.getClass());
+    }
+
+    public void testReservoirSampledRowAnnotationStorage() throws Exception {
+        final DataCleanerConfiguration configuration =
+                reader.create(new File("src/test/resources/example-configuration-sampled-annotations.xml"));
+        final StorageProvider storageProvider = configuration.getEnvironment().getStorageProvider();
+
+        final InMemoryStorageProvider inMemoryStorageProvider = (InMemoryStorageProvider) storageProvider;
+        assertTrue(inMemoryStorageProvider.isReservoirSampling());
+
+        final RowAnnotationFactory rowAnnotationFactory = inMemoryStorageProvider.createRowAnnotationFactory();
+        assertEquals(SamplingRowAnnotationFactory.class, rowAnnotationFactory.getClass());
+    }
+
     @SuppressWarnings("deprecation")
     public void testAllDatastoreTypes() throws Exception {
         final DatastoreCatalog datastoreCatalog = getDataStoreCatalog(getConfiguration());